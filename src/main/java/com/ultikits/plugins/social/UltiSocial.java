@@ -3,6 +3,7 @@ package com.ultikits.plugins.social;
 import java.util.Arrays;
 import java.util.List;
 
+import com.ultikits.plugins.social.service.FriendService;
 import com.ultikits.ultitools.abstracts.UltiToolsPlugin;
 import com.ultikits.ultitools.annotations.UltiToolsModule;
 
@@ -41,11 +42,17 @@ public class UltiSocial extends UltiToolsPlugin {
 
     @Override
     public void unregisterSelf() {
+        if (getContext() != null) {
+            getContext().getBean(FriendService.class).shutdown();
+        }
         getLogger().info("UltiSocial has been disabled!");
     }
 
     @Override
     public void reloadSelf() {
+        if (getContext() != null) {
+            getContext().getBean(FriendService.class).configureRateLimits();
+        }
         getLogger().info("UltiSocial configuration reloaded!");
     }
 
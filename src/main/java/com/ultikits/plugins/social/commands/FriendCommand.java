@@ -5,10 +5,16 @@ import com.ultikits.plugins.social.entity.FriendRequest;
 import com.ultikits.plugins.social.entity.FriendshipData;
 import com.ultikits.plugins.social.gui.BlockListGUI;
 import com.ultikits.plugins.social.gui.FriendListGUI;
+import com.ultikits.plugins.social.service.FriendEntry;
+import com.ultikits.plugins.social.service.FriendGroups;
 import com.ultikits.plugins.social.service.FriendService;
+import com.ultikits.plugins.social.service.FriendView;
+import com.ultikits.plugins.social.service.LastSeenTracker;
+import com.ultikits.plugins.social.service.RateLimiter;
+import com.ultikits.plugins.social.storage.FriendshipImporter;
+import com.ultikits.ultitools.UltiTools;
 import com.ultikits.ultitools.abstracts.command.BaseCommandExecutor;
 import com.ultikits.ultitools.annotations.command.*;
-import com.ultikits.ultitools.services.TeleportService;
 
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
@@ -16,9 +22,11 @@ import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
@@ -37,36 +45,68 @@ import java.util.stream.Collectors;
 public class FriendCommand extends BaseCommandExecutor {
     
     private final FriendService friendService;
-    private final TeleportService teleportService;
+    // Import and export report back from their worker threads
+    private final Executor mainThread;
     
-    public FriendCommand(FriendService friendService, TeleportService teleportService) {
+    private static final int MAX_GROUP_NAME = 16;
+    
+    public FriendCommand(FriendService friendService) {
+        this(friendService, task -> Bukkit.getScheduler().runTask(UltiTools.getInstance(), task));
+    }
+    
+    FriendCommand(FriendService friendService, Executor mainThread) {
         this.friendService = friendService;
-        this.teleportService = teleportService;
+        this.mainThread = mainThread;
     }
     
     // ==================== Friend Commands ====================
     
     @CmdMapping(format = "")
     public void openFriendList(@CmdSender Player player) {
+        long start = System.nanoTime();
         FriendListGUI gui = new FriendListGUI(friendService, player);
         player.openInventory(gui.getInventory());
+        friendService.recordLatency("cmdOpenGui", start);
+    }
+    
+    @CmdMapping(format = "search <name>")
+    public void searchFriends(@CmdSender Player player, @CmdParam("name") String prefix) {
+        FriendListGUI gui = new FriendListGUI(friendService, player, FriendView.DEFAULT.withSearch(prefix));
+        player.openInventory(gui.getInventory());
     }
     
     @CmdMapping(format = "list")
     public void listFriends(@CmdSender Player player) {
-        List<FriendshipData> friends = friendService.getFriends(player.getUniqueId());
-        
-        if (friends.isEmpty()) {
-            player.sendMessage(ChatColor.YELLOW + "你还没有好友，使用 /friend add <玩家> 添加好友");
-            return;
-        }
-        
-        player.sendMessage(ChatColor.GOLD + "=== 好友列表 (" + friends.size() + ") ===");
-        for (FriendshipData friend : friends) {
-            Player online = Bukkit.getPlayer(UUID.fromString(friend.getFriendUuid()));
-            String status = online != null ? ChatColor.GREEN + "● 在线" : ChatColor.GRAY + "○ 离线";
-            String star = friend.isFavorite() ? ChatColor.YELLOW + "★ " : "";
-            player.sendMessage(star + status + " " + ChatColor.WHITE + friend.getFriendName());
+        long start = System.nanoTime();
+        try {
+            List<FriendEntry> friends = friendService.getFriendEntries(player.getUniqueId());
+            
+            if (friends.isEmpty()) {
+                player.sendMessage(ChatColor.YELLOW + "你还没有好友，使用 /friend add <玩家> 添加好友");
+                return;
+            }
+            
+            player.sendMessage(ChatColor.GOLD + "=== 好友列表 (" + friends.size() + ") ===");
+            long epoch = friendService.getPresenceEpoch();
+            for (FriendEntry friend : friends) {
+                Player online = friend.getPlayer(epoch);
+                String status;
+                if (online != null) {
+                    status = ChatColor.GREEN + "● 在线";
+                } else if (friendService.isOnlineElsewhere(friend.getUuid())) {
+                    status = ChatColor.GREEN + "● 在线 (其他服务器)";
+                } else {
+                    status = ChatColor.GRAY + "○ 离线";
+                    long lastSeen = friendService.getLastSeen(friend.getUuid());
+                    if (lastSeen > 0) {
+                        status += " (" + LastSeenTracker.formatAgo(lastSeen, System.currentTimeMillis()) + ")";
+                    }
+                }
+                String star = friend.isFavorite() ? ChatColor.YELLOW + "★ " : "";
+                player.sendMessage(star + status + " " + ChatColor.WHITE + friend.getName());
+            }
+        } finally {
+            friendService.recordLatency("cmdList", start);
         }
     }
     
@@ -83,6 +123,10 @@ public class FriendCommand extends BaseCommandExecutor {
             return;
         }
         
+        if (friendService.isRateLimited(sender, RateLimiter.Action.FRIEND_REQUEST)) {
+            return;
+        }
+        
         friendService.sendRequest(sender, target);
     }
     
@@ -98,6 +142,9 @@ public class FriendCommand extends BaseCommandExecutor {
     
     @CmdMapping(format = "remove <player>")
     public void removeFriend(@CmdSender Player player, @CmdParam("player") String friendName) {
+        if (friendService.isRateLimited(player, RateLimiter.Action.MODIFY)) {
+            return;
+        }
         friendService.removeFriend(player, friendName);
     }
     
@@ -126,21 +173,13 @@ public class FriendCommand extends BaseCommandExecutor {
             return;
         }
         
-        List<FriendshipData> friends = friendService.getFriends(player.getUniqueId());
-        FriendshipData targetFriend = null;
-        for (FriendshipData friend : friends) {
-            if (friend.getFriendName().equalsIgnoreCase(friendName)) {
-                targetFriend = friend;
-                break;
-            }
-        }
-        
+        FriendEntry targetFriend = friendService.findFriend(player.getUniqueId(), friendName);
         if (targetFriend == null) {
             player.sendMessage(ChatColor.RED + friendName + " 不是你的好友！");
             return;
         }
         
-        Player target = Bukkit.getPlayer(UUID.fromString(targetFriend.getFriendUuid()));
+        Player target = Bukkit.getPlayer(targetFriend.getUuid());
         if (target == null) {
             player.sendMessage(ChatColor.RED + friendName + " 不在线！");
             return;
@@ -152,15 +191,8 @@ public class FriendCommand extends BaseCommandExecutor {
             return;
         }
         
-        // Use TeleportService for teleportation
-        if (teleportService != null) {
-            teleportService.teleport(player, target.getLocation());
-        } else {
-            player.teleport(target.getLocation());
-        }
-        
-        friendService.setTpCooldown(player.getUniqueId());
-        player.sendMessage(ChatColor.GREEN + "已传送到 " + friendName + " 身边！");
+        // Waits for the destination chunk; the cooldown starts on success
+        friendService.getTeleporter().teleport(player, target, targetFriend.getName());
     }
     
     // ==================== Message Commands ====================
@@ -168,42 +200,145 @@ public class FriendCommand extends BaseCommandExecutor {
     @CmdMapping(format = "msg <player> <message...>")
     public void sendMessage(@CmdSender Player sender, @CmdParam("player") String friendName, 
                            @CmdParam("message") String[] messageParts) {
-        // Check if target is friend
-        List<FriendshipData> friends = friendService.getFriends(sender.getUniqueId());
-        FriendshipData targetFriend = null;
-        for (FriendshipData friend : friends) {
-            if (friend.getFriendName().equalsIgnoreCase(friendName)) {
-                targetFriend = friend;
-                break;
-            }
+        if (friendService.isRateLimited(sender, RateLimiter.Action.MESSAGE)) {
+            return;
         }
         
-        if (targetFriend == null) {
-            sender.sendMessage(ChatColor.RED + friendName + " 不是你的好友！只能向好友发送私聊消息");
+        friendService.sendPrivateMessage(sender, friendName, String.join(" ", messageParts));
+    }
+    
+    @CmdMapping(format = "r <message...>")
+    public void reply(@CmdSender Player sender, @CmdParam("message") String[] messageParts) {
+        if (friendService.isRateLimited(sender, RateLimiter.Action.MESSAGE)) {
             return;
         }
         
-        Player target = Bukkit.getPlayer(UUID.fromString(targetFriend.getFriendUuid()));
-        if (target == null) {
-            sender.sendMessage(ChatColor.RED + friendName + " 不在线！");
+        friendService.replyPrivateMessage(sender, String.join(" ", messageParts));
+    }
+    
+    // ==================== Group Commands ====================
+    
+    @CmdMapping(format = "group list")
+    public void listGroups(@CmdSender Player player) {
+        if (!groupsEnabled(player)) {
+            return;
+        }
+        List<FriendGroups.Group> groups = friendService.getGroups(player.getUniqueId()).all();
+        if (groups.isEmpty()) {
+            player.sendMessage(ChatColor.YELLOW + "你还没有分组，使用 /friend group create <名称> 创建分组");
+            return;
+        }
+        player.sendMessage(ChatColor.GOLD + "=== 好友分组 (" + groups.size() + ") ===");
+        long epoch = friendService.getPresenceEpoch();
+        for (FriendGroups.Group group : groups) {
+            List<String> names = new ArrayList<>(group.size());
+            int online = 0;
+            for (FriendEntry member : group.members()) {
+                names.add(member.getName());
+                if (member.getPlayer(epoch) != null) {
+                    online++;
+                }
+            }
+            player.sendMessage(ChatColor.YELLOW + group.getName() + ChatColor.GRAY + " (" + online + "/"
+                + group.size() + " 在线) " + ChatColor.WHITE + String.join(", ", names));
+        }
+    }
+    
+    @CmdMapping(format = "group create <name>")
+    public void createGroup(@CmdSender Player player, @CmdParam("name") String name) {
+        if (!groupsEnabled(player) || friendService.isRateLimited(player, RateLimiter.Action.MODIFY)) {
+            return;
+        }
+        if (name.length() > MAX_GROUP_NAME) {
+            player.sendMessage(ChatColor.RED + "分组名称不能超过 " + MAX_GROUP_NAME + " 个字符！");
+            return;
+        }
+        FriendGroups groups = friendService.getGroups(player.getUniqueId());
+        if (groups.get(name) != null) {
+            player.sendMessage(ChatColor.RED + "分组 " + name + " 已存在！");
+            return;
+        }
+        if (groups.size() >= friendService.getConfig().getMaxGroups()) {
+            player.sendMessage(ChatColor.RED + "分组数量已达上限 (" + friendService.getConfig().getMaxGroups() + ")！");
+            return;
+        }
+        if (friendService.createGroup(player.getUniqueId(), name)) {
+            player.sendMessage(ChatColor.GREEN + "已创建分组 " + name);
+        }
+    }
+    
+    @CmdMapping(format = "group delete <name>")
+    public void deleteGroup(@CmdSender Player player, @CmdParam("name") String name) {
+        if (!groupsEnabled(player) || friendService.isRateLimited(player, RateLimiter.Action.MODIFY)) {
+            return;
+        }
+        if (friendService.deleteGroup(player.getUniqueId(), name)) {
+            player.sendMessage(ChatColor.GREEN + "已删除分组 " + name);
+        } else {
+            player.sendMessage(ChatColor.RED + "分组 " + name + " 不存在！");
+        }
+    }
+    
+    @CmdMapping(format = "group add <group> <player>")
+    public void addToGroup(@CmdSender Player player, @CmdParam("group") String groupName,
+                           @CmdParam("player") String friendName) {
+        if (!groupsEnabled(player) || friendService.isRateLimited(player, RateLimiter.Action.MODIFY)) {
+            return;
+        }
+        FriendGroups.Group group = friendService.getGroups(player.getUniqueId()).get(groupName);
+        if (group == null) {
+            player.sendMessage(ChatColor.RED + "分组 " + groupName + " 不存在！");
+            return;
+        }
+        FriendEntry friend = friendService.findFriend(player.getUniqueId(), friendName);
+        if (friend == null) {
+            player.sendMessage(ChatColor.RED + friendName + " 不是你的好友！");
+            return;
+        }
+        if (friendService.addToGroup(player.getUniqueId(), groupName, friend.getUuid())) {
+            player.sendMessage(ChatColor.GREEN + "已将 " + friend.getName() + " 加入分组 " + group.getName());
+        } else {
+            player.sendMessage(ChatColor.RED + friend.getName() + " 已在分组 " + group.getName() + " 中！");
+        }
+    }
+    
+    @CmdMapping(format = "group remove <group> <player>")
+    public void removeFromGroup(@CmdSender Player player, @CmdParam("group") String groupName,
+                                @CmdParam("player") String friendName) {
+        if (!groupsEnabled(player) || friendService.isRateLimited(player, RateLimiter.Action.MODIFY)) {
+            return;
+        }
+        FriendGroups.Group group = friendService.getGroups(player.getUniqueId()).get(groupName);
+        if (group == null) {
+            player.sendMessage(ChatColor.RED + "分组 " + groupName + " 不存在！");
+            return;
+        }
+        FriendEntry friend = friendService.findFriend(player.getUniqueId(), friendName);
+        if (friend == null || !friendService.removeFromGroup(player.getUniqueId(), groupName, friend.getUuid())) {
+            player.sendMessage(ChatColor.RED + friendName + " 不在分组 " + group.getName() + " 中！");
+            return;
+        }
+        player.sendMessage(ChatColor.GREEN + "已将 " + friend.getName() + " 移出分组 " + group.getName());
+    }
+    
+    @CmdMapping(format = "group msg <group> <message...>")
+    public void sendGroupMessage(@CmdSender Player sender, @CmdParam("group") String groupName,
+                                 @CmdParam("message") String[] messageParts) {
+        if (!groupsEnabled(sender) || friendService.isRateLimited(sender, RateLimiter.Action.MESSAGE)) {
             return;
         }
         
-        String message = String.join(" ", messageParts);
-        
-        // Send to target
-        target.sendMessage(ChatColor.LIGHT_PURPLE + "[私聊] " + ChatColor.WHITE + sender.getName() + 
-            ChatColor.GRAY + " → " + ChatColor.WHITE + "你: " + ChatColor.RESET + message);
-        
-        // Confirm to sender
-        sender.sendMessage(ChatColor.LIGHT_PURPLE + "[私聊] " + ChatColor.WHITE + "你" + 
-            ChatColor.GRAY + " → " + ChatColor.WHITE + target.getName() + ": " + ChatColor.RESET + message);
+        friendService.sendGroupMessage(sender, groupName, String.join(" ", messageParts));
     }
     
     // ==================== Blacklist Commands ====================
     
     @CmdMapping(format = "block <player>")
     public void blockPlayer(@CmdSender Player player, @CmdParam("player") String targetName) {
+        if (friendService.isRateLimited(player, RateLimiter.Action.MODIFY)) {
+            return;
+        }
+        
         Player target = Bukkit.getPlayerExact(targetName);
         if (target == null) {
             // Try offline player
@@ -240,6 +375,10 @@ public class FriendCommand extends BaseCommandExecutor {
     
     @CmdMapping(format = "unblock <player>")
     public void unblockPlayer(@CmdSender Player player, @CmdParam("player") String targetName) {
+        if (friendService.isRateLimited(player, RateLimiter.Action.MODIFY)) {
+            return;
+        }
+        
         if (friendService.removeFromBlacklist(player, targetName)) {
             player.sendMessage(ChatColor.GREEN + "已将 " + targetName + " 从黑名单中移除");
         } else {
@@ -253,6 +392,100 @@ public class FriendCommand extends BaseCommandExecutor {
         player.openInventory(gui.getInventory());
     }
     
+    // ==================== Admin Commands ====================
+    
+    @CmdMapping(format = "admin stats")
+    public void adminStats(@CmdSender Player player) {
+        if (!isAdmin(player)) {
+            return;
+        }
+        List<String> lines = friendService.getMetrics().report();
+        player.sendMessage(ChatColor.GOLD + "=== 好友系统性能统计 ===");
+        if (lines.isEmpty()) {
+            player.sendMessage(ChatColor.GRAY + "暂无数据");
+            return;
+        }
+        for (String line : lines) {
+            player.sendMessage(ChatColor.WHITE + line);
+        }
+    }
+    
+    @CmdMapping(format = "admin stats json")
+    public void adminStatsJson(@CmdSender Player player) {
+        if (!isAdmin(player)) {
+            return;
+        }
+        player.sendMessage(friendService.dumpMetrics());
+    }
+    
+    @CmdMapping(format = "admin stats reset")
+    public void adminStatsReset(@CmdSender Player player) {
+        if (!isAdmin(player)) {
+            return;
+        }
+        friendService.getMetrics().reset();
+        player.sendMessage(ChatColor.GREEN + "性能统计已重置");
+    }
+    
+    @CmdMapping(format = "admin import <file>")
+    public void adminImport(@CmdSender Player player, @CmdParam("file") String fileName) {
+        if (!isAdmin(player)) {
+            return;
+        }
+        if ("status".equalsIgnoreCase(fileName)) {
+            FriendshipImporter.Progress progress = friendService.getImportProgress();
+            player.sendMessage(progress == null ? ChatColor.GRAY + "没有导入任务" : describeImport(progress));
+            return;
+        }
+        if ("cancel".equalsIgnoreCase(fileName)) {
+            player.sendMessage(friendService.cancelImport()
+                ? ChatColor.YELLOW + "导入将在当前批次完成后停止"
+                : ChatColor.GRAY + "没有正在运行的导入任务");
+            return;
+        }
+        File file = friendService.resolveImportFile(fileName);
+        if (file == null) {
+            player.sendMessage(ChatColor.RED + "找不到文件 imports/" + fileName);
+            return;
+        }
+        if (!friendService.startImport(file,
+                progress -> mainThread.execute(() -> player.sendMessage(describeImport(progress))))) {
+            player.sendMessage(ChatColor.RED + "已有导入任务正在运行！");
+            return;
+        }
+        player.sendMessage(ChatColor.GREEN + "开始导入 " + file.getName() + "，将在后台进行");
+    }
+    
+    @CmdMapping(format = "admin export")
+    public void adminExport(@CmdSender Player player) {
+        if (!isAdmin(player)) {
+            return;
+        }
+        boolean started = friendService.startExport(result -> mainThread.execute(() -> {
+            if (result == null) {
+                player.sendMessage(ChatColor.RED + "导出失败，请查看控制台日志");
+            } else if (result.isCancelled()) {
+                player.sendMessage(ChatColor.YELLOW + "导出已取消");
+            } else {
+                player.sendMessage(ChatColor.GREEN + "导出完成: " + result.getFriendships() + " 条好友关系, "
+                    + result.getBlacklist() + " 条黑名单, 用时 " + result.getMillis() / 1000 + " 秒");
+            }
+        }));
+        player.sendMessage(started
+            ? ChatColor.GREEN + "开始导出到 exports/ 目录，将在后台进行"
+            : ChatColor.RED + "已有导出任务正在运行！");
+    }
+    
+    @CmdMapping(format = "admin export cancel")
+    public void adminExportCancel(@CmdSender Player player) {
+        if (!isAdmin(player)) {
+            return;
+        }
+        player.sendMessage(friendService.cancelExport()
+            ? ChatColor.YELLOW + "导出将在当前页完成后停止"
+            : ChatColor.GRAY + "没有正在运行的导出任务");
+    }
+    
     // ==================== Help Command ====================
     
     @CmdMapping(format = "help")
@@ -260,17 +493,32 @@ public class FriendCommand extends BaseCommandExecutor {
         player.sendMessage(ChatColor.GOLD + "=== 好友系统帮助 ===");
         player.sendMessage(ChatColor.YELLOW + "/friend" + ChatColor.WHITE + " - 打开好友列表");
         player.sendMessage(ChatColor.YELLOW + "/friend list" + ChatColor.WHITE + " - 列出所有好友");
+        player.sendMessage(ChatColor.YELLOW + "/friend search <名字>" + ChatColor.WHITE + " - 按名字搜索好友");
         player.sendMessage(ChatColor.YELLOW + "/friend add <玩家>" + ChatColor.WHITE + " - 发送好友请求");
         player.sendMessage(ChatColor.YELLOW + "/friend accept <玩家>" + ChatColor.WHITE + " - 接受好友请求");
         player.sendMessage(ChatColor.YELLOW + "/friend deny <玩家>" + ChatColor.WHITE + " - 拒绝好友请求");
         player.sendMessage(ChatColor.YELLOW + "/friend remove <玩家>" + ChatColor.WHITE + " - 删除好友");
         player.sendMessage(ChatColor.YELLOW + "/friend tp <好友>" + ChatColor.WHITE + " - 传送到好友");
         player.sendMessage(ChatColor.YELLOW + "/friend msg <好友> <消息>" + ChatColor.WHITE + " - 私聊好友");
+        player.sendMessage(ChatColor.YELLOW + "/friend r <消息>" + ChatColor.WHITE + " - 回复最近的私聊");
         player.sendMessage(ChatColor.YELLOW + "/friend requests" + ChatColor.WHITE + " - 查看待处理请求");
+        if (friendService.getConfig().getMaxGroups() > 0) {
+            player.sendMessage(ChatColor.GOLD + "=== 好友分组 ===");
+            player.sendMessage(ChatColor.YELLOW + "/friend group list" + ChatColor.WHITE + " - 查看分组");
+            player.sendMessage(ChatColor.YELLOW + "/friend group create|delete <名称>" + ChatColor.WHITE + " - 创建/删除分组");
+            player.sendMessage(ChatColor.YELLOW + "/friend group add|remove <分组> <好友>" + ChatColor.WHITE + " - 添加/移出成员");
+            player.sendMessage(ChatColor.YELLOW + "/friend group msg <分组> <消息>" + ChatColor.WHITE + " - 向分组在线好友发送消息");
+        }
         player.sendMessage(ChatColor.GOLD + "=== 黑名单功能 ===");
         player.sendMessage(ChatColor.YELLOW + "/friend block <玩家>" + ChatColor.WHITE + " - 拉黑玩家");
         player.sendMessage(ChatColor.YELLOW + "/friend unblock <玩家>" + ChatColor.WHITE + " - 解除拉黑");
         player.sendMessage(ChatColor.YELLOW + "/friend blocklist" + ChatColor.WHITE + " - 查看黑名单");
+        if (player.hasPermission("ultisocial.admin")) {
+            player.sendMessage(ChatColor.GOLD + "=== 管理功能 ===");
+            player.sendMessage(ChatColor.YELLOW + "/friend admin stats [json|reset]" + ChatColor.WHITE + " - 查看性能统计");
+            player.sendMessage(ChatColor.YELLOW + "/friend admin import <文件|status|cancel>" + ChatColor.WHITE + " - 导入好友数据");
+            player.sendMessage(ChatColor.YELLOW + "/friend admin export [cancel]" + ChatColor.WHITE + " - 导出好友数据");
+        }
     }
     
     @Override
@@ -306,11 +554,17 @@ public class FriendCommand extends BaseCommandExecutor {
             suggestions.add("remove");
             suggestions.add("tp");
             suggestions.add("msg");
+            suggestions.add("r");
             suggestions.add("requests");
+            suggestions.add("group");
             suggestions.add("block");
             suggestions.add("unblock");
             suggestions.add("blocklist");
+            suggestions.add("search");
             suggestions.add("help");
+            if (player.hasPermission("ultisocial.admin")) {
+                suggestions.add("admin");
+            }
             
             return filterStartsWith(suggestions, args[0]);
         }
@@ -346,12 +600,29 @@ public class FriendCommand extends BaseCommandExecutor {
                     }
                     break;
                     
+                case "group":
+                    suggestions.add("list");
+                    suggestions.add("create");
+                    suggestions.add("delete");
+                    suggestions.add("add");
+                    suggestions.add("remove");
+                    suggestions.add("msg");
+                    break;
+                    
                 case "unblock":
                     // Blocked users
                     for (BlacklistData blocked : friendService.getBlacklist(player.getUniqueId())) {
                         suggestions.add(blocked.getBlockedName());
                     }
                     break;
+                    
+                case "admin":
+                    if (player.hasPermission("ultisocial.admin")) {
+                        suggestions.add("stats");
+                        suggestions.add("import");
+                        suggestions.add("export");
+                    }
+                    break;
                 default:
                     // No suggestions for unknown subcommands
                     break;
@@ -360,9 +631,104 @@ public class FriendCommand extends BaseCommandExecutor {
             return filterStartsWith(suggestions, args[1]);
         }
         
+        if ("group".equalsIgnoreCase(args[0])) {
+            return groupSuggestions(player, args);
+        }
+        
+        if (args.length == 3 && "admin".equalsIgnoreCase(args[0]) && player.hasPermission("ultisocial.admin")) {
+            switch (args[1].toLowerCase()) {
+                case "stats":
+                    suggestions.add("json");
+                    suggestions.add("reset");
+                    break;
+                case "import":
+                    suggestions.add("status");
+                    suggestions.add("cancel");
+                    break;
+                case "export":
+                    suggestions.add("cancel");
+                    break;
+                default:
+                    break;
+            }
+            return filterStartsWith(suggestions, args[2]);
+        }
+        
         return suggestions;
     }
     
+    /**
+     * Suggest group names, then friend names for group add and remove.
+     */
+    private List<String> groupSuggestions(Player player, String[] args) {
+        List<String> suggestions = new ArrayList<>();
+        String subCmd = args[1].toLowerCase();
+        if (args.length == 3 && !"list".equals(subCmd) && !"create".equals(subCmd)) {
+            for (FriendGroups.Group group : friendService.getGroups(player.getUniqueId()).all()) {
+                suggestions.add(group.getName());
+            }
+            return filterStartsWith(suggestions, args[2]);
+        }
+        if (args.length == 4 && ("add".equals(subCmd) || "remove".equals(subCmd))) {
+            FriendGroups.Group group = friendService.getGroups(player.getUniqueId()).get(args[2]);
+            if ("remove".equals(subCmd) && group != null) {
+                for (FriendEntry member : group.members()) {
+                    suggestions.add(member.getName());
+                }
+            } else {
+                for (FriendEntry friend : friendService.getFriendEntries(player.getUniqueId())) {
+                    if (group == null || !group.contains(friend.getUuid())) {
+                        suggestions.add(friend.getName());
+                    }
+                }
+            }
+            return filterStartsWith(suggestions, args[3]);
+        }
+        return suggestions;
+    }
+    
+    /**
+     * Check that friend groups are enabled and notify when not.
+     */
+    private boolean groupsEnabled(Player player) {
+        if (friendService.getConfig().getMaxGroups() <= 0) {
+            player.sendMessage(ChatColor.RED + "好友分组功能已禁用！");
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Format import progress for chat.
+     */
+    private String describeImport(FriendshipImporter.Progress progress) {
+        if (progress.getError() != null) {
+            return ChatColor.RED + "导入失败: " + progress.getError();
+        }
+        String state;
+        if (progress.isFinished()) {
+            state = ChatColor.GREEN + "导入完成";
+        } else if (progress.isCancelled()) {
+            state = ChatColor.YELLOW + "导入已取消";
+        } else {
+            state = ChatColor.YELLOW + "导入中";
+        }
+        return state + ChatColor.WHITE + ": 已读取 " + progress.getRead() + " 行, 导入 " + progress.getImported()
+            + " 对, 重复 " + progress.getDuplicates() + ", 无效 " + progress.getInvalid()
+            + " (" + progress.getLinesPerSecond() + " 行/秒)";
+    }
+    
+    /**
+     * Check the admin permission and notify when missing.
+     */
+    private boolean isAdmin(Player player) {
+        if (!player.hasPermission("ultisocial.admin")) {
+            player.sendMessage(ChatColor.RED + "你没有权限执行此命令！");
+            return false;
+        }
+        return true;
+    }
+    
     /**
      * Filter suggestions that start with given prefix.
      */
@@ -20,7 +20,7 @@ import lombok.Setter;
 @ConfigEntity("config/social.yml")
 public class SocialConfig extends AbstractConfigEntity {
 
-    @Range(min = 1, max = 500)
+    @Range(min = 1, max = 10000)
     @ConfigEntry(path = "max_friends", comment = "Maximum number of friends per player")
     private int maxFriends = 50;
 
@@ -43,7 +43,100 @@ public class SocialConfig extends AbstractConfigEntity {
     @Range(min = 0, max = 3600)
     @ConfigEntry(path = "tp_to_friend.cooldown", comment = "Teleport cooldown in seconds")
     private int tpCooldown = 30;
-    
+
+    @Range(min = 0, max = 30)
+    @ConfigEntry(path = "tp_to_friend.warmup", comment = "Seconds to stand still before teleporting, 0 to teleport at once")
+    private int tpWarmup = 0;
+
+    @ConfigEntry(path = "rate_limit.enabled", comment = "Rate limit friend requests, messages and list changes per player")
+    private boolean rateLimitEnabled = true;
+
+    @Range(min = 1, max = 100)
+    @ConfigEntry(path = "rate_limit.request_burst", comment = "Friend requests allowed back-to-back")
+    private int requestBurst = 3;
+
+    @Range(min = 1, max = 600)
+    @ConfigEntry(path = "rate_limit.requests_per_minute", comment = "Sustained friend requests per minute")
+    private int requestsPerMinute = 6;
+
+    @Range(min = 1, max = 100)
+    @ConfigEntry(path = "rate_limit.message_burst", comment = "Private messages allowed back-to-back")
+    private int messageBurst = 5;
+
+    @Range(min = 1, max = 600)
+    @ConfigEntry(path = "rate_limit.messages_per_minute", comment = "Sustained private messages per minute")
+    private int messagesPerMinute = 30;
+
+    @Range(min = 1, max = 100)
+    @ConfigEntry(path = "rate_limit.modify_burst", comment = "Favorite/remove/block actions allowed back-to-back")
+    private int modifyBurst = 5;
+
+    @Range(min = 1, max = 600)
+    @ConfigEntry(path = "rate_limit.modifies_per_minute", comment = "Sustained favorite/remove/block actions per minute")
+    private int modifiesPerMinute = 30;
+
+    @ConfigEntry(path = "sync.enabled", comment = "Share presence and cache invalidations with other servers through the proxy")
+    private boolean syncEnabled = false;
+
+    @ConfigEntry(path = "sync.server_id", comment = "Unique id of this server on the network (empty = random per start)")
+    private String serverId = "";
+
+    @ConfigEntry(path = "mailbox.enabled", comment = "Keep private messages to offline friends until they join")
+    private boolean mailboxEnabled = true;
+
+    @Range(min = 1, max = 500)
+    @ConfigEntry(path = "mailbox.max_messages", comment = "Maximum stored messages per player (oldest dropped first)")
+    private int mailboxMaxMessages = 50;
+
+    @Range(min = 1, max = 90)
+    @ConfigEntry(path = "mailbox.expire_days", comment = "Days before an undelivered message is discarded")
+    private int mailboxExpireDays = 7;
+
+    @ConfigEntry(path = "blacklist.hide_chat", comment = "Hide public chat messages from players who blocked the sender")
+    private boolean hideBlockedChat = true;
+
+    @Range(min = 0, max = 100)
+    @ConfigEntry(path = "groups.max_groups", comment = "Maximum friend groups per player (0 = disabled)")
+    private int maxGroups = 10;
+
+    @NotEmpty
+    @ConfigEntry(path = "storage.backend", comment = "Friend and blacklist storage: database (UltiTools data source) or mapped (local memory-mapped files, single server only)")
+    private String storageBackend = "database";
+
+    @NotEmpty
+    @ConfigEntry(path = "storage.wal", comment = "Record friend and blacklist changes in a local write-ahead log before storing them: auto (only for the mapped backend), true or false")
+    private String walMode = "auto";
+
+    @Range(min = 100, max = 10000)
+    @ConfigEntry(path = "storage.import_batch_size", comment = "Friend pairs written per batch by /friend admin import")
+    private int importBatchSize = 1000;
+
+    @ConfigEntry(path = "export.enabled", comment = "Export friendships and blacklist to exports/ every night")
+    private boolean exportEnabled = false;
+
+    @Range(min = 0, max = 23)
+    @ConfigEntry(path = "export.hour", comment = "Hour of day (0-23) to run the nightly export")
+    private int exportHour = 4;
+
+    @Range(min = 0, max = 1000000)
+    @ConfigEntry(path = "export.rows_per_second", comment = "Maximum rows read per second during an export (0 = unlimited)")
+    private int exportRowsPerSecond = 5000;
+
+    @ConfigEntry(path = "snapshot.enabled", comment = "Keep a binary snapshot of the friend graph for fast startup")
+    private boolean snapshotEnabled = true;
+
+    @Range(min = 1, max = 1440)
+    @ConfigEntry(path = "snapshot.interval_minutes", comment = "Minutes between snapshot writes (also written on shutdown)")
+    private int snapshotIntervalMinutes = 30;
+
+    @Range(min = 0, max = 50)
+    @ConfigEntry(path = "scheduler.tick_budget_ms", comment = "Milliseconds per tick for deferred notifications and GUI refreshes (0 = run immediately)")
+    private int tickBudgetMillis = 2;
+
+    @Range(min = 0, max = 60000)
+    @ConfigEntry(path = "metrics.slow_query_ms", comment = "Log database calls slower than this many milliseconds (0 = off)")
+    private int slowQueryMillis = 50;
+
     @NotEmpty
     @ConfigEntry(path = "gui_title", comment = "Friend list GUI title")
     private String guiTitle = "&6好友列表 &7({COUNT}/{MAX})";
@@ -64,6 +157,10 @@ public class SocialConfig extends AbstractConfigEntity {
     @ConfigEntry(path = "messages.friend_offline", comment = "Friend offline notification")
     private String friendOfflineMessage = "&7你的好友 {PLAYER} 下线了";
 
+    @NotEmpty
+    @ConfigEntry(path = "messages.friend_join_world", comment = "Friend joined your world notification")
+    private String friendJoinWorldMessage = "&b你的好友 {PLAYER} 来到了你所在的世界 {WORLD}";
+
     @NotEmpty
     @ConfigEntry(path = "messages.request_sent", comment = "Request sent message")
     private String requestSentMessage = "&a已向 {PLAYER} 发送好友请求！";
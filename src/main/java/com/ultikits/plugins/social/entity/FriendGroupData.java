@@ -0,0 +1,101 @@
+package com.ultikits.plugins.social.entity;
+
+import com.ultikits.ultitools.abstracts.data.BaseDataEntity;
+import com.ultikits.ultitools.annotations.Column;
+import com.ultikits.ultitools.annotations.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A named group of a player's friends.
+ * One row per group; member UUIDs are packed into the members column.
+ *
+ * @author wisdomme
+ * @version 1.0.0
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table("social_friend_groups")
+public class FriendGroupData extends BaseDataEntity<String> {
+
+    /**
+     * The UUID of the player who owns the group
+     */
+    @Column("player_uuid")
+    private String playerUuid;
+
+    /**
+     * The group name
+     */
+    @Column("group_name")
+    private String groupName;
+
+    /**
+     * Member UUIDs, see {@link #pack}
+     */
+    @Column("members")
+    private String members;
+
+    /**
+     * The timestamp the group was created
+     */
+    @Column("created_time")
+    private long createdTime;
+
+    /**
+     * Create an empty group.
+     */
+    public static FriendGroupData create(UUID playerUuid, String groupName) {
+        return FriendGroupData.builder()
+            .playerUuid(playerUuid.toString())
+            .groupName(groupName)
+            .members("")
+            .createdTime(System.currentTimeMillis())
+            .build();
+    }
+
+    /**
+     * Pack member UUIDs into the members column, comma separated.
+     */
+    public static String pack(Collection<UUID> members) {
+        StringBuilder sb = new StringBuilder(members.size() * 37);
+        for (UUID member : members) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(member);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Read the member UUIDs of a packed members column.
+     * Malformed entries are skipped.
+     */
+    public static List<UUID> unpack(String members) {
+        List<UUID> result = new ArrayList<>();
+        if (members == null || members.isEmpty()) {
+            return result;
+        }
+        for (String part : members.split(",")) {
+            try {
+                result.add(UUID.fromString(part.trim()));
+            } catch (IllegalArgumentException ignored) {
+                // Skip malformed entry
+            }
+        }
+        return result;
+    }
+}
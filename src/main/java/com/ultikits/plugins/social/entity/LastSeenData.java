@@ -0,0 +1,45 @@
+package com.ultikits.plugins.social.entity;
+
+import com.ultikits.ultitools.abstracts.data.BaseDataEntity;
+import com.ultikits.ultitools.annotations.Column;
+import com.ultikits.ultitools.annotations.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/**
+ * Last time a player was seen online, and the name they had then.
+ * One row per player.
+ *
+ * @author wisdomme
+ * @version 1.0.0
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table("social_last_seen")
+public class LastSeenData extends BaseDataEntity<String> {
+
+    /**
+     * The UUID of the player
+     */
+    @Column("player_uuid")
+    private String playerUuid;
+
+    /**
+     * The timestamp the player was last seen
+     */
+    @Column("last_seen")
+    private long lastSeen;
+
+    /**
+     * The player's name at that time
+     */
+    @Column("player_name")
+    private String playerName;
+}
@@ -0,0 +1,46 @@
+package com.ultikits.plugins.social.entity;
+
+import com.ultikits.ultitools.abstracts.data.BaseDataEntity;
+import com.ultikits.ultitools.annotations.Column;
+import com.ultikits.ultitools.annotations.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/**
+ * Offline message mailbox entity.
+ * Each flush adds one row per recipient with the messages queued since the
+ * last flush packed into the payload column. Rows are never updated.
+ *
+ * @author wisdomme
+ * @version 1.0.0
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table("social_mailbox")
+public class MailboxData extends BaseDataEntity<String> {
+
+    /**
+     * The UUID of the player the messages are waiting for
+     */
+    @Column("recipient_uuid")
+    private String recipientUuid;
+
+    /**
+     * Packed messages, see {@link OfflineMessage#pack}
+     */
+    @Column("payload")
+    private String payload;
+
+    /**
+     * The timestamp the row was written
+     */
+    @Column("updated_time")
+    private long updatedTime;
+}
@@ -0,0 +1,85 @@
+package com.ultikits.plugins.social.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A private message waiting for an offline friend.
+ *
+ * @author wisdomme
+ * @version 1.0.0
+ */
+@Data
+@AllArgsConstructor
+public class OfflineMessage {
+
+    private static final char FIELD_SEPARATOR = '\u001F';
+    private static final char RECORD_SEPARATOR = '\u001E';
+
+    private UUID sender;
+    private String senderName;
+    private String content;
+    private long timestamp;
+
+    /**
+     * Check if message has expired.
+     */
+    public boolean isExpired(long maxAgeMillis) {
+        return System.currentTimeMillis() - timestamp > maxAgeMillis;
+    }
+
+    /**
+     * Create a new offline message.
+     */
+    public static OfflineMessage create(UUID sender, String senderName, String content) {
+        return new OfflineMessage(sender, senderName, content, System.currentTimeMillis());
+    }
+
+    /**
+     * Pack messages into a single column value.
+     */
+    public static String pack(List<OfflineMessage> messages) {
+        StringBuilder sb = new StringBuilder(messages.size() * 96);
+        for (OfflineMessage message : messages) {
+            if (sb.length() > 0) {
+                sb.append(RECORD_SEPARATOR);
+            }
+            sb.append(message.timestamp).append(FIELD_SEPARATOR)
+                .append(message.sender).append(FIELD_SEPARATOR)
+                .append(strip(message.senderName)).append(FIELD_SEPARATOR)
+                .append(strip(message.content));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Unpack a column value, skipping malformed records.
+     */
+    public static List<OfflineMessage> unpack(String payload) {
+        List<OfflineMessage> messages = new ArrayList<>();
+        if (payload == null || payload.isEmpty()) {
+            return messages;
+        }
+        for (String record : payload.split(String.valueOf(RECORD_SEPARATOR))) {
+            String[] fields = record.split(String.valueOf(FIELD_SEPARATOR), 4);
+            if (fields.length != 4) {
+                continue;
+            }
+            try {
+                messages.add(new OfflineMessage(UUID.fromString(fields[1]), fields[2], fields[3],
+                    Long.parseLong(fields[0])));
+            } catch (IllegalArgumentException ignored) {
+                // Corrupt record, drop it
+            }
+        }
+        return messages;
+    }
+
+    private static String strip(String value) {
+        return value.replace(FIELD_SEPARATOR, ' ').replace(RECORD_SEPARATOR, ' ');
+    }
+}
@@ -2,6 +2,7 @@ package com.ultikits.plugins.social.gui;
 
 import com.ultikits.plugins.social.entity.BlacklistData;
 import com.ultikits.plugins.social.service.FriendService;
+import com.ultikits.plugins.social.service.OpenGuiRegistry;
 
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
@@ -14,21 +15,29 @@ import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.inventory.meta.SkullMeta;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 /**
  * Blacklist management GUI.
+ * Only the visible page is requested from the service, with the next page
+ * prefetched. While open, the slots of blocked players who join or leave
+ * are redrawn.
  *
  * @author wisdomme
  * @version 1.0.0
  */
-public class BlockListGUI implements InventoryHolder {
+public class BlockListGUI implements InventoryHolder, OpenGuiRegistry.View {
     
     private final FriendService friendService;
     private final Player viewer;
     private final Inventory inventory;
-    private final List<BlacklistData> blockedUsers;
+    private List<BlacklistData> blockedUsers;
+    private List<BlacklistData> nextBlockedUsers;
+    private int total;
     private int currentPage = 0;
     
     private static final int ITEMS_PER_PAGE = 45;
@@ -37,9 +46,9 @@ public class BlockListGUI implements InventoryHolder {
     public BlockListGUI(FriendService friendService, Player viewer) {
         this.friendService = friendService;
         this.viewer = viewer;
-        this.blockedUsers = new ArrayList<>(friendService.getBlacklist(viewer.getUniqueId()));
+        this.total = friendService.getBlacklistCount(viewer.getUniqueId());
         
-        String title = GUI_TITLE + " §7(" + blockedUsers.size() + ")";
+        String title = GUI_TITLE + " §7(" + total + ")";
         this.inventory = Bukkit.createInventory(this, 54, title);
         updateInventory();
     }
@@ -49,17 +58,52 @@ public class BlockListGUI implements InventoryHolder {
      */
     public void updateInventory() {
         inventory.clear();
+        loadPage();
         
-        int start = currentPage * ITEMS_PER_PAGE;
-        int end = Math.min(start + ITEMS_PER_PAGE, blockedUsers.size());
-        
-        for (int i = start; i < end; i++) {
-            BlacklistData blocked = blockedUsers.get(i);
-            inventory.setItem(i - start, createBlockedUserItem(blocked));
+        for (int i = 0; i < blockedUsers.size(); i++) {
+            inventory.setItem(i, createBlockedUserItem(blockedUsers.get(i)));
         }
         
         // Navigation row
         addNavigationRow();
+        track();
+    }
+    
+    /**
+     * Redraw the slots of blocked players who joined or left.
+     */
+    @Override
+    public void updateSlots(Collection<Integer> slots) {
+        for (int slot : slots) {
+            if (slot < blockedUsers.size()) {
+                inventory.setItem(slot, createBlockedUserItem(blockedUsers.get(slot)));
+            }
+        }
+    }
+    
+    /**
+     * Let presence changes of the players on this page reach their slots.
+     */
+    private void track() {
+        Map<UUID, Integer> slots = new HashMap<>(blockedUsers.size() * 2);
+        for (int i = 0; i < blockedUsers.size(); i++) {
+            slots.put(UUID.fromString(blockedUsers.get(i).getBlockedUuid()), i);
+        }
+        friendService.getOpenGuis().track(this, slots);
+    }
+    
+    /**
+     * Load the current page if needed and prefetch the one after it.
+     */
+    private void loadPage() {
+        UUID viewerUuid = viewer.getUniqueId();
+        int start = currentPage * ITEMS_PER_PAGE;
+        if (blockedUsers == null) {
+            blockedUsers = friendService.getBlacklistPage(viewerUuid, start, ITEMS_PER_PAGE);
+        }
+        if (nextBlockedUsers == null && start + ITEMS_PER_PAGE < total) {
+            nextBlockedUsers = friendService.getBlacklistPage(viewerUuid, start + ITEMS_PER_PAGE, ITEMS_PER_PAGE);
+        }
     }
     
     /**
@@ -71,13 +115,15 @@ public class BlockListGUI implements InventoryHolder {
         
         if (meta != null) {
             // Set skull owner
-            meta.setOwningPlayer(Bukkit.getOfflinePlayer(UUID.fromString(blocked.getBlockedUuid())));
+            UUID blockedUuid = UUID.fromString(blocked.getBlockedUuid());
+            meta.setOwningPlayer(Bukkit.getOfflinePlayer(blockedUuid));
             
             // Display name
             meta.setDisplayName(ChatColor.RED + "✖ " + ChatColor.WHITE + blocked.getBlockedName());
             
             // Lore
             List<String> lore = new ArrayList<>();
+            lore.add(Bukkit.getPlayer(blockedUuid) != null ? ChatColor.GREEN + "● 在线" : ChatColor.GRAY + "○ 离线");
             lore.add(ChatColor.GRAY + "拉黑时间: " + ChatColor.WHITE + formatTime(blocked.getCreatedTime()));
             
             if (blocked.getReason() != null && !blocked.getReason().isEmpty()) {
@@ -99,7 +145,7 @@ public class BlockListGUI implements InventoryHolder {
      * Add navigation row.
      */
     private void addNavigationRow() {
-        int totalPages = (int) Math.ceil((double) blockedUsers.size() / ITEMS_PER_PAGE);
+        int totalPages = (int) Math.ceil((double) total / ITEMS_PER_PAGE);
         if (totalPages == 0) totalPages = 1;
         
         // Fill bottom row with glass
@@ -121,10 +167,10 @@ public class BlockListGUI implements InventoryHolder {
         // Page indicator
         inventory.setItem(49, createItem(Material.PAPER, 
             ChatColor.YELLOW + "第 " + (currentPage + 1) + " / " + totalPages + " 页",
-            ChatColor.GRAY + "共 " + blockedUsers.size() + " 人被拉黑"));
+            ChatColor.GRAY + "共 " + total + " 人被拉黑"));
         
         // Empty slot info
-        if (blockedUsers.isEmpty()) {
+        if (total == 0) {
             inventory.setItem(22, createItem(Material.EMERALD,
                 ChatColor.GREEN + "黑名单为空",
                 ChatColor.GRAY + "你没有拉黑任何玩家"));
@@ -170,19 +216,20 @@ public class BlockListGUI implements InventoryHolder {
     public BlacklistData getBlockedUserAtSlot(int slot) {
         if (slot < 0 || slot >= ITEMS_PER_PAGE) return null;
         
-        int index = currentPage * ITEMS_PER_PAGE + slot;
-        if (index >= blockedUsers.size()) return null;
+        if (slot >= blockedUsers.size()) return null;
         
-        return blockedUsers.get(index);
+        return blockedUsers.get(slot);
     }
     
     /**
      * Go to next page.
      */
     public void nextPage() {
-        int totalPages = (int) Math.ceil((double) blockedUsers.size() / ITEMS_PER_PAGE);
+        int totalPages = (int) Math.ceil((double) total / ITEMS_PER_PAGE);
         if (currentPage < totalPages - 1) {
             currentPage++;
+            blockedUsers = nextBlockedUsers;
+            nextBlockedUsers = null;
             updateInventory();
         }
     }
@@ -193,6 +240,8 @@ public class BlockListGUI implements InventoryHolder {
     public void previousPage() {
         if (currentPage > 0) {
             currentPage--;
+            nextBlockedUsers = blockedUsers;
+            blockedUsers = null;
             updateInventory();
         }
     }
@@ -202,11 +251,15 @@ public class BlockListGUI implements InventoryHolder {
      */
     public void refresh() {
         friendService.clearCache(viewer.getUniqueId());
-        blockedUsers.clear();
-        blockedUsers.addAll(friendService.getBlacklist(viewer.getUniqueId()));
+        total = friendService.getBlacklistCount(viewer.getUniqueId());
+        // Stay in range when entries on the last page were removed
+        currentPage = Math.min(currentPage, Math.max(0, (total - 1) / ITEMS_PER_PAGE));
+        blockedUsers = null;
+        nextBlockedUsers = null;
         updateInventory();
     }
     
+    @Override
     public Player getViewer() {
         return viewer;
     }
@@ -1,7 +1,13 @@
 package com.ultikits.plugins.social.gui;
 
 import com.ultikits.plugins.social.entity.FriendshipData;
+import com.ultikits.plugins.social.service.FriendEntry;
+import com.ultikits.plugins.social.service.FriendGroups;
+import com.ultikits.plugins.social.service.FriendList;
 import com.ultikits.plugins.social.service.FriendService;
+import com.ultikits.plugins.social.service.FriendView;
+import com.ultikits.plugins.social.service.LastSeenTracker;
+import com.ultikits.plugins.social.service.OpenGuiRegistry;
 
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
@@ -14,32 +20,60 @@ import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.inventory.meta.SkullMeta;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 /**
  * Friend list GUI.
+ * Only the visible page is requested from the service, with the next page
+ * prefetched; earlier pages are reached again through their cursors.
+ * A sort mode, filter, name search or friend group switches to a view
+ * computed once by the service and paged by offset.
+ * While open, the GUI is tracked by the players on its page, and only the
+ * slots of friends who join, leave or change world are redrawn. A view
+ * filtered or sorted by presence also watches the friends off its page and
+ * is computed again when any of them joins, leaves or changes world.
  *
  * @author wisdomme
  * @version 1.0.0
  */
-public class FriendListGUI implements InventoryHolder {
+public class FriendListGUI implements InventoryHolder, OpenGuiRegistry.View {
     
     private final FriendService friendService;
     private final Player viewer;
     private final Inventory inventory;
-    private final List<FriendshipData> friends;
+    // Cursor that starts each page visited so far, null for the first
+    private final List<FriendList.Cursor> pageCursors = new ArrayList<>();
+    private FriendList.Page page;
+    private FriendList.Page nextPage;
     private int currentPage = 0;
     
+    private FriendView view;
+    // Friends in a non-default view, null until loaded
+    private List<FriendEntry> viewFriends;
+    
+    // Current page
+    private List<FriendEntry> visible;
+    private boolean hasNext;
+    private int total;
+    
     private static final int ITEMS_PER_PAGE = 45;
     
     public FriendListGUI(FriendService friendService, Player viewer) {
+        this(friendService, viewer, FriendView.DEFAULT);
+    }
+    
+    public FriendListGUI(FriendService friendService, Player viewer, FriendView view) {
         this.friendService = friendService;
         this.viewer = viewer;
-        this.friends = friendService.getFriends(viewer.getUniqueId());
+        this.view = view;
+        this.pageCursors.add(null);
         
         String title = friendService.getConfig().getGuiTitle()
-            .replace("{COUNT}", String.valueOf(friends.size()))
+            .replace("{COUNT}", String.valueOf(friendService.getFriendCount(viewer.getUniqueId())))
             .replace("{MAX}", String.valueOf(friendService.getConfig().getMaxFriends()))
             .replace("&", "§");
         
@@ -52,48 +86,111 @@ public class FriendListGUI implements InventoryHolder {
      */
     public void updateInventory() {
         inventory.clear();
+        loadPage();
         
-        int start = currentPage * ITEMS_PER_PAGE;
-        int end = Math.min(start + ITEMS_PER_PAGE, friends.size());
-        
-        for (int i = start; i < end; i++) {
-            FriendshipData friend = friends.get(i);
-            inventory.setItem(i - start, createFriendItem(friend));
+        for (int i = 0; i < visible.size(); i++) {
+            inventory.setItem(i, createFriendItem(visible.get(i)));
         }
         
         // Navigation row
         addNavigationRow();
+        track();
+    }
+    
+    /**
+     * Redraw the slots of friends whose presence changed. A view filtered
+     * or sorted by presence is computed again instead.
+     */
+    @Override
+    public void updateSlots(Collection<Integer> slots) {
+        if (view.dependsOnPresence()) {
+            viewFriends = null;
+            updateInventory();
+            return;
+        }
+        for (int slot : slots) {
+            if (slot < visible.size()) {
+                inventory.setItem(slot, createFriendItem(visible.get(slot)));
+            }
+        }
+    }
+    
+    /**
+     * Let presence changes of the friends on this page reach their slots,
+     * and those of every friend reach a presence-dependent view.
+     */
+    private void track() {
+        Map<UUID, Integer> slots = new HashMap<>(visible.size() * 2);
+        for (int i = 0; i < visible.size(); i++) {
+            slots.put(visible.get(i).getUuid(), i);
+        }
+        List<UUID> watched = new ArrayList<>();
+        if (view.dependsOnPresence()) {
+            for (FriendEntry friend : friendService.getFriendEntries(viewer.getUniqueId())) {
+                if (!slots.containsKey(friend.getUuid())) {
+                    watched.add(friend.getUuid());
+                }
+            }
+        }
+        friendService.getOpenGuis().track(this, slots, watched);
+    }
+    
+    /**
+     * Load the current page if needed and prefetch the one after it.
+     */
+    private void loadPage() {
+        if (!view.isDefault()) {
+            if (viewFriends == null) {
+                viewFriends = friendService.getFriendsView(viewer, view);
+            }
+            int from = Math.min(currentPage * ITEMS_PER_PAGE, viewFriends.size());
+            visible = viewFriends.subList(from, Math.min(from + ITEMS_PER_PAGE, viewFriends.size()));
+            hasNext = from + ITEMS_PER_PAGE < viewFriends.size();
+            total = viewFriends.size();
+            return;
+        }
+        UUID viewerUuid = viewer.getUniqueId();
+        if (page == null) {
+            page = friendService.getFriendsPage(viewerUuid, pageCursors.get(currentPage), ITEMS_PER_PAGE);
+        }
+        if (nextPage == null && page.getNext() != null) {
+            nextPage = friendService.getFriendsPage(viewerUuid, page.getNext(), ITEMS_PER_PAGE);
+        }
+        visible = page.getEntries();
+        hasNext = page.getNext() != null;
+        total = page.getTotal();
     }
     
     /**
      * Create an item representing a friend.
      */
-    private ItemStack createFriendItem(FriendshipData friend) {
+    private ItemStack createFriendItem(FriendEntry entry) {
+        FriendshipData friend = entry.getData();
         ItemStack skull = new ItemStack(Material.PLAYER_HEAD);
         SkullMeta meta = (SkullMeta) skull.getItemMeta();
         
         if (meta != null) {
             // Set skull owner
-            Player onlineFriend = Bukkit.getPlayer(UUID.fromString(friend.getFriendUuid()));
+            Player onlineFriend = entry.getPlayer(friendService.getPresenceEpoch());
             boolean online = onlineFriend != null;
             
-            meta.setOwningPlayer(Bukkit.getOfflinePlayer(UUID.fromString(friend.getFriendUuid())));
-            
-            // Display name
-            String displayName = friend.getNickname() != null ? 
-                friend.getNickname() + " §7(" + friend.getFriendName() + ")" :
-                friend.getFriendName();
+            meta.setOwningPlayer(Bukkit.getOfflinePlayer(entry.getUuid()));
             
-            if (friend.isFavorite()) {
-                displayName = "§e★ " + displayName;
-            }
-            
-            meta.setDisplayName((online ? ChatColor.GREEN : ChatColor.GRAY) + displayName);
+            // Display name, built once per cached entry
+            meta.setDisplayName((online ? ChatColor.GREEN : ChatColor.GRAY) + entry.getLabel());
             
             // Lore
             List<String> lore = new ArrayList<>();
             lore.add(online ? ChatColor.GREEN + "● 在线" : ChatColor.GRAY + "○ 离线");
             
+            if (!online) {
+                long lastSeen = friendService.getLastSeen(entry.getUuid());
+                if (lastSeen > 0) {
+                    lore.add(ChatColor.GRAY + "最后在线: " + ChatColor.WHITE
+                        + LastSeenTracker.formatAgo(lastSeen, System.currentTimeMillis()));
+                }
+            }
+            
             if (online && onlineFriend != null) {
                 lore.add(ChatColor.GRAY + "世界: " + ChatColor.WHITE + onlineFriend.getWorld().getName());
                 // Show game mode
@@ -140,7 +237,7 @@ public class FriendListGUI implements InventoryHolder {
      * Add navigation row.
      */
     private void addNavigationRow() {
-        int totalPages = (int) Math.ceil((double) friends.size() / ITEMS_PER_PAGE);
+        int totalPages = (int) Math.ceil((double) total / ITEMS_PER_PAGE);
         if (totalPages == 0) totalPages = 1;
         
         // Fill bottom row with glass
@@ -162,12 +259,35 @@ public class FriendListGUI implements InventoryHolder {
                 ChatColor.GRAY + "点击查看"));
         }
         
+        // Search, sort and filter
+        if (view.getSearch() != null) {
+            inventory.setItem(46, createItem(Material.NAME_TAG,
+                ChatColor.AQUA + "搜索: " + ChatColor.WHITE + view.getSearch(),
+                ChatColor.GRAY + "右键点击: 清除搜索"));
+        } else {
+            inventory.setItem(46, createItem(Material.NAME_TAG,
+                ChatColor.AQUA + "搜索好友",
+                ChatColor.GRAY + "/friend search <名字前缀>"));
+        }
+        inventory.setItem(48, createItem(Material.COMPARATOR,
+            ChatColor.AQUA + "排序: " + ChatColor.WHITE + view.getSort().getDisplayName(),
+            ChatColor.GRAY + "点击切换"));
+        inventory.setItem(50, createItem(Material.HOPPER,
+            ChatColor.AQUA + "筛选: " + ChatColor.WHITE + view.getFilter().getDisplayName(),
+            ChatColor.GRAY + "点击切换"));
+        if (friendService.getConfig().getMaxGroups() > 0) {
+            inventory.setItem(51, createItem(Material.CHEST,
+                ChatColor.AQUA + "分组: " + ChatColor.WHITE + (view.getGroup() == null ? "全部" : view.getGroup()),
+                ChatColor.GRAY + "点击切换",
+                ChatColor.GRAY + "右键点击: 显示全部"));
+        }
+        
         // Page indicator
         inventory.setItem(49, createItem(Material.BOOK, 
             ChatColor.YELLOW + "第 " + (currentPage + 1) + " / " + totalPages + " 页"));
         
         // Next page
-        if (currentPage < totalPages - 1) {
+        if (hasNext) {
             inventory.setItem(53, createItem(Material.ARROW, ChatColor.GREEN + "下一页"));
         }
     }
@@ -204,20 +324,33 @@ public class FriendListGUI implements InventoryHolder {
      * Get friend at slot.
      */
     public FriendshipData getFriendAtSlot(int slot) {
+        FriendEntry entry = getEntryAtSlot(slot);
+        return entry == null ? null : entry.getData();
+    }
+    
+    /**
+     * Get the cached friend entry at slot.
+     */
+    public FriendEntry getEntryAtSlot(int slot) {
         if (slot < 0 || slot >= ITEMS_PER_PAGE) return null;
         
-        int index = currentPage * ITEMS_PER_PAGE + slot;
-        if (index >= friends.size()) return null;
+        if (slot >= visible.size()) return null;
         
-        return friends.get(index);
+        return visible.get(slot);
     }
     
     /**
      * Go to next page.
      */
     public void nextPage() {
-        int totalPages = (int) Math.ceil((double) friends.size() / ITEMS_PER_PAGE);
-        if (currentPage < totalPages - 1) {
+        if (hasNext) {
+            if (view.isDefault()) {
+                if (pageCursors.size() == currentPage + 1) {
+                    pageCursors.add(page.getNext());
+                }
+                page = nextPage;
+                nextPage = null;
+            }
             currentPage++;
             updateInventory();
         }
@@ -229,6 +362,10 @@ public class FriendListGUI implements InventoryHolder {
     public void previousPage() {
         if (currentPage > 0) {
             currentPage--;
+            if (view.isDefault()) {
+                nextPage = page;
+                page = null;
+            }
             updateInventory();
         }
     }
@@ -238,11 +375,66 @@ public class FriendListGUI implements InventoryHolder {
      */
     public void refresh() {
         friendService.clearCache(viewer.getUniqueId());
-        friends.clear();
-        friends.addAll(friendService.getFriends(viewer.getUniqueId()));
+        page = null;
+        nextPage = null;
+        viewFriends = null;
         updateInventory();
+        // Step back when the friends on this page were removed
+        if (visible.isEmpty() && currentPage > 0) {
+            previousPage();
+        }
+    }
+    
+    public FriendView getView() {
+        return view;
     }
     
+    /**
+     * Switch to another view and go back to the first page.
+     */
+    public void setView(FriendView view) {
+        this.view = view;
+        currentPage = 0;
+        pageCursors.subList(1, pageCursors.size()).clear();
+        page = null;
+        nextPage = null;
+        viewFriends = null;
+        updateInventory();
+    }
+    
+    /**
+     * Switch to the next sort mode.
+     */
+    public void cycleSort() {
+        setView(view.withSort(view.getSort().next()));
+    }
+    
+    /**
+     * Switch to the next filter.
+     */
+    public void cycleFilter() {
+        setView(view.withFilter(view.getFilter().next()));
+    }
+    
+    /**
+     * Switch to the next friend group, then back to all friends.
+     */
+    public void cycleGroup() {
+        List<FriendGroups.Group> groups = friendService.getGroups(viewer.getUniqueId()).all();
+        int next = 0;
+        if (view.getGroup() != null) {
+            next = groups.size();
+            for (int i = 0; i < groups.size(); i++) {
+                if (groups.get(i).getName().equalsIgnoreCase(view.getGroup())) {
+                    next = i + 1;
+                    break;
+                }
+            }
+        }
+        setView(view.withGroup(next < groups.size() ? groups.get(next).getName() : null));
+    }
+    
+    @Override
     public Player getViewer() {
         return viewer;
     }
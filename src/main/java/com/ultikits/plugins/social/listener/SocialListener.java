@@ -4,20 +4,33 @@ import com.ultikits.plugins.social.entity.BlacklistData;
 import com.ultikits.plugins.social.entity.FriendshipData;
 import com.ultikits.plugins.social.gui.BlockListGUI;
 import com.ultikits.plugins.social.gui.FriendListGUI;
+import com.ultikits.plugins.social.service.FriendEntry;
 import com.ultikits.plugins.social.service.FriendService;
+import com.ultikits.plugins.social.service.RateLimiter;
+import com.ultikits.plugins.social.service.OpenGuiRegistry;
+import com.ultikits.plugins.social.service.TickBudgetScheduler;
+import com.ultikits.plugins.social.service.WarmupTracker;
 import com.ultikits.ultitools.annotations.Autowired;
 import com.ultikits.ultitools.annotations.EventListener;
 import com.ultikits.ultitools.services.NotificationService;
-import com.ultikits.ultitools.services.TeleportService;
 
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.entity.EntityDamageEvent;
 import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryCloseEvent;
+import org.bukkit.event.player.AsyncPlayerChatEvent;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.inventory.InventoryHolder;
 
 import java.util.UUID;
 
@@ -38,63 +51,164 @@ public class SocialListener implements Listener {
     private NotificationService notificationService;
     
     @Autowired(required = false)
-    private TeleportService teleportService;
+    private TickBudgetScheduler scheduler;
+    
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onAsyncPreLogin(AsyncPlayerPreLoginEvent event) {
+        // Runs last, so logins denied by ban or whitelist plugins load nothing
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            return;
+        }
+        // Load friends, blacklist and mailbox before the player is on the main thread
+        friendService.prefetch(event.getUniqueId());
+        // Rows naming the player get their new name after a name change
+        friendService.reconcileName(event.getUniqueId(), event.getName());
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerLogin(PlayerLoginEvent event) {
+        // A login denied after pre-login never quits, so drop what it loaded
+        if (event.getResult() == PlayerLoginEvent.Result.ALLOWED) {
+            return;
+        }
+        UUID playerUuid = event.getPlayer().getUniqueId();
+        if (Bukkit.getPlayer(playerUuid) == null) {
+            friendService.discardPrefetch(playerUuid);
+        }
+    }
     
     @EventHandler
     public void onPlayerJoin(PlayerJoinEvent event) {
         Player player = event.getPlayer();
         
+        // Cached online lookups in friend entries are now stale
+        friendService.onPresenceChange(player.getUniqueId());
+        if (player.getWorld() != null) {
+            friendService.updateWorld(player.getUniqueId(), player.getWorld().getName());
+        }
+        
+        // Let other servers know
+        friendService.publishPresence(player, true);
+        
+        // Messages received while offline
+        friendService.deliverOfflineMessages(player);
+        
         if (!friendService.getConfig().isNotifyFriendOnline()) {
             return;
         }
         
-        // Notify friends that player is online
+        // Notify friends that player is online, spread over ticks
+        String message = friendService.getConfig().getFriendOnlineMessage()
+            .replace("{PLAYER}", player.getName())
+            .replace("&", "§");
+        UUID playerUuid = player.getUniqueId();
+        long start = System.nanoTime();
         for (Player online : Bukkit.getOnlinePlayers()) {
             if (online.equals(player)) continue;
-            
-            if (friendService.areFriends(online.getUniqueId(), player.getUniqueId())) {
-                String message = friendService.getConfig().getFriendOnlineMessage()
-                    .replace("{PLAYER}", player.getName())
-                    .replace("&", "§");
-                
-                // Use NotificationService if available
-                if (notificationService != null) {
-                    notificationService.sendMessageNotification(online, message);
-                } else {
-                    online.sendMessage(message);
-                }
-            }
+            defer(online, () -> notifyIfFriend(online, playerUuid, message));
         }
+        friendService.recordLatency("joinNotify", start);
     }
     
     @EventHandler
     public void onPlayerQuit(PlayerQuitEvent event) {
         Player player = event.getPlayer();
         
-        // Clear cache
+        // Friends sorting by last seen need a new order, then clear cache
+        friendService.recordLastSeen(player.getUniqueId());
+        friendService.releaseLastSeen(player.getUniqueId());
+        friendService.onPresenceChange(player.getUniqueId());
+        friendService.updateWorld(player.getUniqueId(), null);
+        friendService.getWarmups().cancel(player.getUniqueId());
+        friendService.getOpenGuis().untrackViewer(player.getUniqueId());
+        friendService.unindexBlacklist(player.getUniqueId());
+        friendService.forgetReplyTarget(player.getUniqueId());
         friendService.clearCache(player.getUniqueId());
+        friendService.publishPresence(player, false);
         
         if (!friendService.getConfig().isNotifyFriendOffline()) {
             return;
         }
         
-        // Notify friends that player is offline
+        // Notify friends that player is offline, spread over ticks
+        String message = friendService.getConfig().getFriendOfflineMessage()
+            .replace("{PLAYER}", player.getName())
+            .replace("&", "§");
+        UUID playerUuid = player.getUniqueId();
+        long start = System.nanoTime();
         for (Player online : Bukkit.getOnlinePlayers()) {
             if (online.equals(player)) continue;
-            
-            if (friendService.areFriends(online.getUniqueId(), player.getUniqueId())) {
-                String message = friendService.getConfig().getFriendOfflineMessage()
-                    .replace("{PLAYER}", player.getName())
-                    .replace("&", "§");
-                
-                // Use NotificationService if available
-                if (notificationService != null) {
-                    notificationService.sendMessageNotification(online, message);
-                } else {
-                    online.sendMessage(message);
-                }
+            defer(online, () -> notifyIfFriend(online, playerUuid, message));
+        }
+        friendService.recordLatency("quitNotify", start);
+    }
+    
+    @EventHandler
+    public void onWorldChange(PlayerChangedWorldEvent event) {
+        Player player = event.getPlayer();
+        String world = player.getWorld().getName();
+        friendService.updateWorld(player.getUniqueId(), world);
+        
+        if (!friendService.getConfig().isNotifyFriendJoinWorld()) {
+            return;
+        }
+        
+        // Only friends already in the new world, found through the world index
+        String message = friendService.getConfig().getFriendJoinWorldMessage()
+            .replace("{PLAYER}", player.getName())
+            .replace("{WORLD}", world)
+            .replace("&", "§");
+        long start = System.nanoTime();
+        for (UUID friendUuid : friendService.getFriendsInWorld(player.getUniqueId(), world)) {
+            Player friend = Bukkit.getPlayer(friendUuid);
+            if (friend != null && !friend.equals(player)) {
+                defer(friend, () -> notify(friend, message));
             }
         }
+        friendService.recordLatency("worldNotify", start);
+    }
+    
+    @EventHandler(ignoreCancelled = true)
+    public void onChat(AsyncPlayerChatEvent event) {
+        // Async chat thread: only the in-memory block index is consulted
+        if (!friendService.getConfig().isHideBlockedChat()) {
+            return;
+        }
+        friendService.hideFromBlockers(event.getPlayer().getUniqueId(), event.getRecipients());
+    }
+    
+    @EventHandler(ignoreCancelled = true)
+    public void onPlayerMove(PlayerMoveEvent event) {
+        // Fired constantly; costs nothing unless someone is in a teleport warmup
+        WarmupTracker warmups = friendService.getWarmups();
+        if (warmups.isEmpty()) {
+            return;
+        }
+        Player player = event.getPlayer();
+        if (warmups.onMove(player.getUniqueId(), event.getTo())) {
+            player.sendMessage(ChatColor.RED + "你移动了，传送已取消！");
+        }
+    }
+    
+    @EventHandler(ignoreCancelled = true)
+    public void onPlayerDamage(EntityDamageEvent event) {
+        WarmupTracker warmups = friendService.getWarmups();
+        if (warmups.isEmpty() || !(event.getEntity() instanceof Player)) {
+            return;
+        }
+        Player player = (Player) event.getEntity();
+        if (warmups.cancel(player.getUniqueId())) {
+            player.sendMessage(ChatColor.RED + "你受到了伤害，传送已取消！");
+        }
+    }
+    
+    @EventHandler
+    public void onInventoryClose(InventoryCloseEvent event) {
+        // Closed GUIs no longer get live updates
+        InventoryHolder holder = event.getInventory().getHolder();
+        if (holder instanceof OpenGuiRegistry.View) {
+            friendService.getOpenGuis().untrack((OpenGuiRegistry.View) holder);
+        }
     }
     
     @EventHandler
@@ -136,20 +250,48 @@ public class SocialListener implements Listener {
             player.performCommand("friend requests");
             return;
         }
+        if (slot == 46) { // Search
+            if (event.isRightClick() && gui.getView().getSearch() != null) {
+                gui.setView(gui.getView().withSearch(null));
+            } else {
+                player.closeInventory();
+                player.sendMessage(ChatColor.YELLOW + "请使用命令搜索好友: " +
+                    ChatColor.WHITE + "/friend search <名字前缀>");
+            }
+            return;
+        }
+        if (slot == 48) { // Sort mode
+            gui.cycleSort();
+            return;
+        }
+        if (slot == 50) { // Filter
+            gui.cycleFilter();
+            return;
+        }
+        if (slot == 51) { // Friend group
+            if (event.isRightClick()) {
+                gui.setView(gui.getView().withGroup(null));
+            } else {
+                gui.cycleGroup();
+            }
+            return;
+        }
         
         // Friend item clicks
         if (slot >= 0 && slot < 45) {
-            FriendshipData friend = gui.getFriendAtSlot(slot);
-            if (friend == null) return;
+            FriendEntry entry = gui.getEntryAtSlot(slot);
+            if (entry == null) return;
+            FriendshipData friend = entry.getData();
             
-            Player target = Bukkit.getPlayer(UUID.fromString(friend.getFriendUuid()));
+            Player target = entry.getPlayer(friendService.getPresenceEpoch());
             boolean online = target != null;
             
             if (event.isLeftClick()) {
                 if (event.isShiftClick()) {
                     // Shift+Left: Toggle favorite
+                    if (friendService.isRateLimited(player, RateLimiter.Action.MODIFY)) return;
                     friendService.toggleFavorite(player.getUniqueId(), friend.getFriendName());
-                    gui.refresh();
+                    defer(player, gui::refresh);
                     player.sendMessage(ChatColor.GREEN + "已更新好友收藏状态！");
                 } else {
                     // Left: Teleport to friend (if online)
@@ -159,14 +301,8 @@ public class SocialListener implements Listener {
                             player.sendMessage(ChatColor.RED + "传送冷却中！请等待 " + remaining + " 秒");
                         } else {
                             player.closeInventory();
-                            // Use TeleportService if available
-                            if (teleportService != null) {
-                                teleportService.teleport(player, target.getLocation());
-                            } else {
-                                player.teleport(target.getLocation());
-                            }
-                            friendService.setTpCooldown(player.getUniqueId());
-                            player.sendMessage(ChatColor.GREEN + "已传送到 " + friend.getFriendName() + " 身边！");
+                            // Waits for the destination chunk; the cooldown starts on success
+                            friendService.getTeleporter().teleport(player, target, friend.getFriendName());
                         }
                     } else if (!online) {
                         player.sendMessage(ChatColor.RED + friend.getFriendName() + " 不在线！");
@@ -175,6 +311,7 @@ public class SocialListener implements Listener {
             } else if (event.isRightClick()) {
                 if (event.isShiftClick()) {
                     // Shift+Right: Delete friend
+                    if (friendService.isRateLimited(player, RateLimiter.Action.MODIFY)) return;
                     player.closeInventory();
                     friendService.removeFriend(player, friend.getFriendName());
                 } else {
@@ -185,6 +322,7 @@ public class SocialListener implements Listener {
                             ChatColor.WHITE + "/friend msg " + friend.getFriendName() + " <消息>");
                     } else {
                         // Offline - delete friend
+                        if (friendService.isRateLimited(player, RateLimiter.Action.MODIFY)) return;
                         player.closeInventory();
                         friendService.removeFriend(player, friend.getFriendName());
                     }
@@ -226,13 +364,47 @@ public class SocialListener implements Listener {
             
             if (event.isLeftClick()) {
                 // Unblock
+                if (friendService.isRateLimited(player, RateLimiter.Action.MODIFY)) return;
                 if (friendService.removeFromBlacklist(player, blocked.getBlockedName())) {
                     player.sendMessage(ChatColor.GREEN + "已将 " + blocked.getBlockedName() + " 从黑名单移除");
-                    gui.refresh();
+                    defer(player, gui::refresh);
                 } else {
                     player.sendMessage(ChatColor.RED + "解除拉黑失败！");
                 }
             }
         }
     }
+    
+    /**
+     * Send a presence notification if the recipient is a friend of the subject.
+     */
+    private void notifyIfFriend(Player recipient, UUID subjectUuid, String message) {
+        if (!friendService.areFriends(recipient.getUniqueId(), subjectUuid)) {
+            return;
+        }
+        notify(recipient, message);
+    }
+    
+    /**
+     * Send a presence notification.
+     */
+    private void notify(Player recipient, String message) {
+        // Use NotificationService if available
+        if (notificationService != null) {
+            notificationService.sendMessageNotification(recipient, message);
+        } else {
+            recipient.sendMessage(message);
+        }
+    }
+    
+    /**
+     * Run work on a later tick within the tick budget, or now if no scheduler is available.
+     */
+    private void defer(Player owner, Runnable task) {
+        if (scheduler != null) {
+            scheduler.submit(owner, task);
+        } else {
+            task.run();
+        }
+    }
 }
@@ -0,0 +1,229 @@
+package com.ultikits.plugins.social.message;
+
+import com.ultikits.plugins.social.entity.MailboxData;
+import com.ultikits.plugins.social.entity.OfflineMessage;
+import com.ultikits.ultitools.interfaces.DataOperator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only offline message mailbox.
+ * Appends are queued in memory and each flush stores a recipient's new
+ * messages as one new row, so servers sharing the database never read,
+ * modify and write the same row and cannot overwrite each other's
+ * messages. Mailboxes are read during async pre-login, all rows of the
+ * recipient at once, and handed to the join handler from memory. Only the
+ * rows actually read and delivered are deleted, by id, so messages stored
+ * after the mailbox was read wait for the next login. Writes that fail are
+ * queued again for the next flush.
+ *
+ * @author wisdomme
+ * @version 1.0.0
+ */
+public class OfflineMailbox {
+
+    // Prefetched mailboxes not taken within this time had no join
+    private static final long PREFETCH_TTL_MILLIS = 60_000L;
+
+    private final DataOperator<MailboxData> dataOperator;
+    private final int maxMessages;
+    private final long maxAgeMillis;
+
+    // Appends not yet written - Map<RecipientUUID, Messages>
+    private final Map<UUID, List<OfflineMessage>> pendingWrites = new ConcurrentHashMap<>();
+
+    // Mailboxes read at pre-login, waiting for the join event
+    private final Map<UUID, Prefetch> prefetched = new ConcurrentHashMap<>();
+
+    // Rows delivered or expired, to delete on next flush - Map<RecipientUUID, RowIds>
+    private final Map<UUID, List<String>> pendingRemovals = new ConcurrentHashMap<>();
+
+    public OfflineMailbox(DataOperator<MailboxData> dataOperator, int maxMessages, int expireDays) {
+        this.dataOperator = dataOperator;
+        this.maxMessages = maxMessages;
+        this.maxAgeMillis = expireDays * 24L * 60 * 60 * 1000;
+    }
+
+    /**
+     * Queue a message for an offline recipient.
+     */
+    public void append(UUID recipient, OfflineMessage message) {
+        pendingWrites.compute(recipient, (k, queue) -> {
+            if (queue == null) {
+                queue = new ArrayList<>();
+            }
+            queue.add(message);
+            if (queue.size() > maxMessages) {
+                queue.remove(0);
+            }
+            return queue;
+        });
+    }
+
+    /**
+     * Load a recipient's mailbox ahead of their join. Safe to call off the main thread.
+     * Queued appends are copied, not moved, so nothing is lost if no join follows.
+     */
+    public void prefetch(UUID recipient) {
+        List<MailboxData> rows = new ArrayList<>(dataOperator.query()
+            .where("recipient_uuid").eq(recipient.toString())
+            .list());
+        rows.sort(Comparator.comparingLong(MailboxData::getUpdatedTime));
+        List<OfflineMessage> messages = new ArrayList<>();
+        List<String> rowIds = new ArrayList<>(rows.size());
+        for (MailboxData row : rows) {
+            messages.addAll(OfflineMessage.unpack(row.getPayload()));
+            rowIds.add(row.getId());
+        }
+        pendingWrites.computeIfPresent(recipient, (k, queue) -> {
+            messages.addAll(queue);
+            return queue;
+        });
+        trim(messages);
+        if (!messages.isEmpty()) {
+            prefetched.put(recipient, new Prefetch(messages, rowIds, System.currentTimeMillis()));
+        } else if (!rowIds.isEmpty()) {
+            // Everything stored has expired; the next flush deletes the rows
+            addRemovals(recipient, rowIds);
+        }
+    }
+
+    /**
+     * Take the prefetched messages for a joining player.
+     * The rows they were read from are deleted on the next flush.
+     *
+     * @return messages oldest first, empty if none
+     */
+    public List<OfflineMessage> take(UUID recipient) {
+        Prefetch prefetch = prefetched.remove(recipient);
+        if (prefetch == null) {
+            return Collections.emptyList();
+        }
+        List<OfflineMessage> messages = prefetch.messages;
+        // Delivered before they were written
+        pendingWrites.computeIfPresent(recipient, (k, queue) -> {
+            queue.removeAll(messages);
+            return queue.isEmpty() ? null : queue;
+        });
+        if (!prefetch.rowIds.isEmpty()) {
+            addRemovals(recipient, prefetch.rowIds);
+        }
+        return messages;
+    }
+
+    /**
+     * Drop a prefetched mailbox whose player will not join. The stored
+     * messages stay for the next login.
+     */
+    public void discard(UUID recipient) {
+        prefetched.remove(recipient);
+    }
+
+    /**
+     * Write queued appends, delete delivered rows and drop prefetched
+     * mailboxes whose player never joined.
+     */
+    public void flush() {
+        long now = System.currentTimeMillis();
+        prefetched.values().removeIf(prefetch -> now - prefetch.loadedAt > PREFETCH_TTL_MILLIS);
+
+        Set<UUID> recipients = new HashSet<>(pendingRemovals.keySet());
+        recipients.addAll(pendingWrites.keySet());
+        for (UUID recipient : recipients) {
+            List<OfflineMessage> queued = pendingWrites.remove(recipient);
+            if (queued != null) {
+                trim(queued);
+                if (!queued.isEmpty() && !write(recipient, queued, now)) {
+                    // Put the messages back so the next flush retries
+                    pendingWrites.merge(recipient, queued, (a, b) -> {
+                        b.addAll(a);
+                        return b;
+                    });
+                }
+            }
+            List<String> delivered = pendingRemovals.remove(recipient);
+            if (delivered != null && !delete(delivered)) {
+                addRemovals(recipient, delivered);
+            }
+        }
+    }
+
+    /**
+     * Delete stored rows whose messages have all expired, left by players
+     * who never came back.
+     *
+     * @return number of rows deleted
+     */
+    public int purgeExpired() {
+        return dataOperator.query()
+            .where("updated_time").lt(System.currentTimeMillis() - maxAgeMillis)
+            .delete();
+    }
+
+    int pendingCount(UUID recipient) {
+        List<OfflineMessage> queued = pendingWrites.get(recipient);
+        return queued == null ? 0 : queued.size();
+    }
+
+    int prefetchedCount() {
+        return prefetched.size();
+    }
+
+    private boolean write(UUID recipient, List<OfflineMessage> messages, long now) {
+        try {
+            dataOperator.insert(MailboxData.builder()
+                .recipientUuid(recipient.toString())
+                .payload(OfflineMessage.pack(messages))
+                .updatedTime(now)
+                .build());
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private boolean delete(List<String> rowIds) {
+        try {
+            dataOperator.query()
+                .where("id").in(rowIds)
+                .delete();
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private void addRemovals(UUID recipient, List<String> rowIds) {
+        pendingRemovals.merge(recipient, new ArrayList<>(rowIds), (a, b) -> {
+            a.addAll(b);
+            return a;
+        });
+    }
+
+    private void trim(List<OfflineMessage> messages) {
+        messages.removeIf(message -> message.isExpired(maxAgeMillis));
+        if (messages.size() > maxMessages) {
+            messages.subList(0, messages.size() - maxMessages).clear();
+        }
+    }
+
+    private static final class Prefetch {
+        private final List<OfflineMessage> messages;
+        private final List<String> rowIds;
+        private final long loadedAt;
+
+        private Prefetch(List<OfflineMessage> messages, List<String> rowIds, long loadedAt) {
+            this.messages = messages;
+            this.rowIds = rowIds;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
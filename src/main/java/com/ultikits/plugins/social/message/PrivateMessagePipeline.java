@@ -0,0 +1,214 @@
+package com.ultikits.plugins.social.message;
+
+import com.ultikits.plugins.social.service.FriendEntry;
+import com.ultikits.plugins.social.service.FriendGroups;
+import com.ultikits.plugins.social.service.FriendService;
+
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.entity.Player;
+
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Private message hot path.
+ * Validation and delivery run off the main thread on a fixed set of
+ * single-threaded lanes; a sender always maps to the same lane, so every
+ * conversation keeps the order its messages were sent in. A friend online
+ * on another server is reached over the message bus, not the offline mailbox.
+ *
+ * @author wisdomme
+ * @version 1.0.0
+ */
+public class PrivateMessagePipeline {
+
+    private static final int LANES = 4;
+    private static final int REPLY_CAPACITY = 2048;
+
+    // Pre-rendered constant parts of both message lines
+    private static final String INCOMING_PREFIX = ChatColor.LIGHT_PURPLE + "[私聊] " + ChatColor.WHITE;
+    private static final String INCOMING_SUFFIX = "" + ChatColor.GRAY + " → " + ChatColor.WHITE + "你: " + ChatColor.RESET;
+    private static final String OUTGOING_PREFIX = ChatColor.LIGHT_PURPLE + "[私聊] " + ChatColor.WHITE + "你"
+        + ChatColor.GRAY + " → " + ChatColor.WHITE;
+    private static final String OUTGOING_SUFFIX = ": " + ChatColor.RESET;
+    private static final String GROUP_PREFIX = ChatColor.AQUA + "[分组 ";
+    private static final String GROUP_INFIX = "] " + ChatColor.WHITE;
+
+    private final FriendService friendService;
+    private final ReplyTracker replies = new ReplyTracker(REPLY_CAPACITY);
+    private final Executor[] lanes;
+    private final ExecutorService[] ownedLanes;
+
+    public PrivateMessagePipeline(FriendService friendService) {
+        this.friendService = friendService;
+        this.ownedLanes = new ExecutorService[LANES];
+        AtomicInteger counter = new AtomicInteger();
+        for (int i = 0; i < LANES; i++) {
+            ownedLanes[i] = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "UltiSocial-PM-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        this.lanes = ownedLanes;
+    }
+
+    /**
+     * Create a pipeline that runs every lane on the given executor.
+     */
+    public PrivateMessagePipeline(FriendService friendService, Executor executor) {
+        this.friendService = friendService;
+        this.ownedLanes = new ExecutorService[0];
+        this.lanes = new Executor[]{executor};
+    }
+
+    /**
+     * Send a message to a friend by name.
+     */
+    public void send(Player sender, String friendName, String message) {
+        UUID senderUuid = sender.getUniqueId();
+        lane(senderUuid).execute(() -> {
+            FriendEntry friend = friendService.findFriend(senderUuid, friendName);
+            if (friend == null) {
+                sender.sendMessage(ChatColor.RED + friendName + " 不是你的好友！只能向好友发送私聊消息");
+                return;
+            }
+            deliver(sender, friend.getUuid(), friend.getName(), message);
+        });
+    }
+
+    /**
+     * Reply to the player's last private message partner.
+     */
+    public void reply(Player sender, String message) {
+        UUID senderUuid = sender.getUniqueId();
+        UUID partner = replies.get(senderUuid);
+        if (partner == null) {
+            sender.sendMessage(ChatColor.RED + "没有可以回复的私聊对象！");
+            return;
+        }
+        lane(senderUuid).execute(() -> {
+            FriendEntry friend = friendService.getFriendEntry(senderUuid, partner);
+            if (friend == null) {
+                sender.sendMessage(ChatColor.RED + "对方已不是你的好友！只能向好友发送私聊消息");
+                return;
+            }
+            deliver(sender, partner, friend.getName(), message);
+        });
+    }
+
+    /**
+     * Send a message to the online members of one of the sender's friend
+     * groups. The line is rendered once and the same string goes to every
+     * member, so the cost is one presence check per member.
+     */
+    public void sendGroup(Player sender, String groupName, String message) {
+        UUID senderUuid = sender.getUniqueId();
+        lane(senderUuid).execute(() -> {
+            FriendGroups.Group group = friendService.getGroups(senderUuid).get(groupName);
+            if (group == null) {
+                sender.sendMessage(ChatColor.RED + "分组 " + groupName + " 不存在！");
+                return;
+            }
+            String line = new StringBuilder(GROUP_PREFIX.length() + GROUP_INFIX.length() + OUTGOING_SUFFIX.length()
+                + 32 + message.length())
+                .append(GROUP_PREFIX).append(group.getName()).append(GROUP_INFIX)
+                .append(sender.getName()).append(OUTGOING_SUFFIX).append(message).toString();
+            long epoch = friendService.getPresenceEpoch();
+            int delivered = 0;
+            for (FriendEntry member : group.members()) {
+                Player target = member.getPlayer(epoch);
+                if (target != null) {
+                    target.sendMessage(line);
+                    delivered++;
+                }
+            }
+            if (delivered == 0) {
+                sender.sendMessage(ChatColor.YELLOW + "分组 " + group.getName() + " 中没有在线的好友");
+                return;
+            }
+            sender.sendMessage(line);
+            sender.sendMessage(ChatColor.GRAY + "已发送给 " + delivered + " 位在线好友");
+        });
+    }
+
+    /**
+     * Show a message sent from another server to a player on this one.
+     * Runs on the sender's lane, so remote conversations keep their order.
+     */
+    public void receive(UUID senderUuid, String senderName, UUID targetUuid, String message) {
+        lane(senderUuid).execute(() -> {
+            Player target = Bukkit.getPlayer(targetUuid);
+            if (target == null) {
+                return;
+            }
+            target.sendMessage(incoming(senderName, message));
+            replies.record(targetUuid, senderUuid);
+        });
+    }
+
+    /**
+     * Forget reply state for a player who left.
+     */
+    public void forget(UUID playerUuid) {
+        replies.remove(playerUuid);
+    }
+
+    /**
+     * Stop the lane threads.
+     */
+    public void shutdown() {
+        for (ExecutorService lane : ownedLanes) {
+            lane.shutdown();
+        }
+    }
+
+    private void deliver(Player sender, UUID targetUuid, String targetName, String message) {
+        if (friendService.isBlocked(sender.getUniqueId(), targetUuid)) {
+            sender.sendMessage(friendService.getConfig().getBlockedMessage()
+                .replace("{PLAYER}", targetName)
+                .replace("&", "§"));
+            return;
+        }
+        Player target = Bukkit.getPlayer(targetUuid);
+        if (target == null && friendService.isOnlineElsewhere(targetUuid)) {
+            if (friendService.sendRemoteMessage(sender, targetUuid, message)) {
+                sender.sendMessage(outgoing(targetName, message));
+                replies.record(sender.getUniqueId(), targetUuid);
+            } else {
+                sender.sendMessage(ChatColor.YELLOW + targetName + " 在其他服务器上，无法发送私聊");
+            }
+            return;
+        }
+        if (target == null) {
+            if (friendService.getConfig().isMailboxEnabled()) {
+                friendService.storeOfflineMessage(sender, targetUuid, message);
+                sender.sendMessage(ChatColor.YELLOW + targetName + " 不在线，消息已存入离线信箱");
+            } else {
+                sender.sendMessage(ChatColor.RED + targetName + " 不在线！");
+            }
+            return;
+        }
+        target.sendMessage(incoming(sender.getName(), message));
+        sender.sendMessage(outgoing(target.getName(), message));
+        replies.record(sender.getUniqueId(), targetUuid);
+    }
+
+    private static String incoming(String senderName, String message) {
+        return new StringBuilder(INCOMING_PREFIX.length() + INCOMING_SUFFIX.length() + 16 + message.length())
+            .append(INCOMING_PREFIX).append(senderName).append(INCOMING_SUFFIX).append(message).toString();
+    }
+
+    private static String outgoing(String targetName, String message) {
+        return new StringBuilder(OUTGOING_PREFIX.length() + OUTGOING_SUFFIX.length() + 16 + message.length())
+            .append(OUTGOING_PREFIX).append(targetName).append(OUTGOING_SUFFIX).append(message).toString();
+    }
+
+    private Executor lane(UUID senderUuid) {
+        return lanes[(senderUuid.hashCode() & Integer.MAX_VALUE) % lanes.length];
+    }
+}
@@ -0,0 +1,53 @@
+package com.ultikits.plugins.social.message;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Bounded LRU of the last private message partner per player, used by /friend r.
+ *
+ * @author wisdomme
+ * @version 1.0.0
+ */
+public class ReplyTracker {
+
+    private final Map<UUID, UUID> lastPartner;
+
+    public ReplyTracker(final int capacity) {
+        this.lastPartner = new LinkedHashMap<UUID, UUID>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, UUID> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Record a delivered message so both sides can reply to each other.
+     */
+    public synchronized void record(UUID sender, UUID receiver) {
+        lastPartner.put(sender, receiver);
+        lastPartner.put(receiver, sender);
+    }
+
+    /**
+     * Get the player's last private message partner.
+     *
+     * @return partner UUID, or null if none
+     */
+    public synchronized UUID get(UUID playerUuid) {
+        return lastPartner.get(playerUuid);
+    }
+
+    /**
+     * Forget a player.
+     */
+    public synchronized void remove(UUID playerUuid) {
+        lastPartner.remove(playerUuid);
+    }
+
+    public synchronized int size() {
+        return lastPartner.size();
+    }
+}
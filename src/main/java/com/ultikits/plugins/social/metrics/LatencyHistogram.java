@@ -0,0 +1,105 @@
+package com.ultikits.plugins.social.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free log-linear latency histogram in microseconds.
+ * Each power of two is split into 4 sub-buckets, so reported percentiles
+ * are within 25% of the true value; recording is a few atomic adds.
+ *
+ * @author wisdomme
+ * @version 1.0.0
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKETS = 4;
+    private static final int BUCKETS = 160;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    /**
+     * Record a duration.
+     */
+    public void record(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        counts.incrementAndGet(indexOf(micros));
+        count.increment();
+        totalMicros.add(micros);
+        long max;
+        while (micros > (max = maxMicros.get())) {
+            if (maxMicros.compareAndSet(max, micros)) {
+                break;
+            }
+        }
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getMaxMicros() {
+        return maxMicros.get();
+    }
+
+    public long getMeanMicros() {
+        long n = count.sum();
+        return n == 0 ? 0 : totalMicros.sum() / n;
+    }
+
+    /**
+     * Get a percentile.
+     *
+     * @param percentile 0-100
+     * @return upper bound of the bucket holding the percentile, in microseconds
+     */
+    public long getPercentileMicros(double percentile) {
+        long n = count.sum();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile / 100.0 * n);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBound(i), maxMicros.get());
+            }
+        }
+        return maxMicros.get();
+    }
+
+    /**
+     * Clear all samples.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        totalMicros.reset();
+        maxMicros.set(0);
+    }
+
+    static int indexOf(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) (micros >>> (msb - 2)) & (SUB_BUCKETS - 1);
+        return Math.min(BUCKETS - 1, SUB_BUCKETS + (msb - 2) * SUB_BUCKETS + sub);
+    }
+
+    static long upperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int msb = (index - SUB_BUCKETS) / SUB_BUCKETS + 2;
+        int sub = (index - SUB_BUCKETS) % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << (msb - 2)) - 1;
+    }
+}
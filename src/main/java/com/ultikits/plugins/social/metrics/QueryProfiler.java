@@ -0,0 +1,160 @@
+package com.ultikits.plugins.social.metrics;
+
+import com.ultikits.ultitools.interfaces.DataOperator;
+import com.ultikits.ultitools.interfaces.Query;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * Decorates data operators to time every database call.
+ * Each call is recorded under its query shape, e.g.
+ * {@code friendships where player_uuid eq ? list}, with its duration and
+ * row count. Calls slower than the threshold are logged together with the
+ * plugin method that issued them.
+ *
+ * @author wisdomme
+ * @version 1.0.0
+ */
+public class QueryProfiler {
+
+    private static final String PLUGIN_PACKAGE = "com.ultikits.plugins.social.";
+    private static final String METRICS_PACKAGE = PLUGIN_PACKAGE + "metrics.";
+
+    private final SocialMetrics metrics;
+    private volatile long slowNanos;
+    private volatile Consumer<String> slowLog;
+
+    public QueryProfiler(SocialMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Log queries slower than the threshold.
+     *
+     * @param thresholdMillis Threshold in milliseconds, 0 disables logging
+     * @param sink Receives one line per slow query
+     */
+    public void setSlowQueryLog(long thresholdMillis, Consumer<String> sink) {
+        this.slowNanos = thresholdMillis * 1_000_000L;
+        this.slowLog = thresholdMillis > 0 ? sink : null;
+    }
+
+    /**
+     * Wrap a data operator.
+     *
+     * @param delegate Operator to wrap, may be null
+     * @param table Table name used in query shapes
+     * @return profiled operator, or null if delegate is null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> DataOperator<T> wrap(DataOperator<T> delegate, String table) {
+        if (delegate == null) {
+            return null;
+        }
+        return (DataOperator<T>) Proxy.newProxyInstance(
+            DataOperator.class.getClassLoader(),
+            new Class<?>[]{DataOperator.class},
+            (proxy, method, args) -> {
+                if (method.getDeclaringClass() == Object.class) {
+                    return invoke(delegate, method, args);
+                }
+                if (Query.class.isAssignableFrom(method.getReturnType())) {
+                    Object query = invoke(delegate, method, args);
+                    return query == null ? null : profile((Query<?>) query, new StringBuilder(table));
+                }
+                return timed(table + " " + method.getName(), delegate, method, args);
+            });
+    }
+
+    private Object profile(Query<?> delegate, StringBuilder shape) {
+        Object[] current = {delegate};
+        return Proxy.newProxyInstance(
+            Query.class.getClassLoader(),
+            new Class<?>[]{Query.class},
+            (proxy, method, args) -> {
+                if (method.getDeclaringClass() == Object.class) {
+                    return invoke(current[0], method, args);
+                }
+                if (Query.class.isAssignableFrom(method.getReturnType())) {
+                    // Builder step: remember the clause, never the bound value
+                    shape.append(' ').append(method.getName());
+                    if (args != null && args.length > 0) {
+                        shape.append(isColumnClause(method) ? " " + args[0] : " ?");
+                    }
+                    current[0] = invoke(current[0], method, args);
+                    return proxy;
+                }
+                return timed(shape + " " + method.getName(), current[0], method, args);
+            });
+    }
+
+    private Object timed(String shape, Object target, Method method, Object[] args) throws Throwable {
+        long start = System.nanoTime();
+        Object result = invoke(target, method, args);
+        long elapsed = System.nanoTime() - start;
+        metrics.recordQuery(shape, elapsed, rows(result, args));
+        Consumer<String> log = slowLog;
+        if (log != null && elapsed >= slowNanos) {
+            log.accept(String.format("Slow query (%.1fms, %d rows): %s [op=%s, caller=%s]",
+                elapsed / 1_000_000.0, rows(result, args), shape,
+                metrics.currentOperation() == null ? SocialMetrics.UNTIMED : metrics.currentOperation(),
+                caller()));
+        }
+        return result;
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static boolean isColumnClause(Method method) {
+        Class<?>[] types = method.getParameterTypes();
+        if (types.length != 1 || types[0] != String.class) {
+            return false;
+        }
+        String name = method.getName();
+        return name.equals("where") || name.equals("and") || name.equals("or") || name.startsWith("orderBy");
+    }
+
+    static long rows(Object result, Object[] args) {
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Number) {
+            return ((Number) result).longValue();
+        }
+        if (result instanceof Boolean) {
+            return (Boolean) result ? 1 : 0;
+        }
+        if (result != null) {
+            return 1;
+        }
+        // insert/update/delById return nothing, count the argument
+        if (args != null && args.length == 1 && args[0] instanceof Collection) {
+            return ((Collection<?>) args[0]).size();
+        }
+        return args != null && args.length > 0 ? 1 : 0;
+    }
+
+    /**
+     * First plugin frame outside this package, e.g. {@code FriendService.removeFriend:345}.
+     */
+    static String caller() {
+        for (StackTraceElement frame : Thread.currentThread().getStackTrace()) {
+            String className = frame.getClassName();
+            if (className.startsWith(PLUGIN_PACKAGE) && !className.startsWith(METRICS_PACKAGE)) {
+                return className.substring(className.lastIndexOf('.') + 1)
+                    + "." + frame.getMethodName() + ":" + frame.getLineNumber();
+            }
+        }
+        return "unknown";
+    }
+}
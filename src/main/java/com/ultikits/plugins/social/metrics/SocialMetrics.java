@@ -0,0 +1,298 @@
+package com.ultikits.plugins.social.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-operation latency, database call and cache counters.
+ * Database calls are attributed to the innermost operation being timed
+ * on the calling thread, or to "other" when none is. Individual queries
+ * are also tracked by shape, see {@link QueryProfiler}.
+ *
+ * @author wisdomme
+ * @version 1.0.0
+ */
+public class SocialMetrics {
+
+    static final String UNTIMED = "other";
+    private static final int REPORTED_QUERIES = 10;
+
+    private final Map<String, OperationStats> operations = new ConcurrentHashMap<>();
+    private final Map<String, CacheStats> caches = new ConcurrentHashMap<>();
+    private final Map<String, QueryStats> queries = new ConcurrentHashMap<>();
+    private final ThreadLocal<String> currentOperation = new ThreadLocal<>();
+
+    /**
+     * Start timing an operation. Close the returned timer to record it.
+     */
+    public Timer time(String operation) {
+        return new Timer(operation);
+    }
+
+    /**
+     * Record an operation that started at {@code startNanos} and ended now.
+     */
+    public void record(String operation, long startNanos) {
+        stats(operation).histogram.record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Count one database round trip against the current operation.
+     */
+    public void recordDbCall() {
+        String operation = currentOperation.get();
+        stats(operation == null ? UNTIMED : operation).dbCalls.increment();
+    }
+
+    /**
+     * Record one executed query by shape. Also counts as a database call.
+     */
+    public void recordQuery(String shape, long nanos, long rows) {
+        recordDbCall();
+        QueryStats stats = queries.computeIfAbsent(shape, k -> new QueryStats());
+        stats.histogram.record(nanos);
+        stats.rows.add(rows);
+    }
+
+    public void cacheHit(String cache) {
+        cache(cache).hits.increment();
+    }
+
+    public void cacheMiss(String cache) {
+        cache(cache).misses.increment();
+    }
+
+    public OperationStats getOperation(String operation) {
+        return operations.get(operation);
+    }
+
+    public CacheStats getCache(String cache) {
+        return caches.get(cache);
+    }
+
+    public QueryStats getQuery(String shape) {
+        return queries.get(shape);
+    }
+
+    /**
+     * Name of the innermost operation timed on this thread, or null.
+     */
+    String currentOperation() {
+        return currentOperation.get();
+    }
+
+    /**
+     * Clear all counters.
+     */
+    public void reset() {
+        operations.clear();
+        caches.clear();
+        queries.clear();
+    }
+
+    /**
+     * Human readable report, one line per operation and cache.
+     */
+    public List<String> report() {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, OperationStats> entry : new TreeMap<>(operations).entrySet()) {
+            OperationStats stats = entry.getValue();
+            LatencyHistogram h = stats.histogram;
+            lines.add(String.format("%s: n=%d p50=%s p99=%s max=%s db=%d (%.2f/op)",
+                entry.getKey(), h.getCount(),
+                formatMicros(h.getPercentileMicros(50)),
+                formatMicros(h.getPercentileMicros(99)),
+                formatMicros(h.getMaxMicros()),
+                stats.getDbCalls(), stats.getDbCallsPerOp()));
+        }
+        for (Map.Entry<String, CacheStats> entry : new TreeMap<>(caches).entrySet()) {
+            CacheStats stats = entry.getValue();
+            lines.add(String.format("cache %s: hit=%d miss=%d ratio=%.1f%%",
+                entry.getKey(), stats.getHits(), stats.getMisses(), stats.getHitRatio() * 100));
+        }
+        List<Map.Entry<String, QueryStats>> slowest = new ArrayList<>(queries.entrySet());
+        slowest.sort(Comparator.comparingLong(
+            (Map.Entry<String, QueryStats> e) -> e.getValue().histogram.getPercentileMicros(99)).reversed());
+        for (Map.Entry<String, QueryStats> entry : slowest.subList(0, Math.min(REPORTED_QUERIES, slowest.size()))) {
+            QueryStats stats = entry.getValue();
+            LatencyHistogram h = stats.histogram;
+            lines.add(String.format("query %s: n=%d p99=%s max=%s rows=%.1f/call",
+                entry.getKey(), h.getCount(),
+                formatMicros(h.getPercentileMicros(99)),
+                formatMicros(h.getMaxMicros()),
+                stats.getRowsPerCall()));
+        }
+        return lines;
+    }
+
+    /**
+     * Machine readable dump. Latencies are in microseconds.
+     */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder("{\"operations\":{");
+        boolean first = true;
+        for (Map.Entry<String, OperationStats> entry : new TreeMap<>(operations).entrySet()) {
+            OperationStats stats = entry.getValue();
+            LatencyHistogram h = stats.histogram;
+            if (!first) {
+                sb.append(',');
+            }
+            first = false;
+            sb.append('"').append(entry.getKey()).append("\":{")
+                .append("\"count\":").append(h.getCount())
+                .append(",\"mean_us\":").append(h.getMeanMicros())
+                .append(",\"p50_us\":").append(h.getPercentileMicros(50))
+                .append(",\"p99_us\":").append(h.getPercentileMicros(99))
+                .append(",\"max_us\":").append(h.getMaxMicros())
+                .append(",\"db_calls\":").append(stats.getDbCalls())
+                .append('}');
+        }
+        sb.append("},\"caches\":{");
+        first = true;
+        for (Map.Entry<String, CacheStats> entry : new TreeMap<>(caches).entrySet()) {
+            CacheStats stats = entry.getValue();
+            if (!first) {
+                sb.append(',');
+            }
+            first = false;
+            sb.append('"').append(entry.getKey()).append("\":{")
+                .append("\"hits\":").append(stats.getHits())
+                .append(",\"misses\":").append(stats.getMisses())
+                .append('}');
+        }
+        sb.append("},\"queries\":{");
+        first = true;
+        for (Map.Entry<String, QueryStats> entry : new TreeMap<>(queries).entrySet()) {
+            QueryStats stats = entry.getValue();
+            LatencyHistogram h = stats.histogram;
+            if (!first) {
+                sb.append(',');
+            }
+            first = false;
+            sb.append('"').append(entry.getKey().replace("\"", "\\\"")).append("\":{")
+                .append("\"count\":").append(h.getCount())
+                .append(",\"p50_us\":").append(h.getPercentileMicros(50))
+                .append(",\"p99_us\":").append(h.getPercentileMicros(99))
+                .append(",\"max_us\":").append(h.getMaxMicros())
+                .append(",\"rows\":").append(stats.getRows())
+                .append('}');
+        }
+        return sb.append("}}").toString();
+    }
+
+    private OperationStats stats(String operation) {
+        return operations.computeIfAbsent(operation, k -> new OperationStats());
+    }
+
+    private CacheStats cache(String cache) {
+        return caches.computeIfAbsent(cache, k -> new CacheStats());
+    }
+
+    static String formatMicros(long micros) {
+        if (micros < 1000) {
+            return micros + "us";
+        }
+        if (micros < 1000_000) {
+            return String.format("%.1fms", micros / 1000.0);
+        }
+        return String.format("%.2fs", micros / 1000_000.0);
+    }
+
+    /**
+     * Running timer, records on close.
+     */
+    public class Timer implements AutoCloseable {
+
+        private final String operation;
+        private final String previous;
+        private final long start;
+
+        private Timer(String operation) {
+            this.operation = operation;
+            this.previous = currentOperation.get();
+            this.start = System.nanoTime();
+            currentOperation.set(operation);
+        }
+
+        @Override
+        public void close() {
+            record(operation, start);
+            if (previous == null) {
+                currentOperation.remove();
+            } else {
+                currentOperation.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Counters for one operation.
+     */
+    public static class OperationStats {
+
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private final LongAdder dbCalls = new LongAdder();
+
+        public LatencyHistogram getHistogram() {
+            return histogram;
+        }
+
+        public long getDbCalls() {
+            return dbCalls.sum();
+        }
+
+        public double getDbCallsPerOp() {
+            long count = histogram.getCount();
+            return count == 0 ? 0 : (double) dbCalls.sum() / count;
+        }
+    }
+
+    /**
+     * Latency and row counters for one query shape.
+     */
+    public static class QueryStats {
+
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private final LongAdder rows = new LongAdder();
+
+        public LatencyHistogram getHistogram() {
+            return histogram;
+        }
+
+        public long getRows() {
+            return rows.sum();
+        }
+
+        public double getRowsPerCall() {
+            long count = histogram.getCount();
+            return count == 0 ? 0 : (double) rows.sum() / count;
+        }
+    }
+
+    /**
+     * Hit and miss counters for one cache.
+     */
+    public static class CacheStats {
+
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+
+        public long getHits() {
+            return hits.sum();
+        }
+
+        public long getMisses() {
+            return misses.sum();
+        }
+
+        public double getHitRatio() {
+            long total = hits.sum() + misses.sum();
+            return total == 0 ? 0 : (double) hits.sum() / total;
+        }
+    }
+}
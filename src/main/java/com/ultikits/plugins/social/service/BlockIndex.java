@@ -0,0 +1,119 @@
+package com.ultikits.plugins.social.service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Who blocked whom, for players whose blacklist is loaded, indexed both
+ * ways. Built for the async chat thread: sets are immutable and replaced
+ * on every change, so lookups take no lock and never see a set being
+ * modified, and membership is a single hash probe.
+ *
+ * @author wisdomme
+ * @version 1.0.0
+ */
+public final class BlockIndex {
+
+    // Blocker -> players they blocked
+    private final Map<UUID, Set<UUID>> blocks = new ConcurrentHashMap<>();
+    // Blocked player -> players who blocked them
+    private final Map<UUID, Set<UUID>> blockedBy = new ConcurrentHashMap<>();
+
+    /**
+     * Replace everything a player blocked, e.g. after loading their blacklist.
+     */
+    public void put(UUID blocker, Collection<UUID> blocked) {
+        Set<UUID> next = Collections.unmodifiableSet(new HashSet<>(blocked));
+        Set<UUID> previous = blocks.put(blocker, next);
+        if (previous != null) {
+            for (UUID player : previous) {
+                if (!next.contains(player)) {
+                    unlink(blocker, player);
+                }
+            }
+        }
+        for (UUID player : next) {
+            link(blocker, player);
+        }
+    }
+
+    public void add(UUID blocker, UUID blocked) {
+        blocks.compute(blocker, (k, players) -> with(players, blocked));
+        link(blocker, blocked);
+    }
+
+    public void remove(UUID blocker, UUID blocked) {
+        blocks.computeIfPresent(blocker, (k, players) -> {
+            // Stays indexed with nothing blocked
+            Set<UUID> next = without(players, blocked);
+            return next == null ? Collections.emptySet() : next;
+        });
+        unlink(blocker, blocked);
+    }
+
+    /**
+     * Drop a player's blocks, e.g. when they leave.
+     */
+    public void forget(UUID blocker) {
+        Set<UUID> previous = blocks.remove(blocker);
+        if (previous != null) {
+            for (UUID player : previous) {
+                unlink(blocker, player);
+            }
+        }
+    }
+
+    /**
+     * Whether a player's blocks are in the index.
+     */
+    public boolean isIndexed(UUID blocker) {
+        return blocks.containsKey(blocker);
+    }
+
+    public boolean hasBlocked(UUID blocker, UUID blocked) {
+        Set<UUID> players = blocks.get(blocker);
+        return players != null && players.contains(blocked);
+    }
+
+    /**
+     * Players who blocked a player, read-only.
+     */
+    public Set<UUID> blockersOf(UUID blocked) {
+        Set<UUID> blockers = blockedBy.get(blocked);
+        return blockers == null ? Collections.emptySet() : blockers;
+    }
+
+    private void link(UUID blocker, UUID blocked) {
+        blockedBy.compute(blocked, (k, blockers) -> with(blockers, blocker));
+    }
+
+    private void unlink(UUID blocker, UUID blocked) {
+        blockedBy.computeIfPresent(blocked, (k, blockers) -> without(blockers, blocker));
+    }
+
+    private static Set<UUID> with(Set<UUID> players, UUID player) {
+        if (players != null && players.contains(player)) {
+            return players;
+        }
+        Set<UUID> copy = players == null ? new HashSet<>() : new HashSet<>(players);
+        copy.add(player);
+        return Collections.unmodifiableSet(copy);
+    }
+
+    private static Set<UUID> without(Set<UUID> players, UUID player) {
+        if (!players.contains(player)) {
+            return players;
+        }
+        if (players.size() == 1) {
+            return null;
+        }
+        Set<UUID> copy = new HashSet<>(players);
+        copy.remove(player);
+        return Collections.unmodifiableSet(copy);
+    }
+}
@@ -0,0 +1,85 @@
+package com.ultikits.plugins.social.service;
+
+import com.ultikits.plugins.social.entity.FriendshipData;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import java.util.UUID;
+
+/**
+ * Read-optimized view of a cached friendship: the friend's UUID parsed
+ * once, the display name built once, and the online player looked up at
+ * most once per presence change.
+ *
+ * @author wisdomme
+ * @version 1.0.0
+ */
+public final class FriendEntry {
+
+    private final FriendshipData data;
+    private final UUID uuid;
+    private final String displayName;
+    private final String label;
+
+    // Online player as of presenceEpoch, valid while the epoch matches
+    private volatile Player player;
+    private volatile long presenceEpoch = -1;
+
+    private FriendEntry(FriendshipData data) {
+        this.data = data;
+        this.uuid = data.getFriendUuid() == null ? null : UUID.fromString(data.getFriendUuid());
+        this.displayName = data.getNickname() != null
+            ? data.getNickname() + " §7(" + data.getFriendName() + ")"
+            : data.getFriendName();
+        this.label = data.isFavorite() ? "§e★ " + displayName : displayName;
+    }
+
+    public static FriendEntry of(FriendshipData data) {
+        return new FriendEntry(data);
+    }
+
+    public FriendshipData getData() {
+        return data;
+    }
+
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    public String getName() {
+        return data.getFriendName();
+    }
+
+    public boolean isFavorite() {
+        return data.isFavorite();
+    }
+
+    /**
+     * Nickname with the real name in brackets, or just the name.
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * Display name with a star for favorites.
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Get the friend if online on this server.
+     *
+     * @param epoch Current presence epoch, see {@link FriendService#getPresenceEpoch()}
+     * @return the player, or null if offline
+     */
+    public Player getPlayer(long epoch) {
+        if (presenceEpoch != epoch) {
+            player = uuid == null ? null : Bukkit.getPlayer(uuid);
+            presenceEpoch = epoch;
+        }
+        return player;
+    }
+}
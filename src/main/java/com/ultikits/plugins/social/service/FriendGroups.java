@@ -0,0 +1,203 @@
+package com.ultikits.plugins.social.service;
+
+import com.ultikits.plugins.social.entity.FriendGroupData;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A player's friend groups, bound to one version of their friend list.
+ * Each group holds its members as a sorted array of positions in the
+ * friend list, so listing a group costs O(group size) and a membership
+ * check O(log n), whatever the number of friends. Stored members who are
+ * no longer friends are left out. When the friend list is replaced the
+ * groups are bound to the new one with {@link #of}. Instances are
+ * immutable; changes return a new instance.
+ *
+ * @author wisdomme
+ * @version 1.0.0
+ */
+public final class FriendGroups {
+
+    private final FriendList friends;
+    private final List<Group> groups;
+    private final NameIndex<Group> names;
+
+    private FriendGroups(FriendList friends, List<Group> groups) {
+        this.friends = friends;
+        this.groups = Collections.unmodifiableList(groups);
+        this.names = NameIndex.of(groups, Group::getName);
+    }
+
+    /**
+     * Bind stored groups to a friend list.
+     *
+     * @param rows Stored groups, in display order
+     * @param friends Owner's current friend list
+     */
+    public static FriendGroups of(List<FriendGroupData> rows, FriendList friends) {
+        List<Group> groups = new ArrayList<>(rows.size());
+        for (FriendGroupData row : rows) {
+            groups.add(bind(row, friends));
+        }
+        return new FriendGroups(friends, groups);
+    }
+
+    /**
+     * The friend list the groups are bound to.
+     */
+    public FriendList getFriends() {
+        return friends;
+    }
+
+    /**
+     * All groups in display order, read-only.
+     */
+    public List<Group> all() {
+        return groups;
+    }
+
+    /**
+     * Stored rows of all groups, in display order.
+     */
+    public List<FriendGroupData> rows() {
+        List<FriendGroupData> rows = new ArrayList<>(groups.size());
+        for (Group group : groups) {
+            rows.add(group.data);
+        }
+        return rows;
+    }
+
+    /**
+     * Get a group by name, ignoring case.
+     *
+     * @return the group, or null if none has that name
+     */
+    public Group get(String name) {
+        return names.get(name);
+    }
+
+    public int size() {
+        return groups.size();
+    }
+
+    /**
+     * Copy with a group added, or replaced if one has the same name.
+     * Only that group is bound again.
+     */
+    public FriendGroups with(FriendGroupData row) {
+        List<Group> copy = new ArrayList<>(groups.size() + 1);
+        Group replaced = bind(row, friends);
+        boolean found = false;
+        for (Group group : groups) {
+            if (!found && NameIndex.fold(group.getName()).equals(NameIndex.fold(row.getGroupName()))) {
+                copy.add(replaced);
+                found = true;
+            } else {
+                copy.add(group);
+            }
+        }
+        if (!found) {
+            copy.add(replaced);
+        }
+        return new FriendGroups(friends, copy);
+    }
+
+    /**
+     * Copy without a group.
+     */
+    public FriendGroups without(Group removed) {
+        List<Group> copy = new ArrayList<>(groups);
+        copy.remove(removed);
+        return new FriendGroups(friends, copy);
+    }
+
+    private static Group bind(FriendGroupData row, FriendList friends) {
+        List<UUID> members = FriendGroupData.unpack(row.getMembers());
+        int[] positions = new int[members.size()];
+        int count = 0;
+        for (UUID member : members) {
+            int position = friends.indexOf(member);
+            if (position >= 0) {
+                positions[count++] = position;
+            }
+        }
+        positions = Arrays.copyOf(positions, count);
+        Arrays.sort(positions);
+        return new Group(row, friends, positions);
+    }
+
+    /**
+     * One group of friends.
+     */
+    public static final class Group {
+        private final FriendGroupData data;
+        private final FriendList friends;
+        private final int[] positions;
+
+        private Group(FriendGroupData data, FriendList friends, int[] positions) {
+            this.data = data;
+            this.friends = friends;
+            this.positions = positions;
+        }
+
+        public FriendGroupData getData() {
+            return data;
+        }
+
+        public String getName() {
+            return data.getGroupName();
+        }
+
+        /**
+         * Number of members who are still friends.
+         */
+        public int size() {
+            return positions.length;
+        }
+
+        /**
+         * Members in display order, read-only.
+         */
+        public List<FriendEntry> members() {
+            List<FriendEntry> entries = friends.entries();
+            return new AbstractList<FriendEntry>() {
+                @Override
+                public FriendEntry get(int index) {
+                    return entries.get(positions[index]);
+                }
+
+                @Override
+                public int size() {
+                    return positions.length;
+                }
+            };
+        }
+
+        public boolean contains(UUID friendUuid) {
+            int position = friends.indexOf(friendUuid);
+            return position >= 0 && Arrays.binarySearch(positions, position) >= 0;
+        }
+
+        /**
+         * Member UUIDs with one added or removed, packed for storage.
+         * Members who are no longer friends are dropped.
+         */
+        public String packWith(UUID added, UUID removed) {
+            List<UUID> members = new ArrayList<>(positions.length + 1);
+            for (FriendEntry entry : members()) {
+                if (!entry.getUuid().equals(removed)) {
+                    members.add(entry.getUuid());
+                }
+            }
+            if (added != null && !members.contains(added)) {
+                members.add(added);
+            }
+            return FriendGroupData.pack(members);
+        }
+    }
+}
@@ -0,0 +1,441 @@
+package com.ultikits.plugins.social.service;
+
+import com.ultikits.plugins.social.entity.FriendshipData;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * A player's friends, sorted with favorites first and then by name, and
+ * indexed by friend UUID.
+ * Each friendship is held as a {@link FriendEntry} with its UUID parsed
+ * and display name built once, when the list is built.
+ * Membership, lookup by name and size are O(1), and a friend's position is
+ * O(log n). Pages are found by binary search on a
+ * keyset cursor, so a page costs O(log n + page size) whatever the list size.
+ * Other orderings and the name index for prefix search are built on first
+ * use and kept with the list. The friends online on this server are kept
+ * as a subset, updated by {@link FriendService} as players join and leave,
+ * so online views need no walk over the whole list.
+ * Instances are immutable apart from these
+ * caches; {@link #with} and {@link #without} return a changed copy that
+ * reuses the other entries, so one change costs O(n) without reloading,
+ * re-parsing or re-sorting.
+ *
+ * @author wisdomme
+ * @version 1.0.0
+ */
+public final class FriendList {
+
+    /**
+     * Display order: favorites first, then name ignoring case, then UUID.
+     */
+    public static final Comparator<FriendshipData> ORDER =
+        (a, b) -> compare(a.isFavorite(), a.getFriendName(), a.getFriendUuid(), b);
+
+    private final List<FriendEntry> sorted;
+    private final Map<UUID, FriendEntry> byUuid;
+    private final int favoriteCount;
+
+    // Built on first use
+    private volatile NameIndex<FriendEntry> names;
+    private volatile List<FriendEntry> byName;
+    private volatile List<FriendEntry> byDateAdded;
+    private volatile List<FriendEntry> byLastSeen;
+
+    // Friends online on this server
+    private final Set<UUID> online = ConcurrentHashMap.newKeySet();
+
+    private FriendList(List<FriendEntry> sorted, Map<UUID, FriendEntry> byUuid, int favoriteCount) {
+        this.sorted = Collections.unmodifiableList(sorted);
+        this.byUuid = byUuid;
+        this.favoriteCount = favoriteCount;
+    }
+
+    public FriendList(List<FriendshipData> friends) {
+        List<FriendshipData> copy = new ArrayList<>(friends);
+        copy.sort(ORDER);
+        List<FriendEntry> entries = new ArrayList<>(copy.size());
+        this.byUuid = new HashMap<>(copy.size() * 2);
+        int favorites = 0;
+        for (FriendshipData friend : copy) {
+            FriendEntry entry = FriendEntry.of(friend);
+            entries.add(entry);
+            byUuid.put(entry.getUuid(), entry);
+            if (friend.isFavorite()) {
+                favorites++;
+            }
+        }
+        this.sorted = Collections.unmodifiableList(entries);
+        this.favoriteCount = favorites;
+    }
+
+    /**
+     * Copy of this list with a friendship added, or replacing the one with
+     * the same friend. Call after changing the favorite flag, nickname or
+     * name of a friendship.
+     */
+    public FriendList with(FriendshipData friend) {
+        FriendEntry added = FriendEntry.of(friend);
+        List<FriendEntry> entries = new ArrayList<>(sorted.size() + 1);
+        // Counted again: the replaced friendship may have been changed in place
+        int favorites = 0;
+        for (FriendEntry entry : sorted) {
+            if (entry.getUuid() == null || !entry.getUuid().equals(added.getUuid())) {
+                entries.add(entry);
+                if (entry.isFavorite()) {
+                    favorites++;
+                }
+            }
+        }
+        int low = 0;
+        int high = entries.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ORDER.compare(entries.get(mid).getData(), friend) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        entries.add(low, added);
+        Map<UUID, FriendEntry> index = new HashMap<>(byUuid);
+        index.put(added.getUuid(), added);
+        FriendList changed = new FriendList(entries, index, friend.isFavorite() ? favorites + 1 : favorites);
+        changed.online.addAll(online);
+        return changed;
+    }
+
+    /**
+     * Copy of this list without a friend.
+     *
+     * @return the copy, or this list if not friends
+     */
+    public FriendList without(UUID friendUuid) {
+        FriendEntry removed = byUuid.get(friendUuid);
+        if (removed == null) {
+            return this;
+        }
+        List<FriendEntry> entries = new ArrayList<>(sorted);
+        entries.remove(removed);
+        Map<UUID, FriendEntry> index = new HashMap<>(byUuid);
+        index.remove(friendUuid);
+        FriendList changed = new FriendList(entries, index, removed.isFavorite() ? favoriteCount - 1 : favoriteCount);
+        changed.online.addAll(online);
+        changed.online.remove(friendUuid);
+        return changed;
+    }
+
+    /**
+     * All friends in display order, read-only.
+     */
+    public List<FriendshipData> asList() {
+        return data(sorted);
+    }
+
+    /**
+     * All friend entries in display order, read-only.
+     */
+    public List<FriendEntry> entries() {
+        return sorted;
+    }
+
+    public int size() {
+        return sorted.size();
+    }
+
+    public boolean contains(UUID friendUuid) {
+        return byUuid.containsKey(friendUuid);
+    }
+
+    /**
+     * Get the friendship with a player.
+     *
+     * @return the friendship, or null if not friends
+     */
+    public FriendshipData get(UUID friendUuid) {
+        FriendEntry entry = byUuid.get(friendUuid);
+        return entry == null ? null : entry.getData();
+    }
+
+    /**
+     * Get the entry for a friend.
+     *
+     * @return the entry, or null if not friends
+     */
+    public FriendEntry entry(UUID friendUuid) {
+        return byUuid.get(friendUuid);
+    }
+
+    /**
+     * Position of a friend in display order, found by binary search.
+     *
+     * @return the index into {@link #entries()}, or -1 if not friends
+     */
+    public int indexOf(UUID friendUuid) {
+        FriendEntry entry = byUuid.get(friendUuid);
+        if (entry == null) {
+            return -1;
+        }
+        return Collections.binarySearch(data(sorted), entry.getData(), ORDER);
+    }
+
+    /**
+     * Get the entry for a friend by name, ignoring case.
+     *
+     * @return the entry, or null if no friend has that name
+     */
+    public FriendEntry named(String friendName) {
+        NameIndex<FriendEntry> index = names;
+        if (index == null) {
+            names = index = NameIndex.of(sorted, FriendEntry::getName);
+        }
+        return index.get(friendName);
+    }
+
+    /**
+     * Favorite friends in display order. They lead the list, so this is a view.
+     */
+    public List<FriendEntry> favorites() {
+        return sorted.subList(0, favoriteCount);
+    }
+
+    /**
+     * All friends, newest friendship first.
+     */
+    public List<FriendEntry> byDateAdded() {
+        List<FriendEntry> result = byDateAdded;
+        if (result == null) {
+            List<FriendEntry> copy = new ArrayList<>(sorted);
+            copy.sort(Comparator.comparingLong((FriendEntry e) -> e.getData().getCreatedTime()).reversed());
+            byDateAdded = result = Collections.unmodifiableList(copy);
+        }
+        return result;
+    }
+
+    /**
+     * All friends, most recently seen first.
+     * The order is kept until {@link #forgetLastSeen()} is called.
+     *
+     * @param lastSeen Last-seen time of a friend
+     */
+    public List<FriendEntry> byLastSeen(ToLongFunction<UUID> lastSeen) {
+        List<FriendEntry> result = byLastSeen;
+        if (result == null) {
+            List<FriendEntry> copy = new ArrayList<>(sorted);
+            Map<FriendEntry, Long> times = new HashMap<>(copy.size() * 2);
+            for (FriendEntry entry : copy) {
+                times.put(entry, lastSeen.applyAsLong(entry.getUuid()));
+            }
+            copy.sort((a, b) -> Long.compare(times.get(b), times.get(a)));
+            byLastSeen = result = Collections.unmodifiableList(copy);
+        }
+        return result;
+    }
+
+    /**
+     * Record whether a friend is online on this server. Ignored for
+     * players not in the list.
+     */
+    public void setOnline(UUID friendUuid, boolean isOnline) {
+        if (!isOnline) {
+            online.remove(friendUuid);
+        } else if (byUuid.containsKey(friendUuid)) {
+            online.add(friendUuid);
+        }
+    }
+
+    public boolean isOnline(UUID friendUuid) {
+        return online.contains(friendUuid);
+    }
+
+    /**
+     * Friends online on this server, in display order.
+     * Costs O(k log k) for k online friends, whatever the list size.
+     */
+    public List<FriendEntry> online() {
+        List<FriendEntry> result = new ArrayList<>(online.size());
+        for (UUID friendUuid : online) {
+            FriendEntry entry = byUuid.get(friendUuid);
+            if (entry != null) {
+                result.add(entry);
+            }
+        }
+        result.sort((a, b) -> ORDER.compare(a.getData(), b.getData()));
+        return result;
+    }
+
+    /**
+     * Drop the last-seen order after a friend's last-seen time changed.
+     */
+    public void forgetLastSeen() {
+        byLastSeen = null;
+    }
+
+    /**
+     * Friends whose name starts with a prefix, ignoring case, in name order.
+     * Found by binary search on the name index.
+     */
+    public List<FriendEntry> withPrefix(String prefix) {
+        List<FriendEntry> names = byName;
+        if (names == null) {
+            List<FriendEntry> copy = new ArrayList<>(sorted);
+            copy.sort((a, b) -> String.CASE_INSENSITIVE_ORDER.compare(nameOf(a.getData()), nameOf(b.getData())));
+            byName = names = Collections.unmodifiableList(copy);
+        }
+        int from = lowerBound(names, prefix);
+        int to = from;
+        while (to < names.size()
+            && nameOf(names.get(to).getData()).regionMatches(true, 0, prefix, 0, prefix.length())) {
+            to++;
+        }
+        return names.subList(from, to);
+    }
+
+    /**
+     * Read-only view of the friendships behind entries.
+     */
+    public static List<FriendshipData> data(List<FriendEntry> entries) {
+        return new AbstractList<FriendshipData>() {
+            @Override
+            public FriendshipData get(int index) {
+                return entries.get(index).getData();
+            }
+
+            @Override
+            public int size() {
+                return entries.size();
+            }
+        };
+    }
+
+    private static int lowerBound(List<FriendEntry> names, String key) {
+        int low = 0;
+        int high = names.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (String.CASE_INSENSITIVE_ORDER.compare(nameOf(names.get(mid).getData()), key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static String nameOf(FriendshipData friend) {
+        return friend.getFriendName() == null ? "" : friend.getFriendName();
+    }
+
+    /**
+     * Get the friends that follow a cursor in display order.
+     *
+     * @param after Cursor from the previous page, null for the first page
+     * @param limit Maximum friends on the page
+     */
+    public Page page(Cursor after, int limit) {
+        int from = 0;
+        if (after != null) {
+            // First index whose entry sorts after the cursor
+            int low = 0;
+            int high = sorted.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (compare(after.favorite, after.name, after.friendUuid, sorted.get(mid).getData()) < 0) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            from = low;
+        }
+        int to = Math.min(sorted.size(), from + Math.max(0, limit));
+        List<FriendEntry> entries = sorted.subList(from, to);
+        Cursor next = to < sorted.size() && to > from ? Cursor.of(sorted.get(to - 1).getData()) : null;
+        return new Page(entries, next, sorted.size());
+    }
+
+    /**
+     * Order by favorite first, then name ignoring case, then UUID as a tie-break.
+     */
+    private static int compare(boolean favorite, String name, String friendUuid, FriendshipData other) {
+        if (favorite != other.isFavorite()) {
+            return favorite ? -1 : 1;
+        }
+        int names = String.CASE_INSENSITIVE_ORDER.compare(name == null ? "" : name, nameOf(other));
+        if (names != 0) {
+            return names;
+        }
+        String otherUuid = other.getFriendUuid();
+        if (friendUuid == null || otherUuid == null) {
+            return friendUuid == null ? (otherUuid == null ? 0 : -1) : 1;
+        }
+        return friendUuid.compareTo(otherUuid);
+    }
+
+    /**
+     * Position in the sorted list, taken from the last friend of a page.
+     * Stays valid when friends are added or removed before the next page.
+     */
+    public static final class Cursor {
+        private final boolean favorite;
+        private final String name;
+        private final String friendUuid;
+
+        private Cursor(boolean favorite, String name, String friendUuid) {
+            this.favorite = favorite;
+            this.name = name;
+            this.friendUuid = friendUuid;
+        }
+
+        public static Cursor of(FriendshipData friend) {
+            return new Cursor(friend.isFavorite(), friend.getFriendName(), friend.getFriendUuid());
+        }
+    }
+
+    /**
+     * One page of friends.
+     */
+    public static final class Page {
+        private final List<FriendEntry> entries;
+        private final Cursor next;
+        private final int total;
+
+        private Page(List<FriendEntry> entries, Cursor next, int total) {
+            this.entries = entries;
+            this.next = next;
+            this.total = total;
+        }
+
+        public List<FriendshipData> getFriends() {
+            return data(entries);
+        }
+
+        public List<FriendEntry> getEntries() {
+            return entries;
+        }
+
+        /**
+         * Cursor for the following page, or null if this is the last page.
+         */
+        public Cursor getNext() {
+            return next;
+        }
+
+        /**
+         * Number of friends in the whole list.
+         */
+        public int getTotal() {
+            return total;
+        }
+    }
+}
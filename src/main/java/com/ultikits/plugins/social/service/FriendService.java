@@ -2,20 +2,54 @@ package com.ultikits.plugins.social.service;
 
 import com.ultikits.plugins.social.config.SocialConfig;
 import com.ultikits.plugins.social.entity.BlacklistData;
+import com.ultikits.plugins.social.entity.FriendGroupData;
 import com.ultikits.plugins.social.entity.FriendRequest;
 import com.ultikits.plugins.social.entity.FriendshipData;
+import com.ultikits.plugins.social.entity.LastSeenData;
+import com.ultikits.plugins.social.entity.MailboxData;
+import com.ultikits.plugins.social.entity.OfflineMessage;
+import com.ultikits.plugins.social.message.OfflineMailbox;
+import com.ultikits.plugins.social.message.PrivateMessagePipeline;
+import com.ultikits.plugins.social.metrics.QueryProfiler;
+import com.ultikits.plugins.social.metrics.SocialMetrics;
+import com.ultikits.plugins.social.storage.DataOperatorGraphStore;
+import com.ultikits.plugins.social.storage.FriendshipImporter;
+import com.ultikits.plugins.social.storage.GraphExporter;
+import com.ultikits.plugins.social.storage.GraphSnapshot;
+import com.ultikits.plugins.social.storage.GraphStore;
+import com.ultikits.plugins.social.storage.JournaledGraphStore;
+import com.ultikits.plugins.social.storage.MappedGraphStore;
+import com.ultikits.plugins.social.sync.PluginMessageBus;
+import com.ultikits.plugins.social.sync.SocialMessageBus;
+import com.ultikits.plugins.social.sync.SyncMessage;
+import com.ultikits.ultitools.UltiTools;
 import com.ultikits.ultitools.abstracts.UltiToolsPlugin;
 import com.ultikits.ultitools.annotations.Autowired;
 import com.ultikits.ultitools.annotations.PostConstruct;
 import com.ultikits.ultitools.annotations.Scheduled;
 import com.ultikits.ultitools.annotations.Service;
 import com.ultikits.ultitools.interfaces.DataOperator;
+import com.ultikits.ultitools.services.TeleportService;
 
 import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
 import org.bukkit.entity.Player;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 
 /**
  * Service for friend system operations.
@@ -32,28 +66,208 @@ public class FriendService {
     @Autowired
     private SocialConfig config;
 
+    @Autowired(required = false)
+    private TeleportService teleportService;
+
     private DataOperator<FriendshipData> dataOperator;
     private DataOperator<BlacklistData> blacklistDataOperator;
+    private DataOperator<FriendGroupData> groupDataOperator;
+    private GraphStore graphStore;
+    private OfflineMailbox mailbox;
+    private LastSeenTracker lastSeen;
+    
+    /**
+     * Longest nickname in bytes of UTF-8, the most the local store keeps.
+     */
+    public static final int MAX_NICKNAME_BYTES = 32;
     
-    // Pending friend requests - Map<ReceiverUUID, List<FriendRequest>>
-    private final Map<UUID, List<FriendRequest>> pendingRequests = new ConcurrentHashMap<>();
+    // Send time shown next to each offline message
+    private static final DateTimeFormatter MAILBOX_TIME =
+        DateTimeFormatter.ofPattern("MM-dd HH:mm").withZone(ZoneId.systemDefault());
     
-    // Cache for friends - Map<PlayerUUID, List<FriendshipData>>
-    private final Map<UUID, List<FriendshipData>> friendCache = new ConcurrentHashMap<>();
+    // Pending friend requests - Map<ReceiverUUID, RequestInbox>
+    private final Map<UUID, RequestInbox> pendingRequests = new ConcurrentHashMap<>();
+    
+    // Cache for friends - Map<PlayerUUID, FriendList>
+    private final Map<UUID, FriendList> friendCache = new ConcurrentHashMap<>();
     
     // Cache for blacklist - Map<PlayerUUID, List<BlacklistData>>
     private final Map<UUID, List<BlacklistData>> blacklistCache = new ConcurrentHashMap<>();
     
+    // Cache for friend groups - Map<PlayerUUID, FriendGroups>
+    private final Map<UUID, FriendGroups> groupCache = new ConcurrentHashMap<>();
+    
+    // Current player names shared by all cached rows
+    private final PlayerNames playerNames = new PlayerNames();
+    
+    // Blocked players by name, built from the cached blacklist on first lookup
+    private final Map<UUID, NameIndex<BlacklistData>> blacklistNames = new ConcurrentHashMap<>();
+    
+    // Online players of this server by world
+    private final WorldPresence worldPresence = new WorldPresence();
+    
+    // Players standing still before a friend teleport
+    private final WarmupTracker warmups = new WarmupTracker();
+    
+    // Friend teleports from the command and the GUI, one pending per player
+    private FriendTeleporter teleporter;
+    
+    // Open GUIs by the players they show, redrawn once per tick
+    private final OpenGuiRegistry openGuis = new OpenGuiRegistry();
+    
+    // Loaded blacklists indexed both ways, read from the async chat thread
+    private final BlockIndex blockIndex = new BlockIndex();
+    
+    // Bumped on every join and quit; cached online lookups older than this are stale
+    private volatile long presenceEpoch;
+    
     // Teleport cooldowns - Map<PlayerUUID, LastTeleportTime>
     private final Map<UUID, Long> tpCooldowns = new ConcurrentHashMap<>();
     
+    // Per-player action rate limits
+    private final RateLimiter rateLimiter = new RateLimiter();
+    
+    // Cross-server sync, null when disabled
+    private SocialMessageBus messageBus;
+    private String serverId = UUID.randomUUID().toString();
+    
+    // Players online on other servers, dropped when no longer reported
+    private static final long PRESENCE_TTL_MILLIS = 90_000L;
+    private final NetworkPresence networkPresence = new NetworkPresence();
+    
+    // Whether other servers were asked for their players since the bus was attached
+    private volatile boolean stateRequested;
+    
+    // Async private message delivery
+    private final PrivateMessagePipeline messagePipeline = new PrivateMessagePipeline(this);
+    
+    // Latency, database call and cache counters
+    private final SocialMetrics metrics = new SocialMetrics();
+    private final QueryProfiler queryProfiler = new QueryProfiler(metrics);
+    
+    // Graph snapshot loaded at startup, null once reconciled with the database
+    private volatile GraphSnapshot snapshot;
+    private File snapshotFile;
+    private volatile long lastSnapshotWrite;
+    private final Object snapshotLock = new Object();
+    private static final int SNAPSHOT_PAGE_SIZE = 1000;
+    private static final long SHUTDOWN_SNAPSHOT_SECONDS = 10;
+
+    // Export
+    private static final int EXPORT_PAGE_SIZE = 500;
+    private Thread exportThread;
+    private volatile boolean exportCancelled;
+    private volatile LocalDate lastExportDay;
+
+    // Bulk import
+    private Thread importThread;
+    private volatile FriendshipImporter.Progress importProgress;
+    private volatile boolean importCancelled;
+    
     /**
      * Initialize the service.
      */
     @PostConstruct
     public void init() {
-        this.dataOperator = plugin.getDataOperator(FriendshipData.class);
-        this.blacklistDataOperator = plugin.getDataOperator(BlacklistData.class);
+        this.teleporter = new FriendTeleporter(this, teleportService);
+        queryProfiler.setSlowQueryLog(config.getSlowQueryMillis(), line -> plugin.getLogger().info(line));
+        this.dataOperator = queryProfiler.wrap(plugin.getDataOperator(FriendshipData.class), "friendships");
+        this.blacklistDataOperator = queryProfiler.wrap(plugin.getDataOperator(BlacklistData.class), "blacklist");
+        this.groupDataOperator =
+            queryProfiler.wrap(plugin.getDataOperator(FriendGroupData.class), "social_friend_groups");
+        DataOperator<MailboxData> mailboxDataOperator =
+            queryProfiler.wrap(plugin.getDataOperator(MailboxData.class), "social_mailbox");
+        if ("mapped".equalsIgnoreCase(config.getStorageBackend())) {
+            try {
+                this.graphStore = new MappedGraphStore(
+                    new File(UltiTools.getInstance().getDataFolder(), "ultisocial-store"));
+            } catch (IOException e) {
+                plugin.getLogger().error("Failed to open local graph store, using database", e);
+            }
+        }
+        boolean localStore = graphStore != null;
+        Set<UUID> replayed = Collections.emptySet();
+        if (walEnabled(config.getWalMode(), localStore)) {
+            replayed = openJournal(new File(UltiTools.getInstance().getDataFolder(), "ultisocial-wal.log"));
+        }
+        this.mailbox = new OfflineMailbox(mailboxDataOperator,
+            config.getMailboxMaxMessages(), config.getMailboxExpireDays());
+        this.lastSeen = new LastSeenTracker(
+            queryProfiler.wrap(plugin.getDataOperator(LastSeenData.class), "social_last_seen"));
+        configureRateLimits();
+        // The local store is already on disk, a snapshot would only duplicate it
+        if (config.isSnapshotEnabled() && !localStore) {
+            this.snapshotFile = new File(UltiTools.getInstance().getDataFolder(), "snapshots/ultisocial-graph.bin");
+            loadSnapshot();
+            // Replayed changes are newer than the snapshot
+            GraphSnapshot current = snapshot;
+            if (current != null) {
+                replayed.forEach(current::discard);
+            }
+        }
+        if (config.isSyncEnabled()) {
+            attachMessageBus(new PluginMessageBus(UltiTools.getInstance()), config.getServerId());
+        }
+        // Players already online after a reload
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            if (player.getWorld() != null) {
+                updateWorld(player.getUniqueId(), player.getWorld().getName());
+            }
+        }
+    }
+
+    /**
+     * Whether to journal changes. By default only the local store is
+     * journaled: database rows can be changed by other servers while this
+     * one is down, and replaying an old local record over them would undo
+     * those changes.
+     */
+    static boolean walEnabled(String mode, boolean localStore) {
+        if ("true".equalsIgnoreCase(mode) || "on".equalsIgnoreCase(mode)) {
+            return true;
+        }
+        if ("false".equalsIgnoreCase(mode) || "off".equalsIgnoreCase(mode)) {
+            return false;
+        }
+        return localStore;
+    }
+
+    /**
+     * Release resources held by the service.
+     */
+    public void shutdown() {
+        messagePipeline.shutdown();
+        if (mailbox != null) {
+            mailbox.flush();
+        }
+        if (lastSeen != null) {
+            // Players still online are kicked after plugins are disabled
+            recordOnlinePlayers();
+            lastSeen.flush();
+        }
+        if (snapshotFile != null) {
+            writeSnapshotOnShutdown();
+        }
+        if (graphStore != null) {
+            graphStore.close();
+        }
+        if (messageBus != null) {
+            messageBus.close();
+            messageBus = null;
+        }
+    }
+
+    /**
+     * Apply rate limit settings from config, at startup and on reload.
+     */
+    public void configureRateLimits() {
+        boolean enabled = config.isRateLimitEnabled();
+        rateLimiter.configure(RateLimiter.Action.FRIEND_REQUEST,
+            enabled ? config.getRequestBurst() : 0, config.getRequestsPerMinute());
+        rateLimiter.configure(RateLimiter.Action.MESSAGE,
+            enabled ? config.getMessageBurst() : 0, config.getMessagesPerMinute());
+        rateLimiter.configure(RateLimiter.Action.MODIFY,
+            enabled ? config.getModifyBurst() : 0, config.getModifiesPerMinute());
     }
 
     /**
@@ -62,132 +276,156 @@ public class FriendService {
      */
     @Scheduled(period = 1200, async = true)  // Every minute (60 seconds * 20 ticks)
     public void cleanupExpiredRequests() {
-        for (List<FriendRequest> requests : pendingRequests.values()) {
-            requests.removeIf(req -> req.isExpired(config.getRequestTimeout()));
+        for (RequestInbox requests : pendingRequests.values()) {
+            requests.removeExpired(config.getRequestTimeout());
+        }
+        rateLimiter.evictIdle();
+    }
+    
+    /**
+     * Consume one action from the player's rate limit.
+     *
+     * @param playerUuid UUID of the acting player
+     * @param action The action being performed
+     * @return true if the action should be rejected
+     */
+    public boolean isRateLimited(UUID playerUuid, RateLimiter.Action action) {
+        return !rateLimiter.tryAcquire(playerUuid, action);
+    }
+    
+    /**
+     * Consume one action from the player's rate limit and tell them when
+     * it is used up.
+     *
+     * @param player The acting player
+     * @param action The action being performed
+     * @return true if the action should be rejected
+     */
+    public boolean isRateLimited(Player player, RateLimiter.Action action) {
+        if (isRateLimited(player.getUniqueId(), action)) {
+            player.sendMessage(plugin.i18n("rate_limited").replace("&", "§"));
+            return true;
         }
+        return false;
     }
     
     /**
      * Send a friend request.
      */
     public boolean sendRequest(Player sender, Player receiver) {
-        UUID senderUuid = sender.getUniqueId();
-        UUID receiverUuid = receiver.getUniqueId();
+        try (SocialMetrics.Timer ignored = metrics.time("sendRequest")) {
+            UUID senderUuid = sender.getUniqueId();
+            UUID receiverUuid = receiver.getUniqueId();
         
-        // Check blacklist (bidirectional)
-        if (isBlocked(senderUuid, receiverUuid)) {
-            sender.sendMessage(config.getBlockedMessage()
-                .replace("{PLAYER}", receiver.getName())
-                .replace("&", "§"));
-            return false;
-        }
+            // Check blacklist (bidirectional)
+            if (isBlocked(senderUuid, receiverUuid)) {
+                sender.sendMessage(config.getBlockedMessage()
+                    .replace("{PLAYER}", receiver.getName())
+                    .replace("&", "§"));
+                return false;
+            }
         
-        // Check if already friends
-        if (areFriends(senderUuid, receiverUuid)) {
-            sender.sendMessage(config.getAlreadyFriendsMessage()
-                .replace("{PLAYER}", receiver.getName())
-                .replace("&", "§"));
-            return false;
-        }
+            // Check if already friends
+            if (areFriends(senderUuid, receiverUuid)) {
+                sender.sendMessage(config.getAlreadyFriendsMessage()
+                    .replace("{PLAYER}", receiver.getName())
+                    .replace("&", "§"));
+                return false;
+            }
         
-        // Check max friends limit
-        if (getFriendCount(senderUuid) >= config.getMaxFriends()) {
-            sender.sendMessage(config.getMaxFriendsMessage().replace("&", "§"));
-            return false;
-        }
+            // Check max friends limit
+            if (getFriendCount(senderUuid) >= config.getMaxFriends()) {
+                sender.sendMessage(config.getMaxFriendsMessage().replace("&", "§"));
+                return false;
+            }
         
-        // Check if request already pending
-        List<FriendRequest> requests = pendingRequests.computeIfAbsent(receiverUuid, k -> new ArrayList<>());
-        for (FriendRequest req : requests) {
-            if (req.getSender().equals(senderUuid)) {
+            // Check if request already pending
+            RequestInbox requests = pendingRequests.computeIfAbsent(receiverUuid, k -> new RequestInbox());
+            if (requests.fromSender(senderUuid) != null) {
                 sender.sendMessage(plugin.i18n("already_sent_request")
                     .replace("{PLAYER}", receiver.getName()).replace("&", "§"));
                 return false;
             }
-        }
         
-        // Check if receiver has sent request to sender (auto-accept)
-        List<FriendRequest> senderRequests = pendingRequests.get(senderUuid);
-        if (senderRequests != null) {
-            for (FriendRequest req : senderRequests) {
-                if (req.getSender().equals(receiverUuid)) {
-                    // Auto accept - both want to be friends
-                    acceptRequest(sender, receiver.getName());
-                    return true;
-                }
+            // Check if receiver has sent request to sender (auto-accept)
+            RequestInbox senderRequests = pendingRequests.get(senderUuid);
+            if (senderRequests != null && senderRequests.fromSender(receiverUuid) != null) {
+                // Auto accept - both want to be friends
+                acceptRequest(sender, receiver.getName());
+                return true;
             }
-        }
         
-        // Add request
-        requests.add(FriendRequest.create(senderUuid, sender.getName(), receiverUuid));
+            // Add request
+            requests.add(FriendRequest.create(senderUuid, sender.getName(), receiverUuid));
         
-        sender.sendMessage(config.getRequestSentMessage()
-            .replace("{PLAYER}", receiver.getName())
-            .replace("&", "§"));
+            sender.sendMessage(config.getRequestSentMessage()
+                .replace("{PLAYER}", receiver.getName())
+                .replace("&", "§"));
         
-        receiver.sendMessage(config.getRequestReceivedMessage()
-            .replace("{PLAYER}", sender.getName())
-            .replace("&", "§"));
+            receiver.sendMessage(config.getRequestReceivedMessage()
+                .replace("{PLAYER}", sender.getName())
+                .replace("&", "§"));
         
-        return true;
+            return true;
+        }
     }
     
     /**
      * Accept a friend request.
      */
     public boolean acceptRequest(Player receiver, String senderName) {
-        UUID receiverUuid = receiver.getUniqueId();
-        List<FriendRequest> requests = pendingRequests.get(receiverUuid);
-        
-        if (requests == null || requests.isEmpty()) {
-            receiver.sendMessage(plugin.i18n("no_pending_request")
-                .replace("{PLAYER}", senderName).replace("&", "§"));
-            return false;
-        }
+        try (SocialMetrics.Timer ignored = metrics.time("acceptRequest")) {
+            UUID receiverUuid = receiver.getUniqueId();
+            RequestInbox requests = pendingRequests.get(receiverUuid);
         
-        FriendRequest request = null;
-        for (FriendRequest req : requests) {
-            if (req.getSenderName().equalsIgnoreCase(senderName)) {
-                request = req;
-                break;
+            if (requests == null || requests.isEmpty()) {
+                receiver.sendMessage(plugin.i18n("no_pending_request")
+                    .replace("{PLAYER}", senderName).replace("&", "§"));
+                return false;
             }
-        }
         
-        if (request == null || request.isExpired(config.getRequestTimeout())) {
-            receiver.sendMessage(plugin.i18n("request_expired").replace("&", "§"));
-            return false;
-        }
-        
-        // Check max friends
-        if (getFriendCount(receiverUuid) >= config.getMaxFriends()) {
-            receiver.sendMessage(config.getMaxFriendsMessage().replace("&", "§"));
-            return false;
-        }
+            FriendRequest request = requests.named(senderName);
+            if (request == null || request.isExpired(config.getRequestTimeout())) {
+                receiver.sendMessage(plugin.i18n("request_expired").replace("&", "§"));
+                return false;
+            }
         
-        // Create friendship (bidirectional)
-        addFriend(receiverUuid, request.getSender(), request.getSenderName());
-        addFriend(request.getSender(), receiverUuid, receiver.getName());
+            // Check max friends
+            if (getFriendCount(receiverUuid) >= config.getMaxFriends()) {
+                receiver.sendMessage(config.getMaxFriendsMessage().replace("&", "§"));
+                return false;
+            }
         
-        // Remove request
-        requests.remove(request);
+            // Create friendship (bidirectional, both rows or neither)
+            FriendshipData forward = FriendshipData.create(receiverUuid, request.getSender(), request.getSenderName());
+            FriendshipData reverse = FriendshipData.create(request.getSender(), receiverUuid, receiver.getName());
+            store().atomically(store -> {
+                store.insertFriend(forward);
+                store.insertFriend(reverse);
+            });
         
-        // Notify both players
-        receiver.sendMessage(config.getFriendAddedMessage()
-            .replace("{PLAYER}", senderName)
-            .replace("&", "§"));
+            // Remove request
+            requests.remove(request);
         
-        Player sender = Bukkit.getPlayer(request.getSender());
-        if (sender != null) {
-            sender.sendMessage(config.getFriendAddedMessage()
-                .replace("{PLAYER}", receiver.getName())
+            // Notify both players
+            receiver.sendMessage(config.getFriendAddedMessage()
+                .replace("{PLAYER}", senderName)
                 .replace("&", "§"));
-        }
         
-        // Clear cache
-        friendCache.remove(receiverUuid);
-        friendCache.remove(request.getSender());
+            Player sender = Bukkit.getPlayer(request.getSender());
+            if (sender != null) {
+                sender.sendMessage(config.getFriendAddedMessage()
+                    .replace("{PLAYER}", receiver.getName())
+                    .replace("&", "§"));
+            }
         
-        return true;
+            // Update cached lists in place
+            cacheFriend(receiverUuid, forward);
+            cacheFriend(request.getSender(), reverse);
+            publishSync(SyncMessage.Type.FRIENDSHIP_CHANGED, receiverUuid, request.getSender());
+        
+            return true;
+        }
     }
     
     /**
@@ -195,7 +433,7 @@ public class FriendService {
      */
     public boolean denyRequest(Player receiver, String senderName) {
         UUID receiverUuid = receiver.getUniqueId();
-        List<FriendRequest> requests = pendingRequests.get(receiverUuid);
+        RequestInbox requests = pendingRequests.get(receiverUuid);
         
         if (requests == null || requests.isEmpty()) {
             receiver.sendMessage(plugin.i18n("no_pending_request")
@@ -203,14 +441,7 @@ public class FriendService {
             return false;
         }
         
-        FriendRequest request = null;
-        for (FriendRequest req : requests) {
-            if (req.getSenderName().equalsIgnoreCase(senderName)) {
-                request = req;
-                break;
-            }
-        }
-        
+        FriendRequest request = requests.named(senderName);
         if (request == null) {
             receiver.sendMessage(plugin.i18n("request_not_exist").replace("&", "§"));
             return false;
@@ -225,234 +456,1210 @@ public class FriendService {
         return true;
     }
     
-    /**
-     * Add a friend to database.
-     */
-    private void addFriend(UUID playerUuid, UUID friendUuid, String friendName) {
-        FriendshipData friendship = FriendshipData.create(playerUuid, friendUuid, friendName);
-        dataOperator.insert(friendship);
-    }
-    
     /**
      * Remove a friend.
      */
     public boolean removeFriend(Player player, String friendName) {
-        UUID playerUuid = player.getUniqueId();
-        List<FriendshipData> friends = getFriends(playerUuid);
+        try (SocialMetrics.Timer ignored = metrics.time("removeFriend")) {
+            UUID playerUuid = player.getUniqueId();
         
-        FriendshipData toRemove = null;
-        for (FriendshipData friend : friends) {
-            if (friend.getFriendName().equalsIgnoreCase(friendName)) {
-                toRemove = friend;
-                break;
+            FriendEntry toRemove = findFriend(playerUuid, friendName);
+            if (toRemove == null) {
+                player.sendMessage(plugin.i18n("not_friend")
+                    .replace("{PLAYER}", friendName).replace("&", "§"));
+                return false;
             }
-        }
-        
-        if (toRemove == null) {
-            player.sendMessage(plugin.i18n("not_friend")
-                .replace("{PLAYER}", friendName).replace("&", "§"));
-            return false;
-        }
-        
-        // Remove bidirectional
-        dataOperator.delById(toRemove.getId());
         
-        // Remove reverse friendship
-        dataOperator.query()
-            .where("player_uuid").eq(toRemove.getFriendUuid())
-            .where("friend_uuid").eq(playerUuid.toString())
-            .delete();
+            // Remove bidirectional
+            UUID friendUuid = toRemove.getUuid();
+            FriendshipData removed = toRemove.getData();
+            store().atomically(store -> {
+                store.deleteFriend(removed);
+                store.deleteFriendship(friendUuid, playerUuid);
+            });
         
-        // Clear cache
-        friendCache.remove(playerUuid);
-        friendCache.remove(UUID.fromString(toRemove.getFriendUuid()));
+            // Update cached lists in place
+            uncacheFriend(playerUuid, friendUuid);
+            uncacheFriend(friendUuid, playerUuid);
+            publishSync(SyncMessage.Type.FRIENDSHIP_CHANGED, playerUuid, friendUuid);
         
-        player.sendMessage(config.getFriendRemovedMessage()
-            .replace("{PLAYER}", friendName)
-            .replace("&", "§"));
+            player.sendMessage(config.getFriendRemovedMessage()
+                .replace("{PLAYER}", friendName)
+                .replace("&", "§"));
         
-        return true;
+            return true;
+        }
     }
     
     /**
      * Get all friends for a player.
      */
     public List<FriendshipData> getFriends(UUID playerUuid) {
-        if (friendCache.containsKey(playerUuid)) {
-            return friendCache.get(playerUuid);
-        }
-
-        List<FriendshipData> friends = dataOperator.query()
-            .where("player_uuid").eq(playerUuid.toString())
-            .list();
-
-        // Sort by favorite, then by name
-        friends.sort((a, b) -> {
-            if (a.isFavorite() != b.isFavorite()) {
-                return b.isFavorite() ? 1 : -1;
-            }
-            return a.getFriendName().compareToIgnoreCase(b.getFriendName());
-        });
-
-        friendCache.put(playerUuid, friends);
-        return friends;
+        return getFriendList(playerUuid).asList();
     }
     
     /**
-     * Get friend count.
+     * Get all friends for a player as cached entries, in display order.
      */
-    public int getFriendCount(UUID playerUuid) {
-        return getFriends(playerUuid).size();
+    public List<FriendEntry> getFriendEntries(UUID playerUuid) {
+        return getFriendList(playerUuid).entries();
     }
     
     /**
-     * Check if two players are friends.
+     * Find a friend by name, ignoring case.
+     *
+     * @param playerUuid Player whose friends to search
+     * @param friendName Friend's name
+     * @return the entry, or null if no friend has that name
      */
-    public boolean areFriends(UUID player1, UUID player2) {
-        List<FriendshipData> friends = getFriends(player1);
-        for (FriendshipData friend : friends) {
-            if (friend.getFriendUuid().equals(player2.toString())) {
-                return true;
-            }
-        }
-        return false;
+    public FriendEntry findFriend(UUID playerUuid, String friendName) {
+        return getFriendList(playerUuid).named(friendName);
     }
     
     /**
-     * Get pending requests for a player.
+     * Get the cached entry for a friend.
+     *
+     * @return the entry, or null if not friends
      */
-    public List<FriendRequest> getPendingRequests(UUID playerUuid) {
-        List<FriendRequest> requests = pendingRequests.get(playerUuid);
-        if (requests == null) {
-            return Collections.emptyList();
-        }
-        
-        // Filter out expired
-        requests.removeIf(req -> req.isExpired(config.getRequestTimeout()));
-        return requests;
+    public FriendEntry getFriendEntry(UUID playerUuid, UUID friendUuid) {
+        return getFriendList(playerUuid).entry(friendUuid);
     }
     
     /**
-     * Toggle favorite status.
+     * Get a page of a player's friends, favorites first and then by name.
+     *
+     * @param playerUuid Player whose friends to list
+     * @param after Cursor from the previous page, null for the first page
+     * @param limit Maximum friends on the page
      */
-    public void toggleFavorite(UUID playerUuid, String friendName) {
-        List<FriendshipData> friends = getFriends(playerUuid);
-        for (FriendshipData friend : friends) {
-            if (friend.getFriendName().equalsIgnoreCase(friendName)) {
-                friend.setFavorite(!friend.isFavorite());
-                try {
-                    dataOperator.update(friend);
-                } catch (IllegalAccessException e) {
-                    plugin.getLogger().error("Failed to update friend data", e);
-                }
-                friendCache.remove(playerUuid);
-                break;
-            }
-        }
+    public FriendList.Page getFriendsPage(UUID playerUuid, FriendList.Cursor after, int limit) {
+        return getFriendList(playerUuid).page(after, limit);
     }
     
     /**
-     * Set nickname for a friend.
+     * Get a player's friends as seen in a GUI view.
+     * Orderings come from the cached friend list and a name search uses its
+     * name index. Online and same-world views start from the list's online
+     * subset and the world's players, so they cost O(online friends) rather
+     * than O(friends).
+     *
+     * @param viewer Player whose friends to list
+     * @param view Sort mode, filter and search
+     * @return Matching friends, read-only
      */
-    public void setNickname(UUID playerUuid, String friendName, String nickname) {
-        List<FriendshipData> friends = getFriends(playerUuid);
-        for (FriendshipData friend : friends) {
-            if (friend.getFriendName().equalsIgnoreCase(friendName)) {
-                friend.setNickname(nickname);
-                try {
-                    dataOperator.update(friend);
-                } catch (IllegalAccessException e) {
-                    plugin.getLogger().error("Failed to update friend data", e);
+    public List<FriendEntry> getFriendsView(Player viewer, FriendView view) {
+        FriendList list = getFriendList(viewer.getUniqueId());
+        FriendView.Sort sort = view.getSort();
+        FriendView.Filter filter = view.getFilter();
+        String world = viewer.getWorld() == null ? null : viewer.getWorld().getName();
+
+        if (view.getGroup() == null && view.getSearch() == null
+            && (filter == FriendView.Filter.ONLINE || filter == FriendView.Filter.SAME_WORLD)) {
+            List<FriendEntry> online;
+            if (filter == FriendView.Filter.ONLINE) {
+                online = list.online();
+            } else {
+                online = new ArrayList<>();
+                for (UUID friendUuid : getFriendsInWorld(list, world)) {
+                    online.add(list.entry(friendUuid));
                 }
-                friendCache.remove(playerUuid);
-                break;
             }
+            // online() is already in display order
+            if (sort != FriendView.Sort.NAME && sort != FriendView.Sort.ONLINE_FIRST
+                || filter == FriendView.Filter.SAME_WORLD) {
+                online.sort(comparator(sort));
+            }
+            return Collections.unmodifiableList(online);
+        }
+
+        List<FriendEntry> ordered;
+        if (view.getGroup() != null) {
+            // Members are kept in display order; other orders sort just them
+            FriendGroups.Group group = getGroups(viewer.getUniqueId()).get(view.getGroup());
+            ordered = group == null ? Collections.emptyList() : group.members();
+            if (view.getSearch() != null || sort == FriendView.Sort.DATE_ADDED || sort == FriendView.Sort.LAST_SEEN) {
+                List<FriendEntry> matching = new ArrayList<>(ordered.size());
+                for (FriendEntry member : ordered) {
+                    if (view.getSearch() == null || member.getName() != null
+                        && member.getName().regionMatches(true, 0, view.getSearch(), 0, view.getSearch().length())) {
+                        matching.add(member);
+                    }
+                }
+                matching.sort(comparator(sort));
+                ordered = matching;
+            }
+        } else if (view.getSearch() != null) {
+            // Few matches; order just those
+            ordered = new ArrayList<>(list.withPrefix(view.getSearch()));
+            ordered.sort(comparator(sort));
+        } else if (sort == FriendView.Sort.DATE_ADDED) {
+            ordered = list.byDateAdded();
+        } else if (sort == FriendView.Sort.LAST_SEEN) {
+            ordered = list.byLastSeen(this::getLastSeen);
+        } else if (filter == FriendView.Filter.FAVORITES) {
+            ordered = list.favorites();
+        } else {
+            ordered = list.entries();
+        }
+
+        boolean onlineFirst = sort == FriendView.Sort.ONLINE_FIRST || sort == FriendView.Sort.LAST_SEEN;
+        if (filter == FriendView.Filter.ALL && !onlineFirst) {
+            return Collections.unmodifiableList(ordered);
+        }
+
+        // A group or search narrowed the list, or all friends with online ones first
+        List<FriendEntry> online = new ArrayList<>();
+        List<FriendEntry> offline = new ArrayList<>();
+        for (FriendEntry friend : ordered) {
+            boolean isOnline = list.isOnline(friend.getUuid());
+            switch (filter) {
+                case ONLINE:
+                    if (!isOnline) continue;
+                    break;
+                case FAVORITES:
+                    if (!friend.isFavorite()) continue;
+                    break;
+                case SAME_WORLD:
+                    if (!isOnline || world == null
+                        || !world.equals(worldPresence.worldOf(friend.getUuid()))) continue;
+                    break;
+                default:
+                    break;
+            }
+            (isOnline || !onlineFirst ? online : offline).add(friend);
         }
+        online.addAll(offline);
+        return Collections.unmodifiableList(online);
     }
-    
-    /**
-     * Check teleport cooldown.
-     */
-    public boolean canTeleport(UUID playerUuid) {
-        Long lastTp = tpCooldowns.get(playerUuid);
-        if (lastTp == null) {
-            return true;
+
+    private Comparator<FriendEntry> comparator(FriendView.Sort sort) {
+        switch (sort) {
+            case DATE_ADDED:
+                return Comparator.comparingLong((FriendEntry f) -> f.getData().getCreatedTime()).reversed();
+            case LAST_SEEN:
+                return Comparator.comparingLong((FriendEntry f) -> getLastSeen(f.getUuid())).reversed();
+            default:
+                return Comparator.comparing(FriendEntry::getData, FriendList.ORDER);
         }
-        return System.currentTimeMillis() - lastTp > config.getTpCooldown() * 1000L;
     }
+
+    // ==================== Friend Groups ====================
     
     /**
-     * Set teleport cooldown.
+     * Get a player's friend groups.
+     * Rows are read once; after the friend list changes the cached rows are
+     * bound to the new list without another read.
      */
-    public void setTpCooldown(UUID playerUuid) {
-        tpCooldowns.put(playerUuid, System.currentTimeMillis());
+    public FriendGroups getGroups(UUID playerUuid) {
+        FriendList friends = getFriendList(playerUuid);
+        FriendGroups cached = groupCache.get(playerUuid);
+        if (cached != null && cached.getFriends() == friends) {
+            metrics.cacheHit("groups");
+            return cached;
+        }
+        List<FriendGroupData> rows;
+        if (cached != null) {
+            rows = cached.rows();
+        } else {
+            metrics.cacheMiss("groups");
+            rows = new ArrayList<>();
+            if (groupDataOperator != null) {
+                try (SocialMetrics.Timer ignored = metrics.time("loadGroups")) {
+                    rows.addAll(groupDataOperator.query()
+                        .where("player_uuid").eq(playerUuid.toString())
+                        .list());
+                }
+            }
+            rows.sort(Comparator.comparingLong(FriendGroupData::getCreatedTime));
+        }
+        FriendGroups groups = FriendGroups.of(rows, friends);
+        groupCache.put(playerUuid, groups);
+        return groups;
     }
     
     /**
-     * Get remaining cooldown in seconds.
+     * Create an empty friend group.
+     *
+     * @return false if a group with that name exists or the limit is reached
      */
-    public int getRemainingCooldown(UUID playerUuid) {
-        Long lastTp = tpCooldowns.get(playerUuid);
-        if (lastTp == null) {
-            return 0;
+    public boolean createGroup(UUID playerUuid, String name) {
+        FriendGroups groups = getGroups(playerUuid);
+        if (groups.get(name) != null || groups.size() >= config.getMaxGroups()) {
+            return false;
         }
-        long remaining = (config.getTpCooldown() * 1000L) - (System.currentTimeMillis() - lastTp);
-        return Math.max(0, (int) (remaining / 1000));
+        FriendGroupData row = FriendGroupData.create(playerUuid, name);
+        groupDataOperator.insert(row);
+        groupCache.put(playerUuid, groups.with(row));
+        return true;
     }
     
     /**
-     * Clear cache for player.
+     * Delete a friend group. The friends themselves are kept.
+     *
+     * @return false if there is no group with that name
      */
-    public void clearCache(UUID playerUuid) {
-        friendCache.remove(playerUuid);
-        blacklistCache.remove(playerUuid);
+    public boolean deleteGroup(UUID playerUuid, String name) {
+        FriendGroups groups = getGroups(playerUuid);
+        FriendGroups.Group group = groups.get(name);
+        if (group == null) {
+            return false;
+        }
+        if (group.getData().getId() != null) {
+            groupDataOperator.delById(group.getData().getId());
+        }
+        groupCache.put(playerUuid, groups.without(group));
+        return true;
     }
     
-    // ==================== Blacklist Methods ====================
-    
     /**
-     * Add a player to blacklist.
-     * This will also remove any existing friendship between the two players.
+     * Add a friend to a group.
      *
-     * @param blocker The player who is blocking
-     * @param blocked The player being blocked
-     * @param reason Optional reason for blocking
-     * @return true if successfully blocked
+     * @return false if there is no such group, they are not friends or
+     *         already in the group
      */
-    public boolean addToBlacklist(Player blocker, Player blocked, String reason) {
-        return addToBlacklist(blocker.getUniqueId(), blocked.getUniqueId(), blocked.getName(), reason);
+    public boolean addToGroup(UUID playerUuid, String name, UUID friendUuid) {
+        FriendGroups groups = getGroups(playerUuid);
+        FriendGroups.Group group = groups.get(name);
+        if (group == null || !groups.getFriends().contains(friendUuid) || group.contains(friendUuid)) {
+            return false;
+        }
+        return writeGroup(playerUuid, groups, group, group.packWith(friendUuid, null));
     }
     
     /**
-     * Add a player to blacklist by UUID.
+     * Remove a friend from a group.
      *
-     * @param blockerUuid UUID of the player who is blocking
-     * @param blockedUuid UUID of the player being blocked
-     * @param blockedName Name of the player being blocked
-     * @param reason Optional reason for blocking
-     * @return true if successfully blocked
+     * @return false if there is no such group or they are not in it
      */
-    public boolean addToBlacklist(UUID blockerUuid, UUID blockedUuid, String blockedName, String reason) {
-        // Check if already blocked
-        if (isBlockedBy(blockerUuid, blockedUuid)) {
+    public boolean removeFromGroup(UUID playerUuid, String name, UUID friendUuid) {
+        FriendGroups groups = getGroups(playerUuid);
+        FriendGroups.Group group = groups.get(name);
+        if (group == null || !group.contains(friendUuid)) {
             return false;
         }
-        
-        // Remove friendship if exists (bidirectional)
-        removeFriendByUuid(blockerUuid, blockedUuid);
-        
-        // Create blacklist entry
-        BlacklistData blacklist = BlacklistData.create(blockerUuid, blockedUuid, blockedName, reason);
-        blacklistDataOperator.insert(blacklist);
-        
-        // Clear cache
-        blacklistCache.remove(blockerUuid);
-        
+        return writeGroup(playerUuid, groups, group, group.packWith(null, friendUuid));
+    }
+    
+    private boolean writeGroup(UUID playerUuid, FriendGroups groups, FriendGroups.Group group, String members) {
+        FriendGroupData row = group.getData();
+        String previous = row.getMembers();
+        row.setMembers(members);
+        try {
+            groupDataOperator.update(row);
+        } catch (IllegalAccessException e) {
+            row.setMembers(previous);
+            plugin.getLogger().error("Failed to update friend group " + row.getGroupName(), e);
+            return false;
+        }
+        groupCache.put(playerUuid, groups.with(row));
         return true;
     }
     
     /**
-     * Remove a player from blacklist.
+     * Last time a player was seen online, 0 if never.
+     * Falls back to the server's player data for players not tracked yet.
+     */
+    public long getLastSeen(UUID playerUuid) {
+        long time = lastSeen == null ? 0 : lastSeen.get(playerUuid);
+        if (time > 0) {
+            return time;
+        }
+        OfflinePlayer player = Bukkit.getOfflinePlayer(playerUuid);
+        return player == null ? 0 : player.getLastPlayed();
+    }
+
+    /**
+     * Record that a player was seen now, e.g. when they quit.
+     */
+    public void recordLastSeen(UUID playerUuid) {
+        if (lastSeen != null) {
+            lastSeen.record(playerUuid, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Stop keeping the last-seen times loaded for a player, when they quit.
+     * Times still held for other online players stay in memory.
+     */
+    public void releaseLastSeen(UUID playerUuid) {
+        if (lastSeen != null) {
+            lastSeen.release(playerUuid);
+        }
+    }
+
+    /**
+     * Scheduled last-seen update for online players, so a crash loses at
+     * most one period.
+     */
+    @Scheduled(period = 6000)  // Every 5 minutes
+    public void recordOnlinePlayers() {
+        if (lastSeen == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            lastSeen.record(player.getUniqueId(), now);
+        }
+    }
+
+    /**
+     * Scheduled batch write of recorded last-seen times.
+     */
+    @Scheduled(period = 600, async = true)  // Every 30 seconds
+    public void flushLastSeen() {
+        if (lastSeen != null) {
+            try (SocialMetrics.Timer ignored = metrics.time("flushLastSeen")) {
+                lastSeen.flush();
+            }
+        }
+    }
+
+    /**
+     * Counter bumped whenever a player joins or leaves. Friend entries
+     * cache their online player per epoch.
+     */
+    public long getPresenceEpoch() {
+        return presenceEpoch;
+    }
+
+    /**
+     * Called when a player joins or leaves. Starts a new presence epoch,
+     * queues the GUI slots showing them for a redraw and drops the
+     * last-seen order of every cached friend list that contains them,
+     * found through their own cached list.
+     */
+    public void onPresenceChange(UUID playerUuid) {
+        presenceEpoch++;
+        openGuis.markChanged(playerUuid);
+        FriendList own = friendCache.get(playerUuid);
+        if (own == null) {
+            return;
+        }
+        for (FriendEntry friend : own.entries()) {
+            FriendList theirs = friendCache.get(friend.getUuid());
+            if (theirs != null) {
+                theirs.forgetLastSeen();
+            }
+        }
+    }
+
+    /**
+     * Record the world a player is in, on join and world change.
+     *
+     * @param world World name, null when the player left the server
+     */
+    public void updateWorld(UUID playerUuid, String world) {
+        boolean wasOnline = worldPresence.worldOf(playerUuid) != null;
+        if (world == null) {
+            worldPresence.leave(playerUuid);
+        } else {
+            worldPresence.enter(playerUuid, world);
+        }
+        if (wasOnline != (world != null)) {
+            updateOnlineSubsets(playerUuid, world != null);
+        }
+        // Shown in the friend list lore and the same-world filter
+        openGuis.markChanged(playerUuid);
+    }
+
+    /**
+     * Add a player to, or remove them from, the online subset of every
+     * cached list that contains them. Those are found through their own
+     * cached list, or by probing each cached list if theirs is not cached.
+     */
+    private void updateOnlineSubsets(UUID playerUuid, boolean online) {
+        FriendList own = friendCache.get(playerUuid);
+        if (own != null) {
+            for (FriendEntry friend : own.entries()) {
+                FriendList theirs = friendCache.get(friend.getUuid());
+                if (theirs != null) {
+                    theirs.setOnline(playerUuid, online);
+                }
+            }
+        } else {
+            for (FriendList theirs : friendCache.values()) {
+                theirs.setOnline(playerUuid, online);
+            }
+        }
+    }
+    
+    /**
+     * Get a player's friends who are online in a world on this server.
+     * Walks whichever is smaller, the online friends or the world's players,
+     * and probes the other, so the cost is O(min(online friends, population)).
+     */
+    public List<UUID> getFriendsInWorld(UUID playerUuid, String world) {
+        try (SocialMetrics.Timer ignored = metrics.time("friendsInWorld")) {
+            return getFriendsInWorld(getFriendList(playerUuid), world);
+        }
+    }
+
+    private List<UUID> getFriendsInWorld(FriendList friends, String world) {
+        Set<UUID> population = world == null ? Collections.emptySet() : worldPresence.players(world);
+        List<FriendEntry> online = friends.online();
+        List<UUID> result = new ArrayList<>();
+        if (online.size() <= population.size()) {
+            for (FriendEntry friend : online) {
+                if (population.contains(friend.getUuid())) {
+                    result.add(friend.getUuid());
+                }
+            }
+        } else {
+            for (UUID player : population) {
+                if (friends.isOnline(player)) {
+                    result.add(player);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the cached friend list, loading it on a miss.
+     */
+    private FriendList getFriendList(UUID playerUuid) {
+        FriendList cached = friendCache.get(playerUuid);
+        if (cached != null) {
+            metrics.cacheHit("friends");
+            return cached;
+        }
+        metrics.cacheMiss("friends");
+
+        GraphSnapshot current = snapshot;
+        List<FriendshipData> friends = current == null ? null : current.getFriends(playerUuid);
+        if (friends != null) {
+            metrics.cacheHit("snapshot");
+        } else {
+            try (SocialMetrics.Timer ignored = metrics.time("loadFriends")) {
+                friends = store().loadFriends(playerUuid);
+            }
+        }
+
+        // Current names, one shared instance each
+        for (FriendshipData friend : friends) {
+            friend.setFriendName(playerNames.canonical(friend.getFriendUuid(), friend.getFriendName()));
+        }
+
+        // Sorted by favorite, then by name
+        FriendList list = new FriendList(friends);
+        friendCache.put(playerUuid, list);
+        // After publishing, so a join in between is seen by one side or the other
+        for (FriendEntry friend : list.entries()) {
+            if (friend.getUuid() != null && worldPresence.worldOf(friend.getUuid()) != null) {
+                list.setOnline(friend.getUuid(), true);
+            }
+        }
+        return list;
+    }
+    
+    /**
+     * Get friend count. Answered from the cached list or the snapshot,
+     * otherwise with a count query rather than loading the list.
+     */
+    public int getFriendCount(UUID playerUuid) {
+        FriendList cached = friendCache.get(playerUuid);
+        if (cached != null) {
+            return cached.size();
+        }
+        GraphSnapshot current = snapshot;
+        List<FriendshipData> friends = current == null ? null : current.getFriends(playerUuid);
+        if (friends != null) {
+            return friends.size();
+        }
+        try (SocialMetrics.Timer ignored = metrics.time("countFriends")) {
+            return store().countFriends(playerUuid);
+        }
+    }
+    
+    /**
+     * Check if two players are friends. Answered from the cached list or
+     * the snapshot, otherwise with an exists query.
+     */
+    public boolean areFriends(UUID player1, UUID player2) {
+        FriendList cached = friendCache.get(player1);
+        if (cached != null) {
+            return cached.contains(player2);
+        }
+        GraphSnapshot current = snapshot;
+        List<FriendshipData> friends = current == null ? null : current.getFriends(player1);
+        if (friends != null) {
+            String friendUuid = player2.toString();
+            return friends.stream().anyMatch(friend -> friendUuid.equals(friend.getFriendUuid()));
+        }
+        try (SocialMetrics.Timer ignored = metrics.time("friendExists")) {
+            return store().isFriend(player1, player2);
+        }
+    }
+    
+    /**
+     * Get pending requests for a player.
+     */
+    public List<FriendRequest> getPendingRequests(UUID playerUuid) {
+        RequestInbox requests = pendingRequests.get(playerUuid);
+        if (requests == null) {
+            return Collections.emptyList();
+        }
+        
+        // Filter out expired
+        requests.removeExpired(config.getRequestTimeout());
+        return requests.list();
+    }
+    
+    /**
+     * Toggle favorite status.
+     */
+    public void toggleFavorite(UUID playerUuid, String friendName) {
+        FriendEntry entry = findFriend(playerUuid, friendName);
+        if (entry == null) {
+            return;
+        }
+        FriendshipData friend = entry.getData();
+        friend.setFavorite(!friend.isFavorite());
+        try {
+            store().updateFriend(friend);
+        } catch (IllegalAccessException e) {
+            plugin.getLogger().error("Failed to update friend data", e);
+        }
+        cacheFriend(playerUuid, friend);
+        publishSync(SyncMessage.Type.INVALIDATE, playerUuid, null);
+    }
+    
+    /**
+     * Set nickname for a friend.
+     *
+     * @param nickname The nickname, null to clear it; at most {@link #MAX_NICKNAME_BYTES} bytes of UTF-8
+     * @return false if not friends or the nickname is too long to store
+     */
+    public boolean setNickname(UUID playerUuid, String friendName, String nickname) {
+        if (nickname != null && nickname.getBytes(StandardCharsets.UTF_8).length > MAX_NICKNAME_BYTES) {
+            return false;
+        }
+        FriendEntry entry = findFriend(playerUuid, friendName);
+        if (entry == null) {
+            return false;
+        }
+        FriendshipData friend = entry.getData();
+        friend.setNickname(nickname);
+        try {
+            store().updateFriend(friend);
+        } catch (IllegalAccessException e) {
+            plugin.getLogger().error("Failed to update friend data", e);
+        }
+        cacheFriend(playerUuid, friend);
+        publishSync(SyncMessage.Type.INVALIDATE, playerUuid, null);
+        return true;
+    }
+    
+    /**
+     * Send a private message to a friend.
+     * Validation and delivery happen asynchronously; the sender is told
+     * about any failure.
+     */
+    public void sendPrivateMessage(Player sender, String friendName, String message) {
+        messagePipeline.send(sender, friendName, message);
+    }
+    
+    /**
+     * Reply to the player's last private message partner.
+     */
+    public void replyPrivateMessage(Player sender, String message) {
+        messagePipeline.reply(sender, message);
+    }
+    
+    /**
+     * Forget who a player last messaged, when they leave.
+     */
+    public void forgetReplyTarget(UUID playerUuid) {
+        messagePipeline.forget(playerUuid);
+    }
+    
+    /**
+     * Send a message to the online members of one of the sender's friend
+     * groups. Delivered asynchronously like private messages.
+     */
+    public void sendGroupMessage(Player sender, String groupName, String message) {
+        messagePipeline.sendGroup(sender, groupName, message);
+    }
+    
+    /**
+     * Store a private message for a friend who is offline.
+     */
+    public void storeOfflineMessage(Player sender, UUID recipientUuid, String content) {
+        mailbox.append(recipientUuid, OfflineMessage.create(sender.getUniqueId(), sender.getName(), content));
+    }
+    
+    /**
+     * Deliver a joining player's offline messages as one digest.
+     */
+    public void deliverOfflineMessages(Player player) {
+        if (mailbox == null) {
+            return;
+        }
+        List<OfflineMessage> messages = mailbox.take(player.getUniqueId());
+        if (messages.isEmpty()) {
+            return;
+        }
+        StringBuilder digest = new StringBuilder(64 + messages.size() * 64);
+        digest.append("§d[离线私聊] §f你有 ").append(messages.size()).append(" 条未读消息:");
+        for (OfflineMessage message : messages) {
+            digest.append("\n§7[").append(MAILBOX_TIME.format(Instant.ofEpochMilli(message.getTimestamp()))).append("] §f")
+                .append(message.getSenderName()).append(": §r").append(message.getContent());
+        }
+        player.sendMessage(digest.toString());
+    }
+    
+    /**
+     * Warm a player's state before they join. Called off the main thread.
+     */
+    public void prefetch(UUID playerUuid) {
+        List<FriendEntry> friends = getFriendEntries(playerUuid);
+        getBlacklist(playerUuid);
+        getGroups(playerUuid);
+        if (lastSeen != null) {
+            List<UUID> players = new ArrayList<>(friends.size() + 1);
+            players.add(playerUuid);
+            for (FriendEntry friend : friends) {
+                players.add(friend.getUuid());
+            }
+            lastSeen.retain(playerUuid, players);
+            try (SocialMetrics.Timer ignored = metrics.time("loadLastSeen")) {
+                lastSeen.prefetch(players);
+            }
+        }
+        if (mailbox != null && config.isMailboxEnabled()) {
+            mailbox.prefetch(playerUuid);
+        }
+    }
+    
+    /**
+     * Forget what {@link #prefetch} loaded for a player whose login was
+     * denied after it ran. No quit event follows such a login.
+     */
+    public void discardPrefetch(UUID playerUuid) {
+        releaseLastSeen(playerUuid);
+        unindexBlacklist(playerUuid);
+        clearCache(playerUuid);
+        if (mailbox != null) {
+            mailbox.discard(playerUuid);
+        }
+    }
+    
+    /**
+     * Bring stored names in line with a player's current name. Called off
+     * the main thread at login, after {@link #prefetch}. Rows are only
+     * searched when the name differs from the one stored with the
+     * player's last-seen time, so an unchanged name costs nothing. A player
+     * with no stored name yet, such as a new player or anyone's first login
+     * after an upgrade, only has the name recorded.
+     *
+     * @param playerUuid Player logging in
+     * @param name Their current name
+     * @return number of players whose friend list or blacklist was renamed
+     */
+    public int reconcileName(UUID playerUuid, String name) {
+        playerNames.update(playerUuid, name);
+        if (lastSeen == null) {
+            return 0;
+        }
+        String recorded = lastSeen.getName(playerUuid);
+        if (recorded == null) {
+            lastSeen.recordName(playerUuid, name);
+            return 0;
+        }
+        if (name.equals(recorded)) {
+            return 0;
+        }
+        Set<UUID> owners;
+        try (SocialMetrics.Timer ignored = metrics.time("renamePlayer")) {
+            owners = store().renamePlayer(playerUuid, name);
+        } catch (IllegalAccessException e) {
+            plugin.getLogger().error("Failed to update stored names of " + playerUuid, e);
+            return 0;
+        }
+        lastSeen.recordName(playerUuid, name);
+        for (UUID owner : owners) {
+            renameCachedFriend(owner, playerUuid, name);
+            invalidateBlacklist(owner);
+            // Other servers learn the new name before rebuilding the lists
+            publishSync(SyncMessage.Type.INVALIDATE, owner, playerUuid, name);
+        }
+        if (!owners.isEmpty()) {
+            plugin.getLogger().info("Updated name of " + playerUuid + " to " + name
+                + " for " + owners.size() + " players");
+        }
+        return owners.size();
+    }
+    
+    /**
+     * Get the current name of a player referenced by a cached row.
+     *
+     * @return the name, or null if unknown
+     */
+    public String getPlayerName(UUID playerUuid) {
+        return playerNames.get(playerUuid);
+    }
+    
+    /**
+     * Scheduled batch write of queued offline messages.
+     */
+    @Scheduled(period = 100, async = true)  // Every 5 seconds
+    public void flushMailbox() {
+        if (mailbox != null) {
+            try (SocialMetrics.Timer ignored = metrics.time("flushMailbox")) {
+                mailbox.flush();
+            }
+        }
+    }
+    
+    /**
+     * Scheduled removal of expired mailboxes left by players who never came back.
+     */
+    @Scheduled(period = 72000, async = true)  // Every hour
+    public void purgeMailbox() {
+        if (mailbox == null) {
+            return;
+        }
+        int purged;
+        try (SocialMetrics.Timer ignored = metrics.time("purgeMailbox")) {
+            purged = mailbox.purgeExpired();
+        }
+        if (purged > 0) {
+            plugin.getLogger().info("Removed " + purged + " expired offline mailbox rows");
+        }
+    }
+    
+    /**
+     * Scheduled sync of the local graph store to disk.
+     */
+    @Scheduled(period = 100, async = true)  // Every 5 seconds
+    public void flushStore() {
+        if (graphStore != null) {
+            graphStore.flush();
+        }
+    }
+    
+    /**
+     * Check teleport cooldown.
+     */
+    public boolean canTeleport(UUID playerUuid) {
+        Long lastTp = tpCooldowns.get(playerUuid);
+        if (lastTp == null) {
+            return true;
+        }
+        return System.currentTimeMillis() - lastTp > config.getTpCooldown() * 1000L;
+    }
+    
+    /**
+     * Set teleport cooldown.
+     */
+    public void setTpCooldown(UUID playerUuid) {
+        tpCooldowns.put(playerUuid, System.currentTimeMillis());
+    }
+    
+    /**
+     * Get the players in a teleport warmup.
+     */
+    public WarmupTracker getWarmups() {
+        return warmups;
+    }
+    
+    /**
+     * Get the teleporter shared by the friend command and GUI.
+     */
+    public FriendTeleporter getTeleporter() {
+        return teleporter;
+    }
+    
+    /**
+     * Get the open GUIs, indexed by the players they show.
+     */
+    public OpenGuiRegistry getOpenGuis() {
+        return openGuis;
+    }
+    
+    /**
+     * Redraw GUI slots queued by presence changes since the last tick.
+     */
+    @Scheduled(period = 1)
+    public void flushGuiUpdates() {
+        openGuis.flush();
+    }
+    
+    /**
+     * Finish teleport warmups whose time is up.
+     */
+    @Scheduled(period = 5)  // Every quarter second
+    public void tickWarmups() {
+        warmups.tick(System.currentTimeMillis());
+    }
+    
+    /**
+     * Get remaining cooldown in seconds.
+     */
+    public int getRemainingCooldown(UUID playerUuid) {
+        Long lastTp = tpCooldowns.get(playerUuid);
+        if (lastTp == null) {
+            return 0;
+        }
+        long remaining = (config.getTpCooldown() * 1000L) - (System.currentTimeMillis() - lastTp);
+        return Math.max(0, (int) (remaining / 1000));
+    }
+    
+    /**
+     * Put the write-ahead log in front of the graph store and replay
+     * whatever the last run left in it.
+     *
+     * @return players touched by the replay
+     */
+    private Set<UUID> openJournal(File logFile) {
+        try {
+            JournaledGraphStore journal = new JournaledGraphStore(store(), logFile);
+            Set<UUID> replayed = journal.replay();
+            if (!replayed.isEmpty()) {
+                plugin.getLogger().info("Replayed write-ahead log for " + replayed.size() + " players");
+            }
+            graphStore = journal;
+            return replayed;
+        } catch (IOException | RuntimeException e) {
+            plugin.getLogger().error("Failed to replay write-ahead log, writing to storage directly", e);
+            return Collections.emptySet();
+        }
+    }
+    
+    /**
+     * Get the graph store, defaulting to the UltiTools data operators.
+     */
+    private GraphStore store() {
+        if (graphStore == null) {
+            graphStore = new DataOperatorGraphStore(dataOperator, blacklistDataOperator);
+        }
+        return graphStore;
+    }
+    
+    /**
+     * Drop a player's cached friend list after it changed.
+     */
+    private void invalidateFriends(UUID playerUuid) {
+        friendCache.remove(playerUuid);
+        discardSnapshot(playerUuid);
+    }
+    
+    /**
+     * Put a new or changed friendship into its owner's cached list, if
+     * cached, instead of dropping and reloading the whole list.
+     */
+    private void cacheFriend(UUID playerUuid, FriendshipData friend) {
+        friend.setFriendName(playerNames.canonical(friend.getFriendUuid(), friend.getFriendName()));
+        FriendList changed = friendCache.computeIfPresent(playerUuid, (key, list) -> list.with(friend));
+        UUID friendUuid = UUID.fromString(friend.getFriendUuid());
+        if (changed != null && worldPresence.worldOf(friendUuid) != null) {
+            changed.setOnline(friendUuid, true);
+        }
+        discardSnapshot(playerUuid);
+    }
+
+    /**
+     * Remove a friend from a player's cached list, if cached.
+     */
+    private void uncacheFriend(UUID playerUuid, UUID friendUuid) {
+        friendCache.computeIfPresent(playerUuid, (key, list) -> list.without(friendUuid));
+        discardSnapshot(playerUuid);
+    }
+
+    /**
+     * Show a friend's new name in a player's cached list, if cached.
+     */
+    private void renameCachedFriend(UUID playerUuid, UUID friendUuid, String name) {
+        FriendList cached = friendCache.get(playerUuid);
+        FriendshipData friend = cached == null ? null : cached.get(friendUuid);
+        if (friend == null) {
+            discardSnapshot(playerUuid);
+            return;
+        }
+        friend.setFriendName(name);
+        cacheFriend(playerUuid, friend);
+    }
+
+    private void discardSnapshot(UUID playerUuid) {
+        GraphSnapshot current = snapshot;
+        if (current != null) {
+            current.discard(playerUuid);
+        }
+    }
+
+    /**
+     * Drop a player's cached blacklist after it changed.
+     */
+    private void invalidateBlacklist(UUID playerUuid) {
+        blacklistCache.remove(playerUuid);
+        blacklistNames.remove(playerUuid);
+        discardSnapshot(playerUuid);
+    }
+    
+    /**
+     * Clear cache for player.
+     */
+    public void clearCache(UUID playerUuid) {
+        friendCache.remove(playerUuid);
+        groupCache.remove(playerUuid);
+        blacklistCache.remove(playerUuid);
+        blacklistNames.remove(playerUuid);
+    }
+    
+    // ==================== Graph Snapshot ====================
+    
+    /**
+     * Map the snapshot file and reconcile it with the database in the background.
+     * Until reconciled, cache misses are answered from the snapshot.
+     */
+    public void loadSnapshot() {
+        if (snapshotFile == null || !GraphSnapshot.exists(snapshotFile)) {
+            return;
+        }
+        try {
+            snapshot = GraphSnapshot.load(snapshotFile);
+            plugin.getLogger().info("Loaded social graph snapshot with "
+                + snapshot.getPlayers().size() + " players");
+            CompletableFuture.runAsync(this::reconcileSnapshot);
+        } catch (IOException e) {
+            plugin.getLogger().error("Failed to load social graph snapshot", e);
+        }
+    }
+    
+    /**
+     * Compare the snapshot with the database, drop cached lists that were
+     * served from stale snapshot data, and write a fresh snapshot.
+     * Both tables are read page by page in the same pass that writes the
+     * new snapshot; each player is compared by an order-independent digest
+     * of their rows, so memory stays per player rather than per row.
+     */
+    public void reconcileSnapshot() {
+        GraphSnapshot current = snapshot;
+        Map<UUID, long[]> dbDigests = new HashMap<>();
+        synchronized (snapshotLock) {
+            try (SocialMetrics.Timer ignored = metrics.time("reconcileSnapshot");
+                 GraphSnapshot.Writer writer = snapshotFile == null ? null : new GraphSnapshot.Writer(snapshotFile)) {
+                streamGraph(writer, current == null ? null : current.getPlayers(), dbDigests);
+                if (writer != null) {
+                    writer.commit();
+                    lastSnapshotWrite = System.currentTimeMillis();
+                }
+            } catch (IOException | RuntimeException e) {
+                // Cannot tell which players are stale; stop serving from the snapshot at all
+                plugin.getLogger().error("Failed to reconcile social graph snapshot", e);
+                snapshot = null;
+                friendCache.clear();
+                blacklistCache.clear();
+                blacklistNames.clear();
+                return;
+            }
+        }
+        if (current == null) {
+            return;
+        }
+        int stale = 0;
+        for (UUID player : current.getPlayers()) {
+            List<FriendshipData> snapFriends = current.getFriends(player);
+            List<BlacklistData> snapBlacklist = current.getBlacklist(player);
+            if (snapFriends == null || snapBlacklist == null) {
+                continue;
+            }
+            long[] digest = new long[2];
+            snapFriends.forEach(row -> addToDigest(digest, "F" + signature(row)));
+            snapBlacklist.forEach(row -> addToDigest(digest, "B" + signature(row)));
+            if (!Arrays.equals(digest, dbDigests.getOrDefault(player, new long[2]))) {
+                current.discard(player);
+                friendCache.remove(player);
+                blacklistCache.remove(player);
+                blacklistNames.remove(player);
+                stale++;
+            }
+        }
+        snapshot = null;
+        plugin.getLogger().info("Reconciled social graph snapshot, " + stale + " players changed");
+    }
+    
+    /**
+     * Periodically write a fresh snapshot.
+     */
+    @Scheduled(period = 1200, async = true)  // Checked every minute
+    public void snapshotTick() {
+        if (snapshotFile == null) {
+            return;
+        }
+        long interval = config.getSnapshotIntervalMinutes() * 60_000L;
+        if (System.currentTimeMillis() - lastSnapshotWrite >= interval) {
+            writeSnapshot();
+        }
+    }
+    
+    /**
+     * Stream both tables page by page into the snapshot file.
+     */
+    public void writeSnapshot() {
+        if (snapshotFile == null) {
+            return;
+        }
+        synchronized (snapshotLock) {
+            try (SocialMetrics.Timer ignored = metrics.time("snapshotWrite");
+                 GraphSnapshot.Writer writer = new GraphSnapshot.Writer(snapshotFile)) {
+                streamGraph(writer, null, null);
+                writer.commit();
+                lastSnapshotWrite = System.currentTimeMillis();
+            } catch (IOException | RuntimeException e) {
+                plugin.getLogger().error("Failed to write social graph snapshot", e);
+            }
+        }
+    }
+    
+    /**
+     * Write a last snapshot while stopping, off the main thread and for a
+     * bounded time. If it does not finish the previous snapshot is kept;
+     * a partial file never replaces it.
+     */
+    private void writeSnapshotOnShutdown() {
+        CompletableFuture<Void> write = CompletableFuture.runAsync(this::writeSnapshot);
+        try {
+            write.get(SHUTDOWN_SNAPSHOT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            plugin.getLogger().info("Social graph snapshot not finished after " + SHUTDOWN_SNAPSHOT_SECONDS
+                + "s, keeping the previous one");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            plugin.getLogger().error("Failed to write social graph snapshot", e);
+        }
+    }
+    
+    /**
+     * Read both tables in id order, one page at a time.
+     *
+     * @param writer Receives every row, or null
+     * @param tracked Players to digest, or null for none
+     * @param digests Row digests of the tracked players, filled in
+     */
+    private void streamGraph(GraphSnapshot.Writer writer, Set<UUID> tracked, Map<UUID, long[]> digests)
+            throws IOException {
+        String after = null;
+        List<FriendshipData> friends;
+        do {
+            friends = store().pageFriendships(after, SNAPSHOT_PAGE_SIZE);
+            for (FriendshipData row : friends) {
+                if (writer != null) {
+                    writer.add(row);
+                }
+                digest(tracked, digests, row.getPlayerUuid(), "F" + signature(row));
+                after = row.getId();
+            }
+        } while (friends.size() == SNAPSHOT_PAGE_SIZE);
+
+        after = null;
+        List<BlacklistData> blacklist;
+        do {
+            blacklist = store().pageBlacklist(after, SNAPSHOT_PAGE_SIZE);
+            for (BlacklistData row : blacklist) {
+                if (writer != null) {
+                    writer.add(row);
+                }
+                digest(tracked, digests, row.getPlayerUuid(), "B" + signature(row));
+                after = row.getId();
+            }
+        } while (blacklist.size() == SNAPSHOT_PAGE_SIZE);
+    }
+    
+    private static void digest(Set<UUID> tracked, Map<UUID, long[]> digests, String owner, String signature) {
+        if (tracked == null || owner == null) {
+            return;
+        }
+        UUID ownerUuid;
+        try {
+            ownerUuid = UUID.fromString(owner);
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        if (tracked.contains(ownerUuid)) {
+            addToDigest(digests.computeIfAbsent(ownerUuid, k -> new long[2]), signature);
+        }
+    }
+    
+    /**
+     * Add a row to a digest of {sum of row hashes, row count}, which does
+     * not depend on the order rows are added in.
+     */
+    private static void addToDigest(long[] digest, String signature) {
+        // 64-bit FNV-1a, then a finalizer so sums of similar rows do not cancel
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < signature.length(); i++) {
+            hash ^= signature.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        digest[0] += hash;
+        digest[1]++;
+    }
+    
+    private static String signature(FriendshipData row) {
+        return row.getId() + '\0' + row.getFriendUuid() + '\0' + row.isFavorite() + '\0' + row.getNickname();
+    }
+    
+    private static String signature(BlacklistData row) {
+        return row.getId() + '\0' + row.getBlockedUuid() + '\0' + row.getReason();
+    }
+    
+    // ==================== Blacklist Methods ====================
+    
+    /**
+     * Add a player to blacklist.
+     * This will also remove any existing friendship between the two players.
+     *
+     * @param blocker The player who is blocking
+     * @param blocked The player being blocked
+     * @param reason Optional reason for blocking
+     * @return true if successfully blocked
+     */
+    public boolean addToBlacklist(Player blocker, Player blocked, String reason) {
+        return addToBlacklist(blocker.getUniqueId(), blocked.getUniqueId(), blocked.getName(), reason);
+    }
+    
+    /**
+     * Add a player to blacklist by UUID.
+     *
+     * @param blockerUuid UUID of the player who is blocking
+     * @param blockedUuid UUID of the player being blocked
+     * @param blockedName Name of the player being blocked
+     * @param reason Optional reason for blocking
+     * @return true if successfully blocked
+     */
+    public boolean addToBlacklist(UUID blockerUuid, UUID blockedUuid, String blockedName, String reason) {
+        try (SocialMetrics.Timer ignored = metrics.time("addToBlacklist")) {
+            // Check if already blocked
+            if (isBlockedBy(blockerUuid, blockedUuid)) {
+                return false;
+            }
+        
+            // Remove friendship if exists (bidirectional) and create blacklist entry
+            BlacklistData blacklist = BlacklistData.create(blockerUuid, blockedUuid, blockedName, reason);
+            store().atomically(store -> {
+                store.deleteFriendship(blockerUuid, blockedUuid);
+                store.deleteFriendship(blockedUuid, blockerUuid);
+                store.insertBlock(blacklist);
+            });
+        
+            // Update cached lists
+            uncacheFriend(blockerUuid, blockedUuid);
+            uncacheFriend(blockedUuid, blockerUuid);
+            invalidateBlacklist(blockerUuid);
+            blockIndex.add(blockerUuid, blockedUuid);
+            publishSync(SyncMessage.Type.BLACKLIST_CHANGED, blockerUuid, blockedUuid);
+        
+            return true;
+        }
+    }
+    
+    /**
+     * Remove a player from blacklist.
      *
      * @param blocker The player who blocked
      * @param blockedName Name of the blocked player
@@ -460,22 +1667,17 @@ public class FriendService {
      */
     public boolean removeFromBlacklist(Player blocker, String blockedName) {
         UUID blockerUuid = blocker.getUniqueId();
-        List<BlacklistData> blacklist = getBlacklist(blockerUuid);
-        
-        BlacklistData toRemove = null;
-        for (BlacklistData entry : blacklist) {
-            if (entry.getBlockedName().equalsIgnoreCase(blockedName)) {
-                toRemove = entry;
-                break;
-            }
-        }
-        
+        BlacklistData toRemove = blacklistNames
+            .computeIfAbsent(blockerUuid, k -> NameIndex.of(getBlacklist(k), BlacklistData::getBlockedName))
+            .get(blockedName);
         if (toRemove == null) {
             return false;
         }
         
-        blacklistDataOperator.delById(toRemove.getId());
-        blacklistCache.remove(blockerUuid);
+        store().deleteBlock(toRemove);
+        invalidateBlacklist(blockerUuid);
+        blockIndex.remove(blockerUuid, UUID.fromString(toRemove.getBlockedUuid()));
+        publishSync(SyncMessage.Type.BLACKLIST_CHANGED, blockerUuid, UUID.fromString(toRemove.getBlockedUuid()));
         
         return true;
     }
@@ -488,21 +1690,13 @@ public class FriendService {
      * @return true if successfully unblocked
      */
     public boolean removeFromBlacklist(UUID blockerUuid, UUID blockedUuid) {
-        boolean exists = blacklistDataOperator.query()
-            .where("player_uuid").eq(blockerUuid.toString())
-            .where("blocked_uuid").eq(blockedUuid.toString())
-            .exists();
-
-        if (!exists) {
+        if (!store().deleteBlock(blockerUuid, blockedUuid)) {
             return false;
         }
 
-        blacklistDataOperator.query()
-            .where("player_uuid").eq(blockerUuid.toString())
-            .where("blocked_uuid").eq(blockedUuid.toString())
-            .delete();
-
-        blacklistCache.remove(blockerUuid);
+        invalidateBlacklist(blockerUuid);
+        blockIndex.remove(blockerUuid, blockedUuid);
+        publishSync(SyncMessage.Type.BLACKLIST_CHANGED, blockerUuid, blockedUuid);
         return true;
     }
     
@@ -543,20 +1737,83 @@ public class FriendService {
      */
     public List<BlacklistData> getBlacklist(UUID playerUuid) {
         if (blacklistCache.containsKey(playerUuid)) {
+            metrics.cacheHit("blacklist");
             return blacklistCache.get(playerUuid);
         }
+        metrics.cacheMiss("blacklist");
+
+        GraphSnapshot current = snapshot;
+        List<BlacklistData> blacklist = current == null ? null : current.getBlacklist(playerUuid);
+        if (blacklist != null) {
+            metrics.cacheHit("snapshot");
+        } else {
+            try (SocialMetrics.Timer ignored = metrics.time("loadBlacklist")) {
+                blacklist = store().loadBlacklist(playerUuid);
+            }
+        }
 
-        List<BlacklistData> blacklist = blacklistDataOperator.query()
-            .where("player_uuid").eq(playerUuid.toString())
-            .list();
+        for (BlacklistData entry : blacklist) {
+            entry.setBlockedName(playerNames.canonical(entry.getBlockedUuid(), entry.getBlockedName()));
+        }
 
         // Sort by time descending
         blacklist.sort((a, b) -> Long.compare(b.getCreatedTime(), a.getCreatedTime()));
 
         blacklistCache.put(playerUuid, blacklist);
+        List<UUID> blocked = new ArrayList<>(blacklist.size());
+        for (BlacklistData entry : blacklist) {
+            if (entry.getBlockedUuid() == null) {
+                continue;
+            }
+            try {
+                blocked.add(UUID.fromString(entry.getBlockedUuid()));
+            } catch (IllegalArgumentException e) {
+                // Malformed row, cannot match a chat sender
+            }
+        }
+        blockIndex.put(playerUuid, blocked);
         return blacklist;
     }
     
+    /**
+     * Remove the players who blocked a sender from the recipients of their
+     * chat message. Runs on the async chat thread: it only reads the block
+     * index, so nothing touches the database or waits for the main thread.
+     *
+     * @param recipients Recipients of the message, changed in place
+     * @return number of recipients removed
+     */
+    public int hideFromBlockers(UUID senderUuid, Collection<Player> recipients) {
+        Set<UUID> blockers = blockIndex.blockersOf(senderUuid);
+        if (blockers.isEmpty()) {
+            return 0;
+        }
+        int before = recipients.size();
+        try {
+            recipients.removeIf(recipient -> blockers.contains(recipient.getUniqueId()));
+        } catch (UnsupportedOperationException e) {
+            // Another plugin made the recipients read-only
+            return 0;
+        }
+        return before - recipients.size();
+    }
+    
+    /**
+     * Drop a player's blocks from the block index when they leave.
+     */
+    public void unindexBlacklist(UUID playerUuid) {
+        blockIndex.forget(playerUuid);
+    }
+    
+    /**
+     * Reload an indexed blacklist off the main thread after another server changed it.
+     */
+    private void reindexBlacklist(UUID playerUuid) {
+        if (blockIndex.isIndexed(playerUuid)) {
+            CompletableFuture.runAsync(() -> getBlacklist(playerUuid));
+        }
+    }
+    
     /**
      * Get blacklist count for a player.
      *
@@ -566,29 +1823,442 @@ public class FriendService {
     public int getBlacklistCount(UUID playerUuid) {
         return getBlacklist(playerUuid).size();
     }
+
+    /**
+     * Get a page of a player's blacklist, newest first.
+     *
+     * @param playerUuid UUID of the player
+     * @param offset Index of the first entry
+     * @param limit Maximum entries on the page
+     * @return Copy of the entries on the page
+     */
+    public List<BlacklistData> getBlacklistPage(UUID playerUuid, int offset, int limit) {
+        List<BlacklistData> blacklist = getBlacklist(playerUuid);
+        int from = Math.min(Math.max(0, offset), blacklist.size());
+        int to = Math.min(blacklist.size(), from + Math.max(0, limit));
+        return new ArrayList<>(blacklist.subList(from, to));
+    }
+    
+    // ==================== Bulk Import ====================
     
     /**
-     * Remove friendship by UUID (internal helper for blacklist).
+     * Find a file in the {@code imports} folder.
+     *
+     * @param name File name
+     * @return the file, or null if it does not exist or lies outside the folder
      */
-    private void removeFriendByUuid(UUID playerUuid, UUID friendUuid) {
-        // Remove from player's list
-        dataOperator.query()
-            .where("player_uuid").eq(playerUuid.toString())
-            .where("friend_uuid").eq(friendUuid.toString())
-            .delete();
-
-        // Remove from friend's list (reverse)
-        dataOperator.query()
-            .where("player_uuid").eq(friendUuid.toString())
-            .where("friend_uuid").eq(playerUuid.toString())
-            .delete();
-
-        // Clear caches
-        friendCache.remove(playerUuid);
-        friendCache.remove(friendUuid);
+    public File resolveImportFile(String name) {
+        File folder = new File(UltiTools.getInstance().getDataFolder(), "imports");
+        File file = new File(folder, name);
+        try {
+            if (!file.getCanonicalPath().startsWith(folder.getCanonicalPath() + File.separator)) {
+                return null;
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        return file.isFile() ? file : null;
+    }
+    
+    /**
+     * Import friendships from a CSV or JSON-lines file on a background thread.
+     *
+     * @param file File to import
+     * @param listener Receives progress every 5 seconds and once at the end
+     * @return false if an import is already running
+     */
+    public synchronized boolean startImport(File file, Consumer<FriendshipImporter.Progress> listener) {
+        if (importThread != null && importThread.isAlive()) {
+            return false;
+        }
+        importCancelled = false;
+        // Names from memory only; offline player lookups block and are main-thread only
+        FriendshipImporter importer = new FriendshipImporter(store(), config.getImportBatchSize(),
+            this::knownName, this::invalidateImported);
+        importThread = new Thread(() -> runImport(importer, file, listener), "UltiSocial-Import");
+        importThread.setDaemon(true);
+        importThread.start();
+        return true;
+    }
+    
+    /**
+     * Name of a player from the name index or their last-seen row, null if unknown.
+     */
+    private String knownName(UUID playerUuid) {
+        String name = playerNames.get(playerUuid);
+        if (name == null && lastSeen != null) {
+            name = lastSeen.getName(playerUuid);
+        }
+        return name;
+    }
+    
+    /**
+     * Drop the cached lists of players who gained friends in an import batch.
+     */
+    private void invalidateImported(Set<UUID> owners) {
+        for (UUID owner : owners) {
+            invalidateFriends(owner);
+        }
+    }
+    
+    private void runImport(FriendshipImporter importer, File file, Consumer<FriendshipImporter.Progress> listener) {
+        long[] lastReport = {System.currentTimeMillis()};
+        FriendshipImporter.Progress result = importer.run(file, () -> importCancelled, progress -> {
+            importProgress = progress;
+            long now = System.currentTimeMillis();
+            if (now - lastReport[0] >= 5000 && !progress.isFinished()) {
+                lastReport[0] = now;
+                listener.accept(progress);
+            }
+        });
+        importProgress = result;
+        if (result.getRowsWritten() > 0) {
+            // One message instead of one per player whose list changed
+            publishSync(SyncMessage.Type.REFRESH_ALL, SyncMessage.NOBODY, null);
+        }
+        if (result.getError() != null) {
+            plugin.getLogger().info("Friendship import of " + file.getName() + " failed: " + result.getError());
+        } else {
+            plugin.getLogger().info("Imported " + result.getImported() + " friendships from " + file.getName()
+                + " (" + result.getDuplicates() + " duplicates, " + result.getInvalid() + " invalid)");
+        }
+        listener.accept(result);
+    }
+    
+    /**
+     * Ask the running import to stop after its current batch.
+     *
+     * @return false if no import is running
+     */
+    public synchronized boolean cancelImport() {
+        if (importThread == null || !importThread.isAlive()) {
+            return false;
+        }
+        importCancelled = true;
+        return true;
+    }
+    
+    /**
+     * Get the progress of the running or last import.
+     *
+     * @return progress, or null if nothing was imported since startup
+     */
+    public FriendshipImporter.Progress getImportProgress() {
+        return importProgress;
+    }
+    
+    // ==================== Export ====================
+    
+    /**
+     * Start the nightly export once the configured hour is reached.
+     */
+    @Scheduled(period = 1200, async = true)  // Checked every minute
+    public void exportTick() {
+        if (!config.isExportEnabled()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        if (now.getHour() == config.getExportHour() && !now.toLocalDate().equals(lastExportDay)) {
+            lastExportDay = now.toLocalDate();
+            startExport(result -> {
+            });
+        }
+    }
+    
+    /**
+     * Export both tables to the {@code exports} folder on a background thread.
+     *
+     * @param listener Receives the result, or null if the export failed
+     * @return false if an export is already running
+     */
+    public boolean startExport(Consumer<GraphExporter.Result> listener) {
+        return startExport(new File(UltiTools.getInstance().getDataFolder(), "exports"), listener);
+    }
+    
+    /**
+     * Export both tables to a folder on a background thread.
+     *
+     * @param directory Target folder
+     * @param listener Receives the result, or null if the export failed
+     * @return false if an export is already running
+     */
+    public synchronized boolean startExport(File directory, Consumer<GraphExporter.Result> listener) {
+        if (exportThread != null && exportThread.isAlive()) {
+            return false;
+        }
+        exportCancelled = false;
+        GraphExporter exporter = new GraphExporter(store(), EXPORT_PAGE_SIZE, config.getExportRowsPerSecond());
+        exportThread = new Thread(() -> runExport(exporter, directory, listener), "UltiSocial-Export");
+        exportThread.setDaemon(true);
+        exportThread.start();
+        return true;
+    }
+    
+    private void runExport(GraphExporter exporter, File directory, Consumer<GraphExporter.Result> listener) {
+        GraphExporter.Result result;
+        try (SocialMetrics.Timer ignored = metrics.time("export")) {
+            result = exporter.export(directory, LocalDate.now().toString(), () -> exportCancelled);
+        } catch (IOException | RuntimeException e) {
+            plugin.getLogger().error("Social graph export failed", e);
+            listener.accept(null);
+            return;
+        }
+        if (!result.isCancelled()) {
+            plugin.getLogger().info("Exported " + result.getFriendships() + " friendships and "
+                + result.getBlacklist() + " blacklist entries in " + result.getMillis() + "ms");
+        }
+        listener.accept(result);
+    }
+    
+    /**
+     * Ask the running export to stop after its current page.
+     *
+     * @return false if no export is running
+     */
+    public synchronized boolean cancelExport() {
+        if (exportThread == null || !exportThread.isAlive()) {
+            return false;
+        }
+        exportCancelled = true;
+        return true;
+    }
+    
+    // ==================== Cross-server Sync ====================
+    
+    /**
+     * Connect the service to a message bus.
+     *
+     * @param bus The transport to publish and receive changes on
+     * @param id This server's id on the network, empty for a random one
+     */
+    public void attachMessageBus(SocialMessageBus bus, String id) {
+        if (id != null && !id.isEmpty()) {
+            this.serverId = id;
+        }
+        this.messageBus = bus;
+        bus.subscribe(this::handleSyncMessage);
+        stateRequested = false;
+        requestNetworkState();
+    }
+    
+    /**
+     * Ask the other servers who is online on them, once the bus can carry
+     * the request. Without players online a proxy bus cannot, so after a
+     * start this is retried when the first player joins.
+     */
+    private void requestNetworkState() {
+        SocialMessageBus bus = messageBus;
+        if (bus == null || stateRequested || !bus.isConnected()) {
+            return;
+        }
+        stateRequested = true;
+        bus.publish(new SyncMessage(serverId, SyncMessage.Type.STATE_REQUEST, new UUID(0, 0), null, null));
+    }
+    
+    /**
+     * Scheduled heartbeat of this server's players, and expiry of remote
+     * players whose server stopped reporting them.
+     */
+    @Scheduled(period = 600)  // Every 30 seconds
+    public void presenceHeartbeat() {
+        if (messageBus == null) {
+            return;
+        }
+        requestNetworkState();
+        publishHeartbeats();
+        expireNetworkPresence(System.currentTimeMillis() - PRESENCE_TTL_MILLIS);
+    }
+    
+    private void publishHeartbeats() {
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            publishSync(SyncMessage.Type.PRESENCE_HEARTBEAT, player.getUniqueId(), null, player.getName());
+        }
+    }
+    
+    /**
+     * Drop remote players not reported since a time, e.g. after their
+     * server crashed, and tell their local friends they went offline.
+     */
+    void expireNetworkPresence(long before) {
+        for (Map.Entry<UUID, String> expired : networkPresence.expire(before).entrySet()) {
+            if (Bukkit.getPlayer(expired.getKey()) == null) {
+                notifyLocalFriends(expired.getKey(), expired.getValue(), false);
+            }
+        }
+    }
+    
+    /**
+     * Announce that a player joined or left this server.
+     */
+    public void publishPresence(Player player, boolean online) {
+        if (messageBus == null) {
+            return;
+        }
+        messageBus.publish(new SyncMessage(serverId,
+            online ? SyncMessage.Type.PRESENCE_ONLINE : SyncMessage.Type.PRESENCE_OFFLINE,
+            player.getUniqueId(), null, player.getName()));
+        if (online) {
+            requestNetworkState();
+        }
+    }
+    
+    /**
+     * Check if a player is online on another server of the network.
+     */
+    public boolean isOnlineElsewhere(UUID playerUuid) {
+        return networkPresence.contains(playerUuid);
+    }
+    
+    /**
+     * Send a private message to a friend online on another server.
+     *
+     * @return false if there is no message bus to send it over
+     */
+    public boolean sendRemoteMessage(Player sender, UUID recipientUuid, String content) {
+        if (messageBus == null) {
+            return false;
+        }
+        messageBus.publish(new SyncMessage(serverId, SyncMessage.Type.PRIVATE_MESSAGE,
+            sender.getUniqueId(), recipientUuid, sender.getName(), content));
+        return true;
+    }
+    
+    private void publishSync(SyncMessage.Type type, UUID subject, UUID other) {
+        publishSync(type, subject, other, null);
+    }
+    
+    private void publishSync(SyncMessage.Type type, UUID subject, UUID other, String name) {
+        if (messageBus != null) {
+            messageBus.publish(new SyncMessage(serverId, type, subject, other, name));
+        }
+    }
+    
+    /**
+     * Apply a change received from another server.
+     */
+    void handleSyncMessage(SyncMessage message) {
+        if (serverId.equals(message.getOrigin())) {
+            return;
+        }
+        UUID subject = message.getSubject();
+        UUID other = message.getOther();
+        switch (message.getType()) {
+            case PRESENCE_ONLINE:
+                networkPresence.seen(subject, message.getOrigin(), message.getName(), System.currentTimeMillis());
+                if (message.getName() != null) {
+                    playerNames.update(subject, message.getName());
+                }
+                notifyLocalFriends(subject, message.getName(), true);
+                break;
+            case PRESENCE_HEARTBEAT:
+                // Already online, nobody is told
+                networkPresence.seen(subject, message.getOrigin(), message.getName(), System.currentTimeMillis());
+                if (message.getName() != null) {
+                    playerNames.update(subject, message.getName());
+                }
+                break;
+            case PRESENCE_OFFLINE:
+                // On a server switch the new server's online message usually comes first
+                if (networkPresence.leave(subject, message.getOrigin()) && Bukkit.getPlayer(subject) == null) {
+                    notifyLocalFriends(subject, message.getName(), false);
+                }
+                break;
+            case STATE_REQUEST:
+                publishHeartbeats();
+                break;
+            case REFRESH_ALL:
+                friendCache.clear();
+                snapshot = null;
+                break;
+            case PRIVATE_MESSAGE:
+                // Every server receives it; only the one the recipient is on shows it
+                if (other != null && message.getContent() != null && Bukkit.getPlayer(other) != null) {
+                    messagePipeline.receive(subject, message.getName(), other, message.getContent());
+                }
+                break;
+            case FRIENDSHIP_CHANGED:
+                invalidateFriends(subject);
+                if (other != null) {
+                    invalidateFriends(other);
+                }
+                break;
+            case BLACKLIST_CHANGED:
+                invalidateFriends(subject);
+                invalidateBlacklist(subject);
+                reindexBlacklist(subject);
+                if (other != null) {
+                    invalidateFriends(other);
+                    invalidateBlacklist(other);
+                    reindexBlacklist(other);
+                }
+                break;
+            case INVALIDATE:
+                // Sent after a name change of other
+                if (other != null && message.getName() != null) {
+                    playerNames.update(other, message.getName());
+                }
+                invalidateFriends(subject);
+                invalidateBlacklist(subject);
+                break;
+            default:
+                break;
+        }
+    }
+    
+    /**
+     * Tell friends online on this server that a remote player joined or left.
+     */
+    private void notifyLocalFriends(UUID subject, String name, boolean online) {
+        if (name == null || !(online ? config.isNotifyFriendOnline() : config.isNotifyFriendOffline())) {
+            return;
+        }
+        String message = (online ? config.getFriendOnlineMessage() : config.getFriendOfflineMessage())
+            .replace("{PLAYER}", name)
+            .replace("&", "§");
+        for (Player local : Bukkit.getOnlinePlayers()) {
+            // Online players' lists are cached at login, no query per player
+            if (getFriendList(local.getUniqueId()).contains(subject)) {
+                local.sendMessage(message);
+            }
+        }
     }
     
     public SocialConfig getConfig() {
         return config;
     }
+
+    /**
+     * Record the latency of an operation timed outside the service.
+     *
+     * @param operation Operation name
+     * @param startNanos {@link System#nanoTime()} when the operation started
+     */
+    public void recordLatency(String operation, long startNanos) {
+        metrics.record(operation, startNanos);
+    }
+
+    /**
+     * Write the metrics as JSON to the plugin log.
+     *
+     * @return the JSON that was logged
+     */
+    public String dumpMetrics() {
+        String json = metrics.toJson();
+        plugin.getLogger().info("Social metrics: " + json);
+        return json;
+    }
+
+    /**
+     * Get the profiler used to wrap data operators.
+     */
+    public QueryProfiler getQueryProfiler() {
+        return queryProfiler;
+    }
+
+    /**
+     * Get the service metrics.
+     */
+    public SocialMetrics getMetrics() {
+        return metrics;
+    }
 }
@@ -0,0 +1,200 @@
+package com.ultikits.plugins.social.service;
+
+import com.ultikits.ultitools.UltiTools;
+import com.ultikits.ultitools.services.TeleportService;
+
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.lang.reflect.Method;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Teleports players to friends without loading the destination chunk on
+ * the tick that asked for it.
+ * With a warmup configured the player first has to stand still; the
+ * warmup is tracked by {@link WarmupTracker} and cancelled on movement or
+ * damage. When the chunk is already loaded the teleport then happens at once. Otherwise
+ * the chunk is requested asynchronously where the server supports it
+ * (Paper's {@code World#getChunkAtAsync}) and the teleport runs on the main
+ * thread once it is ready; on plain Spigot the teleport moves to the next
+ * tick. The cooldown starts only when the teleport succeeded, and a player
+ * has at most one teleport pending.
+ *
+ * @author wisdomme
+ * @version 1.0.0
+ */
+public final class FriendTeleporter {
+
+    private static final AsyncChunkLoader PAPER_LOADER = paperLoader();
+
+    private final FriendService friendService;
+    private final TeleportService teleportService;
+    private final Executor mainThread;
+    private final AsyncChunkLoader chunkLoader;
+    private final Set<UUID> pending = ConcurrentHashMap.newKeySet();
+
+    public FriendTeleporter(FriendService friendService, TeleportService teleportService) {
+        this(friendService, teleportService,
+            task -> Bukkit.getScheduler().runTask(UltiTools.getInstance(), task), PAPER_LOADER);
+    }
+
+    FriendTeleporter(FriendService friendService, TeleportService teleportService,
+                     Executor mainThread, AsyncChunkLoader chunkLoader) {
+        this.friendService = friendService;
+        this.teleportService = teleportService;
+        this.mainThread = mainThread;
+        this.chunkLoader = chunkLoader;
+    }
+
+    /**
+     * Teleport a player to an online friend after the warmup, now or once
+     * the destination chunk is loaded. Cooldown and permission checks are
+     * the caller's.
+     *
+     * @param friendName Name shown in messages
+     * @return false if the player already has a teleport pending
+     */
+    public boolean teleport(Player player, Player target, String friendName) {
+        UUID playerUuid = player.getUniqueId();
+        if (!pending.add(playerUuid)) {
+            player.sendMessage(ChatColor.RED + "你已有一个传送正在进行中！");
+            return false;
+        }
+
+        int warmup = friendService.getConfig().getTpWarmup();
+        if (warmup > 0) {
+            player.sendMessage(ChatColor.YELLOW + "将在 " + warmup + " 秒后传送到 " + friendName + " 身边，请不要移动！");
+            friendService.getWarmups().start(player, warmup * 1000L, System.currentTimeMillis(),
+                () -> {
+                    if (isStillHere(player, target, friendName)) {
+                        travel(player, target, friendName);
+                    }
+                },
+                () -> pending.remove(playerUuid));
+            return true;
+        }
+        travel(player, target, friendName);
+        return true;
+    }
+
+    private void travel(Player player, Player target, String friendName) {
+        UUID playerUuid = player.getUniqueId();
+        Location destination = target.getLocation();
+        World world = destination.getWorld();
+        int chunkX = destination.getBlockX() >> 4;
+        int chunkZ = destination.getBlockZ() >> 4;
+        if (world == null || world.isChunkLoaded(chunkX, chunkZ)) {
+            complete(player, target, friendName);
+            return;
+        }
+
+        player.sendMessage(ChatColor.YELLOW + "正在加载 " + friendName + " 所在区域，请稍候...");
+        CompletableFuture<?> load = chunkLoader.load(world, chunkX, chunkZ);
+        if (load == null) {
+            // No async loading on this server; at least keep it off this tick
+            mainThread.execute(() -> resume(player, target, friendName));
+            return;
+        }
+        load.whenComplete((chunk, error) -> mainThread.execute(() -> {
+            if (error != null) {
+                pending.remove(playerUuid);
+                if (player.isOnline()) {
+                    player.sendMessage(ChatColor.RED + "传送失败，请稍后再试！");
+                }
+                return;
+            }
+            resume(player, target, friendName);
+        }));
+    }
+
+    /**
+     * Whether a player has a teleport in warmup or waiting for its chunk.
+     */
+    public boolean isPending(UUID playerUuid) {
+        return pending.contains(playerUuid);
+    }
+
+    /**
+     * Finish a teleport that waited for its chunk, if both players are still here.
+     */
+    private void resume(Player player, Player target, String friendName) {
+        if (isStillHere(player, target, friendName)) {
+            complete(player, target, friendName);
+        }
+    }
+
+    /**
+     * Check both players are still online after waiting; drops the
+     * teleport if not.
+     */
+    private boolean isStillHere(Player player, Player target, String friendName) {
+        if (!player.isOnline()) {
+            pending.remove(player.getUniqueId());
+            return false;
+        }
+        if (!target.isOnline()) {
+            pending.remove(player.getUniqueId());
+            player.sendMessage(ChatColor.RED + friendName + " 不在线！");
+            return false;
+        }
+        return true;
+    }
+
+    private void complete(Player player, Player target, String friendName) {
+        boolean success;
+        try {
+            if (teleportService != null) {
+                teleportService.teleport(player, target.getLocation());
+                success = true;
+            } else {
+                success = player.teleport(target.getLocation());
+            }
+        } catch (RuntimeException e) {
+            success = false;
+        } finally {
+            pending.remove(player.getUniqueId());
+        }
+
+        if (success) {
+            friendService.setTpCooldown(player.getUniqueId());
+            player.sendMessage(ChatColor.GREEN + "已传送到 " + friendName + " 身边！");
+        } else {
+            player.sendMessage(ChatColor.RED + "传送失败，请稍后再试！");
+        }
+    }
+
+    /**
+     * Loads a chunk off the main thread.
+     */
+    interface AsyncChunkLoader {
+        /**
+         * @return a future completed when the chunk is loaded, or null if
+         *         the server cannot load chunks asynchronously
+         */
+        CompletableFuture<?> load(World world, int chunkX, int chunkZ);
+    }
+
+    private static AsyncChunkLoader paperLoader() {
+        Method method;
+        try {
+            method = World.class.getMethod("getChunkAtAsync", int.class, int.class);
+        } catch (NoSuchMethodException e) {
+            return (world, x, z) -> null;
+        }
+        return (world, x, z) -> {
+            try {
+                return (CompletableFuture<?>) method.invoke(world, x, z);
+            } catch (ReflectiveOperationException | ClassCastException e) {
+                return null;
+            }
+        };
+    }
+}
@@ -0,0 +1,131 @@
+package com.ultikits.plugins.social.service;
+
+/**
+ * How the friend GUI lists friends: sort mode, filter, name search and
+ * friend group.
+ * Instances are immutable.
+ *
+ * @author wisdomme
+ * @version 1.0.0
+ */
+public final class FriendView {
+
+    /**
+     * Favorites first, then by name, everything shown.
+     */
+    public static final FriendView DEFAULT = new FriendView(Sort.NAME, Filter.ALL, null, null);
+
+    public enum Sort {
+        NAME("收藏优先"),
+        DATE_ADDED("添加时间"),
+        LAST_SEEN("最近在线"),
+        ONLINE_FIRST("在线优先");
+
+        private final String displayName;
+
+        Sort(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+
+        public Sort next() {
+            return values()[(ordinal() + 1) % values().length];
+        }
+    }
+
+    public enum Filter {
+        ALL("全部"),
+        ONLINE("仅在线"),
+        FAVORITES("仅收藏"),
+        SAME_WORLD("同一世界");
+
+        private final String displayName;
+
+        Filter(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+
+        public Filter next() {
+            return values()[(ordinal() + 1) % values().length];
+        }
+    }
+
+    private final Sort sort;
+    private final Filter filter;
+    private final String search;
+    private final String group;
+
+    private FriendView(Sort sort, Filter filter, String search, String group) {
+        this.sort = sort;
+        this.filter = filter;
+        this.search = search == null || search.isEmpty() ? null : search;
+        this.group = group;
+    }
+
+    public Sort getSort() {
+        return sort;
+    }
+
+    public Filter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Name prefix to search for, or null.
+     */
+    public String getSearch() {
+        return search;
+    }
+
+    /**
+     * Name of the friend group to show, or null for all friends.
+     */
+    public String getGroup() {
+        return group;
+    }
+
+    public FriendView withSort(Sort sort) {
+        return new FriendView(sort, filter, search, group);
+    }
+
+    public FriendView withFilter(Filter filter) {
+        return new FriendView(sort, filter, search, group);
+    }
+
+    /**
+     * @param search Name prefix, null or empty to clear
+     */
+    public FriendView withSearch(String search) {
+        return new FriendView(sort, filter, search, group);
+    }
+
+    /**
+     * @param group Friend group name, null for all friends
+     */
+    public FriendView withGroup(String group) {
+        return new FriendView(sort, filter, search, group);
+    }
+
+    /**
+     * Whether this is the plain display order, which can be paged by cursor.
+     */
+    public boolean isDefault() {
+        return sort == Sort.NAME && filter == Filter.ALL && search == null && group == null;
+    }
+
+    /**
+     * Whether which friends are shown, or their order, changes when a
+     * friend joins, leaves or changes world.
+     */
+    public boolean dependsOnPresence() {
+        return filter == Filter.ONLINE || filter == Filter.SAME_WORLD
+            || sort == Sort.LAST_SEEN || sort == Sort.ONLINE_FIRST;
+    }
+}
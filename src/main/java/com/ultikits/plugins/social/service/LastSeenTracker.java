@@ -0,0 +1,274 @@
+package com.ultikits.plugins.social.service;
+
+import com.ultikits.plugins.social.entity.LastSeenData;
+import com.ultikits.ultitools.interfaces.DataOperator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Last-seen times with coalesced writes.
+ * Times are recorded in memory and written in one pass per flush, each
+ * player at most once however often they were recorded, so a wave of
+ * disconnects costs one write per player in a single flush. Rows read by
+ * {@link #prefetch} are kept, so their later writes skip the lookup; rows
+ * a flush still needs are read in batches before anything is written.
+ * Rows are read in batches and kept only while some online player holds
+ * them through {@link #retain}; {@link #release} drops them when the last
+ * holder quits, so memory follows the online players.
+ * Each row also keeps the player's name as of that time, which tells a
+ * login with a new name apart from one with the name already stored.
+ *
+ * @author wisdomme
+ * @version 1.0.0
+ */
+public class LastSeenTracker {
+
+    private final DataOperator<LastSeenData> dataOperator;
+
+    // Times not yet written - Map<PlayerUUID, Time>
+    private final Map<UUID, Long> pending = new ConcurrentHashMap<>();
+
+    // Known times, 0 for players without a row
+    private final Map<UUID, Long> known = new ConcurrentHashMap<>();
+
+    // Rows read or inserted, reused for updates
+    private final Map<UUID, LastSeenData> rows = new ConcurrentHashMap<>();
+
+    // Names written with the player's next time - Map<PlayerUUID, Name>
+    private final Map<UUID, String> pendingNames = new ConcurrentHashMap<>();
+
+    // Players each online player holds - Map<HolderUUID, Players>
+    private final Map<UUID, UUID[]> held = new ConcurrentHashMap<>();
+
+    // Number of holders of each player
+    private final Map<UUID, Integer> holders = new ConcurrentHashMap<>();
+
+    private static final int BATCH_SIZE = 500;
+
+    public LastSeenTracker(DataOperator<LastSeenData> dataOperator) {
+        this.dataOperator = dataOperator;
+    }
+
+    /**
+     * Record that a player was seen. Written on the next flush.
+     */
+    public void record(UUID playerUuid, long time) {
+        pending.merge(playerUuid, time, Math::max);
+        known.merge(playerUuid, time, Math::max);
+    }
+
+    /**
+     * Get a player's last-seen time from memory.
+     *
+     * @return the time, or 0 if unknown
+     */
+    public long get(UUID playerUuid) {
+        Long time = known.get(playerUuid);
+        return time == null ? 0 : time;
+    }
+
+    /**
+     * Remember a player's current name. Written with their next recorded time.
+     */
+    public void recordName(UUID playerUuid, String name) {
+        pendingNames.put(playerUuid, name);
+    }
+
+    /**
+     * Get the name a player had when last seen, from memory.
+     *
+     * @return the name, or null if unknown or not prefetched
+     */
+    public String getName(UUID playerUuid) {
+        String name = pendingNames.get(playerUuid);
+        if (name != null) {
+            return name;
+        }
+        LastSeenData row = rows.get(playerUuid);
+        return row == null ? null : row.getPlayerName();
+    }
+
+    /**
+     * Load the times of players not yet in memory, one query per batch of
+     * players. Call off the main thread.
+     *
+     * @return number of players looked up
+     */
+    public int prefetch(Collection<UUID> players) {
+        List<String> missing = new ArrayList<>();
+        for (UUID playerUuid : players) {
+            if (!known.containsKey(playerUuid)) {
+                missing.add(playerUuid.toString());
+            }
+        }
+        load(missing);
+        return missing.size();
+    }
+
+    /**
+     * Read the rows of some players, one query per batch.
+     */
+    private void load(List<String> players) {
+        for (int from = 0; from < players.size(); from += BATCH_SIZE) {
+            List<String> batch = players.subList(from, Math.min(players.size(), from + BATCH_SIZE));
+            List<LastSeenData> found = dataOperator.query()
+                .where("player_uuid").in(batch)
+                .list();
+            for (LastSeenData row : found) {
+                UUID playerUuid = UUID.fromString(row.getPlayerUuid());
+                rows.put(playerUuid, row);
+                known.merge(playerUuid, row.getLastSeen(), Math::max);
+            }
+            for (String playerUuid : batch) {
+                known.putIfAbsent(UUID.fromString(playerUuid), 0L);
+            }
+        }
+    }
+
+    /**
+     * Keep the times of some players in memory while a player is online,
+     * replacing what that player held before.
+     *
+     * @param holder Player the times are kept for
+     * @param players Players whose times to keep, usually the holder and their friends
+     */
+    public void retain(UUID holder, Collection<UUID> players) {
+        for (UUID playerUuid : players) {
+            holders.merge(playerUuid, 1, Integer::sum);
+        }
+        UUID[] previous = held.put(holder, players.toArray(new UUID[0]));
+        if (previous != null) {
+            drop(previous);
+        }
+    }
+
+    /**
+     * Stop keeping the times a player held, when they quit. Times nobody
+     * else holds are dropped from memory, once written.
+     */
+    public void release(UUID holder) {
+        UUID[] previous = held.remove(holder);
+        if (previous != null) {
+            drop(previous);
+        }
+    }
+
+    private void drop(UUID[] players) {
+        for (UUID playerUuid : players) {
+            if (holders.compute(playerUuid, (k, count) -> count == null || count <= 1 ? null : count - 1) == null) {
+                evict(playerUuid);
+            }
+        }
+    }
+
+    /**
+     * Forget a player nobody holds, unless a write is still pending.
+     */
+    private void evict(UUID playerUuid) {
+        if (!holders.containsKey(playerUuid) && !pending.containsKey(playerUuid)
+            && !pendingNames.containsKey(playerUuid)) {
+            known.remove(playerUuid);
+            rows.remove(playerUuid);
+        }
+    }
+
+    /**
+     * Number of players whose times are in memory.
+     */
+    int knownCount() {
+        return known.size();
+    }
+
+    /**
+     * Write all recorded times.
+     *
+     * @return number of players written
+     */
+    public int flush() {
+        Map<UUID, Long> due = new HashMap<>();
+        List<String> unread = new ArrayList<>();
+        for (UUID playerUuid : new ArrayList<>(pending.keySet())) {
+            Long time = pending.remove(playerUuid);
+            if (time == null) {
+                continue;
+            }
+            due.put(playerUuid, time);
+            if (!rows.containsKey(playerUuid)) {
+                unread.add(playerUuid.toString());
+            }
+        }
+        // Rows not in memory are read up front; the framework has no bulk
+        // insert or update, so the writes stay one statement per player
+        try {
+            load(unread);
+        } catch (RuntimeException e) {
+            due.forEach((playerUuid, time) -> pending.merge(playerUuid, time, Math::max));
+            throw e;
+        }
+        int written = 0;
+        for (Map.Entry<UUID, Long> entry : due.entrySet()) {
+            UUID playerUuid = entry.getKey();
+            long time = entry.getValue();
+            LastSeenData row = rows.get(playerUuid);
+            String name = pendingNames.remove(playerUuid);
+            if (row == null) {
+                row = LastSeenData.builder()
+                    .playerUuid(playerUuid.toString())
+                    .lastSeen(time)
+                    .playerName(name)
+                    .build();
+                dataOperator.insert(row);
+                if (row.getId() != null) {
+                    rows.put(playerUuid, row);
+                }
+            } else {
+                row.setLastSeen(Math.max(row.getLastSeen(), time));
+                if (name != null) {
+                    row.setPlayerName(name);
+                }
+                rows.put(playerUuid, row);
+                try {
+                    dataOperator.update(row);
+                } catch (IllegalAccessException e) {
+                    // Retry on the next flush
+                    pending.merge(playerUuid, time, Math::max);
+                    if (name != null) {
+                        pendingNames.putIfAbsent(playerUuid, name);
+                    }
+                    continue;
+                }
+            }
+            written++;
+            evict(playerUuid);
+        }
+        return written;
+    }
+
+    int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Describe how long ago a time was, e.g. "3 小时前".
+     */
+    public static String formatAgo(long time, long now) {
+        long minutes = Math.max(0, now - time) / 60_000;
+        if (minutes < 1) {
+            return "刚刚";
+        }
+        if (minutes < 60) {
+            return minutes + " 分钟前";
+        }
+        long hours = minutes / 60;
+        if (hours < 24) {
+            return hours + " 小时前";
+        }
+        return hours / 24 + " 天前";
+    }
+}
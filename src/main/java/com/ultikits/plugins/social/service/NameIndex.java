@@ -0,0 +1,67 @@
+package com.ultikits.plugins.social.service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Case-insensitive lookup of players by name.
+ * Names are folded to lower case once when the index is built, so a lookup
+ * is a single hash probe. If two items share a name the first one wins,
+ * the same one a scan in list order would find. Instances are immutable.
+ *
+ * @param <T> Indexed item
+ * @author wisdomme
+ * @version 1.0.0
+ */
+public final class NameIndex<T> {
+
+    private final Map<String, T> byName;
+
+    private NameIndex(Map<String, T> byName) {
+        this.byName = byName;
+    }
+
+    /**
+     * Index items by name. Items without a name are left out.
+     *
+     * @param items Items in lookup priority order
+     * @param nameOf Player name of an item
+     */
+    public static <T> NameIndex<T> of(Collection<? extends T> items, Function<? super T, String> nameOf) {
+        if (items.isEmpty()) {
+            return new NameIndex<>(Collections.emptyMap());
+        }
+        Map<String, T> byName = new HashMap<>(items.size() * 2);
+        for (T item : items) {
+            String name = nameOf.apply(item);
+            if (name != null) {
+                byName.putIfAbsent(fold(name), item);
+            }
+        }
+        return new NameIndex<>(byName);
+    }
+
+    /**
+     * Find an item by name, ignoring case.
+     *
+     * @return the item, or null if none has that name
+     */
+    public T get(String name) {
+        return name == null ? null : byName.get(fold(name));
+    }
+
+    public int size() {
+        return byName.size();
+    }
+
+    /**
+     * Case-folded form of a player name used as the index key.
+     */
+    public static String fold(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,83 @@
+package com.ultikits.plugins.social.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Players online on other servers of the network, with the server they
+ * are on and when that server last reported them.
+ * Servers re-announce their players periodically; players not reported
+ * for a while are dropped by {@link #expire}, so the players of a server
+ * that crashed do not stay online forever.
+ *
+ * @author wisdomme
+ * @version 1.0.0
+ */
+public final class NetworkPresence {
+
+    private final Map<UUID, Entry> players = new ConcurrentHashMap<>();
+
+    /**
+     * Record that a server reported a player online.
+     *
+     * @param name Player name, null to keep the known one
+     * @return true if the player was not known to be online anywhere
+     */
+    public boolean seen(UUID playerUuid, String server, String name, long now) {
+        boolean[] added = {false};
+        players.compute(playerUuid, (k, entry) -> {
+            added[0] = entry == null;
+            return new Entry(server, name == null && entry != null ? entry.name : name, now);
+        });
+        return added[0];
+    }
+
+    /**
+     * Record that a player left a server. Ignored if they were last
+     * reported on another server, e.g. after a proxy server switch.
+     *
+     * @return true if the player is no longer online anywhere else
+     */
+    public boolean leave(UUID playerUuid, String server) {
+        players.computeIfPresent(playerUuid, (k, entry) -> entry.server.equals(server) ? null : entry);
+        return !players.containsKey(playerUuid);
+    }
+
+    public boolean contains(UUID playerUuid) {
+        return players.containsKey(playerUuid);
+    }
+
+    /**
+     * Drop players not reported since a time.
+     *
+     * @param before Players last reported earlier than this are dropped
+     * @return the dropped players with their last known name, which may be null
+     */
+    public Map<UUID, String> expire(long before) {
+        Map<UUID, String> expired = new HashMap<>();
+        players.forEach((uuid, entry) -> {
+            if (entry.seenAt < before && players.remove(uuid, entry)) {
+                expired.put(uuid, entry.name);
+            }
+        });
+        return expired;
+    }
+
+    public int size() {
+        return players.size();
+    }
+
+    private static final class Entry {
+        private final String server;
+        private final String name;
+        private final long seenAt;
+
+        private Entry(String server, String name, long seenAt) {
+            this.server = server;
+            this.name = name;
+            this.seenAt = seenAt;
+        }
+    }
+}
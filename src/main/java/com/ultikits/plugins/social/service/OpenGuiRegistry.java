@@ -0,0 +1,190 @@
+package com.ultikits.plugins.social.service;
+
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Open friend and blacklist GUIs, indexed by the players they show.
+ * A GUI tracks the slot of every player on its current page when it
+ * renders. A presence change queues only the slots showing that player,
+ * and the queue is applied once per tick, so several changes in one tick
+ * redraw each slot once and GUIs not showing the player are not touched.
+ * A GUI whose contents depend on presence, such as an online friends view,
+ * also watches players off its page, since one of them joining can change
+ * what the page shows.
+ * Tracking and flushing run on the main thread.
+ *
+ * @author wisdomme
+ * @version 1.0.0
+ */
+public final class OpenGuiRegistry {
+
+    /**
+     * A GUI that can redraw single slots.
+     */
+    public interface View {
+        Player getViewer();
+
+        /**
+         * Redraw slots showing players whose presence changed.
+         *
+         * @param slots Slots to redraw, empty if only watched players off
+         *              the page changed
+         */
+        void updateSlots(Collection<Integer> slots);
+    }
+
+    private final Map<UUID, Set<View>> bySubject = new ConcurrentHashMap<>();
+    private final Map<View, Map<UUID, Integer>> slotsByView = new ConcurrentHashMap<>();
+    private final Map<View, Set<UUID>> watchedByView = new ConcurrentHashMap<>();
+    private final Map<View, Set<UUID>> dirty = new ConcurrentHashMap<>();
+
+    /**
+     * Track the players a GUI shows, replacing what it showed before.
+     *
+     * @param slots Slot of each player shown
+     */
+    public void track(View view, Map<UUID, Integer> slots) {
+        track(view, slots, Collections.emptySet());
+    }
+
+    /**
+     * Track the players a GUI shows and the players it watches off its
+     * page, replacing what it tracked before.
+     *
+     * @param slots   Slot of each player shown
+     * @param watched Players not shown whose presence changes still reach the GUI
+     */
+    public void track(View view, Map<UUID, Integer> slots, Collection<UUID> watched) {
+        Map<UUID, Integer> previous = slotsByView.put(view, new HashMap<>(slots));
+        Set<UUID> previousWatched = watched.isEmpty()
+            ? watchedByView.remove(view)
+            : watchedByView.put(view, new HashSet<>(watched));
+        if (previous != null) {
+            unindex(view, previous.keySet());
+        }
+        if (previousWatched != null) {
+            unindex(view, previousWatched);
+        }
+        index(view, slots.keySet());
+        index(view, watched);
+    }
+
+    /**
+     * Stop tracking a GUI, e.g. when it is closed.
+     */
+    public void untrack(View view) {
+        Map<UUID, Integer> previous = slotsByView.remove(view);
+        if (previous != null) {
+            unindex(view, previous.keySet());
+        }
+        Set<UUID> previousWatched = watchedByView.remove(view);
+        if (previousWatched != null) {
+            unindex(view, previousWatched);
+        }
+        dirty.remove(view);
+    }
+
+    /**
+     * Stop tracking every GUI a player has open.
+     */
+    public void untrackViewer(UUID viewerUuid) {
+        for (View view : new ArrayList<>(slotsByView.keySet())) {
+            if (view.getViewer().getUniqueId().equals(viewerUuid)) {
+                untrack(view);
+            }
+        }
+    }
+
+    /**
+     * Queue the slots showing a player for the next flush.
+     *
+     * @return number of GUIs showing the player
+     */
+    public int markChanged(UUID subject) {
+        Set<View> views = bySubject.get(subject);
+        if (views == null) {
+            return 0;
+        }
+        for (View view : views) {
+            dirty.computeIfAbsent(view, k -> ConcurrentHashMap.newKeySet()).add(subject);
+        }
+        return views.size();
+    }
+
+    /**
+     * Redraw every queued slot. Slots whose GUI was closed or moved to
+     * another page since are skipped. A GUI whose only changes are watched
+     * players is told with no slots.
+     *
+     * @return number of slots redrawn
+     */
+    public int flush() {
+        if (dirty.isEmpty()) {
+            return 0;
+        }
+        int updated = 0;
+        for (View view : new ArrayList<>(dirty.keySet())) {
+            Set<UUID> subjects = dirty.remove(view);
+            Map<UUID, Integer> slots = slotsByView.get(view);
+            if (subjects == null || slots == null) {
+                continue;
+            }
+            Set<UUID> watched = watchedByView.getOrDefault(view, Collections.emptySet());
+            List<Integer> changed = new ArrayList<>(subjects.size());
+            boolean watchedChanged = false;
+            for (UUID subject : subjects) {
+                Integer slot = slots.get(subject);
+                if (slot != null) {
+                    changed.add(slot);
+                } else if (watched.contains(subject)) {
+                    watchedChanged = true;
+                }
+            }
+            if (!changed.isEmpty() || watchedChanged) {
+                view.updateSlots(changed);
+                updated += changed.size();
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Number of tracked GUIs.
+     */
+    public int size() {
+        return slotsByView.size();
+    }
+
+    /**
+     * Number of GUIs with queued slots.
+     */
+    public int pending() {
+        return dirty.size();
+    }
+
+    private void index(View view, Collection<UUID> subjects) {
+        for (UUID subject : subjects) {
+            bySubject.computeIfAbsent(subject, k -> ConcurrentHashMap.newKeySet()).add(view);
+        }
+    }
+
+    private void unindex(View view, Collection<UUID> subjects) {
+        for (UUID subject : subjects) {
+            bySubject.computeIfPresent(subject, (k, views) -> {
+                views.remove(view);
+                return views.isEmpty() ? null : views;
+            });
+        }
+    }
+}
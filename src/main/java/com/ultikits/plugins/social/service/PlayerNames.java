@@ -0,0 +1,56 @@
+package com.ultikits.plugins.social.service;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Current name of every player referenced by a cached friend list or
+ * blacklist, keyed by UUID string so stored rows need no parsing.
+ * Rows loaded from storage take their name from here, so a name shows
+ * the same everywhere and the cached rows of all players share one
+ * string instance per name.
+ *
+ * @author wisdomme
+ * @version 1.0.0
+ */
+public final class PlayerNames {
+
+    private final Map<String, String> names = new ConcurrentHashMap<>();
+
+    /**
+     * Resolve the name stored on a row.
+     *
+     * @param playerUuid UUID string of the named player
+     * @param stored Name stored on the row
+     * @return the current name if known, otherwise the stored name, which
+     *         becomes the known name
+     */
+    public String canonical(String playerUuid, String stored) {
+        if (playerUuid == null || stored == null) {
+            return stored;
+        }
+        String known = names.putIfAbsent(playerUuid, stored);
+        return known == null ? stored : known;
+    }
+
+    /**
+     * Record a player's current name, e.g. at login.
+     */
+    public void update(UUID playerUuid, String name) {
+        names.put(playerUuid.toString(), name);
+    }
+
+    /**
+     * Get the known name of a player.
+     *
+     * @return the name, or null if unknown
+     */
+    public String get(UUID playerUuid) {
+        return names.get(playerUuid.toString());
+    }
+
+    public int size() {
+        return names.size();
+    }
+}
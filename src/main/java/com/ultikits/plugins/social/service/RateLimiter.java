@@ -0,0 +1,116 @@
+package com.ultikits.plugins.social.service;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-player, per-action rate limiter.
+ * Each bucket is a single {@link AtomicLong} holding the theoretical arrival
+ * time of the next action (GCRA form of a token bucket), so acquiring is a
+ * lock-free CAS loop with no background refill task.
+ *
+ * @author wisdomme
+ * @version 1.0.0
+ */
+public class RateLimiter {
+
+    /**
+     * Rate limited social actions.
+     */
+    public enum Action {
+        /** /friend add */
+        FRIEND_REQUEST,
+        /** /friend msg */
+        MESSAGE,
+        /** Favorite toggles, removals and block changes from GUIs or commands */
+        MODIFY
+    }
+
+    private final Map<UUID, AtomicLong[]> buckets = new ConcurrentHashMap<>();
+    private final long[] intervalNanos = new long[Action.values().length];
+    private final long[] toleranceNanos = new long[Action.values().length];
+    private final LongSupplier clock;
+
+    public RateLimiter() {
+        this(System::nanoTime);
+    }
+
+    RateLimiter(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Configure an action.
+     *
+     * @param action    the action
+     * @param burst     actions allowed back-to-back, 0 disables limiting
+     * @param perMinute sustained actions per minute
+     */
+    public void configure(Action action, int burst, int perMinute) {
+        int i = action.ordinal();
+        if (burst <= 0 || perMinute <= 0) {
+            intervalNanos[i] = 0;
+            toleranceNanos[i] = 0;
+            return;
+        }
+        intervalNanos[i] = TimeUnit.MINUTES.toNanos(1) / perMinute;
+        toleranceNanos[i] = intervalNanos[i] * (burst - 1);
+    }
+
+    /**
+     * Try to take one token.
+     *
+     * @return true if the action is allowed
+     */
+    public boolean tryAcquire(UUID playerUuid, Action action) {
+        int i = action.ordinal();
+        long interval = intervalNanos[i];
+        if (interval == 0) {
+            return true;
+        }
+        AtomicLong bucket = buckets.computeIfAbsent(playerUuid, k -> newBuckets())[i];
+        long now = clock.getAsLong();
+        while (true) {
+            long tat = bucket.get();
+            long start = tat - now < 0 ? now : tat;
+            if (start - now > toleranceNanos[i]) {
+                return false;
+            }
+            if (bucket.compareAndSet(tat, start + interval)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Drop buckets that have fully refilled.
+     */
+    public void evictIdle() {
+        long now = clock.getAsLong();
+        buckets.entrySet().removeIf(entry -> {
+            for (AtomicLong bucket : entry.getValue()) {
+                if (bucket.get() - now > 0) {
+                    return false;
+                }
+            }
+            return true;
+        });
+    }
+
+    int size() {
+        return buckets.size();
+    }
+
+    private AtomicLong[] newBuckets() {
+        AtomicLong[] array = new AtomicLong[Action.values().length];
+        long now = clock.getAsLong();
+        for (int i = 0; i < array.length; i++) {
+            array[i] = new AtomicLong(now);
+        }
+        return array;
+    }
+}
@@ -0,0 +1,97 @@
+package com.ultikits.plugins.social.service;
+
+import com.ultikits.plugins.social.entity.FriendRequest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A player's pending friend requests, oldest first, indexed by sender UUID
+ * and by case-folded sender name.
+ * Holds at most one request per sender. Methods are synchronized because
+ * the expiry cleanup runs off the main thread.
+ *
+ * @author wisdomme
+ * @version 1.0.0
+ */
+public final class RequestInbox {
+
+    private final Map<UUID, FriendRequest> bySender = new LinkedHashMap<>();
+    private final Map<String, FriendRequest> byName = new HashMap<>();
+
+    /**
+     * Add a request unless its sender already has one pending.
+     *
+     * @return true if added
+     */
+    public synchronized boolean add(FriendRequest request) {
+        if (bySender.containsKey(request.getSender())) {
+            return false;
+        }
+        bySender.put(request.getSender(), request);
+        byName.put(NameIndex.fold(request.getSenderName()), request);
+        return true;
+    }
+
+    /**
+     * Get the request from a sender.
+     *
+     * @return the request, or null if none
+     */
+    public synchronized FriendRequest fromSender(UUID sender) {
+        return bySender.get(sender);
+    }
+
+    /**
+     * Get the request from a sender by name, ignoring case.
+     *
+     * @return the request, or null if none
+     */
+    public synchronized FriendRequest named(String senderName) {
+        return byName.get(NameIndex.fold(senderName));
+    }
+
+    public synchronized boolean remove(FriendRequest request) {
+        if (bySender.remove(request.getSender()) == null) {
+            return false;
+        }
+        byName.remove(NameIndex.fold(request.getSenderName()), request);
+        return true;
+    }
+
+    /**
+     * Drop expired requests.
+     *
+     * @param timeoutSeconds Request lifetime
+     * @return number of requests dropped
+     */
+    public synchronized int removeExpired(int timeoutSeconds) {
+        int removed = 0;
+        Iterator<FriendRequest> it = bySender.values().iterator();
+        while (it.hasNext()) {
+            FriendRequest request = it.next();
+            if (request.isExpired(timeoutSeconds)) {
+                it.remove();
+                byName.remove(NameIndex.fold(request.getSenderName()), request);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Copy of the pending requests, oldest first.
+     */
+    public synchronized List<FriendRequest> list() {
+        return new ArrayList<>(bySender.values());
+    }
+
+    public synchronized boolean isEmpty() {
+        return bySender.isEmpty();
+    }
+}
@@ -0,0 +1,125 @@
+package com.ultikits.plugins.social.service;
+
+import com.ultikits.plugins.social.config.SocialConfig;
+import com.ultikits.ultitools.abstracts.UltiToolsPlugin;
+import com.ultikits.ultitools.annotations.Autowired;
+import com.ultikits.ultitools.annotations.Scheduled;
+import com.ultikits.ultitools.annotations.Service;
+
+import org.bukkit.entity.Player;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.LongSupplier;
+
+/**
+ * Main-thread scheduler for deferrable social work.
+ * Notifications and GUI refreshes are queued and drained once per tick
+ * until the tick budget is spent; the rest carries over to the next tick.
+ * When the previous tick ran long the budget is cut to a quarter so the
+ * plugin does not add to an already overloaded tick.
+ *
+ * @author wisdomme
+ * @version 1.0.0
+ */
+@Service
+public class TickBudgetScheduler {
+
+    private static final long TICK_NANOS = 50_000_000L;
+    private static final long HEAVY_TICK_NANOS = TICK_NANOS + TICK_NANOS / 5;
+
+    @Autowired
+    private UltiToolsPlugin plugin;
+
+    @Autowired
+    private SocialConfig config;
+
+    private final Queue<Task> queue = new ConcurrentLinkedQueue<>();
+    private final LongSupplier clock;
+    private long lastTick;
+
+    public TickBudgetScheduler() {
+        this(System::nanoTime);
+    }
+
+    TickBudgetScheduler(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Queue work for a later tick.
+     * Runs immediately when the budget is 0.
+     */
+    public void submit(Runnable task) {
+        submit(null, task);
+    }
+
+    /**
+     * Queue work on behalf of a player. Dropped if the player has left
+     * by the time it runs.
+     */
+    public void submit(Player owner, Runnable task) {
+        if (config.getTickBudgetMillis() <= 0) {
+            task.run();
+            return;
+        }
+        queue.add(new Task(owner, task));
+    }
+
+    /**
+     * Drain the queue within this tick's budget.
+     */
+    @Scheduled(period = 1)
+    public void tick() {
+        runTick();
+    }
+
+    /**
+     * Run queued tasks until the budget is spent. At least one task runs
+     * per tick so the queue always makes progress.
+     *
+     * @return number of tasks run
+     */
+    int runTick() {
+        long start = clock.getAsLong();
+        long budget = config.getTickBudgetMillis() * 1_000_000L;
+        if (lastTick != 0 && start - lastTick > HEAVY_TICK_NANOS) {
+            budget /= 4;
+        }
+        lastTick = start;
+
+        int ran = 0;
+        Task task;
+        while ((task = queue.poll()) != null) {
+            if (task.owner == null || task.owner.isOnline()) {
+                try {
+                    task.work.run();
+                } catch (RuntimeException e) {
+                    plugin.getLogger().error("Deferred social task failed", e);
+                }
+            }
+            ran++;
+            if (clock.getAsLong() - start >= budget) {
+                break;
+            }
+        }
+        return ran;
+    }
+
+    /**
+     * Get the number of queued tasks.
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    private static final class Task {
+        private final Player owner;
+        private final Runnable work;
+
+        private Task(Player owner, Runnable work) {
+            this.owner = owner;
+            this.work = work;
+        }
+    }
+}
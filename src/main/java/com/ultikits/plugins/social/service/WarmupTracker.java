@@ -0,0 +1,128 @@
+package com.ultikits.plugins.social.service;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Players waiting out a teleport warmup.
+ * Only players in this small set are checked on movement, so a move event
+ * for anyone else costs an emptiness check or a single hash probe. Moving
+ * to another block cancels the warmup; turning the head does not.
+ *
+ * @author wisdomme
+ * @version 1.0.0
+ */
+public final class WarmupTracker {
+
+    private final Map<UUID, Warmup> active = new ConcurrentHashMap<>();
+
+    /**
+     * Start a warmup, cancelling any the player already had.
+     *
+     * @param durationMillis Time the player has to stand still
+     * @param onDone Run on the main thread when the warmup ends
+     * @param onCancel Run when the warmup is cancelled
+     */
+    public void start(Player player, long durationMillis, long now, Runnable onDone, Runnable onCancel) {
+        Warmup previous = active.put(player.getUniqueId(),
+            new Warmup(player.getLocation(), now + durationMillis, onDone, onCancel));
+        if (previous != null) {
+            previous.onCancel.run();
+        }
+    }
+
+    public boolean isEmpty() {
+        return active.isEmpty();
+    }
+
+    public int size() {
+        return active.size();
+    }
+
+    public boolean isWarmingUp(UUID playerUuid) {
+        return active.containsKey(playerUuid);
+    }
+
+    /**
+     * Check a move. Cancels the warmup if the player left their block.
+     *
+     * @return true if a warmup was cancelled
+     */
+    public boolean onMove(UUID playerUuid, Location to) {
+        Warmup warmup = active.get(playerUuid);
+        if (warmup == null || to == null || warmup.isSameBlock(to)) {
+            return false;
+        }
+        return cancel(playerUuid);
+    }
+
+    /**
+     * Cancel a player's warmup.
+     *
+     * @return true if there was one
+     */
+    public boolean cancel(UUID playerUuid) {
+        Warmup warmup = active.remove(playerUuid);
+        if (warmup == null) {
+            return false;
+        }
+        warmup.onCancel.run();
+        return true;
+    }
+
+    /**
+     * Finish every warmup whose time is up.
+     *
+     * @return number of warmups finished
+     */
+    public int tick(long now) {
+        if (active.isEmpty()) {
+            return 0;
+        }
+        List<Warmup> done = new ArrayList<>();
+        Iterator<Map.Entry<UUID, Warmup>> it = active.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<UUID, Warmup> entry = it.next();
+            if (entry.getValue().deadline <= now && active.remove(entry.getKey(), entry.getValue())) {
+                done.add(entry.getValue());
+            }
+        }
+        for (Warmup warmup : done) {
+            warmup.onDone.run();
+        }
+        return done.size();
+    }
+
+    private static final class Warmup {
+        private final World world;
+        private final int blockX;
+        private final int blockY;
+        private final int blockZ;
+        private final long deadline;
+        private final Runnable onDone;
+        private final Runnable onCancel;
+
+        private Warmup(Location origin, long deadline, Runnable onDone, Runnable onCancel) {
+            this.world = origin.getWorld();
+            this.blockX = origin.getBlockX();
+            this.blockY = origin.getBlockY();
+            this.blockZ = origin.getBlockZ();
+            this.deadline = deadline;
+            this.onDone = onDone;
+            this.onCancel = onCancel;
+        }
+
+        private boolean isSameBlock(Location to) {
+            return to.getBlockX() == blockX && to.getBlockY() == blockY && to.getBlockZ() == blockZ
+                && to.getWorld() == world;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.ultikits.plugins.social.service;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Online players of this server grouped by world.
+ * Kept up to date on join, quit and world change, so finding who is in a
+ * world needs no scan of the online players. Worlds nobody is in are
+ * dropped.
+ *
+ * @author wisdomme
+ * @version 1.0.0
+ */
+public final class WorldPresence {
+
+    private final Map<String, Set<UUID>> byWorld = new ConcurrentHashMap<>();
+    private final Map<UUID, String> worldOf = new ConcurrentHashMap<>();
+
+    /**
+     * Record that a player is now in a world, leaving the previous one.
+     */
+    public void enter(UUID playerUuid, String world) {
+        String previous = worldOf.put(playerUuid, world);
+        if (previous != null && !previous.equals(world)) {
+            remove(previous, playerUuid);
+        }
+        byWorld.compute(world, (k, players) -> {
+            if (players == null) {
+                players = ConcurrentHashMap.newKeySet();
+            }
+            players.add(playerUuid);
+            return players;
+        });
+    }
+
+    /**
+     * Record that a player left the server.
+     */
+    public void leave(UUID playerUuid) {
+        String previous = worldOf.remove(playerUuid);
+        if (previous != null) {
+            remove(previous, playerUuid);
+        }
+    }
+
+    /**
+     * Players in a world, read-only.
+     */
+    public Set<UUID> players(String world) {
+        Set<UUID> players = byWorld.get(world);
+        return players == null ? Collections.emptySet() : Collections.unmodifiableSet(players);
+    }
+
+    /**
+     * Get the world a player is in.
+     *
+     * @return the world name, or null if not online here
+     */
+    public String worldOf(UUID playerUuid) {
+        return worldOf.get(playerUuid);
+    }
+
+    /**
+     * Number of worlds with at least one player.
+     */
+    public int worldCount() {
+        return byWorld.size();
+    }
+
+    private void remove(String world, UUID playerUuid) {
+        byWorld.computeIfPresent(world, (k, players) -> {
+            players.remove(playerUuid);
+            return players.isEmpty() ? null : players;
+        });
+    }
+}
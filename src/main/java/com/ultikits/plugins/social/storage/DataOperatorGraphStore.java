@@ -0,0 +1,187 @@
+package com.ultikits.plugins.social.storage;
+
+import com.ultikits.plugins.social.entity.BlacklistData;
+import com.ultikits.plugins.social.entity.FriendshipData;
+import com.ultikits.ultitools.interfaces.DataOperator;
+import com.ultikits.ultitools.interfaces.Query;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Graph store backed by UltiTools data operators (JSON, SQLite or MySQL).
+ *
+ * @author wisdomme
+ * @version 1.0.0
+ */
+public class DataOperatorGraphStore implements GraphStore {
+
+    private static final int IN_CHUNK = 500;
+
+    private final DataOperator<FriendshipData> friendOperator;
+    private final DataOperator<BlacklistData> blacklistOperator;
+
+    public DataOperatorGraphStore(DataOperator<FriendshipData> friendOperator,
+                                  DataOperator<BlacklistData> blacklistOperator) {
+        this.friendOperator = friendOperator;
+        this.blacklistOperator = blacklistOperator;
+    }
+
+    @Override
+    public List<FriendshipData> loadFriends(UUID playerUuid) {
+        return friendOperator.query()
+            .where("player_uuid").eq(playerUuid.toString())
+            .list();
+    }
+
+    @Override
+    public int countFriends(UUID playerUuid) {
+        return (int) friendOperator.query()
+            .where("player_uuid").eq(playerUuid.toString())
+            .count();
+    }
+
+    @Override
+    public boolean isFriend(UUID playerUuid, UUID friendUuid) {
+        return friendOperator.query()
+            .where("player_uuid").eq(playerUuid.toString())
+            .where("friend_uuid").eq(friendUuid.toString())
+            .exists();
+    }
+
+    @Override
+    public Map<UUID, Set<UUID>> loadFriendUuids(Collection<UUID> playerUuids) {
+        Map<UUID, Set<UUID>> friends = new HashMap<>();
+        List<String> ids = new ArrayList<>(playerUuids.size());
+        for (UUID playerUuid : playerUuids) {
+            ids.add(playerUuid.toString());
+        }
+        // One IN query per chunk, kept under common bind parameter limits
+        for (int from = 0; from < ids.size(); from += IN_CHUNK) {
+            List<FriendshipData> rows = friendOperator.query()
+                .where("player_uuid").in(ids.subList(from, Math.min(ids.size(), from + IN_CHUNK)))
+                .list();
+            for (FriendshipData row : rows) {
+                friends.computeIfAbsent(UUID.fromString(row.getPlayerUuid()), key -> new HashSet<>())
+                    .add(UUID.fromString(row.getFriendUuid()));
+            }
+        }
+        return friends;
+    }
+
+    @Override
+    public void insertFriend(FriendshipData friendship) {
+        friendOperator.insert(friendship);
+    }
+
+    @Override
+    public void updateFriend(FriendshipData friendship) throws IllegalAccessException {
+        friendOperator.update(friendship);
+    }
+
+    @Override
+    public void deleteFriend(FriendshipData friendship) {
+        friendOperator.delById(friendship.getId());
+    }
+
+    @Override
+    public void deleteFriendship(UUID playerUuid, UUID friendUuid) {
+        friendOperator.query()
+            .where("player_uuid").eq(playerUuid.toString())
+            .where("friend_uuid").eq(friendUuid.toString())
+            .delete();
+    }
+
+    @Override
+    public List<BlacklistData> loadBlacklist(UUID playerUuid) {
+        return blacklistOperator.query()
+            .where("player_uuid").eq(playerUuid.toString())
+            .list();
+    }
+
+    @Override
+    public void insertBlock(BlacklistData entry) {
+        blacklistOperator.insert(entry);
+    }
+
+    @Override
+    public void deleteBlock(BlacklistData entry) {
+        blacklistOperator.delById(entry.getId());
+    }
+
+    @Override
+    public boolean deleteBlock(UUID playerUuid, UUID blockedUuid) {
+        boolean exists = blacklistOperator.query()
+            .where("player_uuid").eq(playerUuid.toString())
+            .where("blocked_uuid").eq(blockedUuid.toString())
+            .exists();
+
+        if (!exists) {
+            return false;
+        }
+
+        blacklistOperator.query()
+            .where("player_uuid").eq(playerUuid.toString())
+            .where("blocked_uuid").eq(blockedUuid.toString())
+            .delete();
+        return true;
+    }
+
+    /**
+     * One query per table finds the rows naming the player, and only rows
+     * with an old name are written. A single bulk statement is not
+     * possible here: a data operator query can only be read or deleted, and
+     * the only write is {@code update(entity)}, one row by id. Deleting and
+     * inserting the rows again would change their ids and race with other
+     * servers. Renames only run on a real name change, so this is rare.
+     */
+    @Override
+    public Set<UUID> renamePlayer(UUID playerUuid, String name) throws IllegalAccessException {
+        Set<UUID> owners = new HashSet<>();
+        List<FriendshipData> friendships = friendOperator.query()
+            .where("friend_uuid").eq(playerUuid.toString())
+            .list();
+        for (FriendshipData row : friendships) {
+            if (!name.equals(row.getFriendName())) {
+                row.setFriendName(name);
+                friendOperator.update(row);
+                owners.add(UUID.fromString(row.getPlayerUuid()));
+            }
+        }
+        List<BlacklistData> blocks = blacklistOperator.query()
+            .where("blocked_uuid").eq(playerUuid.toString())
+            .list();
+        for (BlacklistData row : blocks) {
+            if (!name.equals(row.getBlockedName())) {
+                row.setBlockedName(name);
+                blacklistOperator.update(row);
+                owners.add(UUID.fromString(row.getPlayerUuid()));
+            }
+        }
+        return owners;
+    }
+
+    @Override
+    public List<FriendshipData> pageFriendships(String afterId, int limit) {
+        Query<FriendshipData> query = friendOperator.query();
+        if (afterId != null) {
+            query = query.where("id").gt(afterId);
+        }
+        return query.orderBy("id").limit(limit).list();
+    }
+
+    @Override
+    public List<BlacklistData> pageBlacklist(String afterId, int limit) {
+        Query<BlacklistData> query = blacklistOperator.query();
+        if (afterId != null) {
+            query = query.where("id").gt(afterId);
+        }
+        return query.orderBy("id").limit(limit).list();
+    }
+}
@@ -0,0 +1,479 @@
+package com.ultikits.plugins.social.storage;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import com.ultikits.plugins.social.entity.FriendshipData;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Streams friendship pairs from a CSV or JSON-lines dump into a graph store.
+ *
+ * <p>Each row names two players and becomes a two-way friendship. Rows are
+ * validated, de-duplicated against the file and the store, and written in
+ * batches. Only the current batch and an 8-byte fingerprint per imported
+ * pair stay in memory.
+ *
+ * <p>Column names are matched loosely so dumps from other friend plugins
+ * can be imported after a plain CSV export: {@code player_uuid},
+ * {@code uuid1}, {@code player} and {@code owner} name the first player,
+ * {@code friend_uuid}, {@code uuid2}, {@code friend} and {@code target} the
+ * second. A CSV without a header is read as
+ * {@code player_uuid,friend_uuid[,player_name,friend_name]}.
+ *
+ * @author wisdomme
+ * @version 1.0.0
+ */
+public class FriendshipImporter {
+
+    private static final List<String> PLAYER_KEYS = Arrays.asList("player_uuid", "uuid1", "player", "owner");
+    private static final List<String> FRIEND_KEYS = Arrays.asList("friend_uuid", "uuid2", "friend", "target");
+    private static final List<String> PLAYER_NAME_KEYS = Arrays.asList("player_name", "name1", "owner_name");
+    private static final List<String> FRIEND_NAME_KEYS = Arrays.asList("friend_name", "name2", "target_name");
+
+    /**
+     * Input file format.
+     */
+    public enum Format {
+        CSV, JSONL;
+
+        /**
+         * Pick the format from a file name, defaulting to CSV.
+         */
+        public static Format of(String fileName) {
+            String lower = fileName.toLowerCase(Locale.ROOT);
+            return lower.endsWith(".jsonl") || lower.endsWith(".json") ? JSONL : CSV;
+        }
+    }
+
+    private final GraphStore store;
+    private final int batchSize;
+    private final Function<UUID, String> names;
+    private final Consumer<Set<UUID>> written;
+    private final PairSet seen = new PairSet();
+
+    /**
+     * @param store Store to write to
+     * @param batchSize Pairs per batch
+     * @param names Resolves a player name when the file has none
+     */
+    public FriendshipImporter(GraphStore store, int batchSize, Function<UUID, String> names) {
+        this(store, batchSize, names, owners -> { });
+    }
+
+    /**
+     * @param store Store to write to
+     * @param batchSize Pairs per batch
+     * @param names Resolves a player name when the file has none
+     * @param written Told after each batch which players gained friends
+     */
+    public FriendshipImporter(GraphStore store, int batchSize, Function<UUID, String> names,
+                              Consumer<Set<UUID>> written) {
+        this.store = store;
+        this.batchSize = Math.max(1, batchSize);
+        this.names = names;
+        this.written = written;
+    }
+
+    /**
+     * Import a file. Read errors end the import and are reported through
+     * {@link Progress#getError()}.
+     */
+    public Progress run(File file, BooleanSupplier cancelled, Consumer<Progress> progress) {
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            return run(reader, Format.of(file.getName()), cancelled, progress);
+        } catch (IOException | RuntimeException e) {
+            Progress failed = new Progress();
+            failed.error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            progress.accept(failed);
+            return failed;
+        }
+    }
+
+    /**
+     * Import every row of the input.
+     *
+     * @param input Source, read line by line
+     * @param format Input format
+     * @param cancelled Checked between batches, stops the import when true
+     * @param progress Called after every batch
+     * @return final counters
+     */
+    public Progress run(Reader input, Format format, BooleanSupplier cancelled,
+                        Consumer<Progress> progress) throws IOException {
+        Progress counters = new Progress();
+        BufferedReader reader = input instanceof BufferedReader
+            ? (BufferedReader) input : new BufferedReader(input, 1 << 16);
+        Map<String, Integer> columns = null;
+        List<Row> batch = new ArrayList<>(batchSize);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            Row row;
+            if (format == Format.JSONL) {
+                row = parseJson(line);
+            } else {
+                String[] fields = splitCsv(line);
+                if (columns == null) {
+                    columns = header(fields);
+                    if (!columns.isEmpty()) {
+                        continue;
+                    }
+                }
+                row = parseCsv(fields, columns);
+            }
+            counters.read++;
+            if (row == null || row.player.equals(row.friend)) {
+                counters.invalid++;
+                continue;
+            }
+            if (!seen.add(row.player, row.friend)) {
+                counters.duplicates++;
+                continue;
+            }
+            batch.add(row);
+            if (batch.size() >= batchSize) {
+                write(batch, counters);
+                progress.accept(counters);
+                if (cancelled.getAsBoolean()) {
+                    counters.cancelled = true;
+                    return counters;
+                }
+            }
+        }
+        write(batch, counters);
+        counters.finished = true;
+        progress.accept(counters);
+        return counters;
+    }
+
+    /**
+     * Drop pairs the store already has, then write both directions of the rest.
+     */
+    private void write(List<Row> batch, Progress counters) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Set<UUID> players = new HashSet<>();
+        for (Row row : batch) {
+            players.add(row.player);
+            players.add(row.friend);
+        }
+        Map<UUID, Set<UUID>> existing = store.loadFriendUuids(players);
+        List<FriendshipData> rows = new ArrayList<>(batch.size() * 2);
+        Set<UUID> owners = new HashSet<>();
+        for (Row row : batch) {
+            boolean forward = !existing.getOrDefault(row.player, Collections.emptySet()).contains(row.friend);
+            boolean reverse = !existing.getOrDefault(row.friend, Collections.emptySet()).contains(row.player);
+            if (!forward && !reverse) {
+                counters.duplicates++;
+                continue;
+            }
+            if (forward) {
+                rows.add(FriendshipData.create(row.player, row.friend, nameOf(row.friend, row.friendName)));
+                owners.add(row.player);
+            }
+            if (reverse) {
+                rows.add(FriendshipData.create(row.friend, row.player, nameOf(row.player, row.playerName)));
+                owners.add(row.friend);
+            }
+            counters.imported++;
+        }
+        store.insertFriends(rows);
+        counters.rowsWritten += rows.size();
+        batch.clear();
+        if (!owners.isEmpty()) {
+            written.accept(owners);
+        }
+    }
+
+    private String nameOf(UUID uuid, String fromFile) {
+        if (fromFile != null && !fromFile.isEmpty()) {
+            return fromFile;
+        }
+        String resolved = names.apply(uuid);
+        return resolved != null ? resolved : uuid.toString();
+    }
+
+    // ==================== Parsing ====================
+
+    /**
+     * Map column names to indexes, or return an empty map if the line is data.
+     */
+    static Map<String, Integer> header(String[] fields) {
+        Map<String, Integer> columns = new HashMap<>();
+        if (fields.length == 0 || parseUuid(fields[0]) != null) {
+            return columns;
+        }
+        for (int i = 0; i < fields.length; i++) {
+            columns.put(fields[i].toLowerCase(Locale.ROOT), i);
+        }
+        return columns;
+    }
+
+    static Row parseCsv(String[] fields, Map<String, Integer> columns) {
+        if (columns.isEmpty()) {
+            return row(field(fields, 0), field(fields, 1), field(fields, 2), field(fields, 3));
+        }
+        return row(field(fields, column(columns, PLAYER_KEYS)), field(fields, column(columns, FRIEND_KEYS)),
+            field(fields, column(columns, PLAYER_NAME_KEYS)), field(fields, column(columns, FRIEND_NAME_KEYS)));
+    }
+
+    static Row parseJson(String line) {
+        JsonObject object;
+        try {
+            JsonElement element = JsonParser.parseString(line);
+            if (!element.isJsonObject()) {
+                return null;
+            }
+            object = element.getAsJsonObject();
+        } catch (JsonSyntaxException e) {
+            return null;
+        }
+        return row(member(object, PLAYER_KEYS), member(object, FRIEND_KEYS),
+            member(object, PLAYER_NAME_KEYS), member(object, FRIEND_NAME_KEYS));
+    }
+
+    /**
+     * Split a CSV line. Handles quoted fields with doubled quotes.
+     */
+    static String[] splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+        return fields.toArray(new String[0]);
+    }
+
+    private static Row row(String player, String friend, String playerName, String friendName) {
+        UUID playerUuid = parseUuid(player);
+        UUID friendUuid = parseUuid(friend);
+        if (playerUuid == null || friendUuid == null) {
+            return null;
+        }
+        return new Row(playerUuid, friendUuid, playerName, friendName);
+    }
+
+    private static int column(Map<String, Integer> columns, List<String> keys) {
+        for (String key : keys) {
+            Integer index = columns.get(key);
+            if (index != null) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private static String field(String[] fields, int index) {
+        return index >= 0 && index < fields.length ? fields[index] : null;
+    }
+
+    private static String member(JsonObject object, List<String> keys) {
+        for (String key : keys) {
+            JsonElement value = object.get(key);
+            if (value != null && value.isJsonPrimitive()) {
+                return value.getAsString();
+            }
+        }
+        return null;
+    }
+
+    private static UUID parseUuid(String value) {
+        if (value == null) {
+            return null;
+        }
+        String text = value.trim();
+        // Some plugins store UUIDs without dashes
+        if (text.length() == 32) {
+            text = text.substring(0, 8) + "-" + text.substring(8, 12) + "-" + text.substring(12, 16)
+                + "-" + text.substring(16, 20) + "-" + text.substring(20);
+        }
+        if (text.length() != 36) {
+            return null;
+        }
+        try {
+            return UUID.fromString(text);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    static final class Row {
+        final UUID player;
+        final UUID friend;
+        final String playerName;
+        final String friendName;
+
+        Row(UUID player, UUID friend, String playerName, String friendName) {
+            this.player = player;
+            this.friend = friend;
+            this.playerName = playerName;
+            this.friendName = friendName;
+        }
+    }
+
+    /**
+     * Import counters. Updated by the import thread, read by anyone.
+     */
+    public static final class Progress {
+        private final long startTime = System.currentTimeMillis();
+        private volatile long read;
+        private volatile long imported;
+        private volatile long rowsWritten;
+        private volatile long duplicates;
+        private volatile long invalid;
+        private volatile boolean finished;
+        private volatile boolean cancelled;
+        private volatile String error;
+
+        /** Data lines read */
+        public long getRead() {
+            return read;
+        }
+
+        /** Pairs written */
+        public long getImported() {
+            return imported;
+        }
+
+        /** Friendship rows written, two per pair unless one side existed */
+        public long getRowsWritten() {
+            return rowsWritten;
+        }
+
+        /** Pairs skipped because the file or the store already had them */
+        public long getDuplicates() {
+            return duplicates;
+        }
+
+        /** Lines that did not name two different valid players */
+        public long getInvalid() {
+            return invalid;
+        }
+
+        public boolean isFinished() {
+            return finished;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /** Why the import stopped early, or null */
+        public String getError() {
+            return error;
+        }
+
+        /** Lines read per second since the start */
+        public long getLinesPerSecond() {
+            long elapsed = Math.max(1, System.currentTimeMillis() - startTime);
+            return read * 1000 / elapsed;
+        }
+    }
+
+    /**
+     * Set of unordered player pairs, stored as 64-bit fingerprints in an
+     * open-addressing table.
+     */
+    static final class PairSet {
+        private long[] table = new long[1 << 16];
+        private int size;
+
+        boolean add(UUID a, UUID b) {
+            long key = fingerprint(a, b);
+            if (size * 2 >= table.length) {
+                grow();
+            }
+            if (!insert(table, key)) {
+                return false;
+            }
+            size++;
+            return true;
+        }
+
+        int size() {
+            return size;
+        }
+
+        private void grow() {
+            long[] bigger = new long[table.length * 2];
+            for (long key : table) {
+                if (key != 0) {
+                    insert(bigger, key);
+                }
+            }
+            table = bigger;
+        }
+
+        private static boolean insert(long[] table, long key) {
+            int mask = table.length - 1;
+            int slot = (int) (key ^ (key >>> 32)) & mask;
+            while (table[slot] != 0) {
+                if (table[slot] == key) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = key;
+            return true;
+        }
+
+        private static long fingerprint(UUID a, UUID b) {
+            long ha = mix(a.getMostSignificantBits() ^ Long.rotateLeft(a.getLeastSignificantBits(), 29));
+            long hb = mix(b.getMostSignificantBits() ^ Long.rotateLeft(b.getLeastSignificantBits(), 29));
+            // Order-independent, so a,b and b,a collide on purpose
+            long key = mix(Math.min(ha, hb) * 31 + Math.max(ha, hb));
+            return key == 0 ? 1 : key;
+        }
+
+        private static long mix(long z) {
+            z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+            z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+            return z ^ (z >>> 33);
+        }
+    }
+}
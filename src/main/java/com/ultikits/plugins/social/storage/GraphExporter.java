@@ -0,0 +1,200 @@
+package com.ultikits.plugins.social.storage;
+
+import com.ultikits.plugins.social.entity.BlacklistData;
+import com.ultikits.plugins.social.entity.FriendshipData;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports the friendship and blacklist tables to gzip-compressed CSV files.
+ *
+ * <p>Rows are read page by page with keyset pagination on the id, so only
+ * one page is in memory at a time. Reading is throttled to a maximum number
+ * of rows per second to keep load off a shared database. Each file is
+ * written under a temporary name and renamed when complete.
+ *
+ * <p>The friendship file has the columns
+ * {@code id,player_uuid,friend_uuid,friend_name,nickname,favorite,created_time},
+ * which {@link FriendshipImporter} can read back.
+ *
+ * @author wisdomme
+ * @version 1.0.0
+ */
+public class GraphExporter {
+
+    private final GraphStore store;
+    private final int pageSize;
+    private final int maxRowsPerSecond;
+    private final Sleeper sleeper;
+
+    /**
+     * @param store Store to read
+     * @param pageSize Rows per page
+     * @param maxRowsPerSecond Read throttle, 0 for unlimited
+     */
+    public GraphExporter(GraphStore store, int pageSize, int maxRowsPerSecond) {
+        this(store, pageSize, maxRowsPerSecond, Thread::sleep);
+    }
+
+    GraphExporter(GraphStore store, int pageSize, int maxRowsPerSecond, Sleeper sleeper) {
+        this.store = store;
+        this.pageSize = Math.max(1, pageSize);
+        this.maxRowsPerSecond = maxRowsPerSecond;
+        this.sleeper = sleeper;
+    }
+
+    /**
+     * Export both tables into the directory.
+     *
+     * @param directory Target directory, created if missing
+     * @param stamp Suffix for the file names, e.g. a date
+     * @param cancelled Checked between pages
+     * @return row counts, or a result marked cancelled
+     */
+    public Result export(File directory, String stamp, BooleanSupplier cancelled) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        long start = System.currentTimeMillis();
+        Result result = new Result();
+        result.friendships = exportTable(new File(directory, "friendships-" + stamp + ".csv.gz"),
+            "id,player_uuid,friend_uuid,friend_name,nickname,favorite,created_time",
+            store::pageFriendships, FriendshipData::getId, GraphExporter::friendshipLine, cancelled);
+        if (result.friendships >= 0) {
+            result.blacklist = exportTable(new File(directory, "blacklist-" + stamp + ".csv.gz"),
+                "id,player_uuid,blocked_uuid,blocked_name,reason,created_time",
+                store::pageBlacklist, BlacklistData::getId, GraphExporter::blacklistLine, cancelled);
+        }
+        result.cancelled = result.friendships < 0 || result.blacklist < 0;
+        result.millis = System.currentTimeMillis() - start;
+        return result;
+    }
+
+    /**
+     * @return rows written, or -1 if cancelled
+     */
+    private <T> long exportTable(File target, String header, BiFunction<String, Integer, List<T>> pages,
+                                 Function<T, String> idOf, Function<T, String> lineOf,
+                                 BooleanSupplier cancelled) throws IOException {
+        File temp = new File(target.getPath() + ".tmp");
+        long rows = 0;
+        long started = System.nanoTime();
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+            new GZIPOutputStream(new FileOutputStream(temp), 1 << 16), StandardCharsets.UTF_8))) {
+            out.write(header);
+            out.write('\n');
+            String after = null;
+            while (true) {
+                if (cancelled.getAsBoolean()) {
+                    out.close();
+                    Files.deleteIfExists(temp.toPath());
+                    return -1;
+                }
+                List<T> page = pages.apply(after, pageSize);
+                for (T row : page) {
+                    out.write(lineOf.apply(row));
+                    out.write('\n');
+                }
+                rows += page.size();
+                if (page.size() < pageSize) {
+                    break;
+                }
+                after = idOf.apply(page.get(page.size() - 1));
+                throttle(rows, started);
+            }
+        }
+        Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return rows;
+    }
+
+    /**
+     * Sleep until the average rate is back under the limit.
+     */
+    private void throttle(long rows, long startedNanos) throws IOException {
+        if (maxRowsPerSecond <= 0) {
+            return;
+        }
+        long dueMillis = rows * 1000 / maxRowsPerSecond;
+        long elapsedMillis = (System.nanoTime() - startedNanos) / 1_000_000;
+        if (dueMillis > elapsedMillis) {
+            try {
+                sleeper.sleep(dueMillis - elapsedMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Export interrupted");
+            }
+        }
+    }
+
+    static String friendshipLine(FriendshipData row) {
+        return csv(row.getId()) + ',' + row.getPlayerUuid() + ',' + row.getFriendUuid() + ','
+            + csv(row.getFriendName()) + ',' + csv(row.getNickname()) + ',' + row.isFavorite() + ','
+            + row.getCreatedTime();
+    }
+
+    static String blacklistLine(BlacklistData row) {
+        return csv(row.getId()) + ',' + row.getPlayerUuid() + ',' + row.getBlockedUuid() + ','
+            + csv(row.getBlockedName()) + ',' + csv(row.getReason()) + ',' + row.getCreatedTime();
+    }
+
+    /**
+     * Quote a field if it contains a separator, quote or line break.
+     */
+    static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+            && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    interface Sleeper {
+        void sleep(long millis) throws InterruptedException;
+    }
+
+    /**
+     * Outcome of an export.
+     */
+    public static final class Result {
+        private long friendships;
+        private long blacklist;
+        private boolean cancelled;
+        private long millis;
+
+        /** Friendship rows written */
+        public long getFriendships() {
+            return friendships;
+        }
+
+        /** Blacklist rows written */
+        public long getBlacklist() {
+            return blacklist;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /** Wall time of the export */
+        public long getMillis() {
+            return millis;
+        }
+    }
+}
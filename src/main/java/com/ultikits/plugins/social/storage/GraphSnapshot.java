@@ -0,0 +1,588 @@
+package com.ultikits.plugins.social.storage;
+
+import com.ultikits.plugins.social.entity.BlacklistData;
+import com.ultikits.plugins.social.entity.FriendshipData;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Read-only binary snapshot of the friendship and blacklist graph.
+ *
+ * <p>Layout: a player dictionary (UUID and last known name) followed by
+ * one adjacency section per owner for friendships and for blacklists,
+ * edges referring to players by dictionary index, and a CRC32 trailer.
+ * The file is memory-mapped on load; only the dictionary and section
+ * offsets are read up front, edges are decoded when a player is looked up.
+ *
+ * <p>Each write creates a new generation file next to the given name
+ * ({@code graph.bin.0}, {@code graph.bin.1}, ...) instead of replacing the
+ * file in place: a loaded snapshot keeps its file mapped until the buffer
+ * is garbage collected, and Windows refuses to move over or delete a
+ * mapped file. Older generations are deleted once they can be.
+ *
+ * @author wisdomme
+ * @version 1.0.0
+ */
+public final class GraphSnapshot {
+
+    private static final int MAGIC = 0x55534753; // "USGS"
+    private static final int VERSION = 1;
+    private static final int NULL_STRING = -1;
+    private static final int DICTIONARY_NAME = -2;
+
+    private final ByteBuffer buffer;
+    private final long createdTime;
+    private final UUID[] players;
+    private final String[] names;
+    private final Map<UUID, Integer> dictionary;
+    private final Map<UUID, Integer> friendSections = new ConcurrentHashMap<>();
+    private final Map<UUID, Integer> blacklistSections = new ConcurrentHashMap<>();
+    private final Set<UUID> discarded = ConcurrentHashMap.newKeySet();
+
+    private GraphSnapshot(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        ByteBuffer in = buffer.duplicate();
+        if (in.remaining() < 24 || in.getInt() != MAGIC) {
+            throw new IOException("Not a social graph snapshot");
+        }
+        if (in.getInt() != VERSION) {
+            throw new IOException("Unsupported snapshot version");
+        }
+        verifyChecksum(buffer);
+        this.createdTime = in.getLong();
+
+        int count = in.getInt();
+        this.players = new UUID[count];
+        this.names = new String[count];
+        this.dictionary = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            players[i] = new UUID(in.getLong(), in.getLong());
+            names[i] = readString(in, null);
+            dictionary.put(players[i], i);
+        }
+        indexSections(in, friendSections, true);
+        indexSections(in, blacklistSections, false);
+    }
+
+    /**
+     * Memory-map and index the newest generation of a snapshot file.
+     *
+     * @throws IOException if the file is missing, truncated or corrupt
+     */
+    public static GraphSnapshot load(File file) throws IOException {
+        File current = current(file);
+        if (current == null) {
+            throw new FileNotFoundException(file.getPath());
+        }
+        try (FileChannel channel = FileChannel.open(current.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new GraphSnapshot(mapped);
+        }
+    }
+
+    /**
+     * Check whether any generation of a snapshot file has been written.
+     */
+    public static boolean exists(File file) {
+        return current(file) != null;
+    }
+
+    /**
+     * Newest generation of a snapshot file, or the file itself if it was
+     * written before generations were used.
+     *
+     * @return the file to load, or null if there is none
+     */
+    static File current(File file) {
+        File newest = null;
+        long newestGeneration = -1;
+        for (File candidate : siblings(file)) {
+            long generation = generation(file, candidate);
+            if (generation > newestGeneration) {
+                newest = candidate;
+                newestGeneration = generation;
+            }
+        }
+        if (newest == null && file.isFile()) {
+            return file;
+        }
+        return newest;
+    }
+
+    /**
+     * Generation number of a file named {@code <file>.<n>}, or -1 for any other file.
+     */
+    private static long generation(File file, File candidate) {
+        String prefix = file.getName() + ".";
+        String name = candidate.getName();
+        if (!name.startsWith(prefix) || name.length() == prefix.length()) {
+            return -1;
+        }
+        for (int i = prefix.length(); i < name.length(); i++) {
+            if (!Character.isDigit(name.charAt(i))) {
+                return -1;
+            }
+        }
+        try {
+            return Long.parseLong(name.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static File[] siblings(File file) {
+        File parent = file.getAbsoluteFile().getParentFile();
+        File[] files = parent == null ? null : parent.listFiles();
+        return files == null ? new File[0] : files;
+    }
+
+    /**
+     * Write a snapshot as a new generation of the file.
+     */
+    public static void write(File file, Collection<FriendshipData> friendships,
+                             Collection<BlacklistData> blacklist) throws IOException {
+        try (Writer writer = new Writer(file)) {
+            for (FriendshipData row : friendships) {
+                writer.add(row);
+            }
+            for (BlacklistData row : blacklist) {
+                writer.add(row);
+            }
+            writer.commit();
+        }
+    }
+
+    /**
+     * Get a player's friendships as recorded in the snapshot.
+     *
+     * @return a new mutable list, or null if the snapshot cannot answer for this player
+     */
+    public List<FriendshipData> getFriends(UUID owner) {
+        Integer ownerIndex = dictionary.get(owner);
+        if (ownerIndex == null || discarded.contains(owner)) {
+            return null;
+        }
+        Integer position = friendSections.get(owner);
+        if (position == null) {
+            return new ArrayList<>();
+        }
+        ByteBuffer in = buffer.duplicate();
+        in.position(position);
+        int count = in.getInt();
+        List<FriendshipData> friends = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int friend = in.getInt();
+            FriendshipData data = FriendshipData.builder()
+                .playerUuid(owner.toString())
+                .friendUuid(players[friend].toString())
+                .favorite(in.get() != 0)
+                .createdTime(in.getLong())
+                .build();
+            data.setId(readString(in, null));
+            data.setNickname(readString(in, null));
+            data.setFriendName(readString(in, names[friend]));
+            friends.add(data);
+        }
+        return friends;
+    }
+
+    /**
+     * Get a player's blacklist as recorded in the snapshot.
+     *
+     * @return a new mutable list, or null if the snapshot cannot answer for this player
+     */
+    public List<BlacklistData> getBlacklist(UUID owner) {
+        Integer ownerIndex = dictionary.get(owner);
+        if (ownerIndex == null || discarded.contains(owner)) {
+            return null;
+        }
+        Integer position = blacklistSections.get(owner);
+        if (position == null) {
+            return new ArrayList<>();
+        }
+        ByteBuffer in = buffer.duplicate();
+        in.position(position);
+        int count = in.getInt();
+        List<BlacklistData> blacklist = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int blocked = in.getInt();
+            BlacklistData data = BlacklistData.builder()
+                .playerUuid(owner.toString())
+                .blockedUuid(players[blocked].toString())
+                .createdTime(in.getLong())
+                .build();
+            data.setId(readString(in, null));
+            data.setReason(readString(in, null));
+            data.setBlockedName(readString(in, names[blocked]));
+            blacklist.add(data);
+        }
+        return blacklist;
+    }
+
+    /**
+     * Stop answering for a player whose data changed since the snapshot was taken.
+     */
+    public void discard(UUID owner) {
+        if (dictionary.containsKey(owner)) {
+            discarded.add(owner);
+        }
+    }
+
+    /**
+     * Get every player the snapshot holds data for.
+     */
+    public Set<UUID> getPlayers() {
+        return Collections.unmodifiableSet(dictionary.keySet());
+    }
+
+    public long getCreatedTime() {
+        return createdTime;
+    }
+
+    /**
+     * Streams rows into a new snapshot file.
+     * Rows may arrive in any order, e.g. page by page in id order. Only the
+     * player dictionary is kept in memory; edges are spilled to bucket
+     * files by owner and grouped one bucket at a time on {@link #commit},
+     * so memory holds the dictionary and a sixteenth of the edges at
+     * most, whatever the size of the tables.
+     */
+    public static final class Writer implements Closeable {
+
+        private static final int BUCKETS = 16;
+
+        private final File file;
+        private final File parent;
+        private final Map<UUID, Integer> index = new HashMap<>();
+        private final List<UUID> players = new ArrayList<>();
+        private final List<String> names = new ArrayList<>();
+        private final Set<Integer> friendOwners = new HashSet<>();
+        private final Set<Integer> blockOwners = new HashSet<>();
+        private final Spill friends;
+        private final Spill blocks;
+        private final ByteArrayOutputStream edge = new ByteArrayOutputStream(128);
+        private final DataOutputStream edgeOut = new DataOutputStream(edge);
+
+        public Writer(File file) throws IOException {
+            this.file = file;
+            this.parent = file.getAbsoluteFile().getParentFile();
+            if (parent != null && !parent.exists() && !parent.mkdirs()) {
+                throw new IOException("Cannot create " + parent);
+            }
+            this.friends = new Spill(parent, file.getName() + ".friends");
+            this.blocks = new Spill(parent, file.getName() + ".blocks");
+        }
+
+        /**
+         * Add a friendship. Rows with a malformed UUID are skipped.
+         */
+        public void add(FriendshipData row) throws IOException {
+            UUID owner = parse(row.getPlayerUuid());
+            UUID friend = parse(row.getFriendUuid());
+            if (owner == null || friend == null) {
+                return;
+            }
+            int friendIndex = intern(friend, row.getFriendName());
+            int ownerIndex = intern(owner, null);
+            edge.reset();
+            edgeOut.writeInt(friendIndex);
+            edgeOut.writeBoolean(row.isFavorite());
+            edgeOut.writeLong(row.getCreatedTime());
+            writeString(edgeOut, row.getId(), null);
+            writeString(edgeOut, row.getNickname(), null);
+            // The dictionary name cannot change once this row's name is in it
+            writeString(edgeOut, row.getFriendName(), names.get(friendIndex));
+            friends.append(ownerIndex, edge);
+            friendOwners.add(ownerIndex);
+        }
+
+        /**
+         * Add a blacklist entry. Rows with a malformed UUID are skipped.
+         */
+        public void add(BlacklistData row) throws IOException {
+            UUID owner = parse(row.getPlayerUuid());
+            UUID blocked = parse(row.getBlockedUuid());
+            if (owner == null || blocked == null) {
+                return;
+            }
+            int blockedIndex = intern(blocked, row.getBlockedName());
+            int ownerIndex = intern(owner, null);
+            edge.reset();
+            edgeOut.writeInt(blockedIndex);
+            edgeOut.writeLong(row.getCreatedTime());
+            writeString(edgeOut, row.getId(), null);
+            writeString(edgeOut, row.getReason(), null);
+            writeString(edgeOut, row.getBlockedName(), names.get(blockedIndex));
+            blocks.append(ownerIndex, edge);
+            blockOwners.add(ownerIndex);
+        }
+
+        /**
+         * Write the snapshot to a temporary file and move it into place as
+         * the next generation, then delete the older generations.
+         */
+        public void commit() throws IOException {
+            friends.finish();
+            blocks.finish();
+            File previous = current(file);
+            long next = previous == null ? 0 : generation(file, previous) + 1;
+            File target = new File(parent, file.getName() + "." + next);
+            File temp = new File(parent, file.getName() + ".tmp");
+            CRC32 crc = new CRC32();
+            try (FileOutputStream fileOut = new FileOutputStream(temp)) {
+                DataOutputStream out = new DataOutputStream(
+                    new CheckedOutputStream(new BufferedOutputStream(fileOut, 1 << 16), crc));
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(System.currentTimeMillis());
+
+                out.writeInt(players.size());
+                for (int i = 0; i < players.size(); i++) {
+                    out.writeLong(players.get(i).getMostSignificantBits());
+                    out.writeLong(players.get(i).getLeastSignificantBits());
+                    writeString(out, names.get(i), null);
+                }
+
+                out.writeInt(friendOwners.size());
+                friends.writeSections(out);
+                out.writeInt(blockOwners.size());
+                blocks.writeSections(out);
+                out.flush();
+
+                // Trailer is outside the checksummed range
+                ByteBuffer trailer = ByteBuffer.allocate(8).putLong(0, crc.getValue());
+                fileOut.write(trailer.array());
+                fileOut.getFD().sync();
+            }
+            try {
+                Files.move(temp.toPath(), target.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            for (File candidate : siblings(file)) {
+                long generation = generation(file, candidate);
+                if (generation >= 0 && generation < next) {
+                    // Fails while still mapped on Windows; retried after the next write
+                    candidate.delete();
+                }
+            }
+            if (file.isFile()) {
+                file.delete();
+            }
+        }
+
+        /**
+         * Delete the spill files.
+         */
+        @Override
+        public void close() {
+            friends.delete();
+            blocks.delete();
+        }
+
+        private int intern(UUID player, String name) {
+            Integer existing = index.get(player);
+            if (existing != null) {
+                if (names.get(existing) == null && name != null) {
+                    names.set(existing, name);
+                }
+                return existing;
+            }
+            index.put(player, players.size());
+            players.add(player);
+            names.add(name);
+            return players.size() - 1;
+        }
+    }
+
+    /**
+     * Edges of one kind spilled to disk in buckets by owner.
+     */
+    private static final class Spill {
+
+        private final File[] files = new File[Writer.BUCKETS];
+        private final DataOutputStream[] outs = new DataOutputStream[Writer.BUCKETS];
+
+        private Spill(File parent, String prefix) throws IOException {
+            try {
+                for (int i = 0; i < files.length; i++) {
+                    files[i] = new File(parent, prefix + "." + i + ".tmp");
+                    outs[i] = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(files[i]), 1 << 14));
+                }
+            } catch (IOException e) {
+                delete();
+                throw e;
+            }
+        }
+
+        void append(int owner, ByteArrayOutputStream edge) throws IOException {
+            DataOutputStream out = outs[owner % files.length];
+            out.writeInt(owner);
+            out.writeInt(edge.size());
+            edge.writeTo(out);
+        }
+
+        void finish() throws IOException {
+            for (DataOutputStream out : outs) {
+                if (out != null) {
+                    out.close();
+                }
+            }
+        }
+
+        /**
+         * Write one section per owner, reading one bucket into memory at a time.
+         */
+        void writeSections(DataOutputStream out) throws IOException {
+            for (File bucket : files) {
+                Map<Integer, ByteArrayOutputStream> edges = new LinkedHashMap<>();
+                Map<Integer, Integer> counts = new HashMap<>();
+                try (DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(new FileInputStream(bucket), 1 << 16))) {
+                    while (true) {
+                        int owner;
+                        try {
+                            owner = in.readInt();
+                        } catch (EOFException e) {
+                            break;
+                        }
+                        byte[] bytes = new byte[in.readInt()];
+                        in.readFully(bytes);
+                        edges.computeIfAbsent(owner, k -> new ByteArrayOutputStream()).write(bytes);
+                        counts.merge(owner, 1, Integer::sum);
+                    }
+                }
+                for (Map.Entry<Integer, ByteArrayOutputStream> entry : edges.entrySet()) {
+                    out.writeInt(entry.getKey());
+                    out.writeInt(counts.get(entry.getKey()));
+                    entry.getValue().writeTo(out);
+                }
+            }
+        }
+
+        void delete() {
+            for (int i = 0; i < files.length; i++) {
+                if (outs[i] != null) {
+                    try {
+                        outs[i].close();
+                    } catch (IOException ignored) {
+                        // Deleted next
+                    }
+                }
+                if (files[i] != null) {
+                    files[i].delete();
+                }
+            }
+        }
+    }
+
+    private void indexSections(ByteBuffer in, Map<UUID, Integer> sections, boolean friendships) {
+        int owners = in.getInt();
+        for (int i = 0; i < owners; i++) {
+            UUID owner = players[in.getInt()];
+            sections.put(owner, in.position());
+            int count = in.getInt();
+            for (int j = 0; j < count; j++) {
+                // target index, [favorite], created time
+                in.position(in.position() + (friendships ? 13 : 12));
+                skipString(in);
+                skipString(in);
+                skipString(in);
+            }
+        }
+    }
+
+    private static void verifyChecksum(ByteBuffer buffer) throws IOException {
+        ByteBuffer in = buffer.duplicate();
+        int end = in.limit() - 8;
+        long expected = in.getLong(end);
+        CRC32 crc = new CRC32();
+        byte[] chunk = new byte[1 << 16];
+        in.position(0);
+        while (in.position() < end) {
+            int n = Math.min(chunk.length, end - in.position());
+            in.get(chunk, 0, n);
+            crc.update(chunk, 0, n);
+        }
+        if (crc.getValue() != expected) {
+            throw new IOException("Snapshot checksum mismatch");
+        }
+    }
+
+    private static UUID parse(String uuid) {
+        if (uuid == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(uuid);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value, String dictionaryName) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_STRING);
+        } else if (value.equals(dictionaryName)) {
+            out.writeInt(DICTIONARY_NAME);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(ByteBuffer in, String dictionaryName) {
+        int length = in.getInt();
+        if (length == NULL_STRING) {
+            return null;
+        }
+        if (length == DICTIONARY_NAME) {
+            return dictionaryName;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void skipString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length > 0) {
+            in.position(in.position() + length);
+        }
+    }
+
+}
@@ -0,0 +1,167 @@
+package com.ultikits.plugins.social.storage;
+
+import com.ultikits.plugins.social.entity.BlacklistData;
+import com.ultikits.plugins.social.entity.FriendshipData;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Persistence backend for friendships and blacklists.
+ *
+ * @author wisdomme
+ * @version 1.0.0
+ */
+public interface GraphStore {
+
+    /**
+     * Load all friendships owned by a player.
+     *
+     * @return a new mutable list
+     */
+    List<FriendshipData> loadFriends(UUID playerUuid);
+
+    /**
+     * Count the friendships owned by a player.
+     */
+    default int countFriends(UUID playerUuid) {
+        return loadFriends(playerUuid).size();
+    }
+
+    /**
+     * Check whether a player has a friendship with another.
+     */
+    default boolean isFriend(UUID playerUuid, UUID friendUuid) {
+        String friend = friendUuid.toString();
+        for (FriendshipData row : loadFriends(playerUuid)) {
+            if (friend.equals(row.getFriendUuid())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Load who each of many players is friends with. Used by bulk imports
+     * to skip pairs that already exist.
+     *
+     * @return friend UUIDs by owner; players without friends may be absent
+     */
+    default Map<UUID, Set<UUID>> loadFriendUuids(Collection<UUID> playerUuids) {
+        Map<UUID, Set<UUID>> friends = new HashMap<>();
+        for (UUID playerUuid : playerUuids) {
+            Set<UUID> owned = new HashSet<>();
+            for (FriendshipData row : loadFriends(playerUuid)) {
+                owned.add(UUID.fromString(row.getFriendUuid()));
+            }
+            friends.put(playerUuid, owned);
+        }
+        return friends;
+    }
+
+    /**
+     * Store a new friendship. The store assigns its id.
+     */
+    void insertFriend(FriendshipData friendship);
+
+    /**
+     * Store many new friendships. Used by bulk imports.
+     */
+    default void insertFriends(List<FriendshipData> friendships) {
+        for (FriendshipData friendship : friendships) {
+            insertFriend(friendship);
+        }
+    }
+
+    /**
+     * Persist favorite, nickname and name changes of a stored friendship.
+     */
+    void updateFriend(FriendshipData friendship) throws IllegalAccessException;
+
+    /**
+     * Delete a stored friendship by its id.
+     */
+    void deleteFriend(FriendshipData friendship);
+
+    /**
+     * Delete the friendship from one player to another, if any.
+     */
+    void deleteFriendship(UUID playerUuid, UUID friendUuid);
+
+    /**
+     * Load all blacklist entries owned by a player.
+     *
+     * @return a new mutable list
+     */
+    List<BlacklistData> loadBlacklist(UUID playerUuid);
+
+    /**
+     * Store a new blacklist entry. The store assigns its id.
+     */
+    void insertBlock(BlacklistData entry);
+
+    /**
+     * Delete a stored blacklist entry by its id.
+     */
+    void deleteBlock(BlacklistData entry);
+
+    /**
+     * Delete the blacklist entry from one player to another.
+     *
+     * @return true if an entry existed
+     */
+    boolean deleteBlock(UUID playerUuid, UUID blockedUuid);
+
+    /**
+     * Set a player's name on every friendship and blacklist entry that
+     * points at them, after a name change. Rows that already carry the
+     * name are left alone.
+     *
+     * @return owners of the rows that changed
+     */
+    Set<UUID> renamePlayer(UUID playerUuid, String name) throws IllegalAccessException;
+
+    /**
+     * Read friendships in id order, starting after the given id.
+     *
+     * @param afterId Last id of the previous page, null for the first page
+     * @param limit Maximum rows to return
+     * @return the page, shorter than {@code limit} at the end of the table
+     */
+    List<FriendshipData> pageFriendships(String afterId, int limit);
+
+    /**
+     * Read blacklist entries in id order, starting after the given id.
+     *
+     * @param afterId Last id of the previous page, null for the first page
+     * @param limit Maximum rows to return
+     * @return the page, shorter than {@code limit} at the end of the table
+     */
+    List<BlacklistData> pageBlacklist(String afterId, int limit);
+
+    /**
+     * Apply several mutations as one unit. Stores that cannot guarantee
+     * this apply them one by one.
+     */
+    default void atomically(Consumer<GraphStore> mutations) {
+        mutations.accept(this);
+    }
+
+    /**
+     * Make buffered writes durable.
+     */
+    default void flush() {
+    }
+
+    /**
+     * Release resources.
+     */
+    default void close() {
+    }
+}
@@ -0,0 +1,563 @@
+package com.ultikits.plugins.social.storage;
+
+import com.ultikits.plugins.social.entity.BlacklistData;
+import com.ultikits.plugins.social.entity.FriendshipData;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Graph store that records every mutation in a write-ahead log before
+ * applying it to the underlying store.
+ *
+ * <p>A mutation is durable once its log record is synced; concurrent
+ * writers share one fsync. Mutations grouped with {@link #atomically}
+ * share one record, so after a crash either all of them or none are
+ * replayed. Records are applied in log order. {@link #flush()} flushes the
+ * underlying store and empties the log.
+ *
+ * <p>On startup {@link #replay()} re-applies every logged record. Replay is
+ * idempotent: inserts become upserts and deletes are by player pair.
+ *
+ * @author wisdomme
+ * @version 1.0.0
+ */
+public class JournaledGraphStore implements GraphStore {
+
+    private static final byte FORMAT = 1;
+    private static final int MAX_RECORD_MUTATIONS = 0xFFFF;
+
+    private static final byte INSERT_FRIEND = 1;
+    private static final byte UPDATE_FRIEND = 2;
+    private static final byte DELETE_FRIEND = 3;
+    private static final byte INSERT_BLOCK = 4;
+    private static final byte DELETE_BLOCK = 5;
+
+    private final GraphStore delegate;
+    private final WriteAheadLog log;
+
+    // Commits share the read lock, checkpoints take the write lock
+    private final ReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+
+    private final Object applyOrder = new Object();
+    private long appliedSeq;
+
+    public JournaledGraphStore(GraphStore delegate, File logFile) throws IOException {
+        this.delegate = delegate;
+        this.log = new WriteAheadLog(logFile);
+    }
+
+    /**
+     * Re-apply logged mutations left over from the last run, then empty the log.
+     * If replay fails the log is closed untouched, to be replayed on the next start.
+     *
+     * @return players whose friends or blacklist were touched
+     */
+    public Set<UUID> replay() throws IOException {
+        Set<UUID> players = new HashSet<>();
+        checkpointLock.writeLock().lock();
+        try {
+            for (byte[] record : log.readAll()) {
+                for (Mutation mutation : decode(record)) {
+                    replay(mutation);
+                    players.add(mutation.owner);
+                }
+            }
+            delegate.flush();
+            log.truncate();
+        } catch (IOException | RuntimeException e) {
+            try {
+                log.close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        } finally {
+            checkpointLock.writeLock().unlock();
+        }
+        return players;
+    }
+
+    @Override
+    public List<FriendshipData> loadFriends(UUID playerUuid) {
+        return delegate.loadFriends(playerUuid);
+    }
+
+    @Override
+    public int countFriends(UUID playerUuid) {
+        return delegate.countFriends(playerUuid);
+    }
+
+    @Override
+    public boolean isFriend(UUID playerUuid, UUID friendUuid) {
+        return delegate.isFriend(playerUuid, friendUuid);
+    }
+
+    @Override
+    public Map<UUID, Set<UUID>> loadFriendUuids(Collection<UUID> playerUuids) {
+        return delegate.loadFriendUuids(playerUuids);
+    }
+
+    @Override
+    public void insertFriend(FriendshipData friendship) {
+        commitUnchecked(Collections.singletonList(Mutation.friend(INSERT_FRIEND, friendship)));
+    }
+
+    /**
+     * Log the friendships in records of up to {@value #MAX_RECORD_MUTATIONS}
+     * rows, so a batch costs one sync instead of one per row.
+     */
+    @Override
+    public void insertFriends(List<FriendshipData> friendships) {
+        for (int from = 0; from < friendships.size(); from += MAX_RECORD_MUTATIONS) {
+            List<Mutation> mutations = new ArrayList<>();
+            for (FriendshipData friendship : friendships.subList(from,
+                Math.min(friendships.size(), from + MAX_RECORD_MUTATIONS))) {
+                mutations.add(Mutation.friend(INSERT_FRIEND, friendship));
+            }
+            commitUnchecked(mutations);
+        }
+    }
+
+    @Override
+    public void updateFriend(FriendshipData friendship) throws IllegalAccessException {
+        commit(Collections.singletonList(Mutation.friend(UPDATE_FRIEND, friendship)));
+    }
+
+    @Override
+    public void deleteFriend(FriendshipData friendship) {
+        commitUnchecked(Collections.singletonList(Mutation.friend(DELETE_FRIEND, friendship)));
+    }
+
+    @Override
+    public void deleteFriendship(UUID playerUuid, UUID friendUuid) {
+        commitUnchecked(Collections.singletonList(new Mutation(DELETE_FRIEND, playerUuid, friendUuid)));
+    }
+
+    @Override
+    public List<BlacklistData> loadBlacklist(UUID playerUuid) {
+        return delegate.loadBlacklist(playerUuid);
+    }
+
+    @Override
+    public void insertBlock(BlacklistData entry) {
+        commitUnchecked(Collections.singletonList(Mutation.block(INSERT_BLOCK, entry)));
+    }
+
+    @Override
+    public void deleteBlock(BlacklistData entry) {
+        commitUnchecked(Collections.singletonList(Mutation.block(DELETE_BLOCK, entry)));
+    }
+
+    @Override
+    public boolean deleteBlock(UUID playerUuid, UUID blockedUuid) {
+        return commitUnchecked(Collections.singletonList(new Mutation(DELETE_BLOCK, playerUuid, blockedUuid)));
+    }
+
+    /**
+     * Renames go straight to the underlying store without a log record.
+     * They are idempotent and repeated at the player's next login if lost.
+     */
+    @Override
+    public Set<UUID> renamePlayer(UUID playerUuid, String name) throws IllegalAccessException {
+        checkpointLock.readLock().lock();
+        try {
+            return delegate.renamePlayer(playerUuid, name);
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<FriendshipData> pageFriendships(String afterId, int limit) {
+        return delegate.pageFriendships(afterId, limit);
+    }
+
+    @Override
+    public List<BlacklistData> pageBlacklist(String afterId, int limit) {
+        return delegate.pageBlacklist(afterId, limit);
+    }
+
+    /**
+     * Log the mutations as one record, then apply them.
+     * Inside the callback {@code deleteBlock(UUID, UUID)} always returns true.
+     */
+    @Override
+    public void atomically(Consumer<GraphStore> mutations) {
+        Recorder recorder = new Recorder();
+        mutations.accept(recorder);
+        if (!recorder.mutations.isEmpty()) {
+            commitUnchecked(recorder.mutations);
+        }
+    }
+
+    /**
+     * Flush the underlying store and empty the log.
+     */
+    @Override
+    public void flush() {
+        checkpointLock.writeLock().lock();
+        try {
+            delegate.flush();
+            if (log.size() > 0) {
+                log.truncate();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            checkpointLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        try {
+            log.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            delegate.close();
+        }
+    }
+
+    /**
+     * Number of log syncs so far.
+     */
+    public long getSyncCount() {
+        return log.getSyncCount();
+    }
+
+    private boolean commitUnchecked(List<Mutation> mutations) {
+        try {
+            return commit(mutations);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private boolean commit(List<Mutation> mutations) throws IllegalAccessException {
+        checkpointLock.readLock().lock();
+        try {
+            long seq;
+            IOException failure = null;
+            try {
+                seq = log.append(encode(mutations));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            try {
+                log.sync(seq);
+            } catch (IOException e) {
+                failure = e;
+            }
+            awaitTurn(seq);
+            try {
+                if (failure != null) {
+                    throw new UncheckedIOException(failure);
+                }
+                boolean result = true;
+                for (Mutation mutation : mutations) {
+                    result &= apply(mutation);
+                }
+                return result;
+            } finally {
+                synchronized (applyOrder) {
+                    appliedSeq = seq;
+                    applyOrder.notifyAll();
+                }
+            }
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Wait until every earlier record has been applied.
+     */
+    private void awaitTurn(long seq) {
+        boolean interrupted = false;
+        synchronized (applyOrder) {
+            while (appliedSeq < seq - 1) {
+                try {
+                    applyOrder.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean apply(Mutation mutation) throws IllegalAccessException {
+        switch (mutation.type) {
+            case INSERT_FRIEND:
+                delegate.insertFriend(mutation.friend);
+                return true;
+            case UPDATE_FRIEND:
+                delegate.updateFriend(mutation.friend);
+                return true;
+            case DELETE_FRIEND:
+                if (mutation.friend != null) {
+                    delegate.deleteFriend(mutation.friend);
+                } else {
+                    delegate.deleteFriendship(mutation.owner, mutation.other);
+                }
+                return true;
+            case INSERT_BLOCK:
+                delegate.insertBlock(mutation.block);
+                return true;
+            case DELETE_BLOCK:
+                if (mutation.block != null) {
+                    delegate.deleteBlock(mutation.block);
+                    return true;
+                }
+                return delegate.deleteBlock(mutation.owner, mutation.other);
+            default:
+                throw new IllegalStateException("Unknown mutation " + mutation.type);
+        }
+    }
+
+    private void replay(Mutation mutation) throws IOException {
+        switch (mutation.type) {
+            case INSERT_FRIEND:
+            case UPDATE_FRIEND:
+                FriendshipData existing = null;
+                for (FriendshipData row : delegate.loadFriends(mutation.owner)) {
+                    if (row.getFriendUuid().equals(mutation.other.toString())) {
+                        existing = row;
+                        break;
+                    }
+                }
+                if (existing == null) {
+                    delegate.insertFriend(mutation.friend);
+                } else {
+                    existing.setFavorite(mutation.friend.isFavorite());
+                    existing.setNickname(mutation.friend.getNickname());
+                    existing.setFriendName(mutation.friend.getFriendName());
+                    try {
+                        delegate.updateFriend(existing);
+                    } catch (IllegalAccessException e) {
+                        throw new IOException("Cannot replay friend update", e);
+                    }
+                }
+                break;
+            case DELETE_FRIEND:
+                delegate.deleteFriendship(mutation.owner, mutation.other);
+                break;
+            case INSERT_BLOCK:
+                boolean present = false;
+                for (BlacklistData row : delegate.loadBlacklist(mutation.owner)) {
+                    present |= row.getBlockedUuid().equals(mutation.other.toString());
+                }
+                if (!present) {
+                    delegate.insertBlock(mutation.block);
+                }
+                break;
+            case DELETE_BLOCK:
+                delegate.deleteBlock(mutation.owner, mutation.other);
+                break;
+            default:
+                throw new IOException("Unknown mutation " + mutation.type);
+        }
+    }
+
+    // ==================== Record format ====================
+
+    static byte[] encode(List<Mutation> mutations) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT);
+            out.writeShort(mutations.size());
+            for (Mutation mutation : mutations) {
+                out.writeByte(mutation.type);
+                writeUuid(out, mutation.owner);
+                writeUuid(out, mutation.other);
+                if (mutation.type == INSERT_FRIEND || mutation.type == UPDATE_FRIEND) {
+                    out.writeLong(mutation.friend.getCreatedTime());
+                    out.writeBoolean(mutation.friend.isFavorite());
+                    writeString(out, mutation.friend.getFriendName());
+                    writeString(out, mutation.friend.getNickname());
+                } else if (mutation.type == INSERT_BLOCK) {
+                    out.writeLong(mutation.block.getCreatedTime());
+                    writeString(out, mutation.block.getBlockedName());
+                    writeString(out, mutation.block.getReason());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static List<Mutation> decode(byte[] record) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        byte format = in.readByte();
+        if (format != FORMAT) {
+            throw new IOException("Unsupported log record format " + format);
+        }
+        int count = in.readUnsignedShort();
+        List<Mutation> mutations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Mutation mutation = new Mutation(in.readByte(), readUuid(in), readUuid(in));
+            if (mutation.type == INSERT_FRIEND || mutation.type == UPDATE_FRIEND) {
+                mutation.friend = FriendshipData.builder()
+                    .playerUuid(mutation.owner.toString())
+                    .friendUuid(mutation.other.toString())
+                    .createdTime(in.readLong())
+                    .favorite(in.readBoolean())
+                    .friendName(readString(in))
+                    .nickname(readString(in))
+                    .build();
+            } else if (mutation.type == INSERT_BLOCK) {
+                mutation.block = BlacklistData.builder()
+                    .playerUuid(mutation.owner.toString())
+                    .blockedUuid(mutation.other.toString())
+                    .createdTime(in.readLong())
+                    .blockedName(readString(in))
+                    .reason(readString(in))
+                    .build();
+            }
+            mutations.add(mutation);
+        }
+        return mutations;
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID uuid) throws IOException {
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    private static UUID readUuid(DataInputStream in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * One logged change. Entities are kept so the live path can apply
+     * them by id; replay works from the player pair.
+     */
+    static final class Mutation {
+        private final byte type;
+        private final UUID owner;
+        private final UUID other;
+        private FriendshipData friend;
+        private BlacklistData block;
+
+        private Mutation(byte type, UUID owner, UUID other) {
+            this.type = type;
+            this.owner = owner;
+            this.other = other;
+        }
+
+        private static Mutation friend(byte type, FriendshipData friendship) {
+            Mutation mutation = new Mutation(type, UUID.fromString(friendship.getPlayerUuid()),
+                UUID.fromString(friendship.getFriendUuid()));
+            mutation.friend = friendship;
+            return mutation;
+        }
+
+        private static Mutation block(byte type, BlacklistData entry) {
+            Mutation mutation = new Mutation(type, UUID.fromString(entry.getPlayerUuid()),
+                UUID.fromString(entry.getBlockedUuid()));
+            mutation.block = entry;
+            return mutation;
+        }
+    }
+
+    /**
+     * Collects mutations for {@link #atomically}.
+     */
+    private final class Recorder implements GraphStore {
+        private final List<Mutation> mutations = new ArrayList<>();
+
+        @Override
+        public List<FriendshipData> loadFriends(UUID playerUuid) {
+            return delegate.loadFriends(playerUuid);
+        }
+
+        @Override
+        public void insertFriend(FriendshipData friendship) {
+            mutations.add(Mutation.friend(INSERT_FRIEND, friendship));
+        }
+
+        @Override
+        public void updateFriend(FriendshipData friendship) {
+            mutations.add(Mutation.friend(UPDATE_FRIEND, friendship));
+        }
+
+        @Override
+        public void deleteFriend(FriendshipData friendship) {
+            mutations.add(Mutation.friend(DELETE_FRIEND, friendship));
+        }
+
+        @Override
+        public void deleteFriendship(UUID playerUuid, UUID friendUuid) {
+            mutations.add(new Mutation(DELETE_FRIEND, playerUuid, friendUuid));
+        }
+
+        @Override
+        public List<BlacklistData> loadBlacklist(UUID playerUuid) {
+            return delegate.loadBlacklist(playerUuid);
+        }
+
+        @Override
+        public void insertBlock(BlacklistData entry) {
+            mutations.add(Mutation.block(INSERT_BLOCK, entry));
+        }
+
+        @Override
+        public void deleteBlock(BlacklistData entry) {
+            mutations.add(Mutation.block(DELETE_BLOCK, entry));
+        }
+
+        @Override
+        public boolean deleteBlock(UUID playerUuid, UUID blockedUuid) {
+            mutations.add(new Mutation(DELETE_BLOCK, playerUuid, blockedUuid));
+            return true;
+        }
+
+        @Override
+        public Set<UUID> renamePlayer(UUID playerUuid, String name) throws IllegalAccessException {
+            return JournaledGraphStore.this.renamePlayer(playerUuid, name);
+        }
+
+        @Override
+        public List<FriendshipData> pageFriendships(String afterId, int limit) {
+            return delegate.pageFriendships(afterId, limit);
+        }
+
+        @Override
+        public List<BlacklistData> pageBlacklist(String afterId, int limit) {
+            return delegate.pageBlacklist(afterId, limit);
+        }
+    }
+}
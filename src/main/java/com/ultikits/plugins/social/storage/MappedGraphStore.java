@@ -0,0 +1,358 @@
+package com.ultikits.plugins.social.storage;
+
+import com.ultikits.plugins.social.entity.BlacklistData;
+import com.ultikits.plugins.social.entity.FriendshipData;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Local graph store in two memory-mapped record files.
+ * An in-memory index maps each player to the slots of their records,
+ * so reads and writes touch only that player's records. Record ids are
+ * slot numbers; freed slots are reused, so a write through an entity
+ * checks that its slot still holds the same pair and otherwise looks the
+ * pair up. Names are stored up to 32 bytes and reasons up to 100 bytes of
+ * UTF-8.
+ *
+ * @author wisdomme
+ * @version 1.0.0
+ */
+public class MappedGraphStore implements GraphStore {
+
+    private static final int FRIEND_MAGIC = 0x55534652; // "USFR"
+    private static final int BLOCK_MAGIC = 0x5553424C;  // "USBL"
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // Friend record layout (128 bytes)
+    private static final int FRIEND_RECORD = 128;
+    private static final int F_FAVORITE = 1;
+    private static final int F_OWNER = 4;
+    private static final int F_FRIEND = 20;
+    private static final int F_CREATED = 36;
+    private static final int F_NAME = 44;
+    private static final int F_NICKNAME = 77;
+
+    // Blacklist record layout (192 bytes)
+    private static final int BLOCK_RECORD = 192;
+    private static final int B_OWNER = 4;
+    private static final int B_BLOCKED = 20;
+    private static final int B_CREATED = 36;
+    private static final int B_NAME = 44;
+    private static final int B_REASON = 77;
+
+    private static final int NAME_BYTES = 32;
+    private static final int REASON_BYTES = 100;
+
+    private final MappedRecordFile friends;
+    private final MappedRecordFile blocks;
+
+    // Player -> record slots
+    private final Map<UUID, List<Integer>> friendIndex = new HashMap<>();
+    private final Map<UUID, List<Integer>> blockIndex = new HashMap<>();
+
+    public MappedGraphStore(File directory) throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        this.friends = new MappedRecordFile(new File(directory, "friends.dat"),
+            FRIEND_MAGIC, FRIEND_RECORD, INITIAL_CAPACITY);
+        try {
+            this.blocks = new MappedRecordFile(new File(directory, "blacklist.dat"),
+                BLOCK_MAGIC, BLOCK_RECORD, INITIAL_CAPACITY);
+        } catch (IOException e) {
+            friends.close();
+            throw e;
+        }
+        buildIndex(friends, F_OWNER, friendIndex);
+        buildIndex(blocks, B_OWNER, blockIndex);
+    }
+
+    @Override
+    public synchronized List<FriendshipData> loadFriends(UUID playerUuid) {
+        List<Integer> slots = friendIndex.getOrDefault(playerUuid, Collections.emptyList());
+        List<FriendshipData> result = new ArrayList<>(slots.size());
+        for (int slot : slots) {
+            result.add(readFriend(slot));
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized void insertFriend(FriendshipData friendship) {
+        int slot = allocate(friends);
+        writeFriend(slot, friendship);
+        friendship.setId(String.valueOf(slot));
+        friendIndex.computeIfAbsent(UUID.fromString(friendship.getPlayerUuid()), k -> new ArrayList<>()).add(slot);
+    }
+
+    @Override
+    public synchronized void insertFriends(List<FriendshipData> friendships) {
+        for (FriendshipData friendship : friendships) {
+            insertFriend(friendship);
+        }
+    }
+
+    @Override
+    public synchronized void updateFriend(FriendshipData friendship) {
+        int slot = slotOf(friends, friendIndex, friendship.getId(), F_OWNER,
+            UUID.fromString(friendship.getPlayerUuid()), F_FRIEND, UUID.fromString(friendship.getFriendUuid()));
+        if (slot >= 0) {
+            writeFriend(slot, friendship);
+        }
+    }
+
+    @Override
+    public synchronized void deleteFriend(FriendshipData friendship) {
+        UUID owner = UUID.fromString(friendship.getPlayerUuid());
+        int slot = slotOf(friends, friendIndex, friendship.getId(), F_OWNER,
+            owner, F_FRIEND, UUID.fromString(friendship.getFriendUuid()));
+        if (slot >= 0) {
+            unindex(friendIndex, owner, slot);
+            friends.free(slot);
+        }
+    }
+
+    @Override
+    public synchronized void deleteFriendship(UUID playerUuid, UUID friendUuid) {
+        removeEdge(friends, friendIndex, playerUuid, F_FRIEND, friendUuid);
+    }
+
+    @Override
+    public synchronized List<BlacklistData> loadBlacklist(UUID playerUuid) {
+        List<Integer> slots = blockIndex.getOrDefault(playerUuid, Collections.emptyList());
+        List<BlacklistData> result = new ArrayList<>(slots.size());
+        for (int slot : slots) {
+            result.add(readBlock(slot));
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized void insertBlock(BlacklistData entry) {
+        int slot = allocate(blocks);
+        int offset = blocks.offset(slot);
+        blocks.putUuid(offset + B_OWNER, UUID.fromString(entry.getPlayerUuid()));
+        blocks.putUuid(offset + B_BLOCKED, UUID.fromString(entry.getBlockedUuid()));
+        blocks.buffer().putLong(offset + B_CREATED, entry.getCreatedTime());
+        blocks.putString(offset + B_NAME, NAME_BYTES, entry.getBlockedName());
+        blocks.putString(offset + B_REASON, REASON_BYTES, entry.getReason());
+        entry.setId(String.valueOf(slot));
+        blockIndex.computeIfAbsent(UUID.fromString(entry.getPlayerUuid()), k -> new ArrayList<>()).add(slot);
+    }
+
+    @Override
+    public synchronized void deleteBlock(BlacklistData entry) {
+        UUID owner = UUID.fromString(entry.getPlayerUuid());
+        int slot = slotOf(blocks, blockIndex, entry.getId(), B_OWNER,
+            owner, B_BLOCKED, UUID.fromString(entry.getBlockedUuid()));
+        if (slot >= 0) {
+            unindex(blockIndex, owner, slot);
+            blocks.free(slot);
+        }
+    }
+
+    @Override
+    public synchronized boolean deleteBlock(UUID playerUuid, UUID blockedUuid) {
+        return removeEdge(blocks, blockIndex, playerUuid, B_BLOCKED, blockedUuid);
+    }
+
+    /**
+     * Records are indexed by owner only, so this scans both files. Names
+     * change rarely, and the scan reads mapped memory without copying rows.
+     */
+    @Override
+    public synchronized Set<UUID> renamePlayer(UUID playerUuid, String name) {
+        Set<UUID> owners = new HashSet<>();
+        rename(friends, F_FRIEND, F_NAME, F_OWNER, playerUuid, name, owners);
+        rename(blocks, B_BLOCKED, B_NAME, B_OWNER, playerUuid, name, owners);
+        return owners;
+    }
+
+    @Override
+    public synchronized List<FriendshipData> pageFriendships(String afterId, int limit) {
+        List<FriendshipData> result = new ArrayList<>();
+        int highWater = friends.highWater();
+        for (int slot = afterId == null ? 0 : slotOf(afterId) + 1; slot < highWater && result.size() < limit; slot++) {
+            if (friends.isLive(slot)) {
+                result.add(readFriend(slot));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized List<BlacklistData> pageBlacklist(String afterId, int limit) {
+        List<BlacklistData> result = new ArrayList<>();
+        int highWater = blocks.highWater();
+        for (int slot = afterId == null ? 0 : slotOf(afterId) + 1; slot < highWater && result.size() < limit; slot++) {
+            if (blocks.isLive(slot)) {
+                result.add(readBlock(slot));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized void flush() {
+        friends.force();
+        blocks.force();
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            friends.close();
+            blocks.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private FriendshipData readFriend(int slot) {
+        int offset = friends.offset(slot);
+        FriendshipData data = FriendshipData.builder()
+            .playerUuid(friends.getUuid(offset + F_OWNER).toString())
+            .friendUuid(friends.getUuid(offset + F_FRIEND).toString())
+            .favorite(friends.buffer().get(offset + F_FAVORITE) != 0)
+            .createdTime(friends.buffer().getLong(offset + F_CREATED))
+            .friendName(friends.getString(offset + F_NAME))
+            .nickname(friends.getString(offset + F_NICKNAME))
+            .build();
+        data.setId(String.valueOf(slot));
+        return data;
+    }
+
+    private void writeFriend(int slot, FriendshipData friendship) {
+        int offset = friends.offset(slot);
+        friends.putUuid(offset + F_OWNER, UUID.fromString(friendship.getPlayerUuid()));
+        friends.putUuid(offset + F_FRIEND, UUID.fromString(friendship.getFriendUuid()));
+        friends.buffer().put(offset + F_FAVORITE, (byte) (friendship.isFavorite() ? 1 : 0));
+        friends.buffer().putLong(offset + F_CREATED, friendship.getCreatedTime());
+        friends.putString(offset + F_NAME, NAME_BYTES, friendship.getFriendName());
+        friends.putString(offset + F_NICKNAME, NAME_BYTES, friendship.getNickname());
+    }
+
+    private BlacklistData readBlock(int slot) {
+        int offset = blocks.offset(slot);
+        BlacklistData data = BlacklistData.builder()
+            .playerUuid(blocks.getUuid(offset + B_OWNER).toString())
+            .blockedUuid(blocks.getUuid(offset + B_BLOCKED).toString())
+            .createdTime(blocks.buffer().getLong(offset + B_CREATED))
+            .blockedName(blocks.getString(offset + B_NAME))
+            .reason(blocks.getString(offset + B_REASON))
+            .build();
+        data.setId(String.valueOf(slot));
+        return data;
+    }
+
+    private boolean removeEdge(MappedRecordFile records, Map<UUID, List<Integer>> index,
+                               UUID owner, int targetOffset, UUID target) {
+        List<Integer> slots = index.get(owner);
+        if (slots == null) {
+            return false;
+        }
+        boolean removed = false;
+        for (Iterator<Integer> it = slots.iterator(); it.hasNext(); ) {
+            int slot = it.next();
+            if (records.getUuid(records.offset(slot) + targetOffset).equals(target)) {
+                it.remove();
+                records.free(slot);
+                removed = true;
+            }
+        }
+        if (slots.isEmpty()) {
+            index.remove(owner);
+        }
+        return removed;
+    }
+
+    private static void rename(MappedRecordFile records, int targetOffset, int nameOffset, int ownerOffset,
+                               UUID target, String name, Set<UUID> owners) {
+        int highWater = records.highWater();
+        for (int slot = 0; slot < highWater; slot++) {
+            if (!records.isLive(slot)) {
+                continue;
+            }
+            int offset = records.offset(slot);
+            if (records.getUuid(offset + targetOffset).equals(target)
+                && !name.equals(records.getString(offset + nameOffset))) {
+                records.putString(offset + nameOffset, NAME_BYTES, name);
+                owners.add(records.getUuid(offset + ownerOffset));
+            }
+        }
+    }
+
+    private static int allocate(MappedRecordFile records) {
+        try {
+            return records.allocate();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void buildIndex(MappedRecordFile records, int ownerOffset, Map<UUID, List<Integer>> index) {
+        int highWater = records.highWater();
+        for (int slot = 0; slot < highWater; slot++) {
+            if (records.isLive(slot)) {
+                index.computeIfAbsent(records.getUuid(records.offset(slot) + ownerOffset), k -> new ArrayList<>())
+                    .add(slot);
+            }
+        }
+    }
+
+    private static void unindex(Map<UUID, List<Integer>> index, UUID owner, int slot) {
+        List<Integer> slots = index.get(owner);
+        if (slots != null) {
+            slots.remove(Integer.valueOf(slot));
+            if (slots.isEmpty()) {
+                index.remove(owner);
+            }
+        }
+    }
+
+    /**
+     * Find the slot of a pair, trying the entity's id first. A stale id
+     * whose slot was freed and reused by another pair is not trusted.
+     *
+     * @return the slot, or -1 if the pair has no record
+     */
+    private static int slotOf(MappedRecordFile records, Map<UUID, List<Integer>> index, String id,
+                              int ownerOffset, UUID owner, int targetOffset, UUID target) {
+        int slot = slotOf(id);
+        if (records.isLive(slot) && holds(records, slot, ownerOffset, owner, targetOffset, target)) {
+            return slot;
+        }
+        for (int candidate : index.getOrDefault(owner, Collections.emptyList())) {
+            if (records.getUuid(records.offset(candidate) + targetOffset).equals(target)) {
+                return candidate;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean holds(MappedRecordFile records, int slot, int ownerOffset, UUID owner,
+                                 int targetOffset, UUID target) {
+        int offset = records.offset(slot);
+        return records.getUuid(offset + ownerOffset).equals(owner)
+            && records.getUuid(offset + targetOffset).equals(target);
+    }
+
+    private static int slotOf(String id) {
+        try {
+            return id == null ? -1 : Integer.parseInt(id);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
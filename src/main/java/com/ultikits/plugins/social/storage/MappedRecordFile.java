@@ -0,0 +1,186 @@
+package com.ultikits.plugins.social.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Memory-mapped file of fixed-width records with a free list.
+ *
+ * <p>Header: magic, version, record size, high-water mark, free-list head,
+ * live record count. Byte 0 of each record is its status (0 free, 1 live);
+ * a free record stores the next free slot at byte 4. The mapping doubles
+ * when the file runs out of slots.
+ *
+ * <p>Not thread-safe; callers synchronize.
+ *
+ * @author wisdomme
+ * @version 1.0.0
+ */
+final class MappedRecordFile {
+
+    static final int HEADER_SIZE = 32;
+    private static final int VERSION = 1;
+    private static final int NO_SLOT = -1;
+
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int RECORD_SIZE_OFFSET = 8;
+    private static final int HIGH_WATER_OFFSET = 12;
+    private static final int FREE_HEAD_OFFSET = 16;
+    private static final int LIVE_COUNT_OFFSET = 20;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final int recordSize;
+    private MappedByteBuffer buffer;
+    private int capacity;
+
+    MappedRecordFile(File path, int magic, int recordSize, int initialCapacity) throws IOException {
+        this.recordSize = recordSize;
+        boolean created = !path.exists() || path.length() == 0;
+        this.file = new RandomAccessFile(path, "rw");
+        this.channel = file.getChannel();
+        int existing = created ? 0 : (int) ((channel.size() - HEADER_SIZE) / recordSize);
+        map(Math.max(initialCapacity, existing));
+        if (created) {
+            buffer.putInt(MAGIC_OFFSET, magic);
+            buffer.putInt(VERSION_OFFSET, VERSION);
+            buffer.putInt(RECORD_SIZE_OFFSET, recordSize);
+            buffer.putInt(HIGH_WATER_OFFSET, 0);
+            buffer.putInt(FREE_HEAD_OFFSET, NO_SLOT);
+            buffer.putInt(LIVE_COUNT_OFFSET, 0);
+        } else if (buffer.getInt(MAGIC_OFFSET) != magic
+            || buffer.getInt(VERSION_OFFSET) != VERSION
+            || buffer.getInt(RECORD_SIZE_OFFSET) != recordSize) {
+            close();
+            throw new IOException("Incompatible record file " + path);
+        }
+    }
+
+    /**
+     * Take a free slot, growing the file if needed, and mark it live.
+     */
+    int allocate() throws IOException {
+        int slot = buffer.getInt(FREE_HEAD_OFFSET);
+        if (slot != NO_SLOT) {
+            buffer.putInt(FREE_HEAD_OFFSET, buffer.getInt(offset(slot) + 4));
+        } else {
+            slot = highWater();
+            if (slot >= capacity) {
+                map(capacity * 2);
+            }
+            buffer.putInt(HIGH_WATER_OFFSET, slot + 1);
+        }
+        int offset = offset(slot);
+        for (int i = 0; i < recordSize; i++) {
+            buffer.put(offset + i, (byte) 0);
+        }
+        buffer.put(offset, (byte) 1);
+        buffer.putInt(LIVE_COUNT_OFFSET, buffer.getInt(LIVE_COUNT_OFFSET) + 1);
+        return slot;
+    }
+
+    /**
+     * Return a live slot to the free list.
+     */
+    void free(int slot) {
+        if (!isLive(slot)) {
+            return;
+        }
+        int offset = offset(slot);
+        buffer.put(offset, (byte) 0);
+        buffer.putInt(offset + 4, buffer.getInt(FREE_HEAD_OFFSET));
+        buffer.putInt(FREE_HEAD_OFFSET, slot);
+        buffer.putInt(LIVE_COUNT_OFFSET, buffer.getInt(LIVE_COUNT_OFFSET) - 1);
+    }
+
+    boolean isLive(int slot) {
+        return slot >= 0 && slot < highWater() && buffer.get(offset(slot)) == 1;
+    }
+
+    /**
+     * Slots below this have been used at least once.
+     */
+    int highWater() {
+        return buffer.getInt(HIGH_WATER_OFFSET);
+    }
+
+    int liveCount() {
+        return buffer.getInt(LIVE_COUNT_OFFSET);
+    }
+
+    int offset(int slot) {
+        return HEADER_SIZE + slot * recordSize;
+    }
+
+    MappedByteBuffer buffer() {
+        return buffer;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    void close() throws IOException {
+        try {
+            buffer.force();
+        } finally {
+            channel.close();
+            file.close();
+        }
+    }
+
+    private void map(int newCapacity) throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) newCapacity * recordSize);
+        capacity = newCapacity;
+    }
+
+    // ==================== Field helpers ====================
+
+    void putUuid(int offset, UUID uuid) {
+        buffer.putLong(offset, uuid.getMostSignificantBits());
+        buffer.putLong(offset + 8, uuid.getLeastSignificantBits());
+    }
+
+    UUID getUuid(int offset) {
+        return new UUID(buffer.getLong(offset), buffer.getLong(offset + 8));
+    }
+
+    /**
+     * Write a string as a length byte followed by up to {@code maxBytes} UTF-8 bytes.
+     * Longer strings are cut at a character boundary. Length 0xFF marks null.
+     */
+    void putString(int offset, int maxBytes, String value) {
+        if (value == null) {
+            buffer.put(offset, (byte) 0xFF);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, maxBytes);
+        // Do not split a multi-byte character
+        while (length < bytes.length && length > 0 && (bytes[length] & 0xC0) == 0x80) {
+            length--;
+        }
+        buffer.put(offset, (byte) length);
+        for (int i = 0; i < length; i++) {
+            buffer.put(offset + 1 + i, bytes[i]);
+        }
+    }
+
+    String getString(int offset) {
+        int length = buffer.get(offset) & 0xFF;
+        if (length == 0xFF) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(offset + 1 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
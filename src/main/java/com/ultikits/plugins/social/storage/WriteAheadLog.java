@@ -0,0 +1,185 @@
+package com.ultikits.plugins.social.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of checksummed records.
+ *
+ * <p>Each record is its payload length, the CRC32 of the payload, then the
+ * payload. Appends only write; {@link #sync(long)} makes a record durable.
+ * Concurrent syncs are grouped: one caller forces the file while the others
+ * wait, and every record written before the force is covered by it.
+ *
+ * <p>A torn or corrupt record ends the log; it and anything after it are
+ * dropped when the log is read.
+ *
+ * @author wisdomme
+ * @version 1.0.0
+ */
+final class WriteAheadLog {
+
+    private static final int RECORD_HEADER = 8;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+
+    private final Object appendLock = new Object();
+    private long appendedSeq;
+
+    private final Object syncLock = new Object();
+    private long durableSeq;
+    private boolean syncing;
+    private long syncCount;
+
+    WriteAheadLog(File path) throws IOException {
+        this.file = new RandomAccessFile(path, "rw");
+        this.channel = file.getChannel();
+    }
+
+    /**
+     * Read every intact record and position the log after the last one.
+     */
+    List<byte[]> readAll() throws IOException {
+        synchronized (appendLock) {
+            List<byte[]> records = new ArrayList<>();
+            long size = channel.size();
+            long position = 0;
+            ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER);
+            while (size - position >= RECORD_HEADER) {
+                header.clear();
+                readFully(header, position);
+                header.flip();
+                int length = header.getInt();
+                int crc = header.getInt();
+                if (length < 0 || length > size - position - RECORD_HEADER) {
+                    break;
+                }
+                ByteBuffer payload = ByteBuffer.allocate(length);
+                readFully(payload, position + RECORD_HEADER);
+                if (checksum(payload.array()) != crc) {
+                    break;
+                }
+                records.add(payload.array());
+                position += RECORD_HEADER + length;
+            }
+            if (position < size) {
+                channel.truncate(position);
+            }
+            channel.position(position);
+            return records;
+        }
+    }
+
+    /**
+     * Write a record without forcing it to disk.
+     *
+     * @return sequence number to pass to {@link #sync(long)}
+     */
+    long append(byte[] payload) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER + payload.length);
+        buffer.putInt(payload.length);
+        buffer.putInt(checksum(payload));
+        buffer.put(payload);
+        buffer.flip();
+        synchronized (appendLock) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            return ++appendedSeq;
+        }
+    }
+
+    /**
+     * Block until the record with this sequence number is on disk.
+     */
+    void sync(long seq) throws IOException {
+        synchronized (syncLock) {
+            while (syncing && durableSeq < seq) {
+                try {
+                    syncLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted waiting for log sync");
+                }
+            }
+            if (durableSeq >= seq) {
+                return;
+            }
+            syncing = true;
+        }
+        long target;
+        synchronized (appendLock) {
+            target = appendedSeq;
+        }
+        boolean forced = false;
+        try {
+            channel.force(false);
+            forced = true;
+        } finally {
+            synchronized (syncLock) {
+                syncing = false;
+                if (forced) {
+                    durableSeq = Math.max(durableSeq, target);
+                    syncCount++;
+                }
+                syncLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Empty the log. Callers make sure every record has been applied.
+     */
+    void truncate() throws IOException {
+        synchronized (appendLock) {
+            channel.truncate(0);
+            channel.position(0);
+            channel.force(true);
+        }
+    }
+
+    long size() throws IOException {
+        return channel.size();
+    }
+
+    /**
+     * Number of forces so far. Lower than the number of synced records
+     * when commits were grouped.
+     */
+    long getSyncCount() {
+        synchronized (syncLock) {
+            return syncCount;
+        }
+    }
+
+    void close() throws IOException {
+        try {
+            channel.force(true);
+        } finally {
+            channel.close();
+            file.close();
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of log");
+            }
+        }
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,71 @@
+package com.ultikits.plugins.social.sync;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-process message bus.
+ * Buses joined to the same {@link Hub} deliver to each other synchronously,
+ * which lets tests run several "servers" inside one JVM.
+ *
+ * @author wisdomme
+ * @version 1.0.0
+ */
+public class LoopbackMessageBus implements SocialMessageBus {
+
+    /**
+     * A shared in-process network.
+     */
+    public static class Hub {
+
+        private final List<LoopbackMessageBus> members = new CopyOnWriteArrayList<>();
+
+        /**
+         * Create a bus connected to this hub.
+         */
+        public LoopbackMessageBus join() {
+            LoopbackMessageBus bus = new LoopbackMessageBus(this);
+            members.add(bus);
+            return bus;
+        }
+    }
+
+    private final Hub hub;
+    private final List<Consumer<SyncMessage>> handlers = new CopyOnWriteArrayList<>();
+
+    public LoopbackMessageBus() {
+        this(new Hub());
+    }
+
+    private LoopbackMessageBus(Hub hub) {
+        this.hub = hub;
+    }
+
+    @Override
+    public void publish(SyncMessage message) {
+        byte[] payload = message.encode();
+        for (LoopbackMessageBus member : hub.members) {
+            if (member != this) {
+                member.deliver(SyncMessage.decode(payload));
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<SyncMessage> handler) {
+        handlers.add(handler);
+    }
+
+    @Override
+    public void close() {
+        hub.members.remove(this);
+        handlers.clear();
+    }
+
+    private void deliver(SyncMessage message) {
+        for (Consumer<SyncMessage> handler : handlers) {
+            handler.accept(message);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.ultikits.plugins.social.sync;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.messaging.PluginMessageListener;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Message bus over the BungeeCord/Velocity "Forward" plugin channel.
+ * Messages ride on any online player's connection, so a server with no
+ * players online can neither send nor receive.
+ *
+ * @author wisdomme
+ * @version 1.0.0
+ */
+public class PluginMessageBus implements SocialMessageBus, PluginMessageListener {
+
+    static final String PROXY_CHANNEL = "BungeeCord";
+    static final String SUB_CHANNEL = "UltiSocial";
+
+    private final Plugin plugin;
+    private final List<Consumer<SyncMessage>> handlers = new CopyOnWriteArrayList<>();
+
+    public PluginMessageBus(Plugin plugin) {
+        this.plugin = plugin;
+        Bukkit.getMessenger().registerOutgoingPluginChannel(plugin, PROXY_CHANNEL);
+        Bukkit.getMessenger().registerIncomingPluginChannel(plugin, PROXY_CHANNEL, this);
+    }
+
+    @Override
+    public void publish(SyncMessage message) {
+        Iterator<? extends Player> players = Bukkit.getOnlinePlayers().iterator();
+        if (!players.hasNext()) {
+            return;
+        }
+        byte[] payload = message.encode();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.length + 32);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF("Forward");
+            out.writeUTF("ALL");
+            out.writeUTF(SUB_CHANNEL);
+            out.writeShort(payload.length);
+            out.write(payload);
+        } catch (IOException e) {
+            return;
+        }
+        players.next().sendPluginMessage(plugin, PROXY_CHANNEL, bytes.toByteArray());
+    }
+
+    @Override
+    public boolean isConnected() {
+        return !Bukkit.getOnlinePlayers().isEmpty();
+    }
+
+    @Override
+    public void subscribe(Consumer<SyncMessage> handler) {
+        handlers.add(handler);
+    }
+
+    @Override
+    public void close() {
+        Bukkit.getMessenger().unregisterIncomingPluginChannel(plugin, PROXY_CHANNEL, this);
+        Bukkit.getMessenger().unregisterOutgoingPluginChannel(plugin, PROXY_CHANNEL);
+        handlers.clear();
+    }
+
+    @Override
+    public void onPluginMessageReceived(String channel, Player player, byte[] data) {
+        if (!PROXY_CHANNEL.equals(channel)) {
+            return;
+        }
+        SyncMessage message;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            if (!SUB_CHANNEL.equals(in.readUTF())) {
+                return;
+            }
+            byte[] payload = new byte[in.readUnsignedShort()];
+            in.readFully(payload);
+            message = SyncMessage.decode(payload);
+        } catch (IOException e) {
+            return;
+        }
+        if (message == null) {
+            return;
+        }
+        for (Consumer<SyncMessage> handler : handlers) {
+            handler.accept(message);
+        }
+    }
+}
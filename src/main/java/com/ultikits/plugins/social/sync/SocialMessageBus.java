@@ -0,0 +1,35 @@
+package com.ultikits.plugins.social.sync;
+
+import java.util.function.Consumer;
+
+/**
+ * Transport for propagating social state changes between servers
+ * sharing one database.
+ *
+ * @author wisdomme
+ * @version 1.0.0
+ */
+public interface SocialMessageBus {
+
+    /**
+     * Send a message to every other server.
+     */
+    void publish(SyncMessage message);
+
+    /**
+     * Check if published messages can currently reach other servers.
+     */
+    default boolean isConnected() {
+        return true;
+    }
+
+    /**
+     * Register a handler for messages received from other servers.
+     */
+    void subscribe(Consumer<SyncMessage> handler);
+
+    /**
+     * Release the transport.
+     */
+    void close();
+}
@@ -0,0 +1,115 @@
+package com.ultikits.plugins.social.sync;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * A social state change propagated between servers.
+ *
+ * @author wisdomme
+ * @version 1.0.0
+ */
+@Data
+@AllArgsConstructor
+public class SyncMessage {
+
+    /**
+     * Kind of change carried by a message.
+     */
+    public enum Type {
+        /** Subject joined the origin server */
+        PRESENCE_ONLINE,
+        /** Subject left the origin server */
+        PRESENCE_OFFLINE,
+        /** Friendship between subject and other was added or removed */
+        FRIENDSHIP_CHANGED,
+        /** Subject blocked or unblocked other */
+        BLACKLIST_CHANGED,
+        /** Subject's cached lists are stale; if set, other is now called name */
+        INVALIDATE,
+        /** Subject is still on the origin server; sent periodically and on request */
+        PRESENCE_HEARTBEAT,
+        /** Origin has just started and asks every server for a heartbeat of its players */
+        STATE_REQUEST,
+        /** Subject, called name, sent other a private message with content as its text */
+        PRIVATE_MESSAGE,
+        /** Every cached friend list is stale, e.g. after a bulk import; subject is {@link #NOBODY} */
+        REFRESH_ALL
+    }
+
+    /**
+     * Subject of messages about no player in particular.
+     */
+    public static final UUID NOBODY = new UUID(0L, 0L);
+
+    private static final byte VERSION = 1;
+
+    private String origin;
+    private Type type;
+    private UUID subject;
+    private UUID other;
+    private String name;
+    private String content;
+
+    public SyncMessage(String origin, Type type, UUID subject, UUID other, String name) {
+        this(origin, type, subject, other, name, null);
+    }
+
+    /**
+     * Serialize this message.
+     */
+    public byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeUTF(origin);
+            out.writeByte(type.ordinal());
+            out.writeLong(subject.getMostSignificantBits());
+            out.writeLong(subject.getLeastSignificantBits());
+            out.writeBoolean(other != null);
+            if (other != null) {
+                out.writeLong(other.getMostSignificantBits());
+                out.writeLong(other.getLeastSignificantBits());
+            }
+            out.writeUTF(name == null ? "" : name);
+            // Trailing field, skipped by servers that do not read it
+            out.writeUTF(content == null ? "" : content);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Deserialize a message.
+     *
+     * @return the message, or null if the payload is not understood
+     */
+    public static SyncMessage decode(byte[] payload) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            if (in.readByte() != VERSION) {
+                return null;
+            }
+            String origin = in.readUTF();
+            int ordinal = in.readByte();
+            if (ordinal < 0 || ordinal >= Type.values().length) {
+                return null;
+            }
+            UUID subject = new UUID(in.readLong(), in.readLong());
+            UUID other = in.readBoolean() ? new UUID(in.readLong(), in.readLong()) : null;
+            String name = in.readUTF();
+            String content = in.available() > 0 ? in.readUTF() : "";
+            return new SyncMessage(origin, Type.values()[ordinal], subject, other,
+                name.isEmpty() ? null : name, content.isEmpty() ? null : content);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
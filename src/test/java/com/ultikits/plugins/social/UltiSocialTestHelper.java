@@ -16,6 +16,7 @@ import java.util.Collections;
 import java.util.UUID;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -100,11 +101,14 @@ public final class UltiSocialTestHelper {
         lenient().when(config.isNotifyFriendJoinWorld()).thenReturn(false);
         lenient().when(config.isTpToFriendEnabled()).thenReturn(true);
         lenient().when(config.getTpCooldown()).thenReturn(30);
+        lenient().when(config.getMaxGroups()).thenReturn(10);
+        lenient().when(config.isHideBlockedChat()).thenReturn(true);
         lenient().when(config.getGuiTitle()).thenReturn("&6Friend List");
         lenient().when(config.getFriendAddedMessage()).thenReturn("&aYou are now friends with {PLAYER}!");
         lenient().when(config.getFriendRemovedMessage()).thenReturn("&cRemoved friend {PLAYER}");
         lenient().when(config.getFriendOnlineMessage()).thenReturn("&aYour friend {PLAYER} is now online!");
         lenient().when(config.getFriendOfflineMessage()).thenReturn("&7Your friend {PLAYER} went offline");
+        lenient().when(config.getFriendJoinWorldMessage()).thenReturn("&bYour friend {PLAYER} entered {WORLD}");
         lenient().when(config.getRequestSentMessage()).thenReturn("&aFriend request sent to {PLAYER}!");
         lenient().when(config.getRequestReceivedMessage()).thenReturn("&e{PLAYER} wants to be your friend!");
         lenient().when(config.getRequestDeniedMessage()).thenReturn("&cDenied friend request from {PLAYER}");
@@ -127,6 +131,7 @@ public final class UltiSocialTestHelper {
 
         World world = mock(World.class);
         lenient().when(world.getName()).thenReturn("world");
+        lenient().when(world.isChunkLoaded(anyInt(), anyInt())).thenReturn(true);
         Location location = new Location(world, 100.5, 64.0, -200.5);
         lenient().when(player.getLocation()).thenReturn(location);
         lenient().when(player.getWorld()).thenReturn(world);
@@ -3,9 +3,19 @@ package com.ultikits.plugins.social.commands;
 import com.ultikits.plugins.social.UltiSocialTestHelper;
 import com.ultikits.plugins.social.config.SocialConfig;
 import com.ultikits.plugins.social.entity.BlacklistData;
+import com.ultikits.plugins.social.entity.FriendGroupData;
 import com.ultikits.plugins.social.entity.FriendRequest;
 import com.ultikits.plugins.social.entity.FriendshipData;
+import com.ultikits.plugins.social.metrics.SocialMetrics;
+import com.ultikits.plugins.social.service.FriendEntry;
+import com.ultikits.plugins.social.service.FriendGroups;
+import com.ultikits.plugins.social.service.FriendList;
 import com.ultikits.plugins.social.service.FriendService;
+import com.ultikits.plugins.social.service.FriendTeleporter;
+import com.ultikits.plugins.social.service.OpenGuiRegistry;
+import com.ultikits.plugins.social.service.RateLimiter;
+import com.ultikits.plugins.social.storage.FriendshipImporter;
+import com.ultikits.plugins.social.storage.GraphExporter;
 import com.ultikits.ultitools.services.TeleportService;
 
 import org.bukkit.Bukkit;
@@ -17,7 +27,9 @@ import org.junit.jupiter.api.*;
 import org.mockito.ArgumentCaptor;
 import org.mockito.MockedStatic;
 
+import java.io.File;
 import java.util.*;
+import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -50,7 +62,10 @@ class FriendCommandTest {
         // Mock config getter for all tests
         lenient().when(friendService.getConfig()).thenReturn(config);
 
-        command = new FriendCommand(friendService, teleportService);
+        lenient().when(friendService.getTeleporter()).thenReturn(new FriendTeleporter(friendService, teleportService));
+        lenient().when(friendService.getOpenGuis()).thenReturn(new OpenGuiRegistry());
+
+        command = new FriendCommand(friendService, Runnable::run);
 
         playerUuid = UUID.randomUUID();
         targetUuid = UUID.randomUUID();
@@ -69,6 +84,14 @@ class FriendCommandTest {
     @DisplayName("listFriends")
     class ListFriends {
 
+        private List<FriendEntry> entries(FriendshipData... friends) {
+            List<FriendEntry> result = new ArrayList<>();
+            for (FriendshipData friend : friends) {
+                result.add(FriendEntry.of(friend));
+            }
+            return result;
+        }
+
         @Test
         @DisplayName("Should list friends when player has friends")
         void listFriendsWithFriends() {
@@ -88,8 +111,8 @@ class FriendCommandTest {
                     .createdTime(System.currentTimeMillis())
                     .build();
 
-            when(friendService.getFriends(playerUuid))
-                    .thenReturn(Arrays.asList(friend1, friend2));
+            when(friendService.getFriendEntries(playerUuid))
+                    .thenReturn(entries(friend1, friend2));
 
             // Mock Bukkit.getPlayer() to return null (offline friends)
             when(UltiSocialTestHelper.getMockServer().getPlayer(friend1Uuid)).thenReturn(null);
@@ -103,12 +126,13 @@ class FriendCommandTest {
         @Test
         @DisplayName("Should show message when no friends")
         void listFriendsNoFriends() {
-            when(friendService.getFriends(playerUuid))
+            when(friendService.getFriendEntries(playerUuid))
                     .thenReturn(new ArrayList<>());
 
             command.listFriends(player);
 
             verify(player).sendMessage(contains("还没有好友"));
+            verify(friendService).recordLatency(eq("cmdList"), anyLong());
         }
 
         @Test
@@ -123,8 +147,8 @@ class FriendCommandTest {
                     .createdTime(System.currentTimeMillis())
                     .build();
 
-            when(friendService.getFriends(playerUuid))
-                    .thenReturn(Collections.singletonList(friend1));
+            when(friendService.getFriendEntries(playerUuid))
+                    .thenReturn(entries(friend1));
 
             // Friend is online
             Player onlineFriend = UltiSocialTestHelper.createMockPlayer("OnlineFriend", friend1Uuid);
@@ -152,8 +176,8 @@ class FriendCommandTest {
                     .createdTime(System.currentTimeMillis())
                     .build();
 
-            when(friendService.getFriends(playerUuid))
-                    .thenReturn(Collections.singletonList(friend1));
+            when(friendService.getFriendEntries(playerUuid))
+                    .thenReturn(entries(friend1));
             when(UltiSocialTestHelper.getMockServer().getPlayer(friend1Uuid)).thenReturn(null);
 
             command.listFriends(player);
@@ -176,8 +200,8 @@ class FriendCommandTest {
                     .createdTime(System.currentTimeMillis())
                     .build();
 
-            when(friendService.getFriends(playerUuid))
-                    .thenReturn(Collections.singletonList(friend1));
+            when(friendService.getFriendEntries(playerUuid))
+                    .thenReturn(entries(friend1));
             when(UltiSocialTestHelper.getMockServer().getPlayer(any(UUID.class))).thenReturn(null);
 
             command.listFriends(player);
@@ -234,6 +258,21 @@ class FriendCommandTest {
                 verify(player).sendMessage(contains("不能添加自己"));
             }
         }
+
+        @Test
+        @DisplayName("Should reject request when rate limited")
+        void addFriendRateLimited() {
+            when(friendService.isRateLimited(player, RateLimiter.Action.FRIEND_REQUEST)).thenReturn(true);
+
+            try (MockedStatic<Bukkit> bukkitMock = mockStatic(Bukkit.class)) {
+                bukkitMock.when(() -> Bukkit.getPlayerExact("TargetPlayer"))
+                        .thenReturn(target);
+
+                command.addFriend(player, "TargetPlayer");
+
+                verify(friendService, never()).sendRequest(any(), any());
+            }
+        }
     }
 
     // ==================== acceptRequest ====================
@@ -356,8 +395,8 @@ class FriendCommandTest {
                     .friendName("TargetPlayer")
                     .build();
             when(friendService.getConfig().isTpToFriendEnabled()).thenReturn(true);
-            when(friendService.getFriends(playerUuid))
-                    .thenReturn(Collections.singletonList(friendship));
+            when(friendService.findFriend(playerUuid, "TargetPlayer"))
+                    .thenReturn(FriendEntry.of(friendship));
             when(friendService.canTeleport(playerUuid)).thenReturn(true);
 
             try (MockedStatic<Bukkit> bukkitMock = mockStatic(Bukkit.class)) {
@@ -385,8 +424,8 @@ class FriendCommandTest {
         @DisplayName("Should show error when not friends")
         void teleportNotFriends() {
             when(friendService.getConfig().isTpToFriendEnabled()).thenReturn(true);
-            when(friendService.getFriends(playerUuid))
-                    .thenReturn(new ArrayList<>());
+            when(friendService.findFriend(playerUuid, "NotFriend"))
+                    .thenReturn(null);
 
             command.teleportToFriend(player, "NotFriend");
 
@@ -401,8 +440,8 @@ class FriendCommandTest {
                     .friendName("TargetPlayer")
                     .build();
             when(friendService.getConfig().isTpToFriendEnabled()).thenReturn(true);
-            when(friendService.getFriends(playerUuid))
-                    .thenReturn(Collections.singletonList(friendship));
+            when(friendService.findFriend(playerUuid, "TargetPlayer"))
+                    .thenReturn(FriendEntry.of(friendship));
 
             try (MockedStatic<Bukkit> bukkitMock = mockStatic(Bukkit.class)) {
                 bukkitMock.when(() -> Bukkit.getPlayer(targetUuid))
@@ -422,8 +461,8 @@ class FriendCommandTest {
                     .friendName("TargetPlayer")
                     .build();
             when(friendService.getConfig().isTpToFriendEnabled()).thenReturn(true);
-            when(friendService.getFriends(playerUuid))
-                    .thenReturn(Collections.singletonList(friendship));
+            when(friendService.findFriend(playerUuid, "TargetPlayer"))
+                    .thenReturn(FriendEntry.of(friendship));
             when(friendService.canTeleport(playerUuid)).thenReturn(false);
             when(friendService.getRemainingCooldown(playerUuid)).thenReturn(15);
 
@@ -440,17 +479,19 @@ class FriendCommandTest {
         @Test
         @DisplayName("Should use direct teleport when TeleportService is null")
         void teleportWithoutService() {
-            // Create command with null TeleportService
-            FriendCommand noServiceCommand = new FriendCommand(friendService, null);
+            // Teleporter without a TeleportService
+            when(friendService.getTeleporter()).thenReturn(new FriendTeleporter(friendService, null));
+            FriendCommand noServiceCommand = new FriendCommand(friendService);
 
             FriendshipData friendship = FriendshipData.builder()
                     .friendUuid(targetUuid.toString())
                     .friendName("TargetPlayer")
                     .build();
             when(friendService.getConfig().isTpToFriendEnabled()).thenReturn(true);
-            when(friendService.getFriends(playerUuid))
-                    .thenReturn(Collections.singletonList(friendship));
+            when(friendService.findFriend(playerUuid, "TargetPlayer"))
+                    .thenReturn(FriendEntry.of(friendship));
             when(friendService.canTeleport(playerUuid)).thenReturn(true);
+            when(player.teleport(any(Location.class))).thenReturn(true);
 
             try (MockedStatic<Bukkit> bukkitMock = mockStatic(Bukkit.class)) {
                 bukkitMock.when(() -> Bukkit.getPlayer(targetUuid))
@@ -471,8 +512,8 @@ class FriendCommandTest {
                     .friendName("TargetPlayer")
                     .build();
             when(friendService.getConfig().isTpToFriendEnabled()).thenReturn(true);
-            when(friendService.getFriends(playerUuid))
-                    .thenReturn(Collections.singletonList(friendship));
+            when(friendService.findFriend(playerUuid, "TargetPlayer"))
+                    .thenReturn(FriendEntry.of(friendship));
             when(friendService.canTeleport(playerUuid)).thenReturn(true);
 
             try (MockedStatic<Bukkit> bukkitMock = mockStatic(Bukkit.class)) {
@@ -484,95 +525,418 @@ class FriendCommandTest {
                 verify(player).sendMessage(contains("传送到"));
             }
         }
-    }
-
-    // ==================== sendMessage ====================
-
-    @Nested
-    @DisplayName("sendMessage")
-    class SendMessageTests {
 
         @Test
-        @DisplayName("Should send private message to online friend")
-        void sendMessageToOnlineFriend() {
+        @DisplayName("Should not start the cooldown when the teleport fails")
+        void teleportFailureNoCooldown() {
+            when(friendService.getTeleporter()).thenReturn(new FriendTeleporter(friendService, null));
+            FriendCommand noServiceCommand = new FriendCommand(friendService);
             FriendshipData friendship = FriendshipData.builder()
                     .friendUuid(targetUuid.toString())
                     .friendName("TargetPlayer")
                     .build();
-            when(friendService.getFriends(playerUuid))
-                    .thenReturn(Collections.singletonList(friendship));
+            when(friendService.getConfig().isTpToFriendEnabled()).thenReturn(true);
+            when(friendService.findFriend(playerUuid, "TargetPlayer"))
+                    .thenReturn(FriendEntry.of(friendship));
+            when(friendService.canTeleport(playerUuid)).thenReturn(true);
+            when(player.teleport(any(Location.class))).thenReturn(false);
 
             try (MockedStatic<Bukkit> bukkitMock = mockStatic(Bukkit.class)) {
                 bukkitMock.when(() -> Bukkit.getPlayer(targetUuid))
                         .thenReturn(target);
 
-                command.sendMessage(player, "TargetPlayer", new String[]{"Hello", "World"});
-
-                // Target should receive the message
-                ArgumentCaptor<String> targetCaptor = ArgumentCaptor.forClass(String.class);
-                verify(target).sendMessage(targetCaptor.capture());
-                assertThat(targetCaptor.getValue()).contains("Hello World");
-                assertThat(targetCaptor.getValue()).contains("TestPlayer");
+                noServiceCommand.teleportToFriend(player, "TargetPlayer");
 
-                // Sender should receive confirmation
-                ArgumentCaptor<String> senderCaptor = ArgumentCaptor.forClass(String.class);
-                verify(player).sendMessage(senderCaptor.capture());
-                assertThat(senderCaptor.getValue()).contains("Hello World");
-                assertThat(senderCaptor.getValue()).contains("TargetPlayer");
+                verify(friendService, never()).setTpCooldown(any());
+                verify(player).sendMessage(contains("传送失败"));
             }
         }
+    }
+
+    // ==================== sendMessage ====================
+
+    @Nested
+    @DisplayName("sendMessage")
+    class SendMessageTests {
 
         @Test
-        @DisplayName("Should show error when messaging non-friend")
-        void sendMessageToNonFriend() {
-            when(friendService.getFriends(playerUuid))
-                    .thenReturn(new ArrayList<>());
+        @DisplayName("Should hand joined message to the service pipeline")
+        void sendMessageDelegates() {
+            command.sendMessage(player, "TargetPlayer", new String[]{"Hello", "World"});
 
-            command.sendMessage(player, "NonFriend", new String[]{"Hello"});
+            verify(friendService).sendPrivateMessage(player, "TargetPlayer", "Hello World");
+        }
+
+        @Test
+        @DisplayName("Should reject message when rate limited")
+        void sendMessageRateLimited() {
+            when(friendService.isRateLimited(player, RateLimiter.Action.MESSAGE)).thenReturn(true);
+
+            command.sendMessage(player, "TargetPlayer", new String[]{"Hello"});
+
+            verify(friendService, never()).sendPrivateMessage(any(), anyString(), anyString());
+        }
+    }
+
+    // ==================== reply ====================
+
+    @Nested
+    @DisplayName("reply")
+    class ReplyTests {
+
+        @Test
+        @DisplayName("Should hand reply to the service pipeline")
+        void replyDelegates() {
+            command.reply(player, new String[]{"See", "you"});
+
+            verify(friendService).replyPrivateMessage(player, "See you");
+        }
+
+        @Test
+        @DisplayName("Should reject reply when rate limited")
+        void replyRateLimited() {
+            when(friendService.isRateLimited(player, RateLimiter.Action.MESSAGE)).thenReturn(true);
+
+            command.reply(player, new String[]{"Hello"});
+
+            verify(friendService, never()).replyPrivateMessage(any(), anyString());
+        }
+    }
+
+    // ==================== group ====================
+
+    @Nested
+    @DisplayName("group")
+    class GroupTests {
+
+        private FriendshipData friendship;
+
+        @BeforeEach
+        void setUpGroups() {
+            friendship = FriendshipData.create(playerUuid, targetUuid, "TargetPlayer");
+            FriendGroupData guild = FriendGroupData.create(playerUuid, "Guild");
+            guild.setMembers(FriendGroupData.pack(Collections.singletonList(targetUuid)));
+            FriendGroups groups = FriendGroups.of(Collections.singletonList(guild),
+                    new FriendList(Collections.singletonList(friendship)));
+            lenient().when(friendService.getGroups(playerUuid)).thenReturn(groups);
+        }
+
+        @Test
+        @DisplayName("Should list groups with members and online count")
+        void list() {
+            command.listGroups(player);
+
+            verify(player).sendMessage(contains("好友分组 (1)"));
+            verify(player).sendMessage(argThat((String m) -> m.contains("Guild") && m.contains("0/1")
+                    && m.contains("TargetPlayer")));
+        }
+
+        @Test
+        @DisplayName("Should create a group")
+        void create() {
+            when(friendService.createGroup(playerUuid, "Family")).thenReturn(true);
+
+            command.createGroup(player, "Family");
+
+            verify(player).sendMessage(contains("已创建分组 Family"));
+        }
+
+        @Test
+        @DisplayName("Should reject a duplicate or overlong group name")
+        void createRejected() {
+            command.createGroup(player, "guild");
+            command.createGroup(player, "ThisNameIsFarTooLong");
+
+            verify(player).sendMessage(contains("已存在"));
+            verify(player).sendMessage(contains("不能超过"));
+            verify(friendService, never()).createGroup(any(), anyString());
+        }
+
+        @Test
+        @DisplayName("Should reject creation at the group limit")
+        void createAtLimit() {
+            when(config.getMaxGroups()).thenReturn(1);
+
+            command.createGroup(player, "Family");
+
+            verify(player).sendMessage(contains("上限"));
+            verify(friendService, never()).createGroup(any(), anyString());
+        }
+
+        @Test
+        @DisplayName("Should add a friend to a group")
+        void add() {
+            when(friendService.findFriend(playerUuid, "targetplayer")).thenReturn(FriendEntry.of(friendship));
+            when(friendService.addToGroup(playerUuid, "Guild", targetUuid)).thenReturn(true);
+
+            command.addToGroup(player, "Guild", "targetplayer");
+
+            verify(player).sendMessage(contains("已将 TargetPlayer 加入分组 Guild"));
+        }
+
+        @Test
+        @DisplayName("Should reject adding a non-friend")
+        void addNonFriend() {
+            command.addToGroup(player, "Guild", "Stranger");
 
             verify(player).sendMessage(contains("不是你的好友"));
+            verify(friendService, never()).addToGroup(any(), anyString(), any());
         }
 
         @Test
-        @DisplayName("Should show error when friend is offline")
-        void sendMessageToOfflineFriend() {
-            FriendshipData friendship = FriendshipData.builder()
-                    .friendUuid(targetUuid.toString())
-                    .friendName("TargetPlayer")
-                    .build();
-            when(friendService.getFriends(playerUuid))
-                    .thenReturn(Collections.singletonList(friendship));
+        @DisplayName("Should remove a friend from a group")
+        void remove() {
+            when(friendService.findFriend(playerUuid, "TargetPlayer")).thenReturn(FriendEntry.of(friendship));
+            when(friendService.removeFromGroup(playerUuid, "Guild", targetUuid)).thenReturn(true);
 
-            try (MockedStatic<Bukkit> bukkitMock = mockStatic(Bukkit.class)) {
-                bukkitMock.when(() -> Bukkit.getPlayer(targetUuid))
-                        .thenReturn(null);
+            command.removeFromGroup(player, "Guild", "TargetPlayer");
 
-                command.sendMessage(player, "TargetPlayer", new String[]{"Hello"});
+            verify(player).sendMessage(contains("移出分组 Guild"));
+        }
 
-                verify(player).sendMessage(contains("不在线"));
-            }
+        @Test
+        @DisplayName("Should report a missing group")
+        void missingGroup() {
+            command.deleteGroup(player, "Nope");
+            command.addToGroup(player, "Nope", "TargetPlayer");
+
+            verify(player, times(2)).sendMessage(contains("分组 Nope 不存在"));
         }
 
         @Test
-        @DisplayName("Should include private message prefix")
-        void sendMessageHasPrefix() {
-            FriendshipData friendship = FriendshipData.builder()
-                    .friendUuid(targetUuid.toString())
-                    .friendName("TargetPlayer")
-                    .build();
-            when(friendService.getFriends(playerUuid))
-                    .thenReturn(Collections.singletonList(friendship));
+        @DisplayName("Should hand group messages to the service pipeline")
+        void msg() {
+            command.sendGroupMessage(player, "Guild", new String[]{"Raid", "tonight"});
 
-            try (MockedStatic<Bukkit> bukkitMock = mockStatic(Bukkit.class)) {
-                bukkitMock.when(() -> Bukkit.getPlayer(targetUuid))
-                        .thenReturn(target);
+            verify(friendService).sendGroupMessage(player, "Guild", "Raid tonight");
+        }
 
-                command.sendMessage(player, "TargetPlayer", new String[]{"Test"});
+        @Test
+        @DisplayName("Should refuse group commands when groups are disabled")
+        void disabled() {
+            when(config.getMaxGroups()).thenReturn(0);
 
-                ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
-                verify(target).sendMessage(captor.capture());
-                assertThat(captor.getValue()).contains("[私聊]");
-            }
+            command.sendGroupMessage(player, "Guild", new String[]{"Hi"});
+            command.listGroups(player);
+
+            verify(player, times(2)).sendMessage(contains("已禁用"));
+            verify(friendService, never()).sendGroupMessage(any(), anyString(), anyString());
+        }
+
+        @Test
+        @DisplayName("Should suggest group names and members")
+        void tabComplete() {
+            org.bukkit.command.Command cmd = mock(org.bukkit.command.Command.class);
+
+            assertThat(command.onTabComplete(player, cmd, "friend", new String[]{"group", ""}))
+                    .contains("list", "create", "msg");
+            assertThat(command.onTabComplete(player, cmd, "friend", new String[]{"group", "msg", "g"}))
+                    .contains("Guild");
+            assertThat(command.onTabComplete(player, cmd, "friend", new String[]{"group", "remove", "Guild", ""}))
+                    .contains("TargetPlayer");
+        }
+    }
+
+    // ==================== admin stats ====================
+
+    @Nested
+    @DisplayName("adminStats")
+    class AdminStatsTests {
+
+        private SocialMetrics metrics;
+
+        @BeforeEach
+        void setUpMetrics() {
+            metrics = new SocialMetrics();
+            lenient().when(friendService.getMetrics()).thenReturn(metrics);
+        }
+
+        @Test
+        @DisplayName("Should reject players without admin permission")
+        void noPermission() {
+            when(player.hasPermission("ultisocial.admin")).thenReturn(false);
+
+            command.adminStats(player);
+
+            verify(player).sendMessage(contains("没有权限"));
+            verify(friendService, never()).getMetrics();
+        }
+
+        @Test
+        @DisplayName("Should show one line per recorded operation")
+        void showReport() {
+            metrics.record("getFriends", System.nanoTime());
+
+            command.adminStats(player);
+
+            verify(player).sendMessage(contains("getFriends: n=1"));
+        }
+
+        @Test
+        @DisplayName("Should say when nothing was recorded")
+        void showEmpty() {
+            command.adminStats(player);
+
+            verify(player).sendMessage(contains("暂无数据"));
+        }
+
+        @Test
+        @DisplayName("Should send the json dump")
+        void json() {
+            when(friendService.dumpMetrics()).thenReturn("{}");
+
+            command.adminStatsJson(player);
+
+            verify(player).sendMessage("{}");
+        }
+
+        @Test
+        @DisplayName("Should reset metrics")
+        void reset() {
+            metrics.record("getFriends", System.nanoTime());
+
+            command.adminStatsReset(player);
+
+            assertThat(metrics.report()).isEmpty();
+        }
+    }
+
+    @Nested
+    @DisplayName("admin import")
+    class AdminImportTests {
+
+        @Test
+        @DisplayName("Should reject players without admin permission")
+        void noPermission() {
+            when(player.hasPermission("ultisocial.admin")).thenReturn(false);
+
+            command.adminImport(player, "friends.csv");
+
+            verify(player).sendMessage(contains("没有权限"));
+            verify(friendService, never()).startImport(any(), any());
+        }
+
+        @Test
+        @DisplayName("Should report a missing file")
+        void missingFile() {
+            command.adminImport(player, "missing.csv");
+
+            verify(player).sendMessage(contains("找不到文件"));
+            verify(friendService, never()).startImport(any(), any());
+        }
+
+        @Test
+        @DisplayName("Should start the import and relay progress")
+        @SuppressWarnings("unchecked")
+        void start() {
+            File file = new File("friends.csv");
+            when(friendService.resolveImportFile("friends.csv")).thenReturn(file);
+            when(friendService.startImport(eq(file), any())).thenReturn(true);
+
+            command.adminImport(player, "friends.csv");
+
+            verify(player).sendMessage(contains("开始导入"));
+            ArgumentCaptor<Consumer<FriendshipImporter.Progress>> listener = ArgumentCaptor.forClass(Consumer.class);
+            verify(friendService).startImport(eq(file), listener.capture());
+            FriendshipImporter.Progress progress = mock(FriendshipImporter.Progress.class);
+            when(progress.isFinished()).thenReturn(true);
+            when(progress.getImported()).thenReturn(42L);
+            listener.getValue().accept(progress);
+            verify(player).sendMessage(contains("导入 42 对"));
+        }
+
+        @Test
+        @DisplayName("Should relay progress on the main thread")
+        @SuppressWarnings("unchecked")
+        void progressOnMainThread() {
+            List<Runnable> mainThread = new ArrayList<>();
+            FriendCommand deferred = new FriendCommand(friendService, mainThread::add);
+            File file = new File("friends.csv");
+            when(friendService.resolveImportFile("friends.csv")).thenReturn(file);
+            when(friendService.startImport(eq(file), any())).thenReturn(true);
+
+            deferred.adminImport(player, "friends.csv");
+            ArgumentCaptor<Consumer<FriendshipImporter.Progress>> listener = ArgumentCaptor.forClass(Consumer.class);
+            verify(friendService).startImport(eq(file), listener.capture());
+            FriendshipImporter.Progress progress = mock(FriendshipImporter.Progress.class);
+            when(progress.isFinished()).thenReturn(true);
+            when(progress.getImported()).thenReturn(42L);
+            listener.getValue().accept(progress);
+
+            verify(player, never()).sendMessage(contains("导入 42 对"));
+            assertThat(mainThread).hasSize(1);
+            mainThread.get(0).run();
+            verify(player).sendMessage(contains("导入 42 对"));
+        }
+
+        @Test
+        @DisplayName("Should refuse a second import")
+        void alreadyRunning() {
+            File file = new File("friends.csv");
+            when(friendService.resolveImportFile("friends.csv")).thenReturn(file);
+
+            command.adminImport(player, "friends.csv");
+
+            verify(player).sendMessage(contains("已有导入任务"));
+        }
+
+        @Test
+        @DisplayName("Should show status and cancel")
+        void statusAndCancel() {
+            command.adminImport(player, "status");
+            verify(player).sendMessage(contains("没有导入任务"));
+
+            when(friendService.cancelImport()).thenReturn(true);
+            command.adminImport(player, "cancel");
+            verify(player).sendMessage(contains("当前批次"));
+        }
+    }
+
+    @Nested
+    @DisplayName("admin export")
+    class AdminExportTests {
+
+        @Test
+        @DisplayName("Should reject players without admin permission")
+        void noPermission() {
+            when(player.hasPermission("ultisocial.admin")).thenReturn(false);
+
+            command.adminExport(player);
+
+            verify(friendService, never()).startExport(any(Consumer.class));
+        }
+
+        @Test
+        @DisplayName("Should start the export and report the result")
+        @SuppressWarnings("unchecked")
+        void start() {
+            when(friendService.startExport(any(Consumer.class))).thenReturn(true);
+
+            command.adminExport(player);
+
+            verify(player).sendMessage(contains("开始导出"));
+            ArgumentCaptor<Consumer<GraphExporter.Result>> listener = ArgumentCaptor.forClass(Consumer.class);
+            verify(friendService).startExport(listener.capture());
+            listener.getValue().accept(null);
+            verify(player).sendMessage(contains("导出失败"));
+        }
+
+        @Test
+        @DisplayName("Should refuse a second export")
+        void alreadyRunning() {
+            command.adminExport(player);
+
+            verify(player).sendMessage(contains("已有导出任务"));
+        }
+
+        @Test
+        @DisplayName("Should cancel a running export")
+        void cancel() {
+            when(friendService.cancelExport()).thenReturn(true);
+
+            command.adminExportCancel(player);
+
+            verify(player).sendMessage(contains("当前页"));
         }
     }
 
@@ -833,6 +1197,37 @@ class FriendCommandTest {
                     "tp", "msg", "requests", "block", "unblock", "blocklist", "help");
         }
 
+        @Test
+        @DisplayName("Should suggest search and leave admin to admins")
+        void suggestSearchAndAdmin() {
+            org.bukkit.command.Command cmd = mock(org.bukkit.command.Command.class);
+            when(player.hasPermission("ultisocial.admin")).thenReturn(false);
+
+            assertThat(command.onTabComplete(player, cmd, "friend", new String[]{""}))
+                    .contains("search").doesNotContain("admin");
+            assertThat(command.onTabComplete(player, cmd, "friend", new String[]{"admin", ""})).isEmpty();
+
+            when(player.hasPermission("ultisocial.admin")).thenReturn(true);
+            assertThat(command.onTabComplete(player, cmd, "friend", new String[]{"a"}))
+                    .contains("admin", "add", "accept");
+        }
+
+        @Test
+        @DisplayName("Should suggest admin subcommands and their options")
+        void suggestAdminSubcommands() {
+            org.bukkit.command.Command cmd = mock(org.bukkit.command.Command.class);
+            when(player.hasPermission("ultisocial.admin")).thenReturn(true);
+
+            assertThat(command.onTabComplete(player, cmd, "friend", new String[]{"admin", ""}))
+                    .containsExactly("stats", "import", "export");
+            assertThat(command.onTabComplete(player, cmd, "friend", new String[]{"admin", "stats", ""}))
+                    .containsExactly("json", "reset");
+            assertThat(command.onTabComplete(player, cmd, "friend", new String[]{"admin", "import", "s"}))
+                    .containsExactly("status");
+            assertThat(command.onTabComplete(player, cmd, "friend", new String[]{"admin", "export", ""}))
+                    .containsExactly("cancel");
+        }
+
         @Test
         @DisplayName("Should filter subcommands by prefix")
         void filterSubcommandsByPrefix() {
@@ -61,6 +61,101 @@ class SocialConfigTest {
             assertThat(config.getTpCooldown()).isEqualTo(30);
         }
 
+        @Test
+        @DisplayName("Should teleport without warmup by default")
+        void tpWarmup() {
+            SocialConfig config = createRealConfig();
+            assertThat(config.getTpWarmup()).isZero();
+        }
+
+        @Test
+        @DisplayName("Should have rate limiting enabled by default")
+        void rateLimitEnabled() {
+            SocialConfig config = createRealConfig();
+            assertThat(config.isRateLimitEnabled()).isTrue();
+            assertThat(config.getRequestBurst()).isEqualTo(3);
+            assertThat(config.getRequestsPerMinute()).isEqualTo(6);
+            assertThat(config.getMessageBurst()).isEqualTo(5);
+            assertThat(config.getMessagesPerMinute()).isEqualTo(30);
+            assertThat(config.getModifyBurst()).isEqualTo(5);
+            assertThat(config.getModifiesPerMinute()).isEqualTo(30);
+        }
+
+        @Test
+        @DisplayName("Should have offline mailbox enabled by default")
+        void mailbox() {
+            SocialConfig config = createRealConfig();
+            assertThat(config.isMailboxEnabled()).isTrue();
+            assertThat(config.getMailboxMaxMessages()).isEqualTo(50);
+            assertThat(config.getMailboxExpireDays()).isEqualTo(7);
+        }
+
+        @Test
+        @DisplayName("Should hide chat from blockers by default")
+        void hideBlockedChat() {
+            SocialConfig config = createRealConfig();
+            assertThat(config.isHideBlockedChat()).isTrue();
+        }
+
+        @Test
+        @DisplayName("Should allow ten friend groups by default")
+        void groups() {
+            SocialConfig config = createRealConfig();
+            assertThat(config.getMaxGroups()).isEqualTo(10);
+        }
+
+        @Test
+        @DisplayName("Should write a graph snapshot every 30 minutes by default")
+        void snapshot() {
+            SocialConfig config = createRealConfig();
+            assertThat(config.isSnapshotEnabled()).isTrue();
+            assertThat(config.getSnapshotIntervalMinutes()).isEqualTo(30);
+        }
+
+        @Test
+        @DisplayName("Should defer social work within a 2ms tick budget by default")
+        void tickBudget() {
+            SocialConfig config = createRealConfig();
+            assertThat(config.getTickBudgetMillis()).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("Should log queries slower than 50ms by default")
+        void slowQueryThreshold() {
+            SocialConfig config = createRealConfig();
+            assertThat(config.getSlowQueryMillis()).isEqualTo(50);
+        }
+
+        @Test
+        @DisplayName("Should use database storage backend by default")
+        void storageBackend() {
+            SocialConfig config = createRealConfig();
+            assertThat(config.getStorageBackend()).isEqualTo("database");
+        }
+
+        @Test
+        @DisplayName("Should pick the write-ahead log by backend by default")
+        void walMode() {
+            SocialConfig config = createRealConfig();
+            assertThat(config.getWalMode()).isEqualTo("auto");
+        }
+
+        @Test
+        @DisplayName("Should import in batches of 1000 by default")
+        void importBatchSize() {
+            SocialConfig config = createRealConfig();
+            assertThat(config.getImportBatchSize()).isEqualTo(1000);
+        }
+
+        @Test
+        @DisplayName("Should keep nightly export off by default")
+        void exportDefaults() {
+            SocialConfig config = createRealConfig();
+            assertThat(config.isExportEnabled()).isFalse();
+            assertThat(config.getExportHour()).isEqualTo(4);
+            assertThat(config.getExportRowsPerSecond()).isEqualTo(5000);
+        }
+
         @Test
         @DisplayName("Should have default GUI title")
         void guiTitle() {
@@ -96,6 +191,13 @@ class SocialConfigTest {
             assertThat(config.getFriendOfflineMessage()).isEqualTo("&7你的好友 {PLAYER} 下线了");
         }
 
+        @Test
+        @DisplayName("Should have default friend join world message")
+        void friendJoinWorldMessage() {
+            SocialConfig config = createRealConfig();
+            assertThat(config.getFriendJoinWorldMessage()).isEqualTo("&b你的好友 {PLAYER} 来到了你所在的世界 {WORLD}");
+        }
+
         @Test
         @DisplayName("Should have default blocked message")
         void blockedMessage() {
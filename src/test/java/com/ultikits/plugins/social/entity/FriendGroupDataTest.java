@@ -0,0 +1,44 @@
+package com.ultikits.plugins.social.entity;
+
+import org.junit.jupiter.api.*;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("FriendGroupData Entity Tests")
+class FriendGroupDataTest {
+
+    @Test
+    @DisplayName("Should create an empty group")
+    void create() {
+        UUID owner = UUID.randomUUID();
+        FriendGroupData data = FriendGroupData.create(owner, "Guild");
+
+        assertThat(data.getPlayerUuid()).isEqualTo(owner.toString());
+        assertThat(data.getGroupName()).isEqualTo("Guild");
+        assertThat(FriendGroupData.unpack(data.getMembers())).isEmpty();
+        assertThat(data.getCreatedTime()).isPositive();
+    }
+
+    @Test
+    @DisplayName("Should pack and unpack member UUIDs")
+    void packRoundTrip() {
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+
+        String packed = FriendGroupData.pack(Arrays.asList(a, b));
+
+        assertThat(FriendGroupData.unpack(packed)).containsExactly(a, b);
+    }
+
+    @Test
+    @DisplayName("Should skip malformed members")
+    void unpackMalformed() {
+        UUID a = UUID.randomUUID();
+
+        assertThat(FriendGroupData.unpack("junk," + a)).containsExactly(a);
+        assertThat(FriendGroupData.unpack(null)).isEmpty();
+    }
+}
@@ -0,0 +1,23 @@
+package com.ultikits.plugins.social.entity;
+
+import org.junit.jupiter.api.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("LastSeenData Entity Tests")
+class LastSeenDataTest {
+
+    @Test
+    @DisplayName("Should build with all fields")
+    void builder() {
+        LastSeenData data = LastSeenData.builder()
+                .playerUuid("uuid")
+                .lastSeen(42L)
+                .playerName("Steve")
+                .build();
+
+        assertThat(data.getPlayerUuid()).isEqualTo("uuid");
+        assertThat(data.getLastSeen()).isEqualTo(42L);
+        assertThat(data.getPlayerName()).isEqualTo("Steve");
+    }
+}
@@ -0,0 +1,23 @@
+package com.ultikits.plugins.social.entity;
+
+import org.junit.jupiter.api.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("MailboxData Entity Tests")
+class MailboxDataTest {
+
+    @Test
+    @DisplayName("Should build with all fields")
+    void builder() {
+        MailboxData data = MailboxData.builder()
+                .recipientUuid("uuid")
+                .payload("payload")
+                .updatedTime(42L)
+                .build();
+
+        assertThat(data.getRecipientUuid()).isEqualTo("uuid");
+        assertThat(data.getPayload()).isEqualTo("payload");
+        assertThat(data.getUpdatedTime()).isEqualTo(42L);
+    }
+}
@@ -0,0 +1,85 @@
+package com.ultikits.plugins.social.entity;
+
+import org.junit.jupiter.api.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("OfflineMessage Entity Tests")
+class OfflineMessageTest {
+
+    @Nested
+    @DisplayName("Factory Method")
+    class FactoryMethod {
+
+        @Test
+        @DisplayName("Should create message with current timestamp")
+        void create() {
+            UUID sender = UUID.randomUUID();
+            long before = System.currentTimeMillis();
+
+            OfflineMessage message = OfflineMessage.create(sender, "Sender", "Hi");
+
+            assertThat(message.getSender()).isEqualTo(sender);
+            assertThat(message.getSenderName()).isEqualTo("Sender");
+            assertThat(message.getContent()).isEqualTo("Hi");
+            assertThat(message.getTimestamp()).isBetween(before, System.currentTimeMillis());
+        }
+
+        @Test
+        @DisplayName("Should expire after max age")
+        void expired() {
+            OfflineMessage message = new OfflineMessage(UUID.randomUUID(), "Sender", "Hi",
+                    System.currentTimeMillis() - 10_000);
+
+            assertThat(message.isExpired(5_000)).isTrue();
+            assertThat(message.isExpired(60_000)).isFalse();
+        }
+    }
+
+    @Nested
+    @DisplayName("Packing")
+    class Packing {
+
+        @Test
+        @DisplayName("Should round-trip messages")
+        void roundTrip() {
+            List<OfflineMessage> messages = Arrays.asList(
+                    new OfflineMessage(UUID.randomUUID(), "Alice", "hello there", 1000L),
+                    new OfflineMessage(UUID.randomUUID(), "Bob", "", 2000L));
+
+            List<OfflineMessage> unpacked = OfflineMessage.unpack(OfflineMessage.pack(messages));
+
+            assertThat(unpacked).containsExactlyElementsOf(messages);
+        }
+
+        @Test
+        @DisplayName("Should strip separator characters from content")
+        void stripSeparators() {
+            OfflineMessage message = new OfflineMessage(UUID.randomUUID(), "Alice", "a\u001Eb\u001Fc", 1000L);
+
+            List<OfflineMessage> unpacked = OfflineMessage.unpack(OfflineMessage.pack(Arrays.asList(message)));
+
+            assertThat(unpacked).hasSize(1);
+            assertThat(unpacked.get(0).getContent()).isEqualTo("a b c");
+        }
+
+        @Test
+        @DisplayName("Should return empty list for empty payload")
+        void emptyPayload() {
+            assertThat(OfflineMessage.unpack(null)).isEmpty();
+            assertThat(OfflineMessage.unpack("")).isEmpty();
+        }
+
+        @Test
+        @DisplayName("Should skip malformed records")
+        void skipMalformed() {
+            String payload = "oops\u001E1000\u001F" + UUID.randomUUID() + "\u001FAlice\u001Fhi";
+
+            assertThat(OfflineMessage.unpack(payload)).hasSize(1);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.ultikits.plugins.social.UltiSocialTestHelper;
 import com.ultikits.plugins.social.config.SocialConfig;
 import com.ultikits.plugins.social.entity.BlacklistData;
 import com.ultikits.plugins.social.service.FriendService;
+import com.ultikits.plugins.social.service.OpenGuiRegistry;
 
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
@@ -38,6 +39,7 @@ class BlockListGUITest {
         friendService = mock(FriendService.class);
         config = UltiSocialTestHelper.createDefaultConfig();
         when(friendService.getConfig()).thenReturn(config);
+        when(friendService.getOpenGuis()).thenReturn(new OpenGuiRegistry());
 
         viewerUuid = UUID.randomUUID();
         viewer = UltiSocialTestHelper.createMockPlayer("Viewer", viewerUuid);
@@ -53,6 +55,15 @@ class BlockListGUITest {
         UltiSocialTestHelper.tearDown();
     }
 
+    private void stubBlacklist(List<BlacklistData> blacklist) {
+        when(friendService.getBlacklistCount(viewerUuid)).thenReturn(blacklist.size());
+        when(friendService.getBlacklistPage(eq(viewerUuid), anyInt(), anyInt())).thenAnswer(inv -> {
+            int from = Math.min(inv.<Integer>getArgument(1), blacklist.size());
+            int to = Math.min(from + inv.<Integer>getArgument(2), blacklist.size());
+            return new ArrayList<>(blacklist.subList(from, to));
+        });
+    }
+
     // ==================== Constructor ====================
 
     @Nested
@@ -62,7 +73,7 @@ class BlockListGUITest {
         @Test
         @DisplayName("Should create GUI with empty blocklist")
         void createWithEmptyList() {
-            when(friendService.getBlacklist(viewerUuid)).thenReturn(new ArrayList<>());
+            stubBlacklist(new ArrayList<>());
 
             try (MockedConstruction<ItemStack> itemMock = mockConstruction(ItemStack.class,
                     (mock, context) -> {
@@ -91,8 +102,7 @@ class BlockListGUITest {
                     .reason("Spamming")
                     .build();
 
-            when(friendService.getBlacklist(viewerUuid)).thenReturn(
-                    new ArrayList<>(Collections.singletonList(blocked)));
+            stubBlacklist(new ArrayList<>(Collections.singletonList(blocked)));
 
             try (MockedConstruction<ItemStack> itemMock = mockConstruction(ItemStack.class,
                     (mock, context) -> {
@@ -119,8 +129,7 @@ class BlockListGUITest {
                     .reason(null)
                     .build();
 
-            when(friendService.getBlacklist(viewerUuid)).thenReturn(
-                    new ArrayList<>(Collections.singletonList(blocked)));
+            stubBlacklist(new ArrayList<>(Collections.singletonList(blocked)));
 
             try (MockedConstruction<ItemStack> itemMock = mockConstruction(ItemStack.class,
                     (mock, context) -> {
@@ -146,8 +155,7 @@ class BlockListGUITest {
                     .reason("")
                     .build();
 
-            when(friendService.getBlacklist(viewerUuid)).thenReturn(
-                    new ArrayList<>(Collections.singletonList(blocked)));
+            stubBlacklist(new ArrayList<>(Collections.singletonList(blocked)));
 
             try (MockedConstruction<ItemStack> itemMock = mockConstruction(ItemStack.class,
                     (mock, context) -> {
@@ -179,8 +187,7 @@ class BlockListGUITest {
                     .createdTime(System.currentTimeMillis())
                     .build();
 
-            when(friendService.getBlacklist(viewerUuid)).thenReturn(
-                    new ArrayList<>(Collections.singletonList(blocked)));
+            stubBlacklist(new ArrayList<>(Collections.singletonList(blocked)));
 
             try (MockedConstruction<ItemStack> itemMock = mockConstruction(ItemStack.class,
                     (mock, context) -> {
@@ -199,7 +206,7 @@ class BlockListGUITest {
         @Test
         @DisplayName("Should return null for negative slot")
         void returnNullForNegativeSlot() {
-            when(friendService.getBlacklist(viewerUuid)).thenReturn(new ArrayList<>());
+            stubBlacklist(new ArrayList<>());
 
             try (MockedConstruction<ItemStack> itemMock = mockConstruction(ItemStack.class,
                     (mock, context) -> {
@@ -216,7 +223,7 @@ class BlockListGUITest {
         @Test
         @DisplayName("Should return null for slot >= ITEMS_PER_PAGE")
         void returnNullForSlotBeyondPage() {
-            when(friendService.getBlacklist(viewerUuid)).thenReturn(new ArrayList<>());
+            stubBlacklist(new ArrayList<>());
 
             try (MockedConstruction<ItemStack> itemMock = mockConstruction(ItemStack.class,
                     (mock, context) -> {
@@ -240,8 +247,7 @@ class BlockListGUITest {
                     .createdTime(System.currentTimeMillis())
                     .build();
 
-            when(friendService.getBlacklist(viewerUuid)).thenReturn(
-                    new ArrayList<>(Collections.singletonList(blocked)));
+            stubBlacklist(new ArrayList<>(Collections.singletonList(blocked)));
 
             try (MockedConstruction<ItemStack> itemMock = mockConstruction(ItemStack.class,
                     (mock, context) -> {
@@ -265,7 +271,7 @@ class BlockListGUITest {
         @Test
         @DisplayName("nextPage should not advance when on last page")
         void nextPageOnLastPage() {
-            when(friendService.getBlacklist(viewerUuid)).thenReturn(new ArrayList<>());
+            stubBlacklist(new ArrayList<>());
 
             try (MockedConstruction<ItemStack> itemMock = mockConstruction(ItemStack.class,
                     (mock, context) -> {
@@ -285,7 +291,7 @@ class BlockListGUITest {
         @Test
         @DisplayName("previousPage should not go below page 0")
         void previousPageBelowZero() {
-            when(friendService.getBlacklist(viewerUuid)).thenReturn(new ArrayList<>());
+            stubBlacklist(new ArrayList<>());
 
             try (MockedConstruction<ItemStack> itemMock = mockConstruction(ItemStack.class,
                     (mock, context) -> {
@@ -314,7 +320,7 @@ class BlockListGUITest {
                         .build());
             }
 
-            when(friendService.getBlacklist(viewerUuid)).thenReturn(manyBlocked);
+            stubBlacklist(manyBlocked);
 
             try (MockedConstruction<ItemStack> itemMock = mockConstruction(ItemStack.class,
                     (mock, context) -> {
@@ -331,6 +337,38 @@ class BlockListGUITest {
                 verify(mockInventory, times(3)).clear();
             }
         }
+
+        @Test
+        @DisplayName("Should request only the visible page and prefetch the next")
+        void loadPagesOnDemand() {
+            List<BlacklistData> manyBlocked = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                manyBlocked.add(BlacklistData.builder()
+                        .playerUuid(viewerUuid.toString())
+                        .blockedUuid(UUID.randomUUID().toString())
+                        .blockedName("Blocked" + i)
+                        .createdTime(System.currentTimeMillis())
+                        .build());
+            }
+            stubBlacklist(manyBlocked);
+
+            try (MockedConstruction<ItemStack> itemMock = mockConstruction(ItemStack.class,
+                    (mock, context) -> {
+                        SkullMeta skullMeta = mock(SkullMeta.class);
+                        when(mock.getItemMeta()).thenReturn(skullMeta);
+                    })) {
+
+                BlockListGUI gui = new BlockListGUI(friendService, viewer);
+                verify(friendService).getBlacklistPage(viewerUuid, 0, 45);
+                verify(friendService).getBlacklistPage(viewerUuid, 45, 45);
+
+                gui.nextPage();
+                assertThat(gui.getBlockedUserAtSlot(0).getBlockedName()).isEqualTo("Blocked45");
+                verify(friendService).getBlacklistPage(viewerUuid, 90, 45);
+                verify(friendService, times(1)).getBlacklistPage(viewerUuid, 45, 45);
+                verify(friendService, never()).getBlacklist(any());
+            }
+        }
     }
 
     // ==================== Refresh ====================
@@ -342,7 +380,7 @@ class BlockListGUITest {
         @Test
         @DisplayName("Should refresh blacklist")
         void refreshBlacklist() {
-            when(friendService.getBlacklist(viewerUuid)).thenReturn(new ArrayList<>());
+            stubBlacklist(new ArrayList<>());
 
             try (MockedConstruction<ItemStack> itemMock = mockConstruction(ItemStack.class,
                     (mock, context) -> {
@@ -355,7 +393,54 @@ class BlockListGUITest {
                 gui.refresh();
 
                 verify(friendService).clearCache(viewerUuid);
-                verify(friendService, times(2)).getBlacklist(viewerUuid);
+                verify(friendService, times(2)).getBlacklistCount(viewerUuid);
+                verify(friendService, times(2)).getBlacklistPage(viewerUuid, 0, 45);
+            }
+        }
+    }
+
+    // ==================== Live updates ====================
+
+    @Nested
+    @DisplayName("Live updates")
+    class LiveUpdates {
+
+        @Test
+        @DisplayName("Should redraw the slot of a blocked player who joined")
+        void redrawOnPresence() {
+            OpenGuiRegistry openGuis = new OpenGuiRegistry();
+            when(friendService.getOpenGuis()).thenReturn(openGuis);
+            UUID first = UUID.randomUUID();
+            UUID second = UUID.randomUUID();
+            List<BlacklistData> blacklist = new ArrayList<>();
+            for (UUID uuid : Arrays.asList(first, second)) {
+                blacklist.add(BlacklistData.builder()
+                        .playerUuid(viewerUuid.toString())
+                        .blockedUuid(uuid.toString())
+                        .blockedName("Blocked")
+                        .createdTime(System.currentTimeMillis())
+                        .build());
+            }
+            stubBlacklist(blacklist);
+
+            try (MockedConstruction<ItemStack> itemMock = mockConstruction(ItemStack.class,
+                    (mock, context) -> {
+                        SkullMeta skullMeta = mock(SkullMeta.class);
+                        when(mock.getItemMeta()).thenReturn(skullMeta);
+                    })) {
+
+                BlockListGUI gui = new BlockListGUI(friendService, viewer);
+                clearInvocations(mockInventory);
+
+                openGuis.markChanged(second);
+                openGuis.flush();
+
+                verify(mockInventory).setItem(eq(1), any());
+                verify(mockInventory, never()).setItem(eq(0), any());
+                verify(mockInventory, never()).clear();
+
+                openGuis.untrack(gui);
+                assertThat(openGuis.markChanged(second)).isZero();
             }
         }
     }
@@ -369,7 +454,7 @@ class BlockListGUITest {
         @Test
         @DisplayName("Should format timestamp with time")
         void formatTimestamp() throws Exception {
-            when(friendService.getBlacklist(viewerUuid)).thenReturn(new ArrayList<>());
+            stubBlacklist(new ArrayList<>());
 
             try (MockedConstruction<ItemStack> itemMock = mockConstruction(ItemStack.class,
                     (mock, context) -> {
@@ -2,9 +2,15 @@ package com.ultikits.plugins.social.gui;
 
 import com.ultikits.plugins.social.UltiSocialTestHelper;
 import com.ultikits.plugins.social.config.SocialConfig;
+import com.ultikits.plugins.social.entity.FriendGroupData;
 import com.ultikits.plugins.social.entity.FriendRequest;
 import com.ultikits.plugins.social.entity.FriendshipData;
+import com.ultikits.plugins.social.service.FriendEntry;
+import com.ultikits.plugins.social.service.FriendGroups;
+import com.ultikits.plugins.social.service.FriendList;
 import com.ultikits.plugins.social.service.FriendService;
+import com.ultikits.plugins.social.service.FriendView;
+import com.ultikits.plugins.social.service.OpenGuiRegistry;
 
 import org.bukkit.Bukkit;
 import org.bukkit.GameMode;
@@ -44,6 +50,7 @@ class FriendListGUITest {
         friendService = mock(FriendService.class);
         config = UltiSocialTestHelper.createDefaultConfig();
         when(friendService.getConfig()).thenReturn(config);
+        when(friendService.getOpenGuis()).thenReturn(new OpenGuiRegistry());
 
         viewerUuid = UUID.randomUUID();
         viewer = UltiSocialTestHelper.createMockPlayer("Viewer", viewerUuid);
@@ -59,6 +66,13 @@ class FriendListGUITest {
         UltiSocialTestHelper.tearDown();
     }
 
+    private void stubFriends(List<FriendshipData> friends) {
+        FriendList list = new FriendList(friends);
+        when(friendService.getFriendCount(viewerUuid)).thenReturn(list.size());
+        when(friendService.getFriendsPage(eq(viewerUuid), any(), anyInt()))
+                .thenAnswer(inv -> list.page(inv.getArgument(1), inv.<Integer>getArgument(2)));
+    }
+
     // ==================== Constructor ====================
 
     @Nested
@@ -68,7 +82,7 @@ class FriendListGUITest {
         @Test
         @DisplayName("Should create GUI with empty friends list")
         void createWithEmptyList() {
-            when(friendService.getFriends(viewerUuid)).thenReturn(new ArrayList<>());
+            stubFriends(new ArrayList<>());
             when(friendService.getPendingRequests(viewerUuid)).thenReturn(new ArrayList<>());
 
             try (MockedConstruction<ItemStack> itemMock = mockConstruction(ItemStack.class,
@@ -95,8 +109,7 @@ class FriendListGUITest {
                     .createdTime(System.currentTimeMillis())
                     .build();
 
-            when(friendService.getFriends(viewerUuid)).thenReturn(
-                    new ArrayList<>(Collections.singletonList(friend)));
+            stubFriends(new ArrayList<>(Collections.singletonList(friend)));
             when(friendService.getPendingRequests(viewerUuid)).thenReturn(new ArrayList<>());
             when(UltiSocialTestHelper.getMockServer().getPlayer(friendUuid)).thenReturn(null);
 
@@ -128,8 +141,7 @@ class FriendListGUITest {
                     .createdTime(System.currentTimeMillis())
                     .build();
 
-            when(friendService.getFriends(viewerUuid)).thenReturn(
-                    new ArrayList<>(Collections.singletonList(friend)));
+            stubFriends(new ArrayList<>(Collections.singletonList(friend)));
             when(friendService.getPendingRequests(viewerUuid)).thenReturn(new ArrayList<>());
             when(UltiSocialTestHelper.getMockServer().getPlayer(friendUuid)).thenReturn(onlineFriend);
 
@@ -156,8 +168,7 @@ class FriendListGUITest {
                     .createdTime(System.currentTimeMillis())
                     .build();
 
-            when(friendService.getFriends(viewerUuid)).thenReturn(
-                    new ArrayList<>(Collections.singletonList(friend)));
+            stubFriends(new ArrayList<>(Collections.singletonList(friend)));
             when(friendService.getPendingRequests(viewerUuid)).thenReturn(new ArrayList<>());
             when(UltiSocialTestHelper.getMockServer().getPlayer(friendUuid)).thenReturn(null);
 
@@ -185,8 +196,7 @@ class FriendListGUITest {
                     .createdTime(System.currentTimeMillis())
                     .build();
 
-            when(friendService.getFriends(viewerUuid)).thenReturn(
-                    new ArrayList<>(Collections.singletonList(friend)));
+            stubFriends(new ArrayList<>(Collections.singletonList(friend)));
             when(friendService.getPendingRequests(viewerUuid)).thenReturn(new ArrayList<>());
             when(UltiSocialTestHelper.getMockServer().getPlayer(friendUuid)).thenReturn(null);
 
@@ -205,7 +215,7 @@ class FriendListGUITest {
         @Test
         @DisplayName("Should show pending requests button when requests exist")
         void showPendingRequestsButton() {
-            when(friendService.getFriends(viewerUuid)).thenReturn(new ArrayList<>());
+            stubFriends(new ArrayList<>());
             FriendRequest request = FriendRequest.create(UUID.randomUUID(), "Requester", viewerUuid);
             when(friendService.getPendingRequests(viewerUuid))
                     .thenReturn(Collections.singletonList(request));
@@ -237,8 +247,7 @@ class FriendListGUITest {
                     .createdTime(System.currentTimeMillis())
                     .build();
 
-            when(friendService.getFriends(viewerUuid)).thenReturn(
-                    new ArrayList<>(Collections.singletonList(friend)));
+            stubFriends(new ArrayList<>(Collections.singletonList(friend)));
             when(friendService.getPendingRequests(viewerUuid)).thenReturn(new ArrayList<>());
             when(UltiSocialTestHelper.getMockServer().getPlayer(friendUuid)).thenReturn(onlineFriend);
             when(config.isTpToFriendEnabled()).thenReturn(false);
@@ -273,8 +282,7 @@ class FriendListGUITest {
                     .createdTime(System.currentTimeMillis())
                     .build();
 
-            when(friendService.getFriends(viewerUuid)).thenReturn(
-                    new ArrayList<>(Collections.singletonList(friend)));
+            stubFriends(new ArrayList<>(Collections.singletonList(friend)));
             when(friendService.getPendingRequests(viewerUuid)).thenReturn(new ArrayList<>());
 
             try (MockedConstruction<ItemStack> itemMock = mockConstruction(ItemStack.class,
@@ -294,7 +302,7 @@ class FriendListGUITest {
         @Test
         @DisplayName("Should return null for negative slot")
         void returnNullForNegativeSlot() {
-            when(friendService.getFriends(viewerUuid)).thenReturn(new ArrayList<>());
+            stubFriends(new ArrayList<>());
             when(friendService.getPendingRequests(viewerUuid)).thenReturn(new ArrayList<>());
 
             try (MockedConstruction<ItemStack> itemMock = mockConstruction(ItemStack.class,
@@ -312,7 +320,7 @@ class FriendListGUITest {
         @Test
         @DisplayName("Should return null for slot beyond items per page")
         void returnNullForSlotBeyondPage() {
-            when(friendService.getFriends(viewerUuid)).thenReturn(new ArrayList<>());
+            stubFriends(new ArrayList<>());
             when(friendService.getPendingRequests(viewerUuid)).thenReturn(new ArrayList<>());
 
             try (MockedConstruction<ItemStack> itemMock = mockConstruction(ItemStack.class,
@@ -337,8 +345,7 @@ class FriendListGUITest {
                     .createdTime(System.currentTimeMillis())
                     .build();
 
-            when(friendService.getFriends(viewerUuid)).thenReturn(
-                    new ArrayList<>(Collections.singletonList(friend)));
+            stubFriends(new ArrayList<>(Collections.singletonList(friend)));
             when(friendService.getPendingRequests(viewerUuid)).thenReturn(new ArrayList<>());
 
             try (MockedConstruction<ItemStack> itemMock = mockConstruction(ItemStack.class,
@@ -364,7 +371,7 @@ class FriendListGUITest {
         @Test
         @DisplayName("nextPage should not advance beyond last page")
         void nextPageBeyondLast() {
-            when(friendService.getFriends(viewerUuid)).thenReturn(new ArrayList<>());
+            stubFriends(new ArrayList<>());
             when(friendService.getPendingRequests(viewerUuid)).thenReturn(new ArrayList<>());
 
             try (MockedConstruction<ItemStack> itemMock = mockConstruction(ItemStack.class,
@@ -386,7 +393,7 @@ class FriendListGUITest {
         @Test
         @DisplayName("previousPage should not go below page 0")
         void previousPageBelowZero() {
-            when(friendService.getFriends(viewerUuid)).thenReturn(new ArrayList<>());
+            stubFriends(new ArrayList<>());
             when(friendService.getPendingRequests(viewerUuid)).thenReturn(new ArrayList<>());
 
             try (MockedConstruction<ItemStack> itemMock = mockConstruction(ItemStack.class,
@@ -421,7 +428,7 @@ class FriendListGUITest {
                 when(UltiSocialTestHelper.getMockServer().getPlayer(friendUuid)).thenReturn(null);
             }
 
-            when(friendService.getFriends(viewerUuid)).thenReturn(manyFriends);
+            stubFriends(manyFriends);
             when(friendService.getPendingRequests(viewerUuid)).thenReturn(new ArrayList<>());
 
             try (MockedConstruction<ItemStack> itemMock = mockConstruction(ItemStack.class,
@@ -442,6 +449,198 @@ class FriendListGUITest {
                 verify(mockInventory, times(3)).clear();
             }
         }
+
+        @Test
+        @DisplayName("Should request only the visible page and prefetch the next")
+        void loadPagesOnDemand() {
+            List<FriendshipData> manyFriends = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                manyFriends.add(FriendshipData.builder()
+                        .friendUuid(UUID.randomUUID().toString())
+                        .friendName(String.format("Friend%03d", i))
+                        .createdTime(System.currentTimeMillis())
+                        .build());
+            }
+            stubFriends(manyFriends);
+            when(friendService.getPendingRequests(viewerUuid)).thenReturn(new ArrayList<>());
+
+            try (MockedConstruction<ItemStack> itemMock = mockConstruction(ItemStack.class,
+                    (mock, context) -> {
+                        SkullMeta skullMeta = mock(SkullMeta.class);
+                        when(mock.getItemMeta()).thenReturn(skullMeta);
+                    })) {
+
+                FriendListGUI gui = new FriendListGUI(friendService, viewer);
+                verify(friendService, times(2)).getFriendsPage(eq(viewerUuid), any(), eq(45));
+
+                gui.nextPage();
+                assertThat(gui.getFriendAtSlot(0).getFriendName()).isEqualTo("Friend045");
+                verify(friendService, times(3)).getFriendsPage(eq(viewerUuid), any(), eq(45));
+
+                gui.nextPage();
+                assertThat(gui.getFriendAtSlot(9).getFriendName()).isEqualTo("Friend099");
+                assertThat(gui.getFriendAtSlot(10)).isNull();
+
+                gui.previousPage();
+                assertThat(gui.getFriendAtSlot(0).getFriendName()).isEqualTo("Friend045");
+                verify(friendService, never()).getFriends(any());
+            }
+        }
+    }
+
+    // ==================== Views ====================
+
+    @Nested
+    @DisplayName("Views")
+    class Views {
+
+        private List<FriendshipData> friends(int count) {
+            List<FriendshipData> result = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                result.add(FriendshipData.builder()
+                        .friendUuid(UUID.randomUUID().toString())
+                        .friendName(String.format("Friend%03d", i))
+                        .createdTime(i)
+                        .build());
+            }
+            return result;
+        }
+
+        private List<FriendEntry> entries(List<FriendshipData> friends) {
+            List<FriendEntry> result = new ArrayList<>();
+            for (FriendshipData friend : friends) {
+                result.add(FriendEntry.of(friend));
+            }
+            return result;
+        }
+
+        @Test
+        @DisplayName("Should open on a search view without loading the default pages")
+        void openWithSearch() {
+            List<FriendshipData> matches = friends(3);
+            FriendView search = FriendView.DEFAULT.withSearch("Friend");
+            when(friendService.getFriendsView(viewer, search)).thenReturn(entries(matches));
+            when(friendService.getPendingRequests(viewerUuid)).thenReturn(new ArrayList<>());
+
+            try (MockedConstruction<ItemStack> itemMock = mockConstruction(ItemStack.class,
+                    (mock, context) -> {
+                        SkullMeta skullMeta = mock(SkullMeta.class);
+                        when(mock.getItemMeta()).thenReturn(skullMeta);
+                    })) {
+
+                FriendListGUI gui = new FriendListGUI(friendService, viewer, search);
+
+                assertThat(gui.getView()).isSameAs(search);
+                assertThat(gui.getFriendAtSlot(2)).isSameAs(matches.get(2));
+                assertThat(gui.getFriendAtSlot(3)).isNull();
+                verify(friendService, never()).getFriendsPage(any(), any(), anyInt());
+            }
+        }
+
+        @Test
+        @DisplayName("Should page a view by offset and compute it once")
+        void pageView() {
+            List<FriendshipData> all = friends(60);
+            stubFriends(all);
+            when(friendService.getFriendsView(eq(viewer), any())).thenReturn(entries(all));
+            when(friendService.getPendingRequests(viewerUuid)).thenReturn(new ArrayList<>());
+
+            try (MockedConstruction<ItemStack> itemMock = mockConstruction(ItemStack.class,
+                    (mock, context) -> {
+                        SkullMeta skullMeta = mock(SkullMeta.class);
+                        when(mock.getItemMeta()).thenReturn(skullMeta);
+                    })) {
+
+                FriendListGUI gui = new FriendListGUI(friendService, viewer);
+                gui.cycleFilter();
+
+                assertThat(gui.getView().getFilter()).isEqualTo(FriendView.Filter.ONLINE);
+                gui.nextPage();
+                assertThat(gui.getFriendAtSlot(0)).isSameAs(all.get(45));
+                assertThat(gui.getFriendAtSlot(15)).isNull();
+                gui.previousPage();
+                assertThat(gui.getFriendAtSlot(0)).isSameAs(all.get(0));
+                verify(friendService, times(1)).getFriendsView(eq(viewer), any());
+            }
+        }
+
+        @Test
+        @DisplayName("Should return to the first page when the sort mode changes")
+        void cycleSortResetsPage() {
+            List<FriendshipData> all = friends(60);
+            stubFriends(all);
+            when(friendService.getFriendsView(eq(viewer), any())).thenReturn(entries(all));
+            when(friendService.getPendingRequests(viewerUuid)).thenReturn(new ArrayList<>());
+
+            try (MockedConstruction<ItemStack> itemMock = mockConstruction(ItemStack.class,
+                    (mock, context) -> {
+                        SkullMeta skullMeta = mock(SkullMeta.class);
+                        when(mock.getItemMeta()).thenReturn(skullMeta);
+                    })) {
+
+                FriendListGUI gui = new FriendListGUI(friendService, viewer);
+                gui.nextPage();
+                gui.cycleSort();
+
+                assertThat(gui.getView().getSort()).isEqualTo(FriendView.Sort.DATE_ADDED);
+                assertThat(gui.getFriendAtSlot(0)).isSameAs(all.get(0));
+            }
+        }
+
+        @Test
+        @DisplayName("Should return to cursor paging when the search is cleared")
+        void clearSearch() {
+            stubFriends(friends(5));
+            when(friendService.getFriendsView(eq(viewer), any())).thenReturn(new ArrayList<>());
+            when(friendService.getPendingRequests(viewerUuid)).thenReturn(new ArrayList<>());
+
+            try (MockedConstruction<ItemStack> itemMock = mockConstruction(ItemStack.class,
+                    (mock, context) -> {
+                        SkullMeta skullMeta = mock(SkullMeta.class);
+                        when(mock.getItemMeta()).thenReturn(skullMeta);
+                    })) {
+
+                FriendListGUI gui = new FriendListGUI(friendService, viewer, FriendView.DEFAULT.withSearch("x"));
+                assertThat(gui.getFriendAtSlot(0)).isNull();
+
+                gui.setView(gui.getView().withSearch(null));
+
+                assertThat(gui.getFriendAtSlot(4)).isNotNull();
+                verify(friendService).getFriendsPage(viewerUuid, null, 45);
+            }
+        }
+
+        @Test
+        @DisplayName("Should cycle through friend groups and back to all friends")
+        void cycleGroup() {
+            List<FriendshipData> all = friends(5);
+            stubFriends(all);
+            FriendGroups groups = FriendGroups.of(Arrays.asList(
+                    FriendGroupData.builder().groupName("Guild").members("").build(),
+                    FriendGroupData.builder().groupName("Family").members("").build()),
+                    new FriendList(all));
+            when(friendService.getGroups(viewerUuid)).thenReturn(groups);
+            when(friendService.getFriendsView(eq(viewer), any())).thenReturn(new ArrayList<>());
+            when(friendService.getPendingRequests(viewerUuid)).thenReturn(new ArrayList<>());
+
+            try (MockedConstruction<ItemStack> itemMock = mockConstruction(ItemStack.class,
+                    (mock, context) -> {
+                        SkullMeta skullMeta = mock(SkullMeta.class);
+                        when(mock.getItemMeta()).thenReturn(skullMeta);
+                    })) {
+
+                FriendListGUI gui = new FriendListGUI(friendService, viewer);
+
+                gui.cycleGroup();
+                assertThat(gui.getView().getGroup()).isEqualTo("Guild");
+                assertThat(gui.getFriendAtSlot(0)).isNull();
+                gui.cycleGroup();
+                assertThat(gui.getView().getGroup()).isEqualTo("Family");
+                gui.cycleGroup();
+                assertThat(gui.getView().getGroup()).isNull();
+                assertThat(gui.getFriendAtSlot(4)).isNotNull();
+            }
+        }
     }
 
     // ==================== Refresh ====================
@@ -453,7 +652,7 @@ class FriendListGUITest {
         @Test
         @DisplayName("Should refresh friends list")
         void refreshFriendsList() {
-            when(friendService.getFriends(viewerUuid)).thenReturn(new ArrayList<>());
+            stubFriends(new ArrayList<>());
             when(friendService.getPendingRequests(viewerUuid)).thenReturn(new ArrayList<>());
 
             try (MockedConstruction<ItemStack> itemMock = mockConstruction(ItemStack.class,
@@ -467,8 +666,133 @@ class FriendListGUITest {
                 gui.refresh();
 
                 verify(friendService).clearCache(viewerUuid);
-                // getFriends called twice: once in constructor, once in refresh
-                verify(friendService, times(2)).getFriends(viewerUuid);
+                // First page requested twice: once in constructor, once in refresh
+                verify(friendService, times(2)).getFriendsPage(eq(viewerUuid), isNull(), eq(45));
+            }
+        }
+    }
+
+    // ==================== Live updates ====================
+
+    @Nested
+    @DisplayName("Live updates")
+    class LiveUpdates {
+
+        private OpenGuiRegistry openGuis;
+        private List<FriendshipData> friends;
+
+        @BeforeEach
+        void setUpRegistry() {
+            openGuis = new OpenGuiRegistry();
+            when(friendService.getOpenGuis()).thenReturn(openGuis);
+            when(friendService.getPendingRequests(viewerUuid)).thenReturn(new ArrayList<>());
+            friends = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                friends.add(FriendshipData.builder()
+                        .friendUuid(UUID.randomUUID().toString())
+                        .friendName("Friend" + i)
+                        .createdTime(i)
+                        .build());
+            }
+        }
+
+        private UUID uuidOf(int index) {
+            return UUID.fromString(friends.get(index).getFriendUuid());
+        }
+
+        @Test
+        @DisplayName("Should redraw only the slot of a friend whose presence changed")
+        void redrawOneSlot() {
+            stubFriends(friends);
+
+            try (MockedConstruction<ItemStack> itemMock = mockConstruction(ItemStack.class,
+                    (mock, context) -> {
+                        SkullMeta skullMeta = mock(SkullMeta.class);
+                        when(mock.getItemMeta()).thenReturn(skullMeta);
+                    })) {
+
+                FriendListGUI gui = new FriendListGUI(friendService, viewer);
+                assertThat(openGuis.size()).isEqualTo(1);
+                clearInvocations(mockInventory, friendService);
+
+                openGuis.markChanged(uuidOf(1));
+                openGuis.markChanged(uuidOf(1));
+                assertThat(openGuis.flush()).isEqualTo(1);
+
+                verify(mockInventory).setItem(eq(1), any());
+                verify(mockInventory, never()).setItem(eq(0), any());
+                verify(mockInventory, never()).clear();
+                verify(friendService, never()).getFriendsPage(any(), any(), anyInt());
+                assertThat(gui.getFriendAtSlot(1)).isSameAs(friends.get(1));
+            }
+        }
+
+        @Test
+        @DisplayName("Should compute a presence-dependent view again")
+        void recomputeOnlineView() {
+            FriendView online = FriendView.DEFAULT.withFilter(FriendView.Filter.ONLINE);
+            List<FriendEntry> entries = new ArrayList<>();
+            for (FriendshipData friend : friends) {
+                entries.add(FriendEntry.of(friend));
+            }
+            when(friendService.getFriendsView(viewer, online)).thenReturn(entries);
+
+            try (MockedConstruction<ItemStack> itemMock = mockConstruction(ItemStack.class,
+                    (mock, context) -> {
+                        SkullMeta skullMeta = mock(SkullMeta.class);
+                        when(mock.getItemMeta()).thenReturn(skullMeta);
+                    })) {
+
+                new FriendListGUI(friendService, viewer, online);
+
+                openGuis.markChanged(uuidOf(0));
+                openGuis.flush();
+
+                verify(friendService, times(2)).getFriendsView(viewer, online);
+            }
+        }
+
+        @Test
+        @DisplayName("Should compute an online view again when a friend off the page joins")
+        void recomputeOnJoinOffPage() {
+            FriendView online = FriendView.DEFAULT.withFilter(FriendView.Filter.ONLINE);
+            List<FriendEntry> entries = new ArrayList<>();
+            for (FriendshipData friend : friends) {
+                entries.add(FriendEntry.of(friend));
+            }
+            when(friendService.getFriendEntries(viewerUuid)).thenReturn(entries);
+            when(friendService.getFriendsView(viewer, online)).thenReturn(entries.subList(0, 1));
+
+            try (MockedConstruction<ItemStack> itemMock = mockConstruction(ItemStack.class,
+                    (mock, context) -> {
+                        SkullMeta skullMeta = mock(SkullMeta.class);
+                        when(mock.getItemMeta()).thenReturn(skullMeta);
+                    })) {
+
+                new FriendListGUI(friendService, viewer, online);
+
+                assertThat(openGuis.markChanged(uuidOf(2))).isEqualTo(1);
+                openGuis.flush();
+
+                verify(friendService, times(2)).getFriendsView(viewer, online);
+            }
+        }
+
+        @Test
+        @DisplayName("Should ignore players not on the current page")
+        void ignoreOthers() {
+            stubFriends(friends);
+
+            try (MockedConstruction<ItemStack> itemMock = mockConstruction(ItemStack.class,
+                    (mock, context) -> {
+                        SkullMeta skullMeta = mock(SkullMeta.class);
+                        when(mock.getItemMeta()).thenReturn(skullMeta);
+                    })) {
+
+                new FriendListGUI(friendService, viewer);
+
+                assertThat(openGuis.markChanged(UUID.randomUUID())).isZero();
+                assertThat(openGuis.flush()).isZero();
             }
         }
     }
@@ -482,7 +806,7 @@ class FriendListGUITest {
         @Test
         @DisplayName("Should format SURVIVAL")
         void formatSurvival() throws Exception {
-            when(friendService.getFriends(viewerUuid)).thenReturn(new ArrayList<>());
+            stubFriends(new ArrayList<>());
             when(friendService.getPendingRequests(viewerUuid)).thenReturn(new ArrayList<>());
 
             try (MockedConstruction<ItemStack> itemMock = mockConstruction(ItemStack.class,
@@ -515,7 +839,7 @@ class FriendListGUITest {
         @Test
         @DisplayName("Should format timestamp to yyyy-MM-dd")
         void formatTimestamp() throws Exception {
-            when(friendService.getFriends(viewerUuid)).thenReturn(new ArrayList<>());
+            stubFriends(new ArrayList<>());
             when(friendService.getPendingRequests(viewerUuid)).thenReturn(new ArrayList<>());
 
             try (MockedConstruction<ItemStack> itemMock = mockConstruction(ItemStack.class,
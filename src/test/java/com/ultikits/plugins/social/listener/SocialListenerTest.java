@@ -6,7 +6,13 @@ import com.ultikits.plugins.social.entity.BlacklistData;
 import com.ultikits.plugins.social.entity.FriendshipData;
 import com.ultikits.plugins.social.gui.BlockListGUI;
 import com.ultikits.plugins.social.gui.FriendListGUI;
+import com.ultikits.plugins.social.service.FriendEntry;
 import com.ultikits.plugins.social.service.FriendService;
+import com.ultikits.plugins.social.service.FriendTeleporter;
+import com.ultikits.plugins.social.service.FriendView;
+import com.ultikits.plugins.social.service.OpenGuiRegistry;
+import com.ultikits.plugins.social.service.TickBudgetScheduler;
+import com.ultikits.plugins.social.service.WarmupTracker;
 import com.ultikits.ultitools.services.NotificationService;
 import com.ultikits.ultitools.services.TeleportService;
 
@@ -16,8 +22,15 @@ import org.bukkit.entity.Player;
 import org.bukkit.event.inventory.ClickType;
 import org.bukkit.event.inventory.InventoryAction;
 import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryCloseEvent;
 import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.event.player.AsyncPlayerChatEvent;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.entity.EntityDamageEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.InventoryView;
@@ -60,9 +73,11 @@ class SocialListenerTest {
         listener = new SocialListener();
         UltiSocialTestHelper.setField(listener, "friendService", friendService);
         UltiSocialTestHelper.setField(listener, "notificationService", notificationService);
-        UltiSocialTestHelper.setField(listener, "teleportService", teleportService);
 
         when(friendService.getConfig()).thenReturn(config);
+        when(friendService.getTeleporter()).thenReturn(new FriendTeleporter(friendService, teleportService));
+        when(friendService.getWarmups()).thenReturn(new WarmupTracker());
+        when(friendService.getOpenGuis()).thenReturn(new OpenGuiRegistry());
 
         playerUuid = UUID.randomUUID();
         friendUuid = UUID.randomUUID();
@@ -98,6 +113,16 @@ class SocialListenerTest {
             }
         }
 
+        @Test
+        @DisplayName("Should start a new presence epoch even when notifications are disabled")
+        void presenceChangeOnJoin() {
+            when(config.isNotifyFriendOnline()).thenReturn(false);
+
+            listener.onPlayerJoin(new PlayerJoinEvent(player, "join message"));
+
+            verify(friendService).onPresenceChange(playerUuid);
+        }
+
         @Test
         @DisplayName("Should not notify when notifications disabled")
         void noNotifyWhenDisabled() {
@@ -221,6 +246,126 @@ class SocialListenerTest {
         }
     }
 
+    // ==================== Deferred work ====================
+
+    @Nested
+    @DisplayName("Deferred work")
+    class DeferredWork {
+
+        private TickBudgetScheduler scheduler;
+
+        @BeforeEach
+        void attachScheduler() throws Exception {
+            scheduler = mock(TickBudgetScheduler.class);
+            UltiSocialTestHelper.setField(listener, "scheduler", scheduler);
+        }
+
+        @Test
+        @DisplayName("Should queue join notifications instead of sending inline")
+        void queueJoinNotifications() {
+            when(config.isNotifyFriendOnline()).thenReturn(true);
+            when(friendService.areFriends(friendUuid, playerUuid)).thenReturn(true);
+
+            try (MockedStatic<Bukkit> bukkitMock = mockStatic(Bukkit.class)) {
+                bukkitMock.when(Bukkit::getOnlinePlayers).thenReturn(Arrays.asList(player, friend));
+
+                listener.onPlayerJoin(new PlayerJoinEvent(player, "join message"));
+
+                ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+                verify(scheduler).submit(eq(friend), captor.capture());
+                verify(notificationService, never()).sendMessageNotification(any(), anyString());
+
+                captor.getValue().run();
+                verify(notificationService).sendMessageNotification(eq(friend), contains("TestPlayer"));
+            }
+        }
+
+        @Test
+        @DisplayName("Should queue quit notifications for every other online player")
+        void queueQuitNotifications() {
+            Player other = UltiSocialTestHelper.createMockPlayer("Other", UUID.randomUUID());
+            when(config.isNotifyFriendOffline()).thenReturn(true);
+
+            try (MockedStatic<Bukkit> bukkitMock = mockStatic(Bukkit.class)) {
+                bukkitMock.when(Bukkit::getOnlinePlayers).thenReturn(Arrays.asList(player, friend, other));
+
+                listener.onPlayerQuit(new PlayerQuitEvent(player, "quit message"));
+
+                verify(scheduler).submit(eq(friend), any(Runnable.class));
+                verify(scheduler).submit(eq(other), any(Runnable.class));
+                verify(scheduler, never()).submit(eq(player), any(Runnable.class));
+                verify(friendService, never()).areFriends(any(), any());
+            }
+        }
+    }
+
+    // ==================== onAsyncPreLogin ====================
+
+    @Nested
+    @DisplayName("onAsyncPreLogin")
+    class OnAsyncPreLogin {
+
+        @Test
+        @DisplayName("Should prefetch state for allowed logins")
+        void prefetchAllowed() {
+            AsyncPlayerPreLoginEvent event = mock(AsyncPlayerPreLoginEvent.class);
+            when(event.getLoginResult()).thenReturn(AsyncPlayerPreLoginEvent.Result.ALLOWED);
+            when(event.getUniqueId()).thenReturn(playerUuid);
+            when(event.getName()).thenReturn("TestPlayer");
+
+            listener.onAsyncPreLogin(event);
+
+            verify(friendService).prefetch(playerUuid);
+            verify(friendService).reconcileName(playerUuid, "TestPlayer");
+        }
+
+        @Test
+        @DisplayName("Should skip prefetch for rejected logins")
+        void skipRejected() {
+            AsyncPlayerPreLoginEvent event = mock(AsyncPlayerPreLoginEvent.class);
+            when(event.getLoginResult()).thenReturn(AsyncPlayerPreLoginEvent.Result.KICK_BANNED);
+
+            listener.onAsyncPreLogin(event);
+
+            verify(friendService, never()).prefetch(any());
+            verify(friendService, never()).reconcileName(any(), any());
+        }
+
+        @Test
+        @DisplayName("Should discard prefetched state when the login is denied later")
+        void discardDenied() {
+            PlayerLoginEvent event = mock(PlayerLoginEvent.class);
+            when(event.getResult()).thenReturn(PlayerLoginEvent.Result.KICK_WHITELIST);
+            when(event.getPlayer()).thenReturn(player);
+
+            listener.onPlayerLogin(event);
+
+            verify(friendService).discardPrefetch(playerUuid);
+        }
+
+        @Test
+        @DisplayName("Should keep prefetched state for allowed logins")
+        void keepAllowed() {
+            PlayerLoginEvent event = mock(PlayerLoginEvent.class);
+            when(event.getResult()).thenReturn(PlayerLoginEvent.Result.ALLOWED);
+            when(event.getPlayer()).thenReturn(player);
+
+            listener.onPlayerLogin(event);
+
+            verify(friendService, never()).discardPrefetch(any());
+        }
+
+        @Test
+        @DisplayName("Should deliver offline messages on join even when notifications are off")
+        void deliverOnJoin() {
+            when(config.isNotifyFriendOnline()).thenReturn(false);
+
+            listener.onPlayerJoin(new PlayerJoinEvent(player, "join message"));
+
+            verify(friendService).deliverOfflineMessages(player);
+        }
+    }
+
     // ==================== onPlayerQuit ====================
 
     @Nested
@@ -240,6 +385,53 @@ class SocialListenerTest {
             verify(friendService).clearCache(playerUuid);
         }
 
+        @Test
+        @DisplayName("Should record last seen and the presence change before clearing the cache")
+        void presenceChangeOnQuit() {
+            when(UltiSocialTestHelper.getMockServer().getOnlinePlayers())
+                    .thenReturn(Collections.emptyList());
+
+            listener.onPlayerQuit(new PlayerQuitEvent(player, "quit message"));
+
+            org.mockito.InOrder order = inOrder(friendService);
+            order.verify(friendService).recordLastSeen(playerUuid);
+            order.verify(friendService).onPresenceChange(playerUuid);
+            order.verify(friendService).clearCache(playerUuid);
+        }
+
+        @Test
+        @DisplayName("Should drop the player's blacklist from the chat index")
+        void unindexBlacklistOnQuit() {
+            when(UltiSocialTestHelper.getMockServer().getOnlinePlayers())
+                    .thenReturn(Collections.emptyList());
+
+            listener.onPlayerQuit(new PlayerQuitEvent(player, "quit message"));
+
+            verify(friendService).unindexBlacklist(playerUuid);
+        }
+
+        @Test
+        @DisplayName("Should forget the player's reply target")
+        void forgetReplyTargetOnQuit() {
+            when(UltiSocialTestHelper.getMockServer().getOnlinePlayers())
+                    .thenReturn(Collections.emptyList());
+
+            listener.onPlayerQuit(new PlayerQuitEvent(player, "quit message"));
+
+            verify(friendService).forgetReplyTarget(playerUuid);
+        }
+
+        @Test
+        @DisplayName("Should release the last-seen times loaded for the player")
+        void releaseLastSeenOnQuit() {
+            when(UltiSocialTestHelper.getMockServer().getOnlinePlayers())
+                    .thenReturn(Collections.emptyList());
+
+            listener.onPlayerQuit(new PlayerQuitEvent(player, "quit message"));
+
+            verify(friendService).releaseLastSeen(playerUuid);
+        }
+
         @Test
         @DisplayName("Should notify friends when player quits")
         void notifyFriendsOnQuit() {
@@ -552,6 +744,221 @@ class SocialListenerTest {
         }
     }
 
+    // ==================== onWorldChange ====================
+
+    @Nested
+    @DisplayName("onWorldChange")
+    class OnWorldChange {
+
+        @Test
+        @DisplayName("Should track the player's world on join and quit")
+        void trackWorldOnJoinAndQuit() {
+            when(config.isNotifyFriendOnline()).thenReturn(false);
+            when(config.isNotifyFriendOffline()).thenReturn(false);
+
+            listener.onPlayerJoin(new PlayerJoinEvent(player, "join message"));
+            verify(friendService).updateWorld(playerUuid, "world");
+
+            listener.onPlayerQuit(new PlayerQuitEvent(player, "quit message"));
+            verify(friendService).updateWorld(playerUuid, null);
+        }
+
+        @Test
+        @DisplayName("Should notify friends already in the new world")
+        void notifyFriendsInWorld() {
+            when(config.isNotifyFriendJoinWorld()).thenReturn(true);
+            when(friendService.getFriendsInWorld(playerUuid, "world"))
+                .thenReturn(Collections.singletonList(friendUuid));
+
+            try (MockedStatic<Bukkit> bukkitMock = mockStatic(Bukkit.class)) {
+                bukkitMock.when(() -> Bukkit.getPlayer(friendUuid)).thenReturn(friend);
+
+                listener.onWorldChange(new PlayerChangedWorldEvent(player, mock(org.bukkit.World.class)));
+
+                verify(friendService).updateWorld(playerUuid, "world");
+                verify(notificationService).sendMessageNotification(eq(friend), contains("TestPlayer"));
+                verify(notificationService).sendMessageNotification(eq(friend), contains("world"));
+                bukkitMock.verify(Bukkit::getOnlinePlayers, never());
+                verify(friendService).recordLatency(eq("worldNotify"), anyLong());
+            }
+        }
+
+        @Test
+        @DisplayName("Should only update the world index when disabled")
+        void disabled() {
+            when(config.isNotifyFriendJoinWorld()).thenReturn(false);
+
+            listener.onWorldChange(new PlayerChangedWorldEvent(player, mock(org.bukkit.World.class)));
+
+            verify(friendService).updateWorld(playerUuid, "world");
+            verify(friendService, never()).getFriendsInWorld(any(), any());
+            verify(notificationService, never()).sendMessageNotification(any(), anyString());
+        }
+
+        @Test
+        @DisplayName("Should skip friends who went offline")
+        void skipOffline() {
+            when(config.isNotifyFriendJoinWorld()).thenReturn(true);
+            when(friendService.getFriendsInWorld(playerUuid, "world"))
+                .thenReturn(Collections.singletonList(friendUuid));
+
+            try (MockedStatic<Bukkit> bukkitMock = mockStatic(Bukkit.class)) {
+                bukkitMock.when(() -> Bukkit.getPlayer(friendUuid)).thenReturn(null);
+
+                listener.onWorldChange(new PlayerChangedWorldEvent(player, mock(org.bukkit.World.class)));
+
+                verify(notificationService, never()).sendMessageNotification(any(), anyString());
+            }
+        }
+    }
+
+    // ==================== Teleport warmup ====================
+
+    @Nested
+    @DisplayName("Teleport warmup")
+    class TeleportWarmup {
+
+        private WarmupTracker warmups;
+        private int cancelled;
+
+        @BeforeEach
+        void setUpWarmups() {
+            warmups = new WarmupTracker();
+            cancelled = 0;
+            when(friendService.getWarmups()).thenReturn(warmups);
+        }
+
+        private PlayerMoveEvent moveTo(Player mover, double x) {
+            Location from = mover.getLocation();
+            return new PlayerMoveEvent(mover, from, new Location(from.getWorld(), x, from.getY(), from.getZ()));
+        }
+
+        @Test
+        @DisplayName("Should do nothing on move when nobody is warming up")
+        void noWarmups() {
+            listener.onPlayerMove(moveTo(player, 120.5));
+
+            verify(player, never()).getUniqueId();
+            verify(player, never()).sendMessage(anyString());
+        }
+
+        @Test
+        @DisplayName("Should cancel the warmup when the player moves")
+        void cancelOnMove() {
+            warmups.start(player, 3000, System.currentTimeMillis(), () -> { }, () -> cancelled++);
+
+            listener.onPlayerMove(moveTo(friend, 120.5));
+            assertThat(cancelled).isZero();
+
+            listener.onPlayerMove(moveTo(player, 100.9));
+            assertThat(cancelled).isZero();
+
+            listener.onPlayerMove(moveTo(player, 120.5));
+            assertThat(cancelled).isEqualTo(1);
+            verify(player).sendMessage(contains("移动"));
+        }
+
+        @Test
+        @DisplayName("Should cancel the warmup when the player takes damage")
+        void cancelOnDamage() {
+            warmups.start(player, 3000, System.currentTimeMillis(), () -> { }, () -> cancelled++);
+            EntityDamageEvent event = mock(EntityDamageEvent.class);
+            when(event.getEntity()).thenReturn(player);
+
+            listener.onPlayerDamage(event);
+
+            assertThat(cancelled).isEqualTo(1);
+            verify(player).sendMessage(contains("伤害"));
+        }
+
+        @Test
+        @DisplayName("Should cancel the warmup on quit")
+        void cancelOnQuit() {
+            warmups.start(player, 3000, System.currentTimeMillis(), () -> { }, () -> cancelled++);
+            when(config.isNotifyFriendOffline()).thenReturn(false);
+
+            listener.onPlayerQuit(new PlayerQuitEvent(player, "quit message"));
+
+            assertThat(cancelled).isEqualTo(1);
+            assertThat(warmups.isEmpty()).isTrue();
+        }
+    }
+
+    // ==================== onChat ====================
+
+    @Nested
+    @DisplayName("onChat")
+    class OnChat {
+
+        private AsyncPlayerChatEvent event;
+        private Set<Player> recipients;
+
+        @BeforeEach
+        void setUpChat() {
+            recipients = new HashSet<>(Arrays.asList(player, friend));
+            event = mock(AsyncPlayerChatEvent.class);
+            when(event.getPlayer()).thenReturn(player);
+            when(event.getRecipients()).thenReturn(recipients);
+        }
+
+        @Test
+        @DisplayName("Should hide the message from players who blocked the sender")
+        void hideFromBlockers() {
+            listener.onChat(event);
+
+            verify(friendService).hideFromBlockers(playerUuid, recipients);
+        }
+
+        @Test
+        @DisplayName("Should leave recipients alone when chat hiding is disabled")
+        void disabled() {
+            when(config.isHideBlockedChat()).thenReturn(false);
+
+            listener.onChat(event);
+
+            verify(friendService, never()).hideFromBlockers(any(), any());
+        }
+    }
+
+    // ==================== onInventoryClose ====================
+
+    @Nested
+    @DisplayName("onInventoryClose")
+    class OnInventoryClose {
+
+        @Test
+        @DisplayName("Should stop live updates for a closed friend GUI")
+        void untrackOnClose() {
+            OpenGuiRegistry openGuis = new OpenGuiRegistry();
+            when(friendService.getOpenGuis()).thenReturn(openGuis);
+            FriendListGUI gui = mock(FriendListGUI.class);
+            openGuis.track(gui, Collections.singletonMap(friendUuid, 0));
+            Inventory inventory = mock(Inventory.class);
+            when(inventory.getHolder()).thenReturn(gui);
+            InventoryCloseEvent event = mock(InventoryCloseEvent.class);
+            when(event.getInventory()).thenReturn(inventory);
+
+            listener.onInventoryClose(event);
+
+            assertThat(openGuis.size()).isZero();
+        }
+
+        @Test
+        @DisplayName("Should stop live updates for every GUI of a player who quits")
+        void untrackOnQuit() {
+            OpenGuiRegistry openGuis = new OpenGuiRegistry();
+            when(friendService.getOpenGuis()).thenReturn(openGuis);
+            when(config.isNotifyFriendOffline()).thenReturn(false);
+            BlockListGUI gui = mock(BlockListGUI.class);
+            when(gui.getViewer()).thenReturn(player);
+            openGuis.track(gui, Collections.singletonMap(friendUuid, 0));
+
+            listener.onPlayerQuit(new PlayerQuitEvent(player, "quit message"));
+
+            assertThat(openGuis.size()).isZero();
+        }
+    }
+
     // ==================== onInventoryClick ====================
 
     @Nested
@@ -683,10 +1090,86 @@ class SocialListenerTest {
             verify(player).performCommand("friend requests");
         }
 
+        @Test
+        @DisplayName("Should cycle sort mode on slot 48")
+        void cycleSort() {
+            InventoryClickEvent event = createInventoryClickEvent(view, inventory, gui, 48,
+                    ClickType.LEFT);
+
+            listener.onInventoryClick(event);
+
+            verify(gui).cycleSort();
+        }
+
+        @Test
+        @DisplayName("Should cycle filter on slot 50")
+        void cycleFilter() {
+            InventoryClickEvent event = createInventoryClickEvent(view, inventory, gui, 50,
+                    ClickType.LEFT);
+
+            listener.onInventoryClick(event);
+
+            verify(gui).cycleFilter();
+        }
+
+        @Test
+        @DisplayName("Should cycle friend group on slot 51")
+        void cycleGroup() {
+            InventoryClickEvent event = createInventoryClickEvent(view, inventory, gui, 51,
+                    ClickType.LEFT);
+
+            listener.onInventoryClick(event);
+
+            verify(gui).cycleGroup();
+        }
+
+        @Test
+        @DisplayName("Should show all friends on right click of slot 51")
+        void clearGroup() {
+            when(gui.getView()).thenReturn(FriendView.DEFAULT.withGroup("Guild"));
+            InventoryClickEvent event = createInventoryClickEvent(view, inventory, gui, 51,
+                    ClickType.RIGHT);
+
+            listener.onInventoryClick(event);
+
+            ArgumentCaptor<FriendView> captor = ArgumentCaptor.forClass(FriendView.class);
+            verify(gui).setView(captor.capture());
+            assertThat(captor.getValue().getGroup()).isNull();
+            verify(gui, never()).cycleGroup();
+        }
+
+        @Test
+        @DisplayName("Should show search hint on slot 46")
+        void searchHint() {
+            when(gui.getView()).thenReturn(FriendView.DEFAULT);
+            InventoryClickEvent event = createInventoryClickEvent(view, inventory, gui, 46,
+                    ClickType.LEFT);
+
+            listener.onInventoryClick(event);
+
+            verify(player).closeInventory();
+            verify(player).sendMessage(contains("/friend search"));
+        }
+
+        @Test
+        @DisplayName("Should clear search on right click of slot 46")
+        void clearSearch() {
+            when(gui.getView()).thenReturn(FriendView.DEFAULT.withSearch("Ste"));
+            InventoryClickEvent event = createInventoryClickEvent(view, inventory, gui, 46,
+                    ClickType.RIGHT);
+
+            listener.onInventoryClick(event);
+
+            ArgumentCaptor<FriendView> captor = ArgumentCaptor.forClass(FriendView.class);
+            verify(gui).setView(captor.capture());
+            assertThat(captor.getValue().getSearch()).isNull();
+            verify(player, never()).closeInventory();
+        }
+
         @Test
         @DisplayName("Should do nothing when clicking empty friend slot")
         void emptySlot() {
-            when(gui.getFriendAtSlot(10)).thenReturn(null);
+            when(gui.getEntryAtSlot(10)).thenReturn(null);
 
             InventoryClickEvent event = createInventoryClickEvent(view, inventory, gui, 10,
                     ClickType.LEFT);
@@ -705,7 +1188,7 @@ class SocialListenerTest {
                     .friendUuid(friendUuid.toString())
                     .friendName("Friend")
                     .build();
-            when(gui.getFriendAtSlot(5)).thenReturn(friendData);
+            when(gui.getEntryAtSlot(5)).thenReturn(FriendEntry.of(friendData));
 
             InventoryClickEvent event = createInventoryClickEvent(view, inventory, gui, 5,
                     ClickType.SHIFT_LEFT);
@@ -729,7 +1212,7 @@ class SocialListenerTest {
                     .friendUuid(friendUuid.toString())
                     .friendName("Friend")
                     .build();
-            when(gui.getFriendAtSlot(5)).thenReturn(friendData);
+            when(gui.getEntryAtSlot(5)).thenReturn(FriendEntry.of(friendData));
             when(config.isTpToFriendEnabled()).thenReturn(true);
             when(friendService.canTeleport(playerUuid)).thenReturn(true);
 
@@ -756,7 +1239,7 @@ class SocialListenerTest {
                     .friendUuid(friendUuid.toString())
                     .friendName("Friend")
                     .build();
-            when(gui.getFriendAtSlot(5)).thenReturn(friendData);
+            when(gui.getEntryAtSlot(5)).thenReturn(FriendEntry.of(friendData));
             when(config.isTpToFriendEnabled()).thenReturn(true);
             when(friendService.canTeleport(playerUuid)).thenReturn(false);
             when(friendService.getRemainingCooldown(playerUuid)).thenReturn(15);
@@ -782,7 +1265,7 @@ class SocialListenerTest {
                     .friendUuid(friendUuid.toString())
                     .friendName("Friend")
                     .build();
-            when(gui.getFriendAtSlot(5)).thenReturn(friendData);
+            when(gui.getEntryAtSlot(5)).thenReturn(FriendEntry.of(friendData));
 
             InventoryClickEvent event = createInventoryClickEvent(view, inventory, gui, 5,
                     ClickType.LEFT);
@@ -801,15 +1284,16 @@ class SocialListenerTest {
         @Test
         @DisplayName("Should use direct teleport when TeleportService unavailable")
         void directTeleportWhenNoService() throws Exception {
-            UltiSocialTestHelper.setField(listener, "teleportService", null);
+            when(friendService.getTeleporter()).thenReturn(new FriendTeleporter(friendService, null));
 
             FriendshipData friendData = FriendshipData.builder()
                     .friendUuid(friendUuid.toString())
                     .friendName("Friend")
                     .build();
-            when(gui.getFriendAtSlot(5)).thenReturn(friendData);
+            when(gui.getEntryAtSlot(5)).thenReturn(FriendEntry.of(friendData));
             when(config.isTpToFriendEnabled()).thenReturn(true);
             when(friendService.canTeleport(playerUuid)).thenReturn(true);
+            when(player.teleport(any(Location.class))).thenReturn(true);
 
             InventoryClickEvent event = createInventoryClickEvent(view, inventory, gui, 5,
                     ClickType.LEFT);
@@ -832,7 +1316,7 @@ class SocialListenerTest {
                     .friendUuid(friendUuid.toString())
                     .friendName("Friend")
                     .build();
-            when(gui.getFriendAtSlot(5)).thenReturn(friendData);
+            when(gui.getEntryAtSlot(5)).thenReturn(FriendEntry.of(friendData));
 
             InventoryClickEvent event = createInventoryClickEvent(view, inventory, gui, 5,
                     ClickType.RIGHT);
@@ -855,7 +1339,7 @@ class SocialListenerTest {
                     .friendUuid(friendUuid.toString())
                     .friendName("Friend")
                     .build();
-            when(gui.getFriendAtSlot(5)).thenReturn(friendData);
+            when(gui.getEntryAtSlot(5)).thenReturn(FriendEntry.of(friendData));
 
             InventoryClickEvent event = createInventoryClickEvent(view, inventory, gui, 5,
                     ClickType.RIGHT);
@@ -878,7 +1362,7 @@ class SocialListenerTest {
                     .friendUuid(friendUuid.toString())
                     .friendName("Friend")
                     .build();
-            when(gui.getFriendAtSlot(5)).thenReturn(friendData);
+            when(gui.getEntryAtSlot(5)).thenReturn(FriendEntry.of(friendData));
 
             InventoryClickEvent event = createInventoryClickEvent(view, inventory, gui, 5,
                     ClickType.SHIFT_RIGHT);
@@ -904,7 +1388,7 @@ class SocialListenerTest {
 
             listener.onInventoryClick(event);
 
-            verify(gui, never()).getFriendAtSlot(anyInt());
+            verify(gui, never()).getEntryAtSlot(anyInt());
             verify(gui, never()).previousPage();
             verify(gui, never()).nextPage();
         }
@@ -912,7 +1396,7 @@ class SocialListenerTest {
         @Test
         @DisplayName("Should handle slot 0 as valid friend slot")
         void handleSlotZero() {
-            when(gui.getFriendAtSlot(0)).thenReturn(null);
+            when(gui.getEntryAtSlot(0)).thenReturn(null);
 
             InventoryClickEvent event = createInventoryClickEvent(view, inventory, gui, 0,
                     ClickType.LEFT);
@@ -920,13 +1404,13 @@ class SocialListenerTest {
 
             listener.onInventoryClick(event);
 
-            verify(gui).getFriendAtSlot(0);
+            verify(gui).getEntryAtSlot(0);
         }
 
         @Test
         @DisplayName("Should handle slot 44 as last valid friend slot")
         void handleLastFriendSlot() {
-            when(gui.getFriendAtSlot(44)).thenReturn(null);
+            when(gui.getEntryAtSlot(44)).thenReturn(null);
 
             InventoryClickEvent event = createInventoryClickEvent(view, inventory, gui, 44,
                     ClickType.LEFT);
@@ -934,7 +1418,7 @@ class SocialListenerTest {
 
             listener.onInventoryClick(event);
 
-            verify(gui).getFriendAtSlot(44);
+            verify(gui).getEntryAtSlot(44);
         }
 
         @Test
@@ -944,7 +1428,7 @@ class SocialListenerTest {
                     .friendUuid(friendUuid.toString())
                     .friendName("Friend")
                     .build();
-            when(gui.getFriendAtSlot(5)).thenReturn(friendData);
+            when(gui.getEntryAtSlot(5)).thenReturn(FriendEntry.of(friendData));
             when(config.isTpToFriendEnabled()).thenReturn(false);
 
             InventoryClickEvent event = createInventoryClickEvent(view, inventory, gui, 5,
@@ -971,7 +1455,7 @@ class SocialListenerTest {
 
             listener.onInventoryClick(event);
 
-            verify(gui, never()).getFriendAtSlot(anyInt());
+            verify(gui, never()).getEntryAtSlot(anyInt());
         }
     }
 
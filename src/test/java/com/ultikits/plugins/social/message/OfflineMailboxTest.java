@@ -0,0 +1,251 @@
+package com.ultikits.plugins.social.message;
+
+import com.ultikits.plugins.social.entity.MailboxData;
+import com.ultikits.plugins.social.entity.OfflineMessage;
+import com.ultikits.ultitools.interfaces.DataOperator;
+import com.ultikits.ultitools.interfaces.Query;
+
+import org.junit.jupiter.api.*;
+import org.mockito.ArgumentCaptor;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for OfflineMailbox.
+ */
+@DisplayName("OfflineMailbox Tests")
+class OfflineMailboxTest {
+
+    @SuppressWarnings("unchecked")
+    private final DataOperator<MailboxData> dataOperator = mock(DataOperator.class);
+    @SuppressWarnings("unchecked")
+    private final Query<MailboxData> query = mock(Query.class);
+
+    private OfflineMailbox mailbox;
+    private UUID recipient;
+    private UUID sender;
+
+    @BeforeEach
+    void setUp() {
+        when(dataOperator.query()).thenReturn(query);
+        when(query.where(anyString())).thenReturn(query);
+        when(query.eq(any())).thenReturn(query);
+        when(query.in(any())).thenReturn(query);
+        when(query.list()).thenReturn(new ArrayList<>());
+        when(query.delete()).thenReturn(0);
+
+        mailbox = new OfflineMailbox(dataOperator, 3, 7);
+        recipient = UUID.randomUUID();
+        sender = UUID.randomUUID();
+    }
+
+    @Test
+    @DisplayName("Should write many appends as a single insert")
+    void batchedInsert() {
+        for (int i = 0; i < 3; i++) {
+            mailbox.append(recipient, OfflineMessage.create(sender, "Sender", "msg" + i));
+        }
+
+        mailbox.flush();
+
+        ArgumentCaptor<MailboxData> captor = ArgumentCaptor.forClass(MailboxData.class);
+        verify(dataOperator, times(1)).insert(captor.capture());
+        assertThat(OfflineMessage.unpack(captor.getValue().getPayload()))
+                .extracting(OfflineMessage::getContent)
+                .containsExactly("msg0", "msg1", "msg2");
+        assertThat(mailbox.pendingCount(recipient)).isZero();
+    }
+
+    private MailboxData row(String id, long updatedTime, String... contents) {
+        List<OfflineMessage> messages = new ArrayList<>();
+        for (String content : contents) {
+            messages.add(OfflineMessage.create(sender, "Sender", content));
+        }
+        MailboxData row = MailboxData.builder()
+                .recipientUuid(recipient.toString())
+                .payload(OfflineMessage.pack(messages))
+                .updatedTime(updatedTime)
+                .build();
+        row.setId(id);
+        return row;
+    }
+
+    @Test
+    @DisplayName("Should add a new row instead of rewriting the stored mailbox")
+    void appendWithoutReading() throws Exception {
+        mailbox.append(recipient, OfflineMessage.create(sender, "Sender", "new0"));
+        mailbox.flush();
+
+        verify(query, never()).list();
+        verify(query, never()).first();
+        verify(dataOperator, never()).update(any());
+        verify(dataOperator).insert(any());
+    }
+
+    @Test
+    @DisplayName("Should read every row of a mailbox oldest first and keep the newest messages")
+    void prefetchRows() {
+        when(query.list()).thenReturn(new ArrayList<>(Arrays.asList(
+                row("2", 20L, "new0", "new1"),
+                row("1", 10L, "old0", "old1"))));
+
+        mailbox.prefetch(recipient);
+
+        assertThat(mailbox.take(recipient)).extracting(OfflineMessage::getContent)
+                .containsExactly("old1", "new0", "new1");
+    }
+
+    @Test
+    @DisplayName("Should queue messages again when the write fails")
+    void requeueFailedWrite() {
+        doThrow(new IllegalStateException("connection lost")).doAnswer(inv -> null)
+                .when(dataOperator).insert(any());
+        mailbox.append(recipient, OfflineMessage.create(sender, "Sender", "queued"));
+
+        mailbox.flush();
+        assertThat(mailbox.pendingCount(recipient)).isEqualTo(1);
+
+        mailbox.flush();
+        assertThat(mailbox.pendingCount(recipient)).isZero();
+    }
+
+    @Test
+    @DisplayName("Should delete delivered rows again when the delete fails")
+    void retryFailedDelete() {
+        when(query.list()).thenReturn(new ArrayList<>(Collections.singletonList(row("1", 10L, "stored"))));
+        when(query.delete()).thenThrow(new IllegalStateException("connection lost")).thenReturn(1);
+        mailbox.prefetch(recipient);
+        mailbox.take(recipient);
+
+        mailbox.flush();
+        mailbox.flush();
+
+        verify(query, times(2)).in(Collections.singletonList("1"));
+        verify(query, times(2)).delete();
+    }
+
+    @Test
+    @DisplayName("Should drop expired messages")
+    void dropExpired() {
+        mailbox.append(recipient, new OfflineMessage(sender, "Sender", "ancient",
+                System.currentTimeMillis() - 8L * 24 * 60 * 60 * 1000));
+        mailbox.append(recipient, OfflineMessage.create(sender, "Sender", "fresh"));
+
+        mailbox.flush();
+
+        ArgumentCaptor<MailboxData> captor = ArgumentCaptor.forClass(MailboxData.class);
+        verify(dataOperator).insert(captor.capture());
+        assertThat(OfflineMessage.unpack(captor.getValue().getPayload()))
+                .extracting(OfflineMessage::getContent)
+                .containsExactly("fresh");
+    }
+
+    @Test
+    @DisplayName("Should prefetch stored and queued messages, then clear on flush")
+    void prefetchAndTake() {
+        when(query.list()).thenReturn(new ArrayList<>(Collections.singletonList(row("1", 10L, "stored"))));
+        mailbox.append(recipient, OfflineMessage.create(sender, "Sender", "queued"));
+
+        mailbox.prefetch(recipient);
+        List<OfflineMessage> messages = mailbox.take(recipient);
+
+        assertThat(messages).extracting(OfflineMessage::getContent).containsExactly("stored", "queued");
+        assertThat(mailbox.take(recipient)).isEmpty();
+
+        mailbox.flush();
+
+        verify(query).where("id");
+        verify(query).in(Collections.singletonList("1"));
+        verify(query).delete();
+        verify(dataOperator, never()).insert(any());
+    }
+
+    @Test
+    @DisplayName("Should keep a message stored between prefetch and take")
+    void keepMessageStoredAfterPrefetch() {
+        when(query.list()).thenReturn(new ArrayList<>(Collections.singletonList(row("1", 10L, "stored"))));
+        mailbox.prefetch(recipient);
+
+        // Arrives after the mailbox was read and is written before the join
+        mailbox.append(recipient, OfflineMessage.create(sender, "Sender", "late"));
+        mailbox.flush();
+        assertThat(mailbox.take(recipient)).extracting(OfflineMessage::getContent).containsExactly("stored");
+        mailbox.flush();
+
+        // Only the row that was read is deleted
+        ArgumentCaptor<MailboxData> captor = ArgumentCaptor.forClass(MailboxData.class);
+        verify(dataOperator).insert(captor.capture());
+        assertThat(OfflineMessage.unpack(captor.getValue().getPayload()))
+                .extracting(OfflineMessage::getContent)
+                .containsExactly("late");
+        verify(query).in(Collections.singletonList("1"));
+        verify(query, times(1)).delete();
+    }
+
+    @Test
+    @DisplayName("Should still write queued messages when no join follows the prefetch")
+    void prefetchWithoutJoin() {
+        mailbox.append(recipient, OfflineMessage.create(sender, "Sender", "queued"));
+
+        mailbox.prefetch(recipient);
+        mailbox.flush();
+
+        ArgumentCaptor<MailboxData> captor = ArgumentCaptor.forClass(MailboxData.class);
+        verify(dataOperator).insert(captor.capture());
+        assertThat(OfflineMessage.unpack(captor.getValue().getPayload()))
+                .extracting(OfflineMessage::getContent)
+                .containsExactly("queued");
+        assertThat(mailbox.pendingCount(recipient)).isZero();
+        assertThat(mailbox.prefetchedCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should keep stored messages when a prefetch is discarded")
+    void discardPrefetch() {
+        mailbox.append(recipient, OfflineMessage.create(sender, "Sender", "queued"));
+
+        mailbox.prefetch(recipient);
+        mailbox.discard(recipient);
+
+        assertThat(mailbox.prefetchedCount()).isZero();
+        assertThat(mailbox.take(recipient)).isEmpty();
+        assertThat(mailbox.pendingCount(recipient)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should not write messages delivered before they were flushed")
+    void deliveredBeforeFlush() {
+        mailbox.append(recipient, OfflineMessage.create(sender, "Sender", "queued"));
+
+        mailbox.prefetch(recipient);
+        assertThat(mailbox.take(recipient)).hasSize(1);
+        mailbox.flush();
+
+        verify(dataOperator, never()).insert(any());
+        assertThat(mailbox.pendingCount(recipient)).isZero();
+    }
+
+    @Test
+    @DisplayName("Should purge mailboxes whose messages have all expired")
+    void purgeExpired() {
+        when(query.lt(any())).thenReturn(query);
+        when(query.delete()).thenReturn(4);
+
+        assertThat(mailbox.purgeExpired()).isEqualTo(4);
+
+        ArgumentCaptor<Object> cutoff = ArgumentCaptor.forClass(Object.class);
+        verify(query).where("updated_time");
+        verify(query).lt(cutoff.capture());
+        assertThat((Long) cutoff.getValue()).isLessThan(System.currentTimeMillis() - 6L * 24 * 60 * 60 * 1000);
+    }
+
+    @Test
+    @DisplayName("Should return nothing when not prefetched")
+    void takeWithoutPrefetch() {
+        assertThat(mailbox.take(recipient)).isEmpty();
+    }
+}
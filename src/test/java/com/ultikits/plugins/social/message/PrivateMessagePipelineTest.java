@@ -0,0 +1,229 @@
+package com.ultikits.plugins.social.message;
+
+import com.ultikits.plugins.social.UltiSocialTestHelper;
+import com.ultikits.plugins.social.config.SocialConfig;
+import com.ultikits.plugins.social.entity.FriendGroupData;
+import com.ultikits.plugins.social.entity.FriendshipData;
+import com.ultikits.plugins.social.service.FriendEntry;
+import com.ultikits.plugins.social.service.FriendGroups;
+import com.ultikits.plugins.social.service.FriendList;
+import com.ultikits.plugins.social.service.FriendService;
+
+import org.bukkit.entity.Player;
+import org.junit.jupiter.api.*;
+import org.mockito.ArgumentCaptor;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for PrivateMessagePipeline.
+ */
+@DisplayName("PrivateMessagePipeline Tests")
+class PrivateMessagePipelineTest {
+
+    private FriendService friendService;
+    private SocialConfig config;
+    private PrivateMessagePipeline pipeline;
+
+    private Player player;
+    private Player target;
+    private UUID playerUuid;
+    private UUID targetUuid;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        UltiSocialTestHelper.setUp();
+
+        friendService = mock(FriendService.class);
+        config = UltiSocialTestHelper.createDefaultConfig();
+        lenient().when(friendService.getConfig()).thenReturn(config);
+
+        // Run lanes inline so assertions see the result
+        pipeline = new PrivateMessagePipeline(friendService, Runnable::run);
+
+        playerUuid = UUID.randomUUID();
+        targetUuid = UUID.randomUUID();
+        player = UltiSocialTestHelper.createMockPlayer("TestPlayer", playerUuid);
+        target = UltiSocialTestHelper.createMockPlayer("TargetPlayer", targetUuid);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        UltiSocialTestHelper.tearDown();
+    }
+
+    private void befriend(Player owner, UUID friendUuid, String friendName) {
+        FriendshipData friendship = FriendshipData.builder()
+                .friendUuid(friendUuid.toString())
+                .friendName(friendName)
+                .build();
+        FriendEntry entry = FriendEntry.of(friendship);
+        when(friendService.findFriend(eq(owner.getUniqueId()), argThat(friendName::equalsIgnoreCase)))
+                .thenReturn(entry);
+        when(friendService.getFriendEntry(owner.getUniqueId(), friendUuid)).thenReturn(entry);
+    }
+
+    @Test
+    @DisplayName("Should deliver to online friend and confirm to sender")
+    void deliverToOnlineFriend() {
+        befriend(player, targetUuid, "TargetPlayer");
+        when(UltiSocialTestHelper.getMockServer().getPlayer(targetUuid)).thenReturn(target);
+
+        pipeline.send(player, "targetplayer", "Hello World");
+
+        ArgumentCaptor<String> targetCaptor = ArgumentCaptor.forClass(String.class);
+        verify(target).sendMessage(targetCaptor.capture());
+        assertThat(targetCaptor.getValue()).contains("[私聊]", "TestPlayer", "Hello World");
+
+        ArgumentCaptor<String> senderCaptor = ArgumentCaptor.forClass(String.class);
+        verify(player).sendMessage(senderCaptor.capture());
+        assertThat(senderCaptor.getValue()).contains("TargetPlayer", "Hello World");
+    }
+
+    @Test
+    @DisplayName("Should reject non-friend")
+    void rejectNonFriend() {
+        when(friendService.findFriend(playerUuid, "NonFriend")).thenReturn(null);
+
+        pipeline.send(player, "NonFriend", "Hello");
+
+        verify(player).sendMessage(contains("不是你的好友"));
+    }
+
+    @Test
+    @DisplayName("Should report offline friend")
+    void offlineFriend() {
+        befriend(player, targetUuid, "TargetPlayer");
+
+        pipeline.send(player, "TargetPlayer", "Hello");
+
+        verify(player).sendMessage(contains("不在线"));
+    }
+
+    @Test
+    @DisplayName("Should store message for offline friend when mailbox enabled")
+    void offlineFriendMailbox() {
+        befriend(player, targetUuid, "TargetPlayer");
+        when(config.isMailboxEnabled()).thenReturn(true);
+
+        pipeline.send(player, "TargetPlayer", "See you later");
+
+        verify(friendService).storeOfflineMessage(player, targetUuid, "See you later");
+        verify(player).sendMessage(contains("离线信箱"));
+    }
+
+    @Test
+    @DisplayName("Should route to a friend on another server instead of the mailbox")
+    void friendOnOtherServer() {
+        befriend(player, targetUuid, "TargetPlayer");
+        when(config.isMailboxEnabled()).thenReturn(true);
+        when(friendService.isOnlineElsewhere(targetUuid)).thenReturn(true);
+        when(friendService.sendRemoteMessage(player, targetUuid, "Over there")).thenReturn(true);
+
+        pipeline.send(player, "TargetPlayer", "Over there");
+
+        verify(friendService).sendRemoteMessage(player, targetUuid, "Over there");
+        verify(friendService, never()).storeOfflineMessage(any(), any(), any());
+        verify(player, never()).sendMessage(contains("不在线"));
+        verify(player).sendMessage(contains("Over there"));
+    }
+
+    @Test
+    @DisplayName("Should show a message from another server and allow replying to it")
+    void receiveRemote() {
+        befriend(target, playerUuid, "TestPlayer");
+        when(UltiSocialTestHelper.getMockServer().getPlayer(targetUuid)).thenReturn(target);
+        when(UltiSocialTestHelper.getMockServer().getPlayer(playerUuid)).thenReturn(player);
+
+        pipeline.receive(playerUuid, "TestPlayer", targetUuid, "From afar");
+        pipeline.reply(target, "Back at you");
+
+        verify(target).sendMessage(contains("From afar"));
+        verify(player).sendMessage(contains("Back at you"));
+    }
+
+    @Test
+    @DisplayName("Should reject when either side blocked the other")
+    void blocked() {
+        befriend(player, targetUuid, "TargetPlayer");
+        when(friendService.isBlocked(playerUuid, targetUuid)).thenReturn(true);
+        when(UltiSocialTestHelper.getMockServer().getPlayer(targetUuid)).thenReturn(target);
+
+        pipeline.send(player, "TargetPlayer", "Hello");
+
+        verify(player).sendMessage(contains("blacklist"));
+        verify(target, never()).sendMessage(anyString());
+    }
+
+    @Test
+    @DisplayName("Should let the receiver reply to the sender")
+    void replyToSender() {
+        befriend(player, targetUuid, "TargetPlayer");
+        befriend(target, playerUuid, "TestPlayer");
+        when(UltiSocialTestHelper.getMockServer().getPlayer(targetUuid)).thenReturn(target);
+        when(UltiSocialTestHelper.getMockServer().getPlayer(playerUuid)).thenReturn(player);
+
+        pipeline.send(player, "TargetPlayer", "Hi");
+        pipeline.reply(target, "Hi back");
+
+        verify(player, atLeastOnce()).sendMessage(contains("Hi back"));
+    }
+
+    @Test
+    @DisplayName("Should drop the reply target of a player who left")
+    void forgetOnQuit() {
+        befriend(player, targetUuid, "TargetPlayer");
+        when(UltiSocialTestHelper.getMockServer().getPlayer(targetUuid)).thenReturn(target);
+        pipeline.send(player, "TargetPlayer", "Hi");
+
+        pipeline.forget(playerUuid);
+        pipeline.reply(player, "Still there?");
+
+        verify(player).sendMessage(contains("没有可以回复"));
+        verify(target, never()).sendMessage(contains("Still there?"));
+    }
+
+    @Test
+    @DisplayName("Should report missing reply target")
+    void replyWithoutPartner() {
+        pipeline.reply(player, "Hello?");
+
+        verify(player).sendMessage(contains("没有可以回复"));
+    }
+
+    @Test
+    @DisplayName("Should send one rendered line to every online group member")
+    void groupMessage() {
+        UUID offlineUuid = UUID.randomUUID();
+        FriendList friends = new FriendList(Arrays.asList(
+                FriendshipData.create(playerUuid, targetUuid, "TargetPlayer"),
+                FriendshipData.create(playerUuid, offlineUuid, "Offline")));
+        FriendGroupData row = FriendGroupData.builder().groupName("Guild")
+                .members(FriendGroupData.pack(Arrays.asList(targetUuid, offlineUuid))).build();
+        when(friendService.getGroups(playerUuid)).thenReturn(FriendGroups.of(Collections.singletonList(row), friends));
+        when(UltiSocialTestHelper.getMockServer().getPlayer(targetUuid)).thenReturn(target);
+
+        pipeline.sendGroup(player, "guild", "Raid tonight");
+
+        ArgumentCaptor<String> targetCaptor = ArgumentCaptor.forClass(String.class);
+        verify(target).sendMessage(targetCaptor.capture());
+        assertThat(targetCaptor.getValue()).contains("Guild", "TestPlayer", "Raid tonight");
+        verify(player).sendMessage(targetCaptor.getValue());
+        verify(player).sendMessage(contains("1 位"));
+    }
+
+    @Test
+    @DisplayName("Should report a missing group")
+    void missingGroup() {
+        when(friendService.getGroups(playerUuid)).thenReturn(
+                FriendGroups.of(Collections.emptyList(), new FriendList(Collections.emptyList())));
+
+        pipeline.sendGroup(player, "Guild", "Hello");
+
+        verify(player).sendMessage(contains("不存在"));
+    }
+}
@@ -0,0 +1,59 @@
+package com.ultikits.plugins.social.message;
+
+import org.junit.jupiter.api.*;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests for ReplyTracker.
+ */
+@DisplayName("ReplyTracker Tests")
+class ReplyTrackerTest {
+
+    @Test
+    @DisplayName("Should record partner for both sides")
+    void recordBothSides() {
+        ReplyTracker tracker = new ReplyTracker(10);
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+
+        tracker.record(a, b);
+
+        assertThat(tracker.get(a)).isEqualTo(b);
+        assertThat(tracker.get(b)).isEqualTo(a);
+    }
+
+    @Test
+    @DisplayName("Should evict least recently used entries beyond capacity")
+    void evictLeastRecentlyUsed() {
+        ReplyTracker tracker = new ReplyTracker(2);
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        UUID c = UUID.randomUUID();
+
+        tracker.record(a, b);
+        tracker.get(a);
+        tracker.record(c, a);
+
+        assertThat(tracker.size()).isEqualTo(2);
+        assertThat(tracker.get(b)).isNull();
+        assertThat(tracker.get(a)).isEqualTo(c);
+        assertThat(tracker.get(c)).isEqualTo(a);
+    }
+
+    @Test
+    @DisplayName("Should forget removed players")
+    void remove() {
+        ReplyTracker tracker = new ReplyTracker(10);
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        tracker.record(a, b);
+
+        tracker.remove(a);
+
+        assertThat(tracker.get(a)).isNull();
+        assertThat(tracker.get(b)).isEqualTo(a);
+    }
+}
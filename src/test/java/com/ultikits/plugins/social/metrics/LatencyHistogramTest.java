@@ -0,0 +1,71 @@
+package com.ultikits.plugins.social.metrics;
+
+import org.junit.jupiter.api.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests for LatencyHistogram.
+ */
+@DisplayName("LatencyHistogram Tests")
+class LatencyHistogramTest {
+
+    @Test
+    @DisplayName("Should report zeros when empty")
+    void empty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertThat(histogram.getCount()).isZero();
+        assertThat(histogram.getPercentileMicros(99)).isZero();
+        assertThat(histogram.getMaxMicros()).isZero();
+        assertThat(histogram.getMeanMicros()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should report percentiles within bucket precision")
+    void percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        assertThat(histogram.getCount()).isEqualTo(100);
+        assertThat(histogram.getPercentileMicros(50)).isBetween(50L, 63L);
+        assertThat(histogram.getPercentileMicros(99)).isBetween(99L, 100L);
+        assertThat(histogram.getMaxMicros()).isEqualTo(100);
+        assertThat(histogram.getMeanMicros()).isEqualTo(50);
+    }
+
+    @Test
+    @DisplayName("Should never report a percentile above the max")
+    void percentileCappedAtMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(17_000L);
+
+        assertThat(histogram.getPercentileMicros(100)).isEqualTo(17);
+    }
+
+    @Test
+    @DisplayName("Should keep every value inside its bucket")
+    void bucketBounds() {
+        for (long v : new long[]{0, 1, 4, 7, 8, 100, 1000, 123456, 1L << 30}) {
+            int index = LatencyHistogram.indexOf(v);
+            assertThat(LatencyHistogram.upperBound(index)).isGreaterThanOrEqualTo(v);
+            if (index > 0) {
+                assertThat(LatencyHistogram.upperBound(index - 1)).isLessThan(v);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should clear samples on reset")
+    void reset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(5_000_000L);
+
+        histogram.reset();
+
+        assertThat(histogram.getCount()).isZero();
+        assertThat(histogram.getMaxMicros()).isZero();
+    }
+}
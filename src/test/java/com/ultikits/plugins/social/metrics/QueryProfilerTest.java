@@ -0,0 +1,136 @@
+package com.ultikits.plugins.social.metrics;
+
+import com.ultikits.ultitools.interfaces.DataOperator;
+import com.ultikits.ultitools.interfaces.Query;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for QueryProfiler.
+ */
+@DisplayName("QueryProfiler Tests")
+class QueryProfilerTest {
+
+    private SocialMetrics metrics;
+    private QueryProfiler profiler;
+    private DataOperator<String> delegate;
+    private Query<String> query;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        metrics = new SocialMetrics();
+        profiler = new QueryProfiler(metrics);
+        delegate = mock(DataOperator.class);
+        query = mock(Query.class);
+        when(delegate.query()).thenReturn(query);
+        when(query.where(anyString())).thenReturn(query);
+        when(query.eq(any())).thenReturn(query);
+        when(query.list()).thenReturn(Arrays.asList("a", "b", "c"));
+        when(query.delete()).thenReturn(2);
+    }
+
+    @Test
+    @DisplayName("Should record query shape without bound values")
+    void queryShape() {
+        DataOperator<String> profiled = profiler.wrap(delegate, "friendships");
+
+        List<String> rows = profiled.query().where("player_uuid").eq("secret-value").list();
+
+        assertThat(rows).containsExactly("a", "b", "c");
+        SocialMetrics.QueryStats stats = metrics.getQuery("friendships where player_uuid eq ? list");
+        assertThat(stats).isNotNull();
+        assertThat(stats.getRows()).isEqualTo(3);
+        assertThat(metrics.toJson()).doesNotContain("secret-value");
+    }
+
+    @Test
+    @DisplayName("Should record row counts of deletes and direct operator calls")
+    void rowCounts() {
+        DataOperator<String> profiled = profiler.wrap(delegate, "friendships");
+
+        profiled.query().where("player_uuid").eq("x").delete();
+        profiled.insert("row");
+
+        assertThat(metrics.getQuery("friendships where player_uuid eq ? delete").getRows()).isEqualTo(2);
+        assertThat(metrics.getQuery("friendships insert").getRows()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should count one db call per executed query")
+    void dbCalls() {
+        DataOperator<String> profiled = profiler.wrap(delegate, "friendships");
+
+        try (SocialMetrics.Timer ignored = metrics.time("op")) {
+            profiled.query().where("player_uuid").eq("x").list();
+            profiled.insert("row");
+        }
+
+        assertThat(metrics.getOperation("op").getDbCalls()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should log slow queries with operation and caller")
+    void slowQueryLog() {
+        List<String> log = new ArrayList<>();
+        profiler.setSlowQueryLog(3, log::add);
+        when(query.list()).thenAnswer(invocation -> {
+            Thread.sleep(10);
+            return new ArrayList<String>();
+        });
+        DataOperator<String> profiled = profiler.wrap(delegate, "friendships");
+
+        try (SocialMetrics.Timer ignored = metrics.time("getFriends")) {
+            profiled.query().where("player_uuid").eq("x").list();
+        }
+        profiled.query().where("player_uuid").eq("x").delete();
+
+        assertThat(log).hasSize(1);
+        assertThat(log.get(0)).contains("friendships where player_uuid eq ? list", "op=getFriends");
+    }
+
+    @Test
+    @DisplayName("Should not log when threshold is zero")
+    void slowQueryLogDisabled() {
+        List<String> log = new ArrayList<>();
+        profiler.setSlowQueryLog(0, log::add);
+
+        profiler.wrap(delegate, "friendships").query().where("player_uuid").eq("x").list();
+
+        assertThat(log).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should rethrow the delegate's exception unwrapped")
+    void rethrows() throws Exception {
+        doThrow(new IllegalAccessException("denied")).when(delegate).update(any());
+
+        assertThatThrownBy(() -> profiler.wrap(delegate, "friendships").update("row"))
+            .isInstanceOf(IllegalAccessException.class)
+            .hasMessage("denied");
+    }
+
+    @Test
+    @DisplayName("Should pass null operators through")
+    void wrapNull() {
+        assertThat(profiler.<String>wrap(null, "friendships")).isNull();
+    }
+
+    @Test
+    @DisplayName("Should derive row counts from results and arguments")
+    void rows() {
+        assertThat(QueryProfiler.rows(Arrays.asList(1, 2), null)).isEqualTo(2);
+        assertThat(QueryProfiler.rows(7L, null)).isEqualTo(7);
+        assertThat(QueryProfiler.rows(Boolean.TRUE, null)).isEqualTo(1);
+        assertThat(QueryProfiler.rows(null, null)).isZero();
+        assertThat(QueryProfiler.rows(null, new Object[]{"row"})).isEqualTo(1);
+    }
+}
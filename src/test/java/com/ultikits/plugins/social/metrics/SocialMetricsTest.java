@@ -0,0 +1,109 @@
+package com.ultikits.plugins.social.metrics;
+
+import org.junit.jupiter.api.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests for SocialMetrics.
+ */
+@DisplayName("SocialMetrics Tests")
+class SocialMetricsTest {
+
+    private SocialMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        metrics = new SocialMetrics();
+    }
+
+    @Test
+    @DisplayName("Should record one sample per closed timer")
+    void timer() {
+        try (SocialMetrics.Timer ignored = metrics.time("op")) {
+            // no-op
+        }
+        try (SocialMetrics.Timer ignored = metrics.time("op")) {
+            // no-op
+        }
+
+        assertThat(metrics.getOperation("op").getHistogram().getCount()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should attribute db calls to the innermost timed operation")
+    void dbCallAttribution() {
+        try (SocialMetrics.Timer outer = metrics.time("outer")) {
+            metrics.recordDbCall();
+            try (SocialMetrics.Timer inner = metrics.time("inner")) {
+                metrics.recordDbCall();
+                metrics.recordDbCall();
+            }
+            metrics.recordDbCall();
+        }
+        metrics.recordDbCall();
+
+        assertThat(metrics.getOperation("outer").getDbCalls()).isEqualTo(2);
+        assertThat(metrics.getOperation("inner").getDbCalls()).isEqualTo(2);
+        assertThat(metrics.getOperation(SocialMetrics.UNTIMED).getDbCalls()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should compute cache hit ratio")
+    void cacheRatio() {
+        metrics.cacheHit("friends");
+        metrics.cacheHit("friends");
+        metrics.cacheHit("friends");
+        metrics.cacheMiss("friends");
+
+        assertThat(metrics.getCache("friends").getHitRatio()).isEqualTo(0.75);
+    }
+
+    @Test
+    @DisplayName("Should record queries by shape and count them as db calls")
+    void recordQuery() {
+        try (SocialMetrics.Timer ignored = metrics.time("op")) {
+            metrics.recordQuery("friendships where player_uuid eq ? list", 2_000_000L, 3);
+            metrics.recordQuery("friendships where player_uuid eq ? list", 1_000_000L, 5);
+        }
+
+        SocialMetrics.QueryStats stats = metrics.getQuery("friendships where player_uuid eq ? list");
+        assertThat(stats.getHistogram().getCount()).isEqualTo(2);
+        assertThat(stats.getRows()).isEqualTo(8);
+        assertThat(stats.getRowsPerCall()).isEqualTo(4.0);
+        assertThat(metrics.getOperation("op").getDbCalls()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should render report and json")
+    void reportAndJson() {
+        metrics.record("getFriends", System.nanoTime());
+        metrics.cacheMiss("friends");
+
+        assertThat(metrics.report()).hasSize(2);
+        assertThat(metrics.report().get(0)).startsWith("getFriends: n=1");
+        assertThat(metrics.toJson())
+            .startsWith("{\"operations\":{\"getFriends\":{\"count\":1")
+            .endsWith("\"caches\":{\"friends\":{\"hits\":0,\"misses\":1}},\"queries\":{}}");
+    }
+
+    @Test
+    @DisplayName("Should clear everything on reset")
+    void reset() {
+        metrics.record("op", System.nanoTime());
+        metrics.cacheHit("friends");
+
+        metrics.reset();
+
+        assertThat(metrics.report()).isEmpty();
+        assertThat(metrics.toJson()).isEqualTo("{\"operations\":{},\"caches\":{},\"queries\":{}}");
+    }
+
+    @Test
+    @DisplayName("Should format durations by magnitude")
+    void formatMicros() {
+        assertThat(SocialMetrics.formatMicros(250)).isEqualTo("250us");
+        assertThat(SocialMetrics.formatMicros(1500)).isEqualTo("1.5ms");
+        assertThat(SocialMetrics.formatMicros(2_500_000)).isEqualTo("2.50s");
+    }
+}
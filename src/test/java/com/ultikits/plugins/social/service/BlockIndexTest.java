@@ -0,0 +1,83 @@
+package com.ultikits.plugins.social.service;
+
+import org.junit.jupiter.api.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests for BlockIndex.
+ */
+@DisplayName("BlockIndex Tests")
+class BlockIndexTest {
+
+    private final BlockIndex index = new BlockIndex();
+    private final UUID steve = UUID.randomUUID();
+    private final UUID alex = UUID.randomUUID();
+    private final UUID griefer = UUID.randomUUID();
+
+    @Test
+    @DisplayName("Should index blocks both ways")
+    void put() {
+        index.put(steve, Arrays.asList(griefer, alex));
+        index.put(alex, Collections.singletonList(griefer));
+
+        assertThat(index.blockersOf(griefer)).containsExactlyInAnyOrder(steve, alex);
+        assertThat(index.blockersOf(alex)).containsExactly(steve);
+        assertThat(index.hasBlocked(steve, griefer)).isTrue();
+        assertThat(index.hasBlocked(griefer, steve)).isFalse();
+        assertThat(index.blockersOf(steve)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should replace a player's blocks on reload")
+    void replace() {
+        index.put(steve, Arrays.asList(griefer, alex));
+        index.put(steve, Collections.singletonList(griefer));
+
+        assertThat(index.blockersOf(alex)).isEmpty();
+        assertThat(index.blockersOf(griefer)).containsExactly(steve);
+    }
+
+    @Test
+    @DisplayName("Should add and remove single blocks")
+    void addRemove() {
+        index.add(steve, griefer);
+        index.add(steve, griefer);
+        assertThat(index.blockersOf(griefer)).containsExactly(steve);
+
+        index.remove(steve, griefer);
+
+        assertThat(index.blockersOf(griefer)).isEmpty();
+        assertThat(index.isIndexed(steve)).isTrue();
+        assertThat(index.hasBlocked(steve, griefer)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should forget a player who left")
+    void forget() {
+        index.put(steve, Collections.singletonList(griefer));
+        index.put(alex, Collections.singletonList(griefer));
+
+        index.forget(steve);
+
+        assertThat(index.isIndexed(steve)).isFalse();
+        assertThat(index.blockersOf(griefer)).containsExactly(alex);
+    }
+
+    @Test
+    @DisplayName("Should hand out sets that later changes do not touch")
+    void snapshotSets() {
+        index.add(steve, griefer);
+        Set<UUID> before = index.blockersOf(griefer);
+
+        index.add(alex, griefer);
+
+        assertThat(before).containsExactly(steve);
+        assertThatThrownBy(() -> before.add(alex)).isInstanceOf(UnsupportedOperationException.class);
+    }
+}
@@ -0,0 +1,74 @@
+package com.ultikits.plugins.social.service;
+
+import com.ultikits.plugins.social.UltiSocialTestHelper;
+import com.ultikits.plugins.social.entity.FriendshipData;
+
+import org.bukkit.entity.Player;
+import org.junit.jupiter.api.*;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for FriendEntry.
+ */
+@DisplayName("FriendEntry Tests")
+class FriendEntryTest {
+
+    private final UUID friendUuid = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        UltiSocialTestHelper.setUp();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        UltiSocialTestHelper.tearDown();
+    }
+
+    private FriendshipData friend() {
+        return FriendshipData.create(UUID.randomUUID(), friendUuid, "Steve");
+    }
+
+    @Test
+    @DisplayName("Should parse the friend UUID once")
+    void uuid() {
+        FriendEntry entry = FriendEntry.of(friend());
+
+        assertThat(entry.getUuid()).isEqualTo(friendUuid);
+        assertThat(entry.getUuid()).isSameAs(entry.getUuid());
+        assertThat(entry.getName()).isEqualTo("Steve");
+    }
+
+    @Test
+    @DisplayName("Should build the display name from nickname and favorite")
+    void displayName() {
+        FriendshipData data = friend();
+        assertThat(FriendEntry.of(data).getLabel()).isEqualTo("Steve");
+
+        data.setNickname("Stevie");
+        data.setFavorite(true);
+        FriendEntry entry = FriendEntry.of(data);
+
+        assertThat(entry.getDisplayName()).isEqualTo("Stevie §7(Steve)");
+        assertThat(entry.getLabel()).isEqualTo("§e★ Stevie §7(Steve)");
+    }
+
+    @Test
+    @DisplayName("Should look up the online player once per presence epoch")
+    void playerPerEpoch() {
+        Player online = UltiSocialTestHelper.createMockPlayer("Steve", friendUuid);
+        when(UltiSocialTestHelper.getMockServer().getPlayer(friendUuid)).thenReturn(online);
+        FriendEntry entry = FriendEntry.of(friend());
+
+        assertThat(entry.getPlayer(0)).isSameAs(online);
+        assertThat(entry.getPlayer(0)).isSameAs(online);
+        verify(UltiSocialTestHelper.getMockServer(), times(1)).getPlayer(friendUuid);
+
+        when(UltiSocialTestHelper.getMockServer().getPlayer(friendUuid)).thenReturn(null);
+        assertThat(entry.getPlayer(1)).isNull();
+    }
+}
@@ -0,0 +1,118 @@
+package com.ultikits.plugins.social.service;
+
+import com.ultikits.plugins.social.entity.FriendGroupData;
+import com.ultikits.plugins.social.entity.FriendshipData;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests for FriendGroups.
+ */
+@DisplayName("FriendGroups Tests")
+class FriendGroupsTest {
+
+    private final UUID owner = UUID.randomUUID();
+    private final UUID alice = UUID.randomUUID();
+    private final UUID bob = UUID.randomUUID();
+    private final UUID carol = UUID.randomUUID();
+    private FriendList friends;
+
+    @BeforeEach
+    void setUp() {
+        friends = new FriendList(Arrays.asList(
+            FriendshipData.create(owner, carol, "Carol"),
+            FriendshipData.create(owner, alice, "Alice"),
+            FriendshipData.create(owner, bob, "Bob")));
+    }
+
+    private FriendGroupData row(String name, UUID... members) {
+        FriendGroupData row = FriendGroupData.create(owner, name);
+        row.setMembers(FriendGroupData.pack(Arrays.asList(members)));
+        return row;
+    }
+
+    @Test
+    @DisplayName("Should list members in display order")
+    void members() {
+        FriendGroups groups = FriendGroups.of(Collections.singletonList(row("Guild", carol, alice)), friends);
+
+        FriendGroups.Group guild = groups.get("guild");
+        assertThat(guild.size()).isEqualTo(2);
+        assertThat(guild.members()).extracting(FriendEntry::getName).containsExactly("Alice", "Carol");
+        assertThat(guild.contains(alice)).isTrue();
+        assertThat(guild.contains(bob)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should leave out members who are no longer friends")
+    void formerFriends() {
+        UUID stranger = UUID.randomUUID();
+        FriendGroups groups = FriendGroups.of(Collections.singletonList(row("Guild", alice, stranger)), friends);
+
+        assertThat(groups.get("Guild").members()).extracting(FriendEntry::getUuid).containsExactly(alice);
+        assertThat(groups.get("Guild").contains(stranger)).isFalse();
+        assertThat(FriendGroupData.unpack(groups.get("Guild").packWith(bob, null))).containsExactly(alice, bob);
+    }
+
+    @Test
+    @DisplayName("Should pack members with one added or removed")
+    void packWith() {
+        FriendGroups.Group guild = FriendGroups.of(Collections.singletonList(row("Guild", alice, bob)), friends)
+            .get("Guild");
+
+        assertThat(FriendGroupData.unpack(guild.packWith(null, alice))).containsExactly(bob);
+        assertThat(FriendGroupData.unpack(guild.packWith(alice, null))).containsExactly(alice, bob);
+    }
+
+    @Test
+    @DisplayName("Should replace or add a group without touching the others")
+    void with() {
+        FriendGroups groups = FriendGroups.of(Arrays.asList(row("Guild", alice), row("Family", bob)), friends);
+        FriendGroups.Group family = groups.get("Family");
+
+        FriendGroups changed = groups.with(row("GUILD", alice, carol)).with(row("Builders"));
+
+        assertThat(changed.all()).extracting(FriendGroups.Group::getName)
+            .containsExactly("GUILD", "Family", "Builders");
+        assertThat(changed.get("guild").size()).isEqualTo(2);
+        assertThat(changed.get("Family")).isSameAs(family);
+        assertThat(groups.get("Guild").size()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should remove a group")
+    void without() {
+        FriendGroups groups = FriendGroups.of(Arrays.asList(row("Guild"), row("Family")), friends);
+
+        FriendGroups changed = groups.without(groups.get("Guild"));
+
+        assertThat(changed.size()).isEqualTo(1);
+        assertThat(changed.get("Guild")).isNull();
+        assertThat(changed.rows()).extracting(FriendGroupData::getGroupName).containsExactly("Family");
+    }
+
+    @Test
+    @DisplayName("Should touch only the members of a large friend list")
+    void largeList() {
+        List<FriendshipData> many = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            many.add(FriendshipData.create(owner, UUID.randomUUID(), String.format("Friend%04d", i)));
+        }
+        FriendList large = new FriendList(many);
+        UUID last = large.entries().get(4999).getUuid();
+        UUID first = large.entries().get(0).getUuid();
+
+        FriendGroups.Group group = FriendGroups.of(Collections.singletonList(row("Pair", last, first)), large)
+            .get("Pair");
+
+        assertThat(group.members()).extracting(FriendEntry::getUuid).containsExactly(first, last);
+    }
+}
@@ -0,0 +1,231 @@
+package com.ultikits.plugins.social.service;
+
+import com.ultikits.plugins.social.entity.FriendshipData;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests for FriendList.
+ */
+@DisplayName("FriendList Tests")
+class FriendListTest {
+
+    private final UUID owner = UUID.randomUUID();
+
+    private FriendshipData friend(String name, boolean favorite) {
+        FriendshipData data = FriendshipData.create(owner, UUID.randomUUID(), name);
+        data.setFavorite(favorite);
+        return data;
+    }
+
+    @Test
+    @DisplayName("Should sort favorites first, then by name ignoring case")
+    void order() {
+        FriendList list = new FriendList(Arrays.asList(
+            friend("charlie", false), friend("Bravo", true), friend("alpha", false), friend("Zulu", true)));
+
+        assertThat(list.asList()).extracting(FriendshipData::getFriendName)
+            .containsExactly("Bravo", "Zulu", "alpha", "charlie");
+    }
+
+    @Test
+    @DisplayName("Should find a friend's position in display order")
+    void indexOf() {
+        FriendshipData alpha = friend("alpha", false);
+        FriendshipData alpha2 = friend("Alpha", false);
+        FriendshipData zulu = friend("Zulu", true);
+        FriendList list = new FriendList(Arrays.asList(alpha, zulu, alpha2));
+
+        for (int i = 0; i < list.size(); i++) {
+            assertThat(list.indexOf(list.entries().get(i).getUuid())).isEqualTo(i);
+        }
+        assertThat(list.indexOf(UUID.fromString(zulu.getFriendUuid()))).isZero();
+        assertThat(list.indexOf(UUID.randomUUID())).isEqualTo(-1);
+    }
+
+    @Test
+    @DisplayName("Should look up friends by UUID")
+    void lookup() {
+        FriendshipData bob = friend("Bob", false);
+        FriendList list = new FriendList(Arrays.asList(bob, friend("Alice", false)));
+
+        assertThat(list.size()).isEqualTo(2);
+        assertThat(list.contains(UUID.fromString(bob.getFriendUuid()))).isTrue();
+        assertThat(list.get(UUID.fromString(bob.getFriendUuid()))).isSameAs(bob);
+        assertThat(list.contains(UUID.randomUUID())).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should be read-only")
+    void readOnly() {
+        FriendList list = new FriendList(new ArrayList<>());
+
+        assertThatThrownBy(() -> list.asList().add(friend("X", false)))
+            .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    @DisplayName("Should walk every friend exactly once by cursor")
+    void pages() {
+        List<FriendshipData> friends = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            // Repeated names exercise the UUID tie-break
+            friends.add(friend("P" + (i % 700), i % 9 == 0));
+        }
+        FriendList list = new FriendList(friends);
+
+        List<FriendshipData> walked = new ArrayList<>();
+        FriendList.Cursor cursor = null;
+        int pages = 0;
+        do {
+            FriendList.Page page = list.page(cursor, 100);
+            assertThat(page.getTotal()).isEqualTo(2500);
+            walked.addAll(page.getFriends());
+            cursor = page.getNext();
+            pages++;
+        } while (cursor != null);
+
+        assertThat(pages).isEqualTo(25);
+        assertThat(walked).isEqualTo(list.asList());
+    }
+
+    @Test
+    @DisplayName("Should continue after the cursor when the list changed in between")
+    void cursorSurvivesChanges() {
+        FriendshipData alice = friend("Alice", false);
+        FriendshipData bob = friend("Bob", false);
+        FriendshipData carol = friend("Carol", false);
+        FriendList before = new FriendList(Arrays.asList(alice, bob, carol));
+        FriendList.Cursor cursor = before.page(null, 1).getNext();
+
+        FriendList after = new FriendList(Arrays.asList(friend("Aaron", false), bob, carol));
+
+        assertThat(after.page(cursor, 10).getFriends()).extracting(FriendshipData::getFriendName)
+            .containsExactly("Bob", "Carol");
+    }
+
+    @Test
+    @DisplayName("Should expose favorites as the head of the list")
+    void favorites() {
+        FriendList list = new FriendList(Arrays.asList(
+            friend("Carol", false), friend("Bob", true), friend("Alice", true)));
+
+        assertThat(list.favorites()).extracting(FriendEntry::getName).containsExactly("Alice", "Bob");
+    }
+
+    @Test
+    @DisplayName("Should order by date added, newest first, and reuse the order")
+    void dateAdded() {
+        FriendshipData old = friend("Old", true);
+        old.setCreatedTime(1000);
+        FriendshipData recent = friend("Recent", false);
+        recent.setCreatedTime(3000);
+        FriendshipData middle = friend("Middle", false);
+        middle.setCreatedTime(2000);
+        FriendList list = new FriendList(Arrays.asList(old, recent, middle));
+
+        assertThat(list.byDateAdded()).extracting(FriendEntry::getData).containsExactly(recent, middle, old);
+        assertThat(list.byDateAdded()).isSameAs(list.byDateAdded());
+    }
+
+    @Test
+    @DisplayName("Should keep the last-seen order until told to forget it")
+    void lastSeen() {
+        FriendshipData alice = friend("Alice", false);
+        FriendshipData bob = friend("Bob", false);
+        FriendList list = new FriendList(Arrays.asList(alice, bob));
+        java.util.Map<UUID, Long> seen = new java.util.HashMap<>();
+        seen.put(UUID.fromString(alice.getFriendUuid()), 100L);
+        seen.put(UUID.fromString(bob.getFriendUuid()), 200L);
+
+        assertThat(list.byLastSeen(seen::get)).extracting(FriendEntry::getData).containsExactly(bob, alice);
+
+        seen.put(UUID.fromString(alice.getFriendUuid()), 300L);
+        assertThat(list.byLastSeen(seen::get)).extracting(FriendEntry::getData).containsExactly(bob, alice);
+
+        list.forgetLastSeen();
+        assertThat(list.byLastSeen(seen::get)).extracting(FriendEntry::getData).containsExactly(alice, bob);
+    }
+
+    @Test
+    @DisplayName("Should find names by prefix ignoring case")
+    void prefix() {
+        FriendList list = new FriendList(Arrays.asList(
+            friend("steve", false), friend("Stella", true), friend("Alex", false),
+            friend("STEPHEN", false), friend("Bob", false), friend(null, false)));
+
+        assertThat(list.withPrefix("ste")).extracting(FriendEntry::getName)
+            .containsExactly("Stella", "STEPHEN", "steve");
+        assertThat(list.withPrefix("STEV")).extracting(FriendEntry::getName).containsExactly("steve");
+        assertThat(list.withPrefix("zz")).isEmpty();
+        assertThat(list.withPrefix("")).hasSize(6);
+    }
+
+    @Test
+    @DisplayName("Should index entries by parsed UUID")
+    void entries() {
+        FriendshipData alice = friend("Alice", false);
+        FriendshipData bob = friend("Bob", true);
+        FriendList list = new FriendList(Arrays.asList(alice, bob));
+        UUID aliceUuid = UUID.fromString(alice.getFriendUuid());
+
+        assertThat(list.entries()).extracting(FriendEntry::getData).containsExactly(bob, alice);
+        assertThat(list.entry(aliceUuid).getData()).isSameAs(alice);
+        assertThat(list.entry(aliceUuid)).isSameAs(list.entries().get(1));
+        assertThat(list.entry(UUID.randomUUID())).isNull();
+        assertThat(list.asList()).containsExactly(bob, alice);
+        assertThat(list.page(null, 1).getEntries()).containsExactly(list.entries().get(0));
+    }
+
+    @Test
+    @DisplayName("Should find friends by name ignoring case")
+    void named() {
+        FriendshipData steve = friend("Steve", false);
+        FriendList list = new FriendList(Arrays.asList(steve, friend("Alex", true)));
+
+        assertThat(list.named("STEVE").getData()).isSameAs(steve);
+        assertThat(list.named("bob")).isNull();
+    }
+
+    @Test
+    @DisplayName("Should return an empty last page")
+    void empty() {
+        FriendList.Page page = new FriendList(new ArrayList<>()).page(null, 10);
+
+        assertThat(page.getFriends()).isEmpty();
+        assertThat(page.getNext()).isNull();
+    }
+
+    @Test
+    @DisplayName("Should add, replace and remove friends in a sorted copy")
+    void withAndWithout() {
+        FriendshipData alpha = friend("alpha", false);
+        FriendshipData charlie = friend("charlie", false);
+        FriendList list = new FriendList(Arrays.asList(alpha, charlie));
+        UUID alphaUuid = UUID.fromString(alpha.getFriendUuid());
+
+        FriendList added = list.with(friend("Bravo", false));
+        alpha.setFavorite(true);
+        FriendList favorited = added.with(alpha);
+        FriendList removed = favorited.without(alphaUuid);
+
+        assertThat(list.size()).isEqualTo(2);
+        assertThat(added.asList()).extracting(FriendshipData::getFriendName)
+            .containsExactly("alpha", "Bravo", "charlie");
+        assertThat(favorited.asList()).extracting(FriendshipData::getFriendName)
+            .containsExactly("alpha", "Bravo", "charlie");
+        assertThat(favorited.favorites()).extracting(FriendEntry::getData).containsExactly(alpha);
+        assertThat(favorited.entry(alphaUuid).getLabel()).startsWith("§e★");
+        assertThat(removed.asList()).extracting(FriendshipData::getFriendName).containsExactly("Bravo", "charlie");
+        assertThat(removed.favorites()).isEmpty();
+        assertThat(removed.contains(alphaUuid)).isFalse();
+        assertThat(removed.without(alphaUuid)).isSameAs(removed);
+    }
+}
@@ -3,16 +3,31 @@ package com.ultikits.plugins.social.service;
 import com.ultikits.plugins.social.UltiSocialTestHelper;
 import com.ultikits.plugins.social.config.SocialConfig;
 import com.ultikits.plugins.social.entity.BlacklistData;
+import com.ultikits.plugins.social.entity.FriendGroupData;
 import com.ultikits.plugins.social.entity.FriendRequest;
 import com.ultikits.plugins.social.entity.FriendshipData;
+import com.ultikits.plugins.social.entity.LastSeenData;
+import com.ultikits.plugins.social.entity.MailboxData;
+import com.ultikits.plugins.social.message.OfflineMailbox;
+import com.ultikits.plugins.social.metrics.SocialMetrics;
+import com.ultikits.plugins.social.storage.FriendshipImporter;
+import com.ultikits.plugins.social.storage.GraphExporter;
+import com.ultikits.plugins.social.storage.GraphSnapshot;
+import com.ultikits.plugins.social.sync.LoopbackMessageBus;
+import com.ultikits.plugins.social.sync.SyncMessage;
 import com.ultikits.ultitools.interfaces.DataOperator;
 import com.ultikits.ultitools.interfaces.Query;
 
 import org.bukkit.entity.Player;
 import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.ArgumentCaptor;
 
+import java.io.File;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -130,6 +145,7 @@ class FriendServiceTest {
             // friends query returns existing friendship
             when(friendQuery.list()).thenReturn(
                     new ArrayList<>(Collections.singletonList(existingFriendship)));
+            when(friendQuery.exists()).thenReturn(true);
 
             boolean result = service.sendRequest(player, friend);
 
@@ -171,6 +187,7 @@ class FriendServiceTest {
                         .build());
             }
             when(friendQuery.list()).thenReturn(friends);
+            when(friendQuery.count()).thenReturn(50L);
 
             boolean result = service.sendRequest(player, friend);
 
@@ -256,6 +273,15 @@ class FriendServiceTest {
             verify(friendDataOperator, times(2)).insert(any(FriendshipData.class));
         }
 
+        @Test
+        @DisplayName("Should find the request by sender name ignoring case")
+        void acceptIgnoringCase() {
+            service.sendRequest(player, friend);
+
+            assertThat(service.acceptRequest(friend, "testPLAYER")).isTrue();
+            assertThat(service.getPendingRequests(friendUuid)).isEmpty();
+        }
+
         @Test
         @DisplayName("Should reject non-existent request")
         void rejectNonExistentRequest() {
@@ -274,8 +300,8 @@ class FriendServiceTest {
                     friendUuid,
                     System.currentTimeMillis() - 120000 // 2 minutes ago
             );
-            Map<UUID, List<FriendRequest>> requests = new ConcurrentHashMapWrapper<>();
-            requests.put(friendUuid, new ArrayList<>(Collections.singletonList(expiredRequest)));
+            Map<UUID, RequestInbox> requests = new ConcurrentHashMapWrapper<>();
+            requests.put(friendUuid, inbox(expiredRequest));
             try {
                 UltiSocialTestHelper.setField(service, "pendingRequests", requests);
             } catch (Exception e) {
@@ -306,6 +332,7 @@ class FriendServiceTest {
                         .build());
             }
             when(friendQuery.list()).thenReturn(maxFriends);
+            when(friendQuery.count()).thenReturn(50L);
 
             boolean result = service.acceptRequest(friend, "TestPlayer");
 
@@ -327,7 +354,7 @@ class FriendServiceTest {
         }
 
         @Test
-        @DisplayName("Should clear friend cache after acceptance")
+        @DisplayName("Should add the friendship to both cached lists after acceptance")
         void clearCacheAfterAccept() {
             service.sendRequest(player, friend);
             when(UltiSocialTestHelper.getMockServer().getPlayer(playerUuid)).thenReturn(player);
@@ -338,10 +365,12 @@ class FriendServiceTest {
 
             service.acceptRequest(friend, "TestPlayer");
 
-            // Cache should be cleared, next call should hit DB again
-            service.getFriends(playerUuid);
-            // query().list() called 3 times: 1st cache-fill + 2nd after cache clear for playerUuid
-            // friendUuid also had cache cleared
+            // Cached lists gain the new friendship without another load
+            assertThat(service.getFriends(playerUuid)).extracting(FriendshipData::getFriendName)
+                .containsExactly("TestFriend");
+            assertThat(service.getFriends(friendUuid)).extracting(FriendshipData::getFriendName)
+                .containsExactly("TestPlayer");
+            verify(friendQuery, times(2)).list();
         }
 
         @Test
@@ -476,7 +505,7 @@ class FriendServiceTest {
         }
 
         @Test
-        @DisplayName("Should clear friend cache for both players after removal")
+        @DisplayName("Should remove the friend from the cached list after removal")
         void clearCacheAfterRemoval() {
             FriendshipData friendship = FriendshipData.builder()
                     .playerUuid(playerUuid.toString())
@@ -494,8 +523,9 @@ class FriendServiceTest {
 
             service.removeFriend(player, "TestFriend");
 
-            // Cache should be cleared; next getFriends should re-query
-            // (but since cache was cleared, the result depends on mock state)
+            // Cached list loses the friend without another load
+            assertThat(service.getFriends(playerUuid)).isEmpty();
+            verify(friendQuery, times(1)).list();
         }
     }
 
@@ -628,12 +658,24 @@ class FriendServiceTest {
                     .build();
             when(friendQuery.list()).thenReturn(
                     new ArrayList<>(Collections.singletonList(friendship)));
+            service.getFriends(playerUuid);
 
             boolean result = service.areFriends(playerUuid, friendUuid);
 
             assertThat(result).isTrue();
         }
 
+        @Test
+        @DisplayName("Should use an exists query when the list is not cached")
+        void existsQueryWhenUncached() {
+            when(friendQuery.exists()).thenReturn(true);
+
+            assertThat(service.areFriends(playerUuid, friendUuid)).isTrue();
+
+            verify(friendQuery).where("friend_uuid");
+            verify(friendQuery, never()).list();
+        }
+
         @Test
         @DisplayName("Should return false for non-friends")
         void returnFalseForNonFriends() {
@@ -663,6 +705,544 @@ class FriendServiceTest {
         }
     }
 
+    // ==================== getFriendsInWorld ====================
+
+    @Nested
+    @DisplayName("getFriendsInWorld")
+    class GetFriendsInWorld {
+
+        private FriendshipData friendship(UUID uuid, String name) {
+            return FriendshipData.builder()
+                    .playerUuid(playerUuid.toString())
+                    .friendUuid(uuid.toString())
+                    .friendName(name)
+                    .createdTime(System.currentTimeMillis())
+                    .favorite(false)
+                    .build();
+        }
+
+        @Test
+        @DisplayName("Should walk the online friends when they are the smaller side")
+        void smallFriendList() {
+            when(friendQuery.list()).thenReturn(
+                    new ArrayList<>(Collections.singletonList(friendship(friendUuid, "TestFriend"))));
+            service.updateWorld(friendUuid, "world");
+            service.updateWorld(playerUuid, "world");
+            for (int i = 0; i < 5; i++) {
+                service.updateWorld(UUID.randomUUID(), "world");
+            }
+
+            assertThat(service.getFriendsInWorld(playerUuid, "world")).containsExactly(friendUuid);
+            assertThat(service.getFriendsInWorld(playerUuid, "nether")).isEmpty();
+        }
+
+        @Test
+        @DisplayName("Should walk the world's players when they are fewer than the friends")
+        void smallWorld() {
+            List<FriendshipData> friends = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                friends.add(friendship(UUID.randomUUID(), "Friend" + i));
+            }
+            friends.add(friendship(friendUuid, "TestFriend"));
+            when(friendQuery.list()).thenReturn(friends);
+            service.updateWorld(friendUuid, "nether");
+            service.updateWorld(playerUuid, "nether");
+
+            assertThat(service.getFriendsInWorld(playerUuid, "nether")).containsExactly(friendUuid);
+        }
+
+        @Test
+        @DisplayName("Should drop friends who left the world or the server")
+        void leftWorld() {
+            when(friendQuery.list()).thenReturn(
+                    new ArrayList<>(Collections.singletonList(friendship(friendUuid, "TestFriend"))));
+            service.updateWorld(friendUuid, "world");
+            service.updateWorld(friendUuid, "nether");
+
+            assertThat(service.getFriendsInWorld(playerUuid, "world")).isEmpty();
+
+            service.updateWorld(friendUuid, null);
+
+            assertThat(service.getFriendsInWorld(playerUuid, "nether")).isEmpty();
+        }
+    }
+
+    // ==================== getFriendsPage ====================
+
+    @Nested
+    @DisplayName("getFriendsPage")
+    class GetFriendsPage {
+
+        @Test
+        @DisplayName("Should page through cached friends with one load")
+        void pageWithOneLoad() {
+            List<FriendshipData> rows = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                rows.add(FriendshipData.create(playerUuid, UUID.randomUUID(), String.format("F%02d", i)));
+            }
+            when(friendQuery.list()).thenReturn(rows);
+
+            FriendList.Page first = service.getFriendsPage(playerUuid, null, 20);
+            FriendList.Page second = service.getFriendsPage(playerUuid, first.getNext(), 20);
+
+            assertThat(first.getFriends()).hasSize(20);
+            assertThat(second.getFriends()).extracting(FriendshipData::getFriendName).startsWith("F20");
+            assertThat(second.getNext()).isNull();
+            verify(friendQuery, times(1)).list();
+        }
+
+        @Test
+        @DisplayName("Should answer membership and count checks from the cached index")
+        void checksFromIndex() {
+            FriendshipData friendship = FriendshipData.create(playerUuid, friendUuid, "TestFriend");
+            when(friendQuery.list()).thenReturn(new ArrayList<>(Collections.singletonList(friendship)));
+            service.getFriends(playerUuid);
+
+            for (int i = 0; i < 10; i++) {
+                assertThat(service.areFriends(playerUuid, friendUuid)).isTrue();
+                assertThat(service.getFriendCount(playerUuid)).isEqualTo(1);
+            }
+
+            verify(friendQuery, times(1)).list();
+        }
+    }
+
+    // ==================== getFriendsView ====================
+
+    @Nested
+    @DisplayName("getFriendsView")
+    class GetFriendsView {
+
+        private FriendshipData alice;
+        private FriendshipData bob;
+        private FriendshipData carol;
+        private Player aliceOnline;
+
+        @BeforeEach
+        void setUpFriends() {
+            alice = FriendshipData.create(playerUuid, UUID.randomUUID(), "Alice");
+            alice.setCreatedTime(3000);
+            bob = FriendshipData.create(playerUuid, UUID.randomUUID(), "Bob");
+            bob.setCreatedTime(1000);
+            bob.setFavorite(true);
+            carol = FriendshipData.create(playerUuid, UUID.randomUUID(), "Carol");
+            carol.setCreatedTime(2000);
+            when(friendQuery.list()).thenReturn(new ArrayList<>(Arrays.asList(alice, bob, carol)));
+
+            aliceOnline = UltiSocialTestHelper.createMockPlayer("Alice", UUID.fromString(alice.getFriendUuid()));
+            when(UltiSocialTestHelper.getMockServer().getPlayer(UUID.fromString(alice.getFriendUuid())))
+                .thenReturn(aliceOnline);
+            service.updateWorld(UUID.fromString(alice.getFriendUuid()), "world");
+        }
+
+        @Test
+        @DisplayName("Default view should be the cached display order")
+        void defaultView() {
+            assertThat(service.getFriendsView(player, FriendView.DEFAULT)).extracting(FriendEntry::getData).containsExactly(bob, alice, carol);
+        }
+
+        @Test
+        @DisplayName("Should filter online, favorite and same-world friends")
+        void filters() {
+            assertThat(service.getFriendsView(player, FriendView.DEFAULT.withFilter(FriendView.Filter.ONLINE)))
+                .extracting(FriendEntry::getData).containsExactly(alice);
+            assertThat(service.getFriendsView(player, FriendView.DEFAULT.withFilter(FriendView.Filter.FAVORITES)))
+                .extracting(FriendEntry::getData).containsExactly(bob);
+            assertThat(service.getFriendsView(player, FriendView.DEFAULT.withFilter(FriendView.Filter.SAME_WORLD)))
+                .extracting(FriendEntry::getData).containsExactly(alice);
+
+            service.updateWorld(UUID.fromString(alice.getFriendUuid()), "world_nether");
+            assertThat(service.getFriendsView(player, FriendView.DEFAULT.withFilter(FriendView.Filter.SAME_WORLD)))
+                .isEmpty();
+        }
+
+        @Test
+        @DisplayName("Should sort by date added and put online friends first")
+        void sorts() {
+            assertThat(service.getFriendsView(player, FriendView.DEFAULT.withSort(FriendView.Sort.DATE_ADDED)))
+                .extracting(FriendEntry::getData).containsExactly(alice, carol, bob);
+            assertThat(service.getFriendsView(player, FriendView.DEFAULT.withSort(FriendView.Sort.ONLINE_FIRST)))
+                .extracting(FriendEntry::getData).containsExactly(alice, bob, carol);
+        }
+
+        @Test
+        @DisplayName("Should sort offline friends by last seen after online ones")
+        void lastSeen() {
+            org.bukkit.OfflinePlayer bobOffline = mock(org.bukkit.OfflinePlayer.class);
+            when(bobOffline.getLastPlayed()).thenReturn(500L);
+            org.bukkit.OfflinePlayer carolOffline = mock(org.bukkit.OfflinePlayer.class);
+            when(carolOffline.getLastPlayed()).thenReturn(900L);
+            when(UltiSocialTestHelper.getMockServer().getOfflinePlayer(UUID.fromString(bob.getFriendUuid())))
+                .thenReturn(bobOffline);
+            when(UltiSocialTestHelper.getMockServer().getOfflinePlayer(UUID.fromString(carol.getFriendUuid())))
+                .thenReturn(carolOffline);
+
+            assertThat(service.getFriendsView(player, FriendView.DEFAULT.withSort(FriendView.Sort.LAST_SEEN)))
+                .extracting(FriendEntry::getData).containsExactly(alice, carol, bob);
+        }
+
+        @Test
+        @DisplayName("Should search by name prefix within the chosen order")
+        void search() {
+            FriendshipData bobby = FriendshipData.create(playerUuid, UUID.randomUUID(), "bobby");
+            bobby.setCreatedTime(5000);
+            when(friendQuery.list()).thenReturn(new ArrayList<>(Arrays.asList(alice, bob, carol, bobby)));
+
+            assertThat(service.getFriendsView(player, FriendView.DEFAULT.withSearch("BO")))
+                .extracting(FriendEntry::getData).containsExactly(bob, bobby);
+            assertThat(service.getFriendsView(player,
+                FriendView.DEFAULT.withSearch("bo").withSort(FriendView.Sort.DATE_ADDED)))
+                .extracting(FriendEntry::getData).containsExactly(bobby, bob);
+        }
+
+        @Test
+        @DisplayName("Should drop cached last-seen orders of friends when a player leaves")
+        void presenceChange() {
+            UUID aliceUuid = UUID.fromString(alice.getFriendUuid());
+            FriendshipData back = FriendshipData.create(aliceUuid, playerUuid, "TestPlayer");
+            when(friendQuery.list())
+                .thenReturn(new ArrayList<>(Arrays.asList(alice, bob, carol)))
+                .thenReturn(new ArrayList<>(Collections.singletonList(back)));
+            FriendView lastSeen = FriendView.DEFAULT.withSort(FriendView.Sort.LAST_SEEN);
+            service.getFriendsView(player, lastSeen);
+            service.getFriends(aliceUuid);
+
+            org.bukkit.OfflinePlayer carolOffline = mock(org.bukkit.OfflinePlayer.class);
+            when(carolOffline.getLastPlayed()).thenReturn(900L);
+            when(UltiSocialTestHelper.getMockServer().getOfflinePlayer(UUID.fromString(carol.getFriendUuid())))
+                .thenReturn(carolOffline);
+            assertThat(service.getFriendsView(player, lastSeen)).extracting(FriendEntry::getData).containsExactly(alice, bob, carol);
+
+            service.onPresenceChange(aliceUuid);
+
+            assertThat(service.getFriendsView(player, lastSeen)).extracting(FriendEntry::getData).containsExactly(alice, carol, bob);
+        }
+
+        @Test
+        @DisplayName("Should serve online views from the list's online subset")
+        void onlineSubset() {
+            UUID aliceUuid = UUID.fromString(alice.getFriendUuid());
+            UUID carolUuid = UUID.fromString(carol.getFriendUuid());
+            FriendView online = FriendView.DEFAULT.withFilter(FriendView.Filter.ONLINE);
+            assertThat(service.getFriendsView(player, online)).extracting(FriendEntry::getData).containsExactly(alice);
+
+            service.updateWorld(carolUuid, "world");
+            assertThat(service.getFriendsView(player, online)).extracting(FriendEntry::getData)
+                .containsExactly(alice, carol);
+
+            service.updateWorld(aliceUuid, null);
+            assertThat(service.getFriendsView(player, online)).extracting(FriendEntry::getData).containsExactly(carol);
+            assertThat(service.getFriendsView(player, FriendView.DEFAULT.withSort(FriendView.Sort.ONLINE_FIRST)))
+                .extracting(FriendEntry::getData).containsExactly(carol, bob, alice);
+            verify(UltiSocialTestHelper.getMockServer(), never()).getPlayer(any(UUID.class));
+        }
+
+        @Test
+        @DisplayName("Should keep the online subset when the list changes")
+        void onlineAfterChange() {
+            service.getFriendsView(player, FriendView.DEFAULT);
+
+            service.toggleFavorite(playerUuid, "Alice");
+
+            assertThat(service.getFriendsView(player, FriendView.DEFAULT.withFilter(FriendView.Filter.ONLINE)))
+                .extracting(FriendEntry::getData).containsExactly(alice);
+        }
+    }
+
+    // ==================== Friend groups ====================
+
+    @Nested
+    @DisplayName("Friend groups")
+    class FriendGroupTests {
+
+        @SuppressWarnings("unchecked")
+        private final DataOperator<FriendGroupData> groupOperator = mock(DataOperator.class);
+        @SuppressWarnings("unchecked")
+        private final Query<FriendGroupData> groupQuery = mock(Query.class);
+        private FriendGroupData guild;
+        private FriendshipData alice;
+        private FriendshipData bob;
+        private UUID aliceUuid;
+        private UUID bobUuid;
+
+        @BeforeEach
+        void setUpGroups() throws Exception {
+            alice = FriendshipData.create(playerUuid, UUID.randomUUID(), "Alice");
+            bob = FriendshipData.create(playerUuid, UUID.randomUUID(), "Bob");
+            aliceUuid = UUID.fromString(alice.getFriendUuid());
+            bobUuid = UUID.fromString(bob.getFriendUuid());
+            when(friendQuery.list()).thenReturn(new ArrayList<>(Arrays.asList(alice, bob)));
+
+            guild = FriendGroupData.create(playerUuid, "Guild");
+            guild.setId("1");
+            guild.setMembers(FriendGroupData.pack(Collections.singletonList(bobUuid)));
+            when(groupOperator.query()).thenReturn(groupQuery);
+            when(groupQuery.where(anyString())).thenReturn(groupQuery);
+            when(groupQuery.eq(any())).thenReturn(groupQuery);
+            when(groupQuery.list()).thenReturn(new ArrayList<>(Collections.singletonList(guild)));
+            UltiSocialTestHelper.setField(service, "groupDataOperator", groupOperator);
+        }
+
+        @Test
+        @DisplayName("Should read groups once and rebind them after the friend list changes")
+        void loadOnce() {
+            assertThat(service.getGroups(playerUuid).get("guild").members())
+                .extracting(FriendEntry::getData).containsExactly(bob);
+            assertThat(service.getGroups(playerUuid)).isSameAs(service.getGroups(playerUuid));
+
+            when(friendQuery.list()).thenReturn(new ArrayList<>(Collections.singletonList(bob)));
+            service.removeFriend(player, "Alice");
+
+            assertThat(service.getGroups(playerUuid).getFriends().size()).isEqualTo(1);
+            assertThat(service.getGroups(playerUuid).get("Guild").members())
+                .extracting(FriendEntry::getUuid).containsExactly(bobUuid);
+            verify(groupQuery, times(1)).list();
+        }
+
+        @Test
+        @DisplayName("Should create groups up to the limit")
+        void create() {
+            assertThat(service.createGroup(playerUuid, "Family")).isTrue();
+            assertThat(service.createGroup(playerUuid, "GUILD")).isFalse();
+            when(config.getMaxGroups()).thenReturn(2);
+            assertThat(service.createGroup(playerUuid, "Builders")).isFalse();
+
+            verify(groupOperator, times(1)).insert(any());
+            assertThat(service.getGroups(playerUuid).all()).extracting(FriendGroups.Group::getName)
+                .containsExactly("Guild", "Family");
+        }
+
+        @Test
+        @DisplayName("Should store membership changes of one group")
+        void membership() throws Exception {
+            doAnswer(inv -> null).when(groupOperator).update(any());
+
+            assertThat(service.addToGroup(playerUuid, "Guild", aliceUuid)).isTrue();
+            assertThat(service.addToGroup(playerUuid, "Guild", aliceUuid)).isFalse();
+            assertThat(service.addToGroup(playerUuid, "Guild", UUID.randomUUID())).isFalse();
+            assertThat(FriendGroupData.unpack(guild.getMembers())).containsExactlyInAnyOrder(aliceUuid, bobUuid);
+
+            assertThat(service.removeFromGroup(playerUuid, "guild", bobUuid)).isTrue();
+            assertThat(service.removeFromGroup(playerUuid, "guild", bobUuid)).isFalse();
+
+            verify(groupOperator, times(2)).update(guild);
+            assertThat(service.getGroups(playerUuid).get("Guild").members())
+                .extracting(FriendEntry::getUuid).containsExactly(aliceUuid);
+        }
+
+        @Test
+        @DisplayName("Should keep the previous members when the write fails")
+        void membershipWriteFails() throws Exception {
+            String before = guild.getMembers();
+            doThrow(new IllegalAccessException("locked")).when(groupOperator).update(any());
+
+            assertThat(service.addToGroup(playerUuid, "Guild", aliceUuid)).isFalse();
+
+            assertThat(guild.getMembers()).isEqualTo(before);
+            assertThat(service.getGroups(playerUuid).get("Guild").contains(aliceUuid)).isFalse();
+        }
+
+        @Test
+        @DisplayName("Should delete a group")
+        void delete() {
+            assertThat(service.deleteGroup(playerUuid, "Guild")).isTrue();
+            assertThat(service.deleteGroup(playerUuid, "Guild")).isFalse();
+
+            verify(groupOperator).delById("1");
+            assertThat(service.getGroups(playerUuid).size()).isZero();
+        }
+
+        @Test
+        @DisplayName("Should show only group members in a group view")
+        void view() {
+            assertThat(service.getFriendsView(player, FriendView.DEFAULT.withGroup("Guild")))
+                .extracting(FriendEntry::getData).containsExactly(bob);
+            assertThat(service.getFriendsView(player, FriendView.DEFAULT.withGroup("Guild").withSearch("A")))
+                .isEmpty();
+            assertThat(service.getFriendsView(player, FriendView.DEFAULT.withGroup("Nope"))).isEmpty();
+        }
+    }
+
+    // ==================== Last Seen ====================
+
+    @Nested
+    @DisplayName("Last seen")
+    class LastSeenTests {
+
+        @SuppressWarnings("unchecked")
+        private final DataOperator<LastSeenData> lastSeenOperator = mock(DataOperator.class);
+        @SuppressWarnings("unchecked")
+        private final Query<LastSeenData> lastSeenQuery = mock(Query.class);
+        private LastSeenTracker tracker;
+
+        @BeforeEach
+        void setUpTracker() throws Exception {
+            when(lastSeenOperator.query()).thenReturn(lastSeenQuery);
+            when(lastSeenQuery.where(anyString())).thenReturn(lastSeenQuery);
+            when(lastSeenQuery.eq(any())).thenReturn(lastSeenQuery);
+            when(lastSeenQuery.in(any())).thenReturn(lastSeenQuery);
+            when(lastSeenQuery.list()).thenReturn(new ArrayList<>());
+            tracker = new LastSeenTracker(lastSeenOperator);
+            UltiSocialTestHelper.setField(service, "lastSeen", tracker);
+        }
+
+        @Test
+        @DisplayName("Should prefer recorded times over server player data")
+        void recorded() {
+            service.recordLastSeen(friendUuid);
+
+            assertThat(service.getLastSeen(friendUuid)).isCloseTo(System.currentTimeMillis(), within(5000L));
+            verify(UltiSocialTestHelper.getMockServer(), never()).getOfflinePlayer(friendUuid);
+        }
+
+        @Test
+        @DisplayName("Should fall back to server player data")
+        void fallback() {
+            org.bukkit.OfflinePlayer offline = mock(org.bukkit.OfflinePlayer.class);
+            when(offline.getLastPlayed()).thenReturn(1234L);
+            when(UltiSocialTestHelper.getMockServer().getOfflinePlayer(friendUuid)).thenReturn(offline);
+
+            assertThat(service.getLastSeen(friendUuid)).isEqualTo(1234L);
+        }
+
+        @Test
+        @DisplayName("Should load friends' last-seen times in one query during prefetch")
+        void prefetch() {
+            FriendshipData friendship = FriendshipData.create(playerUuid, friendUuid, "TestFriend");
+            when(friendQuery.list()).thenReturn(new ArrayList<>(Collections.singletonList(friendship)));
+            when(lastSeenQuery.list()).thenReturn(new ArrayList<>(Collections.singletonList(
+                LastSeenData.builder().playerUuid(friendUuid.toString()).lastSeen(777L).build())));
+
+            service.prefetch(playerUuid);
+
+            assertThat(service.getLastSeen(friendUuid)).isEqualTo(777L);
+            verify(lastSeenQuery, times(1)).list();
+            verify(lastSeenQuery, never()).first();
+        }
+
+        @Test
+        @DisplayName("Should record every online player in one flush")
+        void onlinePlayers() {
+            Player other = UltiSocialTestHelper.createMockPlayer("Other", UUID.randomUUID());
+            doReturn(Arrays.asList(player, other)).when(UltiSocialTestHelper.getMockServer()).getOnlinePlayers();
+
+            service.recordOnlinePlayers();
+            service.flushLastSeen();
+
+            verify(lastSeenOperator, times(2)).insert(any());
+        }
+    }
+
+    // ==================== Name reconciliation ====================
+
+    @Nested
+    @DisplayName("reconcileName")
+    class ReconcileName {
+
+        @SuppressWarnings("unchecked")
+        private final DataOperator<LastSeenData> lastSeenOperator = mock(DataOperator.class);
+        @SuppressWarnings("unchecked")
+        private final Query<LastSeenData> lastSeenQuery = mock(Query.class);
+        private LastSeenTracker tracker;
+
+        @BeforeEach
+        void setUpTracker() throws Exception {
+            when(lastSeenOperator.query()).thenReturn(lastSeenQuery);
+            when(lastSeenQuery.where(anyString())).thenReturn(lastSeenQuery);
+            when(lastSeenQuery.eq(any())).thenReturn(lastSeenQuery);
+            when(lastSeenQuery.in(any())).thenReturn(lastSeenQuery);
+            when(lastSeenQuery.list()).thenReturn(new ArrayList<>());
+            tracker = new LastSeenTracker(lastSeenOperator);
+            UltiSocialTestHelper.setField(service, "lastSeen", tracker);
+        }
+
+        private void storedName(String name) {
+            when(lastSeenQuery.list()).thenReturn(new ArrayList<>(Collections.singletonList(LastSeenData.builder()
+                    .playerUuid(friendUuid.toString()).lastSeen(1L).playerName(name).build())));
+            tracker.prefetch(Collections.singletonList(friendUuid));
+        }
+
+        @Test
+        @DisplayName("Should not search rows when the name is unchanged")
+        void unchanged() {
+            storedName("TestFriend");
+
+            assertThat(service.reconcileName(friendUuid, "TestFriend")).isZero();
+
+            verify(friendQuery, never()).list();
+            verify(blacklistQuery, never()).list();
+            assertThat(service.getPlayerName(friendUuid)).isEqualTo("TestFriend");
+        }
+
+        @Test
+        @DisplayName("Should rename stale rows and update their owners' cached lists")
+        void changed() throws Exception {
+            storedName("OldName");
+            FriendshipData friendship = FriendshipData.create(playerUuid, friendUuid, "OldName");
+            when(friendQuery.list()).thenReturn(new ArrayList<>(Collections.singletonList(friendship)));
+            service.getFriends(playerUuid);
+
+            assertThat(service.reconcileName(friendUuid, "TestFriend")).isEqualTo(1);
+
+            verify(friendDataOperator).update(friendship);
+            assertThat(tracker.getName(friendUuid)).isEqualTo("TestFriend");
+            assertThat(service.getFriends(playerUuid).get(0).getFriendName()).isEqualTo("TestFriend");
+            // Initial load and the rename search, no reload
+            verify(friendQuery, times(2)).list();
+        }
+
+        @Test
+        @DisplayName("Should only record the name when none is stored yet")
+        void firstRecordedName() {
+            tracker.prefetch(Collections.singletonList(friendUuid));
+
+            assertThat(service.reconcileName(friendUuid, "TestFriend")).isZero();
+
+            verify(friendQuery, never()).list();
+            verify(blacklistQuery, never()).list();
+            assertThat(tracker.getName(friendUuid)).isEqualTo("TestFriend");
+        }
+
+        @Test
+        @DisplayName("Should show the current name on rows loaded before their rename")
+        void canonicalOnLoad() {
+            service.reconcileName(friendUuid, "TestFriend");
+            BlacklistData entry = BlacklistData.create(playerUuid, friendUuid, "OldName", null);
+            when(blacklistQuery.list()).thenReturn(new ArrayList<>(Collections.singletonList(entry)));
+
+            assertThat(service.getBlacklist(playerUuid).get(0).getBlockedName()).isEqualTo("TestFriend");
+        }
+    }
+
+    // ==================== getBlacklistPage ====================
+
+    @Nested
+    @DisplayName("getBlacklistPage")
+    class GetBlacklistPage {
+
+        @Test
+        @DisplayName("Should return the requested slice newest first")
+        void returnSlice() {
+            List<BlacklistData> rows = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                rows.add(BlacklistData.builder()
+                    .playerUuid(playerUuid.toString())
+                    .blockedUuid(UUID.randomUUID().toString())
+                    .blockedName("B" + i)
+                    .createdTime(i)
+                    .build());
+            }
+            when(blacklistQuery.list()).thenReturn(rows);
+
+            assertThat(service.getBlacklistPage(playerUuid, 0, 3))
+                .extracting(BlacklistData::getBlockedName).containsExactly("B9", "B8", "B7");
+            assertThat(service.getBlacklistPage(playerUuid, 8, 5))
+                .extracting(BlacklistData::getBlockedName).containsExactly("B1", "B0");
+            assertThat(service.getBlacklistPage(playerUuid, 20, 5)).isEmpty();
+            verify(blacklistQuery, times(1)).list();
+        }
+    }
+
     // ==================== getPendingRequests ====================
 
     @Nested
@@ -695,8 +1275,8 @@ class FriendServiceTest {
                     friendUuid, "TestFriend", playerUuid,
                     System.currentTimeMillis() - 120000 // 2 minutes ago, timeout is 60s
             );
-            Map<UUID, List<FriendRequest>> requests = new java.util.concurrent.ConcurrentHashMap<>();
-            requests.put(playerUuid, new ArrayList<>(Collections.singletonList(expired)));
+            Map<UUID, RequestInbox> requests = new java.util.concurrent.ConcurrentHashMap<>();
+            requests.put(playerUuid, inbox(expired));
             try {
                 UltiSocialTestHelper.setField(service, "pendingRequests", requests);
             } catch (Exception e) {
@@ -725,12 +1305,23 @@ class FriendServiceTest {
                     .friendName("F2").friendUuid(UUID.randomUUID().toString())
                     .createdTime(System.currentTimeMillis()).favorite(false).build();
             when(friendQuery.list()).thenReturn(new ArrayList<>(Arrays.asList(f1, f2)));
+            service.getFriends(playerUuid);
 
             int count = service.getFriendCount(playerUuid);
 
             assertThat(count).isEqualTo(2);
         }
 
+        @Test
+        @DisplayName("Should use a count query when the list is not cached")
+        void countQueryWhenUncached() {
+            when(friendQuery.count()).thenReturn(3L);
+
+            assertThat(service.getFriendCount(playerUuid)).isEqualTo(3);
+
+            verify(friendQuery, never()).list();
+        }
+
         @Test
         @DisplayName("Should return 0 when no friends")
         void returnZeroWhenNoFriends() {
@@ -764,6 +1355,18 @@ class FriendServiceTest {
             assertThat(canTeleport).isFalse();
         }
 
+        @Test
+        @DisplayName("Should finish due teleport warmups on tick")
+        void tickWarmups() {
+            int[] done = {0};
+            service.getWarmups().start(player, 0, System.currentTimeMillis(), () -> done[0]++, () -> { });
+
+            service.tickWarmups();
+
+            assertThat(done[0]).isEqualTo(1);
+            assertThat(service.getWarmups().isEmpty()).isTrue();
+        }
+
         @Test
         @DisplayName("Should return remaining cooldown")
         void returnRemainingCooldown() {
@@ -836,6 +1439,25 @@ class FriendServiceTest {
             verify(blacklistDataOperator).delById("blacklist-id");
         }
 
+        @Test
+        @DisplayName("Should remove from blacklist by name ignoring case and rebuild the index")
+        void removeFromBlacklistIgnoringCase() {
+            BlacklistData blacklist = BlacklistData.builder()
+                    .playerUuid(playerUuid.toString())
+                    .blockedUuid(friendUuid.toString())
+                    .blockedName("TestFriend")
+                    .createdTime(System.currentTimeMillis())
+                    .build();
+            blacklist.setId("blacklist-id");
+            when(blacklistQuery.list())
+                    .thenReturn(new ArrayList<>(Collections.singletonList(blacklist)))
+                    .thenReturn(new ArrayList<>());
+
+            assertThat(service.removeFromBlacklist(player, "testfriend")).isTrue();
+            assertThat(service.removeFromBlacklist(player, "testfriend")).isFalse();
+            verify(blacklistDataOperator, times(1)).delById("blacklist-id");
+        }
+
         @Test
         @DisplayName("Should check if blocked bidirectionally")
         void checkBlockedBidirectional() {
@@ -1049,38 +1671,133 @@ class FriendServiceTest {
         }
     }
 
-    // ==================== toggleFavorite ====================
+    // ==================== Chat filtering ====================
 
     @Nested
-    @DisplayName("toggleFavorite")
-    class ToggleFavorite {
+    @DisplayName("hideFromBlockers")
+    class HideFromBlockers {
 
-        @Test
-        @DisplayName("Should toggle favorite status")
-        void toggleFavorite() throws Exception {
-            FriendshipData friendship = FriendshipData.builder()
+        private Player stranger;
+        private Set<Player> recipients;
+
+        @BeforeEach
+        void setUpRecipients() {
+            stranger = UltiSocialTestHelper.createMockPlayer("Stranger", UUID.randomUUID());
+            recipients = new HashSet<>(Arrays.asList(player, friend, stranger));
+        }
+
+        private void stubBlock(UUID blocked) {
+            BlacklistData block = BlacklistData.builder()
                     .playerUuid(playerUuid.toString())
-                    .friendUuid(friendUuid.toString())
-                    .friendName("TestFriend")
-                    .favorite(false)
+                    .blockedUuid(blocked.toString())
+                    .blockedName("Blocked")
                     .createdTime(System.currentTimeMillis())
                     .build();
-            when(friendQuery.list()).thenReturn(
-                    new ArrayList<>(Collections.singletonList(friendship)));
+            when(blacklistQuery.list()).thenReturn(new ArrayList<>(Collections.singletonList(block)));
+        }
 
-            service.toggleFavorite(playerUuid, "TestFriend");
+        @Test
+        @DisplayName("Should hide a sender's chat from players who blocked them")
+        void hideFromLoadedBlacklist() {
+            stubBlock(friendUuid);
+            service.prefetch(playerUuid);
 
-            assertThat(friendship.isFavorite()).isTrue();
-            verify(friendDataOperator).update(friendship);
+            int removed = service.hideFromBlockers(friendUuid, recipients);
+
+            assertThat(removed).isEqualTo(1);
+            assertThat(recipients).containsExactlyInAnyOrder(friend, stranger);
         }
 
         @Test
-        @DisplayName("Should toggle favorite from true to false")
-        void toggleFavoriteToFalse() throws Exception {
-            FriendshipData friendship = FriendshipData.builder()
-                    .playerUuid(playerUuid.toString())
-                    .friendUuid(friendUuid.toString())
-                    .friendName("TestFriend")
+        @DisplayName("Should leave recipients alone when nobody blocked the sender")
+        void nobodyBlocked() {
+            assertThat(service.hideFromBlockers(friendUuid, recipients)).isZero();
+            assertThat(recipients).hasSize(3);
+        }
+
+        @Test
+        @DisplayName("Should follow blocks and unblocks without reloading")
+        void followChanges() {
+            service.addToBlacklist(playerUuid, friendUuid, "TestFriend", null);
+            assertThat(service.hideFromBlockers(friendUuid, new HashSet<>(recipients))).isEqualTo(1);
+
+            when(blacklistQuery.exists()).thenReturn(true);
+            service.removeFromBlacklist(playerUuid, friendUuid);
+
+            assertThat(service.hideFromBlockers(friendUuid, recipients)).isZero();
+        }
+
+        @Test
+        @DisplayName("Should stop hiding once the blocker left")
+        void blockerLeft() {
+            stubBlock(friendUuid);
+            service.prefetch(playerUuid);
+
+            service.unindexBlacklist(playerUuid);
+
+            assertThat(service.hideFromBlockers(friendUuid, recipients)).isZero();
+        }
+
+        @Test
+        @DisplayName("Should tolerate read-only recipients")
+        void readOnlyRecipients() {
+            stubBlock(friendUuid);
+            service.prefetch(playerUuid);
+
+            assertThat(service.hideFromBlockers(friendUuid, Collections.unmodifiableSet(recipients))).isZero();
+        }
+    }
+
+    // ==================== toggleFavorite ====================
+
+    @Nested
+    @DisplayName("toggleFavorite")
+    class ToggleFavorite {
+
+        @Test
+        @DisplayName("Should toggle favorite status")
+        void toggleFavorite() throws Exception {
+            FriendshipData friendship = FriendshipData.builder()
+                    .playerUuid(playerUuid.toString())
+                    .friendUuid(friendUuid.toString())
+                    .friendName("TestFriend")
+                    .favorite(false)
+                    .createdTime(System.currentTimeMillis())
+                    .build();
+            when(friendQuery.list()).thenReturn(
+                    new ArrayList<>(Collections.singletonList(friendship)));
+
+            service.toggleFavorite(playerUuid, "TestFriend");
+
+            assertThat(friendship.isFavorite()).isTrue();
+            verify(friendDataOperator).update(friendship);
+        }
+
+        @Test
+        @DisplayName("Should find the friend by name ignoring case")
+        void toggleFavoriteIgnoringCase() throws Exception {
+            FriendshipData friendship = FriendshipData.builder()
+                    .playerUuid(playerUuid.toString())
+                    .friendUuid(friendUuid.toString())
+                    .friendName("TestFriend")
+                    .createdTime(System.currentTimeMillis())
+                    .build();
+            when(friendQuery.list()).thenReturn(
+                    new ArrayList<>(Collections.singletonList(friendship)));
+
+            service.toggleFavorite(playerUuid, "TESTFRIEND");
+
+            assertThat(friendship.isFavorite()).isTrue();
+            assertThat(service.findFriend(playerUuid, "testfriend").getData()).isSameAs(friendship);
+        }
+
+        @Test
+        @DisplayName("Should toggle favorite from true to false")
+        void toggleFavoriteToFalse() throws Exception {
+            FriendshipData friendship = FriendshipData.builder()
+                    .playerUuid(playerUuid.toString())
+                    .friendUuid(friendUuid.toString())
+                    .friendName("TestFriend")
                     .favorite(true)
                     .createdTime(System.currentTimeMillis())
                     .build();
@@ -1104,8 +1821,8 @@ class FriendServiceTest {
         }
 
         @Test
-        @DisplayName("Should clear cache after toggle")
-        void clearCacheAfterToggle() throws Exception {
+        @DisplayName("Should update the cached list in place after toggle")
+        void updateCacheAfterToggle() throws Exception {
             FriendshipData friendship = FriendshipData.builder()
                     .playerUuid(playerUuid.toString())
                     .friendUuid(friendUuid.toString())
@@ -1118,9 +1835,9 @@ class FriendServiceTest {
 
             service.getFriends(playerUuid); // populate cache
             service.toggleFavorite(playerUuid, "TestFriend");
-            service.getFriends(playerUuid); // should re-query
 
-            verify(friendQuery, times(2)).list();
+            assertThat(service.getFriendEntries(playerUuid).get(0).getLabel()).startsWith("§e★");
+            verify(friendQuery, times(1)).list();
         }
 
         @Test
@@ -1186,25 +1903,44 @@ class FriendServiceTest {
             when(friendQuery.list()).thenReturn(
                     new ArrayList<>(Collections.singletonList(friendship)));
 
-            service.setNickname(playerUuid, "TestFriend", "BestBuddy");
+            assertThat(service.setNickname(playerUuid, "TestFriend", "BestBuddy")).isTrue();
 
             assertThat(friendship.getNickname()).isEqualTo("BestBuddy");
             verify(friendDataOperator).update(friendship);
         }
 
+        @Test
+        @DisplayName("Should reject a nickname too long to store")
+        void rejectLongNickname() throws Exception {
+            FriendshipData friendship = FriendshipData.builder()
+                    .playerUuid(playerUuid.toString())
+                    .friendUuid(friendUuid.toString())
+                    .friendName("TestFriend")
+                    .createdTime(System.currentTimeMillis())
+                    .build();
+            when(friendQuery.list()).thenReturn(
+                    new ArrayList<>(Collections.singletonList(friendship)));
+
+            // 11 characters of 3 bytes each
+            assertThat(service.setNickname(playerUuid, "TestFriend", "我最好的朋友我最好的朋")).isFalse();
+
+            assertThat(friendship.getNickname()).isNull();
+            verify(friendDataOperator, never()).update(any());
+        }
+
         @Test
         @DisplayName("Should do nothing when friend not found")
         void noopWhenFriendNotFound() throws Exception {
             // friendQuery.list() returns empty — default
 
-            service.setNickname(playerUuid, "NonExistent", "Nickname");
+            assertThat(service.setNickname(playerUuid, "NonExistent", "Nickname")).isFalse();
 
             verify(friendDataOperator, never()).update(any());
         }
 
         @Test
-        @DisplayName("Should clear cache after setting nickname")
-        void clearCacheAfterSetNickname() throws Exception {
+        @DisplayName("Should update the cached list in place after setting nickname")
+        void updateCacheAfterSetNickname() throws Exception {
             FriendshipData friendship = FriendshipData.builder()
                     .playerUuid(playerUuid.toString())
                     .friendUuid(friendUuid.toString())
@@ -1216,9 +1952,9 @@ class FriendServiceTest {
 
             service.getFriends(playerUuid); // populate cache
             service.setNickname(playerUuid, "TestFriend", "Buddy");
-            service.getFriends(playerUuid); // should re-query
 
-            verify(friendQuery, times(2)).list();
+            assertThat(service.getFriendEntries(playerUuid).get(0).getDisplayName()).startsWith("Buddy");
+            verify(friendQuery, times(1)).list();
         }
 
         @Test
@@ -1262,6 +1998,39 @@ class FriendServiceTest {
         }
     }
 
+    // ==================== Live GUI updates ====================
+
+    @Nested
+    @DisplayName("Live GUI updates")
+    class LiveGuiUpdates {
+
+        @Test
+        @DisplayName("Should redraw GUI slots showing a player who joined or changed world")
+        void presenceAndWorld() {
+            List<Collection<Integer>> updates = new ArrayList<>();
+            OpenGuiRegistry.View view = new OpenGuiRegistry.View() {
+                @Override
+                public Player getViewer() {
+                    return player;
+                }
+
+                @Override
+                public void updateSlots(Collection<Integer> slots) {
+                    updates.add(new ArrayList<>(slots));
+                }
+            };
+            service.getOpenGuis().track(view, Collections.singletonMap(friendUuid, 4));
+
+            service.onPresenceChange(friendUuid);
+            service.updateWorld(friendUuid, "world");
+            assertThat(updates).isEmpty();
+
+            service.flushGuiUpdates();
+
+            assertThat(updates).containsExactly(Collections.singletonList(4));
+        }
+    }
+
     // ==================== clearCache ====================
 
     @Nested
@@ -1334,8 +2103,8 @@ class FriendServiceTest {
                     UUID.randomUUID(), "ExpiredSender", playerUuid,
                     System.currentTimeMillis() - 120000);
 
-            Map<UUID, List<FriendRequest>> requests = new java.util.concurrent.ConcurrentHashMap<>();
-            requests.put(playerUuid, new ArrayList<>(Arrays.asList(valid, expired)));
+            Map<UUID, RequestInbox> requests = new java.util.concurrent.ConcurrentHashMap<>();
+            requests.put(playerUuid, inbox(valid, expired));
             UltiSocialTestHelper.setField(service, "pendingRequests", requests);
 
             service.cleanupExpiredRequests();
@@ -1353,6 +2122,518 @@ class FriendServiceTest {
         }
     }
 
+    // ==================== Rate limiting ====================
+
+    @Nested
+    @DisplayName("Rate limiting")
+    class RateLimiting {
+
+        @Test
+        @DisplayName("Should not limit when disabled in config")
+        void notLimitedWhenDisabled() {
+            when(config.isRateLimitEnabled()).thenReturn(false);
+            service.configureRateLimits();
+
+            for (int i = 0; i < 100; i++) {
+                assertThat(service.isRateLimited(playerUuid, RateLimiter.Action.MODIFY)).isFalse();
+            }
+        }
+
+        @Test
+        @DisplayName("Should limit after configured burst")
+        void limitedAfterBurst() {
+            when(config.isRateLimitEnabled()).thenReturn(true);
+            when(config.getModifyBurst()).thenReturn(2);
+            when(config.getModifiesPerMinute()).thenReturn(1);
+            service.configureRateLimits();
+
+            assertThat(service.isRateLimited(playerUuid, RateLimiter.Action.MODIFY)).isFalse();
+            assertThat(service.isRateLimited(playerUuid, RateLimiter.Action.MODIFY)).isFalse();
+            assertThat(service.isRateLimited(playerUuid, RateLimiter.Action.MODIFY)).isTrue();
+            assertThat(service.isRateLimited(friendUuid, RateLimiter.Action.MODIFY)).isFalse();
+        }
+
+        @Test
+        @DisplayName("Should tell a limited player with the i18n message")
+        void notifyLimitedPlayer() {
+            when(config.isRateLimitEnabled()).thenReturn(true);
+            when(config.getModifyBurst()).thenReturn(1);
+            when(config.getModifiesPerMinute()).thenReturn(1);
+            service.configureRateLimits();
+
+            assertThat(service.isRateLimited(player, RateLimiter.Action.MODIFY)).isFalse();
+            verify(player, never()).sendMessage("rate_limited");
+
+            assertThat(service.isRateLimited(player, RateLimiter.Action.MODIFY)).isTrue();
+            verify(player).sendMessage("rate_limited");
+        }
+
+        @Test
+        @DisplayName("Should apply changed limits when configured again")
+        void reconfigure() {
+            when(config.isRateLimitEnabled()).thenReturn(true);
+            when(config.getModifyBurst()).thenReturn(1);
+            when(config.getModifiesPerMinute()).thenReturn(1);
+            service.configureRateLimits();
+            service.isRateLimited(playerUuid, RateLimiter.Action.MODIFY);
+            assertThat(service.isRateLimited(playerUuid, RateLimiter.Action.MODIFY)).isTrue();
+
+            when(config.isRateLimitEnabled()).thenReturn(false);
+            service.configureRateLimits();
+
+            assertThat(service.isRateLimited(playerUuid, RateLimiter.Action.MODIFY)).isFalse();
+        }
+    }
+
+    // ==================== Cross-server sync ====================
+
+    @Nested
+    @DisplayName("Cross-server sync")
+    class CrossServerSync {
+
+        private LoopbackMessageBus remote;
+        private List<SyncMessage> published;
+
+        @BeforeEach
+        void attach() {
+            LoopbackMessageBus.Hub hub = new LoopbackMessageBus.Hub();
+            service.attachMessageBus(hub.join(), "local");
+            remote = hub.join();
+            published = new ArrayList<>();
+            remote.subscribe(published::add);
+        }
+
+        @Test
+        @DisplayName("Should drop cached friends on remote friendship change")
+        void remoteFriendshipChange() {
+            service.getFriends(playerUuid);
+
+            remote.publish(new SyncMessage("remote", SyncMessage.Type.FRIENDSHIP_CHANGED, playerUuid, friendUuid, null));
+            service.getFriends(playerUuid);
+
+            verify(friendQuery, times(2)).list();
+        }
+
+        @Test
+        @DisplayName("Should drop every cached friend list on a remote refresh")
+        void remoteRefreshAll() {
+            service.getFriends(playerUuid);
+            service.getFriends(friendUuid);
+
+            remote.publish(new SyncMessage("remote", SyncMessage.Type.REFRESH_ALL, SyncMessage.NOBODY, null, null));
+            service.getFriends(playerUuid);
+            service.getFriends(friendUuid);
+
+            verify(friendQuery, times(4)).list();
+        }
+
+        @Test
+        @DisplayName("Should publish one refresh after an import")
+        void refreshAfterImport(@TempDir Path tempDir) throws Exception {
+            File file = tempDir.resolve("friends.csv").toFile();
+            java.nio.file.Files.write(file.toPath(), Collections.singletonList(playerUuid + "," + friendUuid));
+            CompletableFuture<FriendshipImporter.Progress> done = new CompletableFuture<>();
+
+            service.startImport(file, progress -> {
+                if (progress.isFinished()) {
+                    done.complete(progress);
+                }
+            });
+            done.get(10, TimeUnit.SECONDS);
+
+            assertThat(published).extracting(SyncMessage::getType).containsExactly(SyncMessage.Type.REFRESH_ALL);
+        }
+
+        @Test
+        @DisplayName("Should drop cached blacklist on remote block")
+        void remoteBlacklistChange() {
+            service.getBlacklist(friendUuid);
+
+            remote.publish(new SyncMessage("remote", SyncMessage.Type.BLACKLIST_CHANGED, playerUuid, friendUuid, null));
+            service.getBlacklist(friendUuid);
+
+            verify(blacklistQuery, times(2)).list();
+        }
+
+        @Test
+        @DisplayName("Should track remote presence and notify local friends")
+        void remotePresence() {
+            FriendshipData friendship = FriendshipData.builder()
+                    .playerUuid(playerUuid.toString())
+                    .friendUuid(friendUuid.toString())
+                    .friendName("TestFriend")
+                    .createdTime(System.currentTimeMillis())
+                    .build();
+            when(friendQuery.list()).thenReturn(new ArrayList<>(Collections.singletonList(friendship)));
+            doReturn(Collections.singletonList(player)).when(UltiSocialTestHelper.getMockServer()).getOnlinePlayers();
+
+            remote.publish(new SyncMessage("remote", SyncMessage.Type.PRESENCE_ONLINE, friendUuid, null, "TestFriend"));
+
+            assertThat(service.isOnlineElsewhere(friendUuid)).isTrue();
+            verify(player).sendMessage(contains("TestFriend"));
+
+            remote.publish(new SyncMessage("remote", SyncMessage.Type.PRESENCE_OFFLINE, friendUuid, null, "TestFriend"));
+
+            assertThat(service.isOnlineElsewhere(friendUuid)).isFalse();
+        }
+
+        private void stubFriendship() {
+            FriendshipData friendship = FriendshipData.builder()
+                    .playerUuid(playerUuid.toString())
+                    .friendUuid(friendUuid.toString())
+                    .friendName("TestFriend")
+                    .createdTime(System.currentTimeMillis())
+                    .build();
+            when(friendQuery.list()).thenReturn(new ArrayList<>(Collections.singletonList(friendship)));
+            doReturn(Collections.singletonList(player)).when(UltiSocialTestHelper.getMockServer()).getOnlinePlayers();
+        }
+
+        @Test
+        @DisplayName("Should not report a server switch as going offline")
+        void serverSwitch() {
+            stubFriendship();
+            remote.publish(new SyncMessage("lobby", SyncMessage.Type.PRESENCE_ONLINE, friendUuid, null, "TestFriend"));
+            remote.publish(new SyncMessage("survival", SyncMessage.Type.PRESENCE_ONLINE, friendUuid, null, "TestFriend"));
+
+            remote.publish(new SyncMessage("lobby", SyncMessage.Type.PRESENCE_OFFLINE, friendUuid, null, "TestFriend"));
+
+            assertThat(service.isOnlineElsewhere(friendUuid)).isTrue();
+            verify(player, never()).sendMessage(contains("went offline"));
+        }
+
+        @Test
+        @DisplayName("Should track heartbeats without notifying")
+        void heartbeat() {
+            stubFriendship();
+
+            remote.publish(new SyncMessage("remote", SyncMessage.Type.PRESENCE_HEARTBEAT, friendUuid, null, "TestFriend"));
+
+            assertThat(service.isOnlineElsewhere(friendUuid)).isTrue();
+            verify(player, never()).sendMessage(anyString());
+        }
+
+        @Test
+        @DisplayName("Should expire players whose server stopped reporting them")
+        void expire() {
+            stubFriendship();
+            remote.publish(new SyncMessage("remote", SyncMessage.Type.PRESENCE_HEARTBEAT, friendUuid, null, "TestFriend"));
+
+            service.expireNetworkPresence(System.currentTimeMillis() - 60_000);
+            assertThat(service.isOnlineElsewhere(friendUuid)).isTrue();
+
+            service.expireNetworkPresence(System.currentTimeMillis() + 1);
+
+            assertThat(service.isOnlineElsewhere(friendUuid)).isFalse();
+            verify(player).sendMessage(contains("TestFriend went offline"));
+        }
+
+        @Test
+        @DisplayName("Should answer a state request with heartbeats")
+        void answerStateRequest() {
+            doReturn(Collections.singletonList(player)).when(UltiSocialTestHelper.getMockServer()).getOnlinePlayers();
+
+            remote.publish(new SyncMessage("remote", SyncMessage.Type.STATE_REQUEST, new UUID(0, 0), null, null));
+
+            assertThat(published).extracting(SyncMessage::getType).containsExactly(SyncMessage.Type.PRESENCE_HEARTBEAT);
+            assertThat(published.get(0).getSubject()).isEqualTo(playerUuid);
+        }
+
+        @Test
+        @DisplayName("Should ask other servers for their players when attached")
+        void requestStateOnAttach() {
+            LoopbackMessageBus.Hub hub = new LoopbackMessageBus.Hub();
+            LoopbackMessageBus other = hub.join();
+            List<SyncMessage> received = new ArrayList<>();
+            other.subscribe(received::add);
+
+            service.attachMessageBus(hub.join(), "local");
+
+            assertThat(received).extracting(SyncMessage::getType).containsExactly(SyncMessage.Type.STATE_REQUEST);
+        }
+
+        @Test
+        @DisplayName("Should send heartbeats for local players")
+        void publishHeartbeats() {
+            doReturn(Collections.singletonList(player)).when(UltiSocialTestHelper.getMockServer()).getOnlinePlayers();
+
+            service.presenceHeartbeat();
+
+            assertThat(published).extracting(SyncMessage::getType).containsExactly(SyncMessage.Type.PRESENCE_HEARTBEAT);
+            assertThat(published.get(0).getName()).isEqualTo("TestPlayer");
+        }
+
+        @Test
+        @DisplayName("Should learn a remote name change before reloading lists")
+        void remoteRename() {
+            FriendshipData friendship = FriendshipData.create(playerUuid, friendUuid, "OldName");
+            when(friendQuery.list()).thenReturn(new ArrayList<>(Collections.singletonList(friendship)));
+            service.getFriends(playerUuid);
+
+            remote.publish(new SyncMessage("remote", SyncMessage.Type.INVALIDATE, playerUuid, friendUuid, "TestFriend"));
+
+            assertThat(service.getPlayerName(friendUuid)).isEqualTo("TestFriend");
+            assertThat(service.getFriends(playerUuid).get(0).getFriendName()).isEqualTo("TestFriend");
+        }
+
+        @Test
+        @DisplayName("Should publish friendship changes on accept")
+        void publishOnAccept() {
+            service.sendRequest(player, friend);
+
+            service.acceptRequest(friend, "TestPlayer");
+
+            assertThat(published).extracting(SyncMessage::getType)
+                    .contains(SyncMessage.Type.FRIENDSHIP_CHANGED);
+            assertThat(published.get(published.size() - 1).getOrigin()).isEqualTo("local");
+        }
+
+        @Test
+        @DisplayName("Should publish presence")
+        void publishPresence() {
+            service.publishPresence(player, true);
+
+            assertThat(published).hasSize(1);
+            assertThat(published.get(0).getType()).isEqualTo(SyncMessage.Type.PRESENCE_ONLINE);
+            assertThat(published.get(0).getName()).isEqualTo("TestPlayer");
+        }
+    }
+
+    // ==================== Offline mailbox ====================
+
+    @Nested
+    @DisplayName("Offline mailbox")
+    class OfflineMailboxTests {
+
+        @SuppressWarnings("unchecked")
+        private final DataOperator<MailboxData> mailboxDataOperator = mock(DataOperator.class);
+        @SuppressWarnings("unchecked")
+        private final Query<MailboxData> mailboxQuery = mock(Query.class);
+
+        @BeforeEach
+        void attachMailbox() throws Exception {
+            when(mailboxDataOperator.query()).thenReturn(mailboxQuery);
+            when(mailboxQuery.where(anyString())).thenReturn(mailboxQuery);
+            when(mailboxQuery.eq(any())).thenReturn(mailboxQuery);
+            when(mailboxQuery.in(any())).thenReturn(mailboxQuery);
+            when(mailboxQuery.list()).thenReturn(new ArrayList<>());
+            when(config.isMailboxEnabled()).thenReturn(true);
+            UltiSocialTestHelper.setField(service, "mailbox", new OfflineMailbox(mailboxDataOperator, 50, 7));
+        }
+
+        @Test
+        @DisplayName("Should deliver stored messages as one digest after prefetch")
+        void deliverDigest() {
+            service.storeOfflineMessage(player, friendUuid, "first");
+            service.storeOfflineMessage(player, friendUuid, "second");
+
+            service.prefetch(friendUuid);
+            service.deliverOfflineMessages(friend);
+
+            ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+            verify(friend, times(1)).sendMessage(captor.capture());
+            assertThat(captor.getValue()).contains("2", "TestPlayer", "first", "second");
+        }
+
+        @Test
+        @DisplayName("Should send nothing when mailbox is empty")
+        void nothingToDeliver() {
+            service.prefetch(friendUuid);
+            service.deliverOfflineMessages(friend);
+
+            verify(friend, never()).sendMessage(anyString());
+        }
+
+        @Test
+        @DisplayName("Should warm friend and blacklist caches on prefetch")
+        void prefetchWarmsCaches() {
+            service.prefetch(friendUuid);
+            service.getFriends(friendUuid);
+            service.getBlacklist(friendUuid);
+
+            verify(friendQuery, times(1)).list();
+            verify(blacklistQuery, times(1)).list();
+        }
+
+        @Test
+        @DisplayName("Should forget prefetched state when the login is denied")
+        void discardPrefetch() {
+            service.storeOfflineMessage(player, friendUuid, "later");
+            service.prefetch(friendUuid);
+            service.discardPrefetch(friendUuid);
+            service.getFriends(friendUuid);
+            service.deliverOfflineMessages(friend);
+
+            verify(friendQuery, times(2)).list();
+            verify(friend, never()).sendMessage(anyString());
+        }
+    }
+
+    // ==================== Metrics ====================
+
+    @Nested
+    @DisplayName("Metrics")
+    class MetricsTests {
+
+        @Test
+        @DisplayName("Should count friend cache hits and misses")
+        void friendCacheCounters() {
+            service.getFriends(playerUuid);
+            service.getFriends(playerUuid);
+            service.getFriends(playerUuid);
+
+            SocialMetrics.CacheStats stats = service.getMetrics().getCache("friends");
+            assertThat(stats.getMisses()).isEqualTo(1);
+            assertThat(stats.getHits()).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("Should attribute profiled db calls to the running operation")
+        void dbCallsPerOperation() throws Exception {
+            SocialMetrics metrics = service.getMetrics();
+            UltiSocialTestHelper.setField(service, "dataOperator",
+                service.getQueryProfiler().wrap(friendDataOperator, "friendships"));
+            FriendshipData data = FriendshipData.create(playerUuid, friendUuid, "TestFriend");
+            when(friendQuery.list()).thenReturn(new ArrayList<>(Collections.singletonList(data)));
+
+            service.removeFriend(player, "TestFriend");
+
+            assertThat(metrics.getOperation("removeFriend").getHistogram().getCount()).isEqualTo(1);
+            // delById + reverse delete
+            assertThat(metrics.getOperation("removeFriend").getDbCalls()).isEqualTo(2);
+            assertThat(metrics.getOperation("loadFriends").getDbCalls()).isEqualTo(1);
+            assertThat(metrics.getQuery("friendships where player_uuid eq ? where friend_uuid eq ? delete")
+                .getHistogram().getCount()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Should record externally timed operations")
+        void recordLatency() {
+            service.recordLatency("joinNotify", System.nanoTime());
+
+            assertThat(service.getMetrics().getOperation("joinNotify").getHistogram().getCount()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Should log and return the json dump")
+        void dumpMetrics() {
+            service.getFriends(playerUuid);
+
+            String json = service.dumpMetrics();
+
+            assertThat(json).contains("\"loadFriends\"", "\"friends\"");
+        }
+    }
+
+    // ==================== Graph snapshot ====================
+
+    @Nested
+    @DisplayName("Graph snapshot")
+    class GraphSnapshotTests {
+
+        @TempDir
+        Path tempDir;
+
+        private File file;
+        private FriendshipData friendship;
+
+        @BeforeEach
+        void writeSnapshot() throws Exception {
+            file = tempDir.resolve("graph.bin").toFile();
+            friendship = FriendshipData.create(playerUuid, friendUuid, "TestFriend");
+            friendship.setId("f1");
+            GraphSnapshot.write(file, Collections.singletonList(friendship), Collections.emptyList());
+            UltiSocialTestHelper.setField(service, "snapshotFile", file);
+            UltiSocialTestHelper.setField(service, "snapshot", GraphSnapshot.load(file));
+            when(friendQuery.gt(any())).thenReturn(friendQuery);
+            when(friendQuery.orderBy(anyString())).thenReturn(friendQuery);
+            when(friendQuery.limit(anyInt())).thenReturn(friendQuery);
+            when(blacklistQuery.gt(any())).thenReturn(blacklistQuery);
+            when(blacklistQuery.orderBy(anyString())).thenReturn(blacklistQuery);
+            when(blacklistQuery.limit(anyInt())).thenReturn(blacklistQuery);
+        }
+
+        @Test
+        @DisplayName("Should answer cache misses from the snapshot without querying")
+        void serveFromSnapshot() {
+            List<FriendshipData> friends = service.getFriends(playerUuid);
+
+            assertThat(friends).extracting(FriendshipData::getFriendName).containsExactly("TestFriend");
+            assertThat(service.getBlacklist(playerUuid)).isEmpty();
+            verify(friendQuery, never()).list();
+            verify(blacklistQuery, never()).list();
+        }
+
+        @Test
+        @DisplayName("Should fall back to the database for players not in the snapshot")
+        void unknownPlayer() {
+            service.getFriends(UUID.randomUUID());
+
+            verify(friendQuery, times(1)).list();
+        }
+
+        @Test
+        @DisplayName("Should stop using snapshot data for a player after a change")
+        void invalidateOnChange() {
+            service.toggleFavorite(playerUuid, "TestFriend");
+            service.clearCache(playerUuid);
+            service.getFriends(playerUuid);
+
+            verify(friendQuery, times(1)).list();
+        }
+
+        @Test
+        @DisplayName("Should drop stale cached lists and rewrite the snapshot on reconcile")
+        void reconcile() throws Exception {
+            service.getFriends(playerUuid);
+            FriendshipData changed = FriendshipData.create(playerUuid, friendUuid, "TestFriend");
+            changed.setId("f1");
+            changed.setFavorite(true);
+            when(friendQuery.list()).thenReturn(new ArrayList<>(Collections.singletonList(changed)));
+
+            service.reconcileSnapshot();
+
+            // Stale cache dropped: next read goes to the database
+            assertThat(service.getFriends(playerUuid).get(0).isFavorite()).isTrue();
+            assertThat(GraphSnapshot.load(file).getFriends(playerUuid).get(0).isFavorite()).isTrue();
+        }
+
+        @Test
+        @DisplayName("Should keep cached lists that match the database on reconcile")
+        void reconcileUnchanged() {
+            service.getFriends(playerUuid);
+            when(friendQuery.list()).thenReturn(new ArrayList<>(Collections.singletonList(friendship)));
+
+            service.reconcileSnapshot();
+            service.getFriends(playerUuid);
+
+            // Only the single page read during reconcile
+            verify(friendQuery, times(1)).list();
+        }
+
+        @Test
+        @DisplayName("Should read the tables in pages rather than whole")
+        void reconcileInPages() {
+            service.reconcileSnapshot();
+
+            verify(friendQuery).limit(anyInt());
+            verify(blacklistQuery).limit(anyInt());
+            verify(friendQuery, never()).gt(any());
+        }
+
+        @Test
+        @DisplayName("Should write a final snapshot on shutdown")
+        void writeOnShutdown() throws Exception {
+            FriendshipData changed = FriendshipData.create(playerUuid, friendUuid, "Renamed");
+            changed.setId("f1");
+            when(friendQuery.list()).thenReturn(new ArrayList<>(Collections.singletonList(changed)));
+
+            service.shutdown();
+
+            assertThat(GraphSnapshot.load(file).getFriends(playerUuid))
+                .extracting(FriendshipData::getFriendName).containsExactly("Renamed");
+        }
+    }
+
     // ==================== init ====================
 
     @Nested
@@ -1373,6 +2654,101 @@ class FriendServiceTest {
             // We can verify by calling methods that use them
             // The mock plugin's getDataOperator returns generic mocks
         }
+
+        @Test
+        @DisplayName("Should journal only the local store unless the log is forced on or off")
+        void walMode() {
+            assertThat(FriendService.walEnabled("auto", true)).isTrue();
+            assertThat(FriendService.walEnabled("auto", false)).isFalse();
+            assertThat(FriendService.walEnabled("true", false)).isTrue();
+            assertThat(FriendService.walEnabled("false", true)).isFalse();
+        }
+    }
+
+    // ==================== Bulk Import ====================
+
+    @Nested
+    @DisplayName("Bulk Import")
+    class BulkImportTests {
+
+        @TempDir
+        Path tempDir;
+
+        @Test
+        @DisplayName("Should import on a background thread and drop cached lists")
+        void importInBackground() throws Exception {
+            File file = tempDir.resolve("friends.csv").toFile();
+            java.nio.file.Files.write(file.toPath(),
+                Collections.singletonList(playerUuid + "," + friendUuid + ",TestPlayer,TestFriend"));
+            service.getFriends(playerUuid);
+            CompletableFuture<FriendshipImporter.Progress> done = new CompletableFuture<>();
+
+            assertThat(service.startImport(file, progress -> {
+                if (progress.isFinished()) {
+                    done.complete(progress);
+                }
+            })).isTrue();
+            FriendshipImporter.Progress result = done.get(10, TimeUnit.SECONDS);
+
+            assertThat(result.getImported()).isEqualTo(1);
+            assertThat(service.getImportProgress()).isSameAs(result);
+            verify(friendDataOperator, times(2)).insert(any(FriendshipData.class));
+            service.getFriends(playerUuid);
+            verify(friendQuery, atLeast(2)).list();
+        }
+
+        @Test
+        @DisplayName("Should have nothing to cancel when idle")
+        void cancelIdle() {
+            assertThat(service.cancelImport()).isFalse();
+            assertThat(service.getImportProgress()).isNull();
+        }
+    }
+
+    // ==================== Export ====================
+
+    @Nested
+    @DisplayName("Export")
+    class ExportTests {
+
+        @TempDir
+        Path tempDir;
+
+        @Test
+        @DisplayName("Should export on a background thread using keyset pages")
+        void exportInBackground() throws Exception {
+            when(friendQuery.gt(any())).thenReturn(friendQuery);
+            when(friendQuery.orderBy(anyString())).thenReturn(friendQuery);
+            when(friendQuery.limit(anyInt())).thenReturn(friendQuery);
+            when(blacklistQuery.gt(any())).thenReturn(blacklistQuery);
+            when(blacklistQuery.orderBy(anyString())).thenReturn(blacklistQuery);
+            when(blacklistQuery.limit(anyInt())).thenReturn(blacklistQuery);
+            CompletableFuture<GraphExporter.Result> done = new CompletableFuture<>();
+
+            assertThat(service.startExport(tempDir.toFile(), done::complete)).isTrue();
+            GraphExporter.Result result = done.get(10, TimeUnit.SECONDS);
+
+            assertThat(result).isNotNull();
+            assertThat(result.getFriendships()).isZero();
+            assertThat(tempDir.toFile().list()).hasSize(2);
+            assertThat(service.getMetrics().getOperation("export")).isNotNull();
+        }
+
+        @Test
+        @DisplayName("Should not start the nightly export when disabled")
+        void nightlyDisabled() {
+            service.exportTick();
+
+            verify(friendDataOperator, never()).query();
+        }
+    }
+
+    private static RequestInbox inbox(FriendRequest... requests) {
+        RequestInbox inbox = new RequestInbox();
+        for (FriendRequest request : requests) {
+            inbox.add(request);
+        }
+        return inbox;
     }
 
     /**
@@ -0,0 +1,219 @@
+package com.ultikits.plugins.social.service;
+
+import com.ultikits.plugins.social.UltiSocialTestHelper;
+import com.ultikits.plugins.social.config.SocialConfig;
+import com.ultikits.ultitools.services.TeleportService;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for FriendTeleporter.
+ */
+@DisplayName("FriendTeleporter Tests")
+class FriendTeleporterTest {
+
+    private FriendService friendService;
+    private TeleportService teleportService;
+    private List<Runnable> mainThread;
+    private CompletableFuture<Object> chunk;
+    private int loads;
+
+    private Player player;
+    private Player target;
+    private World world;
+    private UUID playerUuid;
+
+    @BeforeEach
+    void setUp() {
+        friendService = mock(FriendService.class);
+        teleportService = mock(TeleportService.class);
+        mainThread = new ArrayList<>();
+        chunk = new CompletableFuture<>();
+        loads = 0;
+
+        playerUuid = UUID.randomUUID();
+        player = UltiSocialTestHelper.createMockPlayer("TestPlayer", playerUuid);
+        target = UltiSocialTestHelper.createMockPlayer("Friend", UUID.randomUUID());
+        world = mock(World.class);
+        when(target.getLocation()).thenReturn(new Location(world, 100.5, 64.0, -200.5));
+        lenient().when(player.isOnline()).thenReturn(true);
+        lenient().when(target.isOnline()).thenReturn(true);
+    }
+
+    private FriendTeleporter teleporter(TeleportService service, boolean asyncSupported) {
+        return new FriendTeleporter(friendService, service, mainThread::add, (w, x, z) -> {
+            loads++;
+            assertThat(x).isEqualTo(6);
+            assertThat(z).isEqualTo(-13);
+            return asyncSupported ? chunk : null;
+        });
+    }
+
+    private void runMainThread() {
+        List<Runnable> tasks = new ArrayList<>(mainThread);
+        mainThread.clear();
+        tasks.forEach(Runnable::run);
+    }
+
+    @Test
+    @DisplayName("Should teleport at once when the chunk is loaded")
+    void loadedChunk() {
+        when(world.isChunkLoaded(6, -13)).thenReturn(true);
+        FriendTeleporter teleporter = teleporter(teleportService, true);
+
+        assertThat(teleporter.teleport(player, target, "Friend")).isTrue();
+
+        assertThat(loads).isZero();
+        verify(teleportService).teleport(eq(player), any(Location.class));
+        verify(friendService).setTpCooldown(playerUuid);
+        verify(player).sendMessage(contains("已传送到"));
+        assertThat(teleporter.isPending(playerUuid)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should wait for an unloaded chunk and teleport on the main thread")
+    void asyncChunk() {
+        FriendTeleporter teleporter = teleporter(teleportService, true);
+
+        teleporter.teleport(player, target, "Friend");
+
+        assertThat(loads).isEqualTo(1);
+        assertThat(teleporter.isPending(playerUuid)).isTrue();
+        verify(teleportService, never()).teleport(any(), any(Location.class));
+        verify(friendService, never()).setTpCooldown(any());
+
+        chunk.complete(new Object());
+        verify(teleportService, never()).teleport(any(), any(Location.class));
+        runMainThread();
+
+        verify(teleportService).teleport(eq(player), any(Location.class));
+        verify(friendService).setTpCooldown(playerUuid);
+        assertThat(teleporter.isPending(playerUuid)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should reject a second teleport while one is pending")
+    void onePending() {
+        FriendTeleporter teleporter = teleporter(teleportService, true);
+
+        teleporter.teleport(player, target, "Friend");
+
+        assertThat(teleporter.teleport(player, target, "Friend")).isFalse();
+        assertThat(loads).isEqualTo(1);
+        verify(player).sendMessage(contains("正在进行中"));
+    }
+
+    @Test
+    @DisplayName("Should not start the cooldown when the chunk fails to load")
+    void loadFailed() {
+        FriendTeleporter teleporter = teleporter(teleportService, true);
+
+        teleporter.teleport(player, target, "Friend");
+        chunk.completeExceptionally(new IllegalStateException("boom"));
+        runMainThread();
+
+        verify(teleportService, never()).teleport(any(), any(Location.class));
+        verify(friendService, never()).setTpCooldown(any());
+        verify(player).sendMessage(contains("传送失败"));
+        assertThat(teleporter.isPending(playerUuid)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should drop the teleport when the friend left while loading")
+    void targetLeft() {
+        FriendTeleporter teleporter = teleporter(teleportService, true);
+
+        teleporter.teleport(player, target, "Friend");
+        when(target.isOnline()).thenReturn(false);
+        chunk.complete(new Object());
+        runMainThread();
+
+        verify(teleportService, never()).teleport(any(), any(Location.class));
+        verify(friendService, never()).setTpCooldown(any());
+        verify(player).sendMessage(contains("不在线"));
+    }
+
+    @Test
+    @DisplayName("Should move the teleport to a later tick without async chunk loading")
+    void noAsyncSupport() {
+        when(player.teleport(any(Location.class))).thenReturn(true);
+        FriendTeleporter teleporter = teleporter(null, false);
+
+        teleporter.teleport(player, target, "Friend");
+        verify(player, never()).teleport(any(Location.class));
+
+        runMainThread();
+
+        verify(player).teleport(any(Location.class));
+        verify(friendService).setTpCooldown(playerUuid);
+    }
+
+    @Test
+    @DisplayName("Should teleport only after the warmup ends")
+    void warmup() {
+        WarmupTracker warmups = new WarmupTracker();
+        SocialConfig config = UltiSocialTestHelper.createDefaultConfig();
+        when(config.getTpWarmup()).thenReturn(3);
+        when(friendService.getConfig()).thenReturn(config);
+        when(friendService.getWarmups()).thenReturn(warmups);
+        when(world.isChunkLoaded(anyInt(), anyInt())).thenReturn(true);
+        FriendTeleporter teleporter = teleporter(teleportService, true);
+
+        teleporter.teleport(player, target, "Friend");
+
+        verify(player).sendMessage(contains("3 秒"));
+        verify(teleportService, never()).teleport(any(), any(Location.class));
+        assertThat(warmups.isWarmingUp(playerUuid)).isTrue();
+
+        warmups.tick(System.currentTimeMillis() + 3000);
+
+        verify(teleportService).teleport(eq(player), any(Location.class));
+        verify(friendService).setTpCooldown(playerUuid);
+        assertThat(teleporter.isPending(playerUuid)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should drop the teleport when the warmup is cancelled")
+    void warmupCancelled() {
+        WarmupTracker warmups = new WarmupTracker();
+        SocialConfig config = UltiSocialTestHelper.createDefaultConfig();
+        when(config.getTpWarmup()).thenReturn(3);
+        when(friendService.getConfig()).thenReturn(config);
+        when(friendService.getWarmups()).thenReturn(warmups);
+        FriendTeleporter teleporter = teleporter(teleportService, true);
+
+        teleporter.teleport(player, target, "Friend");
+        warmups.cancel(playerUuid);
+        warmups.tick(System.currentTimeMillis() + 3000);
+
+        verify(teleportService, never()).teleport(any(), any(Location.class));
+        verify(friendService, never()).setTpCooldown(any());
+        assertThat(teleporter.isPending(playerUuid)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should not start the cooldown when the teleport is refused")
+    void teleportRefused() {
+        when(world.isChunkLoaded(anyInt(), anyInt())).thenReturn(true);
+        when(player.teleport(any(Location.class))).thenReturn(false);
+        FriendTeleporter teleporter = teleporter(null, true);
+
+        teleporter.teleport(player, target, "Friend");
+
+        verify(friendService, never()).setTpCooldown(any());
+        verify(player).sendMessage(contains("传送失败"));
+        assertThat(teleporter.isPending(playerUuid)).isFalse();
+    }
+}
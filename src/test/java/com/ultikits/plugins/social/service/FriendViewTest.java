@@ -0,0 +1,71 @@
+package com.ultikits.plugins.social.service;
+
+import org.junit.jupiter.api.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests for FriendView.
+ */
+@DisplayName("FriendView Tests")
+class FriendViewTest {
+
+    @Test
+    @DisplayName("Default view should sort by name and show everything")
+    void defaults() {
+        assertThat(FriendView.DEFAULT.getSort()).isEqualTo(FriendView.Sort.NAME);
+        assertThat(FriendView.DEFAULT.getFilter()).isEqualTo(FriendView.Filter.ALL);
+        assertThat(FriendView.DEFAULT.getSearch()).isNull();
+        assertThat(FriendView.DEFAULT.isDefault()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Any sort, filter or search should leave the default view")
+    void notDefault() {
+        assertThat(FriendView.DEFAULT.withSort(FriendView.Sort.DATE_ADDED).isDefault()).isFalse();
+        assertThat(FriendView.DEFAULT.withFilter(FriendView.Filter.ONLINE).isDefault()).isFalse();
+        assertThat(FriendView.DEFAULT.withSearch("Ste").isDefault()).isFalse();
+        assertThat(FriendView.DEFAULT.withGroup("Guild").isDefault()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Empty search should clear the search")
+    void emptySearch() {
+        FriendView view = FriendView.DEFAULT.withSearch("Ste").withSearch("");
+
+        assertThat(view.getSearch()).isNull();
+        assertThat(view.isDefault()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should keep other settings when changing one")
+    void keepSettings() {
+        FriendView view = FriendView.DEFAULT.withSearch("Ste").withGroup("Guild")
+            .withFilter(FriendView.Filter.FAVORITES).withSort(FriendView.Sort.LAST_SEEN);
+
+        assertThat(view.getSearch()).isEqualTo("Ste");
+        assertThat(view.getGroup()).isEqualTo("Guild");
+        assertThat(view.getFilter()).isEqualTo(FriendView.Filter.FAVORITES);
+        assertThat(view.getSort()).isEqualTo(FriendView.Sort.LAST_SEEN);
+    }
+
+    @Test
+    @DisplayName("Modes should cycle back to the first")
+    void cycle() {
+        assertThat(FriendView.Sort.ONLINE_FIRST.next()).isEqualTo(FriendView.Sort.NAME);
+        assertThat(FriendView.Filter.ALL.next()).isEqualTo(FriendView.Filter.ONLINE);
+        assertThat(FriendView.Filter.SAME_WORLD.next()).isEqualTo(FriendView.Filter.ALL);
+    }
+
+    @Test
+    @DisplayName("Views filtered or sorted by presence should depend on presence")
+    void dependsOnPresence() {
+        assertThat(FriendView.DEFAULT.dependsOnPresence()).isFalse();
+        assertThat(FriendView.DEFAULT.withSearch("Ste").withGroup("Guild").dependsOnPresence()).isFalse();
+        assertThat(FriendView.DEFAULT.withFilter(FriendView.Filter.FAVORITES).dependsOnPresence()).isFalse();
+        assertThat(FriendView.DEFAULT.withFilter(FriendView.Filter.ONLINE).dependsOnPresence()).isTrue();
+        assertThat(FriendView.DEFAULT.withFilter(FriendView.Filter.SAME_WORLD).dependsOnPresence()).isTrue();
+        assertThat(FriendView.DEFAULT.withSort(FriendView.Sort.LAST_SEEN).dependsOnPresence()).isTrue();
+        assertThat(FriendView.DEFAULT.withSort(FriendView.Sort.ONLINE_FIRST).dependsOnPresence()).isTrue();
+    }
+}
@@ -0,0 +1,218 @@
+package com.ultikits.plugins.social.service;
+
+import com.ultikits.plugins.social.entity.LastSeenData;
+import com.ultikits.ultitools.interfaces.DataOperator;
+import com.ultikits.ultitools.interfaces.Query;
+
+import org.junit.jupiter.api.*;
+import org.mockito.ArgumentCaptor;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for LastSeenTracker.
+ */
+@DisplayName("LastSeenTracker Tests")
+class LastSeenTrackerTest {
+
+    @SuppressWarnings("unchecked")
+    private final DataOperator<LastSeenData> dataOperator = mock(DataOperator.class);
+    @SuppressWarnings("unchecked")
+    private final Query<LastSeenData> query = mock(Query.class);
+
+    private LastSeenTracker tracker;
+    private UUID player;
+
+    @BeforeEach
+    void setUp() {
+        when(dataOperator.query()).thenReturn(query);
+        when(query.where(anyString())).thenReturn(query);
+        when(query.eq(any())).thenReturn(query);
+        when(query.in(any())).thenReturn(query);
+        when(query.first()).thenReturn(null);
+        when(query.list()).thenReturn(new ArrayList<>());
+
+        tracker = new LastSeenTracker(dataOperator);
+        player = UUID.randomUUID();
+    }
+
+    @Test
+    @DisplayName("Should write repeated records of one player once")
+    void coalesce() {
+        tracker.record(player, 100);
+        tracker.record(player, 300);
+        tracker.record(player, 200);
+
+        assertThat(tracker.flush()).isEqualTo(1);
+
+        ArgumentCaptor<LastSeenData> captor = ArgumentCaptor.forClass(LastSeenData.class);
+        verify(dataOperator, times(1)).insert(captor.capture());
+        assertThat(captor.getValue().getLastSeen()).isEqualTo(300);
+        assertThat(tracker.get(player)).isEqualTo(300);
+        assertThat(tracker.pendingCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should write a disconnect wave in one flush")
+    void disconnectWave() {
+        for (int i = 0; i < 300; i++) {
+            tracker.record(UUID.randomUUID(), 1000);
+        }
+
+        assertThat(tracker.flush()).isEqualTo(300);
+        assertThat(tracker.flush()).isZero();
+        verify(dataOperator, times(300)).insert(any());
+    }
+
+    @Test
+    @DisplayName("Should read unknown rows with one query per batch before writing")
+    void flushReadsInBatches() throws Exception {
+        List<UUID> players = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            players.add(UUID.randomUUID());
+            tracker.record(players.get(i), 1000);
+        }
+        LastSeenData row = LastSeenData.builder().playerUuid(players.get(7).toString()).lastSeen(50).build();
+        when(query.list()).thenReturn(new ArrayList<>(Collections.singletonList(row)));
+
+        assertThat(tracker.flush()).isEqualTo(1200);
+
+        verify(query, times(3)).list();
+        verify(query, never()).first();
+        verify(dataOperator).update(row);
+        assertThat(row.getLastSeen()).isEqualTo(1000);
+        verify(dataOperator, times(1199)).insert(any());
+    }
+
+    @Test
+    @DisplayName("Should update prefetched rows without looking them up again")
+    void updatePrefetched() throws Exception {
+        LastSeenData row = LastSeenData.builder().playerUuid(player.toString()).lastSeen(50).build();
+        when(query.list()).thenReturn(new ArrayList<>(Collections.singletonList(row)));
+
+        assertThat(tracker.prefetch(Collections.singletonList(player))).isEqualTo(1);
+        assertThat(tracker.get(player)).isEqualTo(50);
+
+        tracker.record(player, 500);
+        tracker.flush();
+
+        verify(dataOperator).update(row);
+        assertThat(row.getLastSeen()).isEqualTo(500);
+        verify(query, never()).first();
+    }
+
+    @Test
+    @DisplayName("Should not read players already in memory")
+    void prefetchSkipsKnown() {
+        UUID unknown = UUID.randomUUID();
+        tracker.record(player, 100);
+
+        assertThat(tracker.prefetch(Arrays.asList(player, unknown))).isEqualTo(1);
+        assertThat(tracker.prefetch(Arrays.asList(player, unknown))).isZero();
+        assertThat(tracker.get(unknown)).isZero();
+    }
+
+    @Test
+    @DisplayName("Should read many players with one query per batch")
+    void prefetchInBatches() {
+        List<UUID> players = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            players.add(UUID.randomUUID());
+        }
+        LastSeenData row = LastSeenData.builder().playerUuid(players.get(7).toString()).lastSeen(70).build();
+        when(query.list()).thenReturn(new ArrayList<>(Collections.singletonList(row)));
+
+        assertThat(tracker.prefetch(players)).isEqualTo(1200);
+
+        verify(query, times(3)).list();
+        verify(query, never()).first();
+        assertThat(tracker.get(players.get(7))).isEqualTo(70);
+        assertThat(tracker.knownCount()).isEqualTo(1200);
+    }
+
+    @Test
+    @DisplayName("Should drop times nobody online holds when the holder quits")
+    void releaseOnQuit() {
+        UUID friend = UUID.randomUUID();
+        UUID shared = UUID.randomUUID();
+        UUID other = UUID.randomUUID();
+        tracker.retain(player, Arrays.asList(player, friend, shared));
+        tracker.retain(other, Arrays.asList(other, shared));
+        tracker.prefetch(Arrays.asList(player, friend, shared, other));
+        tracker.record(player, 900);
+
+        tracker.release(player);
+
+        // Still held by the other player, or waiting to be written
+        assertThat(tracker.knownCount()).isEqualTo(3);
+        assertThat(tracker.get(player)).isEqualTo(900);
+
+        tracker.flush();
+
+        assertThat(tracker.knownCount()).isEqualTo(2);
+        assertThat(tracker.get(shared)).isZero();
+        tracker.release(other);
+        assertThat(tracker.knownCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should retry a failed update on the next flush")
+    void retryFailedUpdate() throws Exception {
+        LastSeenData row = LastSeenData.builder().playerUuid(player.toString()).lastSeen(50).build();
+        when(query.list()).thenReturn(new ArrayList<>(Collections.singletonList(row)));
+        doThrow(new IllegalAccessException("locked")).doAnswer(inv -> null).when(dataOperator).update(row);
+
+        tracker.record(player, 500);
+        assertThat(tracker.flush()).isZero();
+        assertThat(tracker.pendingCount()).isEqualTo(1);
+
+        assertThat(tracker.flush()).isEqualTo(1);
+        verify(dataOperator, times(2)).update(row);
+        verify(query, times(1)).list();
+    }
+
+    @Test
+    @DisplayName("Should store a recorded name with the next time")
+    void recordName() throws Exception {
+        LastSeenData row = LastSeenData.builder().playerUuid(player.toString()).lastSeen(50).playerName("Steve").build();
+        when(query.list()).thenReturn(new ArrayList<>(Collections.singletonList(row)));
+        tracker.prefetch(Collections.singletonList(player));
+        assertThat(tracker.getName(player)).isEqualTo("Steve");
+
+        tracker.recordName(player, "Stephen");
+        assertThat(tracker.getName(player)).isEqualTo("Stephen");
+
+        tracker.record(player, 500);
+        tracker.flush();
+
+        verify(dataOperator).update(row);
+        assertThat(row.getPlayerName()).isEqualTo("Stephen");
+        assertThat(tracker.getName(player)).isEqualTo("Stephen");
+    }
+
+    @Test
+    @DisplayName("Should store the name on a new row")
+    void recordNameInsert() {
+        tracker.recordName(player, "Steve");
+        tracker.record(player, 100);
+        tracker.flush();
+
+        ArgumentCaptor<LastSeenData> captor = ArgumentCaptor.forClass(LastSeenData.class);
+        verify(dataOperator).insert(captor.capture());
+        assertThat(captor.getValue().getPlayerName()).isEqualTo("Steve");
+    }
+
+    @Test
+    @DisplayName("Should describe elapsed time")
+    void formatAgo() {
+        long now = 10L * 24 * 60 * 60 * 1000;
+        assertThat(LastSeenTracker.formatAgo(now - 30_000, now)).isEqualTo("刚刚");
+        assertThat(LastSeenTracker.formatAgo(now - 5 * 60_000, now)).isEqualTo("5 分钟前");
+        assertThat(LastSeenTracker.formatAgo(now - 3 * 60 * 60_000, now)).isEqualTo("3 小时前");
+        assertThat(LastSeenTracker.formatAgo(now - 2L * 24 * 60 * 60_000, now)).isEqualTo("2 天前");
+    }
+}
@@ -0,0 +1,45 @@
+package com.ultikits.plugins.social.service;
+
+import org.junit.jupiter.api.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests for NameIndex.
+ */
+@DisplayName("NameIndex Tests")
+class NameIndexTest {
+
+    @Test
+    @DisplayName("Should look up names ignoring case")
+    void ignoreCase() {
+        NameIndex<String> index = NameIndex.of(Arrays.asList("Steve", "Alex"), Function.identity());
+
+        assertThat(index.get("steve")).isEqualTo("Steve");
+        assertThat(index.get("ALEX")).isEqualTo("Alex");
+        assertThat(index.get("Bob")).isNull();
+        assertThat(index.get(null)).isNull();
+    }
+
+    @Test
+    @DisplayName("Should keep the first item when names collide")
+    void firstWins() {
+        NameIndex<String> index = NameIndex.of(Arrays.asList("Steve", "STEVE"), Function.identity());
+
+        assertThat(index.get("steve")).isEqualTo("Steve");
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should skip items without a name")
+    void nullNames() {
+        NameIndex<String> index = NameIndex.of(Arrays.asList("Steve", "x"), s -> s.equals("x") ? null : s);
+
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(NameIndex.of(Collections.<String>emptyList(), Function.identity()).get("Steve")).isNull();
+    }
+}
@@ -0,0 +1,62 @@
+package com.ultikits.plugins.social.service;
+
+import org.junit.jupiter.api.*;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests for NetworkPresence.
+ */
+@DisplayName("NetworkPresence Tests")
+class NetworkPresenceTest {
+
+    private final NetworkPresence presence = new NetworkPresence();
+    private final UUID steve = UUID.randomUUID();
+    private final UUID alex = UUID.randomUUID();
+
+    @Test
+    @DisplayName("Should report whether a player is newly online")
+    void seen() {
+        assertThat(presence.seen(steve, "lobby", "Steve", 1000)).isTrue();
+        assertThat(presence.seen(steve, "lobby", "Steve", 2000)).isFalse();
+
+        assertThat(presence.contains(steve)).isTrue();
+        assertThat(presence.contains(alex)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should ignore a leave from a server the player already left")
+    void serverSwitch() {
+        presence.seen(steve, "lobby", "Steve", 1000);
+        presence.seen(steve, "survival", "Steve", 1100);
+
+        assertThat(presence.leave(steve, "lobby")).isFalse();
+        assertThat(presence.contains(steve)).isTrue();
+
+        assertThat(presence.leave(steve, "survival")).isTrue();
+        assertThat(presence.contains(steve)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should drop players not reported since the cutoff")
+    void expire() {
+        presence.seen(steve, "lobby", "Steve", 1000);
+        presence.seen(alex, "lobby", "Alex", 5000);
+
+        assertThat(presence.expire(2000)).containsOnlyKeys(steve).containsEntry(steve, "Steve");
+        assertThat(presence.contains(steve)).isFalse();
+        assertThat(presence.contains(alex)).isTrue();
+        assertThat(presence.size()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should keep the known name when a report has none")
+    void keepName() {
+        presence.seen(steve, "lobby", "Steve", 1000);
+        presence.seen(steve, "lobby", null, 1500);
+
+        assertThat(presence.expire(2000)).containsEntry(steve, "Steve");
+    }
+}
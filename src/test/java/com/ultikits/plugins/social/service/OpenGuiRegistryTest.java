@@ -0,0 +1,140 @@
+package com.ultikits.plugins.social.service;
+
+import com.ultikits.plugins.social.UltiSocialTestHelper;
+
+import org.bukkit.entity.Player;
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests for OpenGuiRegistry.
+ */
+@DisplayName("OpenGuiRegistry Tests")
+class OpenGuiRegistryTest {
+
+    private final OpenGuiRegistry registry = new OpenGuiRegistry();
+    private final UUID steve = UUID.randomUUID();
+    private final UUID alex = UUID.randomUUID();
+    private final UUID herobrine = UUID.randomUUID();
+
+    private RecordingView first;
+    private RecordingView second;
+
+    @BeforeEach
+    void setUp() {
+        first = new RecordingView(UltiSocialTestHelper.createMockPlayer("Viewer1", UUID.randomUUID()));
+        second = new RecordingView(UltiSocialTestHelper.createMockPlayer("Viewer2", UUID.randomUUID()));
+    }
+
+    private static Map<UUID, Integer> slots(Object... pairs) {
+        Map<UUID, Integer> slots = new HashMap<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            slots.put((UUID) pairs[i], (Integer) pairs[i + 1]);
+        }
+        return slots;
+    }
+
+    @Test
+    @DisplayName("Should redraw only the slots showing a changed player")
+    void redrawSlots() {
+        registry.track(first, slots(steve, 0, alex, 1));
+        registry.track(second, slots(alex, 7));
+
+        assertThat(registry.markChanged(alex)).isEqualTo(2);
+        assertThat(registry.flush()).isEqualTo(2);
+
+        assertThat(first.updates).containsExactly(Collections.singletonList(1));
+        assertThat(second.updates).containsExactly(Collections.singletonList(7));
+    }
+
+    @Test
+    @DisplayName("Should redraw a slot once however often it changed in a tick")
+    void coalesce() {
+        registry.track(first, slots(steve, 0, alex, 1));
+
+        registry.markChanged(steve);
+        registry.markChanged(steve);
+        registry.markChanged(alex);
+
+        assertThat(registry.pending()).isEqualTo(1);
+        assertThat(registry.flush()).isEqualTo(2);
+        assertThat(first.updates).hasSize(1);
+        assertThat(first.updates.get(0)).containsExactlyInAnyOrder(0, 1);
+        assertThat(registry.flush()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should follow a GUI to its new page")
+    void retrack() {
+        registry.track(first, slots(steve, 0));
+        registry.markChanged(steve);
+        registry.track(first, slots(herobrine, 0));
+
+        assertThat(registry.flush()).isZero();
+        assertThat(registry.markChanged(steve)).isZero();
+        assertThat(registry.markChanged(herobrine)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should skip closed GUIs")
+    void closed() {
+        registry.track(first, slots(steve, 0));
+        registry.markChanged(steve);
+        registry.untrack(first);
+
+        assertThat(registry.flush()).isZero();
+        assertThat(first.updates).isEmpty();
+        assertThat(registry.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should tell a GUI about watched players off its page")
+    void watched() {
+        registry.track(first, slots(steve, 0), Collections.singletonList(herobrine));
+
+        assertThat(registry.markChanged(herobrine)).isEqualTo(1);
+        assertThat(registry.flush()).isZero();
+        assertThat(first.updates).containsExactly(Collections.emptyList());
+
+        registry.track(first, slots(steve, 0));
+        assertThat(registry.markChanged(herobrine)).isZero();
+
+        registry.track(first, slots(steve, 0), Collections.singletonList(alex));
+        registry.untrack(first);
+        assertThat(registry.markChanged(alex)).isZero();
+    }
+
+    @Test
+    @DisplayName("Should drop every GUI of a viewer who left")
+    void viewerLeft() {
+        registry.track(first, slots(steve, 0));
+        registry.track(second, slots(steve, 3));
+
+        registry.untrackViewer(first.getViewer().getUniqueId());
+
+        assertThat(registry.size()).isEqualTo(1);
+        assertThat(registry.markChanged(steve)).isEqualTo(1);
+    }
+
+    private static final class RecordingView implements OpenGuiRegistry.View {
+        private final Player viewer;
+        private final List<List<Integer>> updates = new ArrayList<>();
+
+        private RecordingView(Player viewer) {
+            this.viewer = viewer;
+        }
+
+        @Override
+        public Player getViewer() {
+            return viewer;
+        }
+
+        @Override
+        public void updateSlots(Collection<Integer> slots) {
+            updates.add(new ArrayList<>(slots));
+        }
+    }
+}
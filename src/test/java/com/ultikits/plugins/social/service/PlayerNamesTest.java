@@ -0,0 +1,47 @@
+package com.ultikits.plugins.social.service;
+
+import org.junit.jupiter.api.*;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests for PlayerNames.
+ */
+@DisplayName("PlayerNames Tests")
+class PlayerNamesTest {
+
+    private final PlayerNames names = new PlayerNames();
+    private final UUID steve = UUID.randomUUID();
+
+    @Test
+    @DisplayName("Should share the first stored name")
+    void canonical() {
+        String first = new String("Steve");
+        String second = new String("Steve");
+
+        assertThat(names.canonical(steve.toString(), first)).isSameAs(first);
+        assertThat(names.canonical(steve.toString(), second)).isSameAs(first);
+        assertThat(names.get(steve)).isEqualTo("Steve");
+        assertThat(names.size()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should prefer an updated name over stored ones")
+    void update() {
+        names.canonical(steve.toString(), "Steve");
+        names.update(steve, "Stephen");
+
+        assertThat(names.canonical(steve.toString(), "Steve")).isEqualTo("Stephen");
+        assertThat(names.get(steve)).isEqualTo("Stephen");
+    }
+
+    @Test
+    @DisplayName("Should pass through rows without a UUID or name")
+    void missing() {
+        assertThat(names.canonical(null, "Steve")).isEqualTo("Steve");
+        assertThat(names.canonical(steve.toString(), null)).isNull();
+        assertThat(names.size()).isZero();
+    }
+}
@@ -0,0 +1,100 @@
+package com.ultikits.plugins.social.service;
+
+import org.junit.jupiter.api.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests for RateLimiter.
+ */
+@DisplayName("RateLimiter Tests")
+class RateLimiterTest {
+
+    private AtomicLong clock;
+    private RateLimiter limiter;
+    private UUID playerUuid;
+
+    @BeforeEach
+    void setUp() {
+        clock = new AtomicLong(1_000_000_000L);
+        limiter = new RateLimiter(clock::get);
+        playerUuid = UUID.randomUUID();
+    }
+
+    @Test
+    @DisplayName("Should allow everything when not configured")
+    void unconfiguredAllowsAll() {
+        for (int i = 0; i < 1000; i++) {
+            assertThat(limiter.tryAcquire(playerUuid, RateLimiter.Action.MESSAGE)).isTrue();
+        }
+        assertThat(limiter.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should allow burst then reject")
+    void burstThenReject() {
+        limiter.configure(RateLimiter.Action.FRIEND_REQUEST, 3, 6);
+
+        assertThat(limiter.tryAcquire(playerUuid, RateLimiter.Action.FRIEND_REQUEST)).isTrue();
+        assertThat(limiter.tryAcquire(playerUuid, RateLimiter.Action.FRIEND_REQUEST)).isTrue();
+        assertThat(limiter.tryAcquire(playerUuid, RateLimiter.Action.FRIEND_REQUEST)).isTrue();
+        assertThat(limiter.tryAcquire(playerUuid, RateLimiter.Action.FRIEND_REQUEST)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should refill one token per interval")
+    void refill() {
+        limiter.configure(RateLimiter.Action.MESSAGE, 1, 60);
+
+        assertThat(limiter.tryAcquire(playerUuid, RateLimiter.Action.MESSAGE)).isTrue();
+        assertThat(limiter.tryAcquire(playerUuid, RateLimiter.Action.MESSAGE)).isFalse();
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(999));
+        assertThat(limiter.tryAcquire(playerUuid, RateLimiter.Action.MESSAGE)).isFalse();
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        assertThat(limiter.tryAcquire(playerUuid, RateLimiter.Action.MESSAGE)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should track actions and players independently")
+    void independentBuckets() {
+        limiter.configure(RateLimiter.Action.MESSAGE, 1, 1);
+        limiter.configure(RateLimiter.Action.MODIFY, 1, 1);
+
+        assertThat(limiter.tryAcquire(playerUuid, RateLimiter.Action.MESSAGE)).isTrue();
+        assertThat(limiter.tryAcquire(playerUuid, RateLimiter.Action.MESSAGE)).isFalse();
+        assertThat(limiter.tryAcquire(playerUuid, RateLimiter.Action.MODIFY)).isTrue();
+        assertThat(limiter.tryAcquire(UUID.randomUUID(), RateLimiter.Action.MESSAGE)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should disable limiting when burst is zero")
+    void disableWithZeroBurst() {
+        limiter.configure(RateLimiter.Action.MODIFY, 1, 1);
+        limiter.configure(RateLimiter.Action.MODIFY, 0, 1);
+
+        assertThat(limiter.tryAcquire(playerUuid, RateLimiter.Action.MODIFY)).isTrue();
+        assertThat(limiter.tryAcquire(playerUuid, RateLimiter.Action.MODIFY)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should evict only fully refilled buckets")
+    void evictIdle() {
+        limiter.configure(RateLimiter.Action.MESSAGE, 2, 60);
+        UUID other = UUID.randomUUID();
+
+        limiter.tryAcquire(playerUuid, RateLimiter.Action.MESSAGE);
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        limiter.tryAcquire(other, RateLimiter.Action.MESSAGE);
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(600));
+
+        limiter.evictIdle();
+
+        assertThat(limiter.size()).isEqualTo(1);
+    }
+}
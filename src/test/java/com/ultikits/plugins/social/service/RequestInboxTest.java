@@ -0,0 +1,62 @@
+package com.ultikits.plugins.social.service;
+
+import com.ultikits.plugins.social.entity.FriendRequest;
+
+import org.junit.jupiter.api.*;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests for RequestInbox.
+ */
+@DisplayName("RequestInbox Tests")
+class RequestInboxTest {
+
+    private final UUID receiver = UUID.randomUUID();
+    private final RequestInbox inbox = new RequestInbox();
+
+    @Test
+    @DisplayName("Should find requests by sender and by name ignoring case")
+    void lookups() {
+        FriendRequest request = FriendRequest.create(UUID.randomUUID(), "Steve", receiver);
+        inbox.add(request);
+
+        assertThat(inbox.fromSender(request.getSender())).isSameAs(request);
+        assertThat(inbox.named("sTEVE")).isSameAs(request);
+        assertThat(inbox.named("Alex")).isNull();
+    }
+
+    @Test
+    @DisplayName("Should hold one request per sender, oldest first")
+    void onePerSender() {
+        UUID steve = UUID.randomUUID();
+        FriendRequest first = FriendRequest.create(steve, "Steve", receiver);
+        FriendRequest alex = FriendRequest.create(UUID.randomUUID(), "Alex", receiver);
+
+        assertThat(inbox.add(first)).isTrue();
+        assertThat(inbox.add(alex)).isTrue();
+        assertThat(inbox.add(FriendRequest.create(steve, "Steve", receiver))).isFalse();
+        assertThat(inbox.list()).containsExactly(first, alex);
+    }
+
+    @Test
+    @DisplayName("Should drop removed and expired requests from both indexes")
+    void removal() {
+        FriendRequest valid = FriendRequest.create(UUID.randomUUID(), "Steve", receiver);
+        FriendRequest expired = new FriendRequest(UUID.randomUUID(), "Alex", receiver,
+                System.currentTimeMillis() - 120000);
+        inbox.add(valid);
+        inbox.add(expired);
+
+        assertThat(inbox.removeExpired(60)).isEqualTo(1);
+        assertThat(inbox.named("alex")).isNull();
+        assertThat(inbox.fromSender(expired.getSender())).isNull();
+
+        assertThat(inbox.remove(valid)).isTrue();
+        assertThat(inbox.remove(valid)).isFalse();
+        assertThat(inbox.named("steve")).isNull();
+        assertThat(inbox.isEmpty()).isTrue();
+    }
+}
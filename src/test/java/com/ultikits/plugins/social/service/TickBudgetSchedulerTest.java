@@ -0,0 +1,148 @@
+package com.ultikits.plugins.social.service;
+
+import com.ultikits.plugins.social.UltiSocialTestHelper;
+import com.ultikits.plugins.social.config.SocialConfig;
+
+import org.bukkit.entity.Player;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for TickBudgetScheduler.
+ */
+@DisplayName("TickBudgetScheduler Tests")
+class TickBudgetSchedulerTest {
+
+    private static final long MS = 1_000_000L;
+
+    private AtomicLong clock;
+    private SocialConfig config;
+    private TickBudgetScheduler scheduler;
+    private List<Integer> ran;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        UltiSocialTestHelper.setUp();
+        clock = new AtomicLong(1_000 * MS);
+        config = UltiSocialTestHelper.createDefaultConfig();
+        when(config.getTickBudgetMillis()).thenReturn(4);
+        scheduler = new TickBudgetScheduler(clock::get);
+        UltiSocialTestHelper.setField(scheduler, "plugin", UltiSocialTestHelper.getMockPlugin());
+        UltiSocialTestHelper.setField(scheduler, "config", config);
+        ran = new ArrayList<>();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        UltiSocialTestHelper.tearDown();
+    }
+
+    /**
+     * Queue a task that takes the given number of milliseconds.
+     */
+    private void submit(int id, long millis) {
+        scheduler.submit(() -> {
+            ran.add(id);
+            clock.addAndGet(millis * MS);
+        });
+    }
+
+    @Test
+    @DisplayName("Should run tasks inline when budget is 0")
+    void inlineWhenDisabled() {
+        when(config.getTickBudgetMillis()).thenReturn(0);
+
+        submit(1, 1);
+
+        assertThat(ran).containsExactly(1);
+        assertThat(scheduler.getQueueSize()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should queue tasks until the next tick")
+    void queueUntilTick() {
+        submit(1, 1);
+
+        assertThat(ran).isEmpty();
+        assertThat(scheduler.getQueueSize()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should stop once the budget is spent and carry the rest over")
+    void carryOver() {
+        for (int i = 0; i < 6; i++) {
+            submit(i, 1);
+        }
+
+        assertThat(scheduler.runTick()).isEqualTo(4);
+        assertThat(ran).containsExactly(0, 1, 2, 3);
+
+        clock.addAndGet(50 * MS);
+        assertThat(scheduler.runTick()).isEqualTo(2);
+        assertThat(ran).containsExactly(0, 1, 2, 3, 4, 5);
+    }
+
+    @Test
+    @DisplayName("Should always run at least one task per tick")
+    void alwaysProgress() {
+        submit(1, 20);
+        submit(2, 20);
+
+        assertThat(scheduler.runTick()).isEqualTo(1);
+        clock.addAndGet(50 * MS);
+        assertThat(scheduler.runTick()).isEqualTo(1);
+        assertThat(ran).containsExactly(1, 2);
+    }
+
+    @Test
+    @DisplayName("Should shrink the budget after a heavy tick")
+    void heavyTick() {
+        scheduler.runTick();
+        for (int i = 0; i < 6; i++) {
+            submit(i, 1);
+        }
+
+        clock.addAndGet(120 * MS);
+        assertThat(scheduler.runTick()).isEqualTo(1);
+
+        clock.addAndGet(50 * MS);
+        assertThat(scheduler.runTick()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("Should drop tasks whose owner has left")
+    void dropOfflineOwner() {
+        Player gone = UltiSocialTestHelper.createMockPlayer("Gone", UUID.randomUUID());
+        Player here = UltiSocialTestHelper.createMockPlayer("Here", UUID.randomUUID());
+        when(gone.isOnline()).thenReturn(false);
+        when(here.isOnline()).thenReturn(true);
+
+        scheduler.submit(gone, () -> ran.add(1));
+        scheduler.submit(here, () -> ran.add(2));
+        scheduler.runTick();
+
+        assertThat(ran).containsExactly(2);
+    }
+
+    @Test
+    @DisplayName("Should keep draining after a task throws")
+    void taskFailure() {
+        scheduler.submit(() -> {
+            throw new IllegalStateException("boom");
+        });
+        submit(2, 0);
+
+        scheduler.runTick();
+
+        assertThat(ran).containsExactly(2);
+        verify(UltiSocialTestHelper.getMockPlugin().getLogger())
+            .error(eq("Deferred social task failed"), any(IllegalStateException.class));
+    }
+}
@@ -0,0 +1,94 @@
+package com.ultikits.plugins.social.service;
+
+import com.ultikits.plugins.social.UltiSocialTestHelper;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.junit.jupiter.api.*;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for WarmupTracker.
+ */
+@DisplayName("WarmupTracker Tests")
+class WarmupTrackerTest {
+
+    private final WarmupTracker tracker = new WarmupTracker();
+    private final AtomicInteger done = new AtomicInteger();
+    private final AtomicInteger cancelled = new AtomicInteger();
+
+    private Player player;
+    private UUID playerUuid;
+    private World world;
+
+    @BeforeEach
+    void setUp() {
+        playerUuid = UUID.randomUUID();
+        player = UltiSocialTestHelper.createMockPlayer("TestPlayer", playerUuid);
+        world = player.getLocation().getWorld();
+        tracker.start(player, 3000, 1000, done::incrementAndGet, cancelled::incrementAndGet);
+    }
+
+    @Test
+    @DisplayName("Should finish the warmup once its time is up")
+    void finish() {
+        assertThat(tracker.tick(3999)).isZero();
+        assertThat(tracker.isWarmingUp(playerUuid)).isTrue();
+
+        assertThat(tracker.tick(4000)).isEqualTo(1);
+
+        assertThat(done.get()).isEqualTo(1);
+        assertThat(tracker.isEmpty()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should ignore moves within the same block")
+    void sameBlock() {
+        Location turned = new Location(world, 100.9, 64.5, -200.1, 90f, 45f);
+
+        assertThat(tracker.onMove(playerUuid, turned)).isFalse();
+        assertThat(tracker.isWarmingUp(playerUuid)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should cancel when the player leaves their block")
+    void moved() {
+        assertThat(tracker.onMove(playerUuid, new Location(world, 101.5, 64.0, -200.5))).isTrue();
+
+        assertThat(cancelled.get()).isEqualTo(1);
+        assertThat(tracker.tick(10_000)).isZero();
+        assertThat(done.get()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should cancel when the player changes world")
+    void otherWorld() {
+        World nether = mock(World.class);
+
+        assertThat(tracker.onMove(playerUuid, new Location(nether, 100.5, 64.0, -200.5))).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should not touch players without a warmup")
+    void otherPlayer() {
+        assertThat(tracker.onMove(UUID.randomUUID(), new Location(world, 0, 0, 0))).isFalse();
+        assertThat(tracker.cancel(UUID.randomUUID())).isFalse();
+        assertThat(tracker.size()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should cancel the previous warmup when a new one starts")
+    void restart() {
+        tracker.start(player, 3000, 2000, done::incrementAndGet, cancelled::incrementAndGet);
+
+        assertThat(cancelled.get()).isEqualTo(1);
+        assertThat(tracker.tick(4500)).isZero();
+        assertThat(tracker.tick(5000)).isEqualTo(1);
+    }
+}
@@ -0,0 +1,61 @@
+package com.ultikits.plugins.social.service;
+
+import org.junit.jupiter.api.*;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests for WorldPresence.
+ */
+@DisplayName("WorldPresence Tests")
+class WorldPresenceTest {
+
+    private final WorldPresence presence = new WorldPresence();
+    private final UUID steve = UUID.randomUUID();
+    private final UUID alex = UUID.randomUUID();
+
+    @Test
+    @DisplayName("Should group players by world")
+    void enter() {
+        presence.enter(steve, "world");
+        presence.enter(alex, "world");
+
+        assertThat(presence.players("world")).containsExactlyInAnyOrder(steve, alex);
+        assertThat(presence.worldOf(steve)).isEqualTo("world");
+        assertThat(presence.players("nether")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should move a player out of the previous world")
+    void move() {
+        presence.enter(steve, "world");
+        presence.enter(steve, "nether");
+
+        assertThat(presence.players("world")).isEmpty();
+        assertThat(presence.players("nether")).containsExactly(steve);
+        assertThat(presence.worldCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should forget players who leave and drop empty worlds")
+    void leave() {
+        presence.enter(steve, "world");
+        presence.leave(steve);
+        presence.leave(alex);
+
+        assertThat(presence.worldOf(steve)).isNull();
+        assertThat(presence.players("world")).isEmpty();
+        assertThat(presence.worldCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should hand out a read-only view")
+    void readOnly() {
+        presence.enter(steve, "world");
+
+        assertThatThrownBy(() -> presence.players("world").add(alex))
+            .isInstanceOf(UnsupportedOperationException.class);
+    }
+}
@@ -0,0 +1,152 @@
+package com.ultikits.plugins.social.storage;
+
+import com.ultikits.plugins.social.entity.BlacklistData;
+import com.ultikits.plugins.social.entity.FriendshipData;
+import com.ultikits.ultitools.interfaces.DataOperator;
+import com.ultikits.ultitools.interfaces.Query;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for DataOperatorGraphStore.
+ */
+@DisplayName("DataOperatorGraphStore Tests")
+class DataOperatorGraphStoreTest {
+
+    private DataOperator<FriendshipData> friendOperator;
+    private DataOperator<BlacklistData> blacklistOperator;
+    private Query<FriendshipData> friendQuery;
+    private Query<BlacklistData> blacklistQuery;
+    private DataOperatorGraphStore store;
+    private UUID alice;
+    private UUID bob;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        friendOperator = mock(DataOperator.class);
+        blacklistOperator = mock(DataOperator.class);
+        friendQuery = mock(Query.class);
+        blacklistQuery = mock(Query.class);
+        when(friendOperator.query()).thenReturn(friendQuery);
+        when(friendQuery.where(anyString())).thenReturn(friendQuery);
+        when(friendQuery.eq(any())).thenReturn(friendQuery);
+        when(blacklistOperator.query()).thenReturn(blacklistQuery);
+        when(blacklistQuery.where(anyString())).thenReturn(blacklistQuery);
+        when(blacklistQuery.eq(any())).thenReturn(blacklistQuery);
+        store = new DataOperatorGraphStore(friendOperator, blacklistOperator);
+        alice = UUID.randomUUID();
+        bob = UUID.randomUUID();
+    }
+
+    @Test
+    @DisplayName("Should load friends by player_uuid")
+    void loadFriends() {
+        when(friendQuery.list()).thenReturn(new ArrayList<>());
+
+        assertThat(store.loadFriends(alice)).isEmpty();
+
+        verify(friendQuery).where("player_uuid");
+        verify(friendQuery).eq(alice.toString());
+    }
+
+    @Test
+    @DisplayName("Should load friends of many players with one IN query")
+    void loadFriendUuids() {
+        UUID carol = UUID.randomUUID();
+        when(friendQuery.in(any())).thenReturn(friendQuery);
+        when(friendQuery.list()).thenReturn(new ArrayList<>(Arrays.asList(
+            FriendshipData.create(alice, bob, "Bob"), FriendshipData.create(alice, carol, "Carol"))));
+
+        Map<UUID, Set<UUID>> friends = store.loadFriendUuids(Arrays.asList(alice, bob));
+
+        assertThat(friends.get(alice)).containsExactlyInAnyOrder(bob, carol);
+        assertThat(friends).doesNotContainKey(bob);
+        verify(friendQuery).where("player_uuid");
+        verify(friendQuery).in(Arrays.asList(alice.toString(), bob.toString()));
+        verify(friendQuery, times(1)).list();
+    }
+
+    @Test
+    @DisplayName("Should delete one direction of a friendship")
+    void deleteFriendship() {
+        store.deleteFriendship(alice, bob);
+
+        verify(friendQuery).where("friend_uuid");
+        verify(friendQuery).eq(bob.toString());
+        verify(friendQuery).delete();
+    }
+
+    @Test
+    @DisplayName("Should rewrite only rows with an old name")
+    void renamePlayer() throws Exception {
+        UUID carol = UUID.randomUUID();
+        FriendshipData stale = FriendshipData.create(alice, bob, "Bob");
+        FriendshipData current = FriendshipData.create(carol, bob, "Robert");
+        BlacklistData blocked = BlacklistData.create(carol, bob, "Bob", null);
+        when(friendQuery.list()).thenReturn(new ArrayList<>(Arrays.asList(stale, current)));
+        when(blacklistQuery.list()).thenReturn(new ArrayList<>(Collections.singletonList(blocked)));
+
+        assertThat(store.renamePlayer(bob, "Robert")).containsExactlyInAnyOrder(alice, carol);
+
+        verify(friendQuery).where("friend_uuid");
+        verify(blacklistQuery).where("blocked_uuid");
+        verify(friendOperator).update(stale);
+        verify(friendOperator, never()).update(current);
+        verify(blacklistOperator).update(blocked);
+        assertThat(stale.getFriendName()).isEqualTo("Robert");
+        assertThat(blocked.getBlockedName()).isEqualTo("Robert");
+    }
+
+    @Test
+    @DisplayName("Should delete by id")
+    void deleteById() {
+        FriendshipData data = FriendshipData.create(alice, bob, "Bob");
+        data.setId("7");
+
+        store.deleteFriend(data);
+
+        verify(friendOperator).delById("7");
+    }
+
+    @Test
+    @DisplayName("Should page by id with a keyset condition after the first page")
+    void pages() {
+        when(friendQuery.gt(any())).thenReturn(friendQuery);
+        when(friendQuery.orderBy(anyString())).thenReturn(friendQuery);
+        when(friendQuery.limit(anyInt())).thenReturn(friendQuery);
+        when(friendQuery.list()).thenReturn(new ArrayList<>());
+
+        store.pageFriendships(null, 100);
+        verify(friendQuery, never()).gt(any());
+
+        store.pageFriendships("42", 100);
+        verify(friendQuery).where("id");
+        verify(friendQuery).gt("42");
+        verify(friendQuery, times(2)).orderBy("id");
+        verify(friendQuery, times(2)).limit(100);
+    }
+
+    @Test
+    @DisplayName("Should only delete blacklist entries that exist")
+    void deleteBlock() {
+        when(blacklistQuery.exists()).thenReturn(false);
+        assertThat(store.deleteBlock(alice, bob)).isFalse();
+        verify(blacklistQuery, never()).delete();
+
+        when(blacklistQuery.exists()).thenReturn(true);
+        assertThat(store.deleteBlock(alice, bob)).isTrue();
+        verify(blacklistQuery).delete();
+    }
+}
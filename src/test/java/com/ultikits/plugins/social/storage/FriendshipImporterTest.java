@@ -0,0 +1,258 @@
+package com.ultikits.plugins.social.storage;
+
+import com.ultikits.plugins.social.entity.FriendshipData;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests for FriendshipImporter.
+ */
+@DisplayName("FriendshipImporter Tests")
+class FriendshipImporterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private MappedGraphStore store;
+    private List<FriendshipImporter.Progress> reports;
+    private UUID alice;
+    private UUID bob;
+    private UUID carol;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        store = new MappedGraphStore(tempDir.resolve("store").toFile());
+        reports = new ArrayList<>();
+        alice = UUID.randomUUID();
+        bob = UUID.randomUUID();
+        carol = UUID.randomUUID();
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    private FriendshipImporter.Progress importText(String text, FriendshipImporter.Format format, int batchSize)
+        throws IOException {
+        FriendshipImporter importer = new FriendshipImporter(store, batchSize, uuid -> "Resolved");
+        return importer.run(new StringReader(text), format, () -> false, reports::add);
+    }
+
+    @Nested
+    @DisplayName("CSV")
+    class CsvTests {
+
+        @Test
+        @DisplayName("Should import both directions of each pair")
+        void bothDirections() throws IOException {
+            String csv = alice + "," + bob + ",Alice,Bob\n";
+
+            FriendshipImporter.Progress result = importText(csv, FriendshipImporter.Format.CSV, 100);
+
+            assertThat(result.isFinished()).isTrue();
+            assertThat(result.getImported()).isEqualTo(1);
+            assertThat(result.getRowsWritten()).isEqualTo(2);
+            assertThat(store.loadFriends(alice)).extracting(FriendshipData::getFriendName).containsExactly("Bob");
+            assertThat(store.loadFriends(bob)).extracting(FriendshipData::getFriendName).containsExactly("Alice");
+        }
+
+        @Test
+        @DisplayName("Should map columns from a header")
+        void header() throws IOException {
+            String csv = "friend_name,uuid2,uuid1\n"
+                + "Bob," + bob + "," + alice + "\n";
+
+            importText(csv, FriendshipImporter.Format.CSV, 100);
+
+            assertThat(store.loadFriends(alice)).extracting(FriendshipData::getFriendName).containsExactly("Bob");
+            assertThat(store.loadFriends(bob)).extracting(FriendshipData::getFriendName).containsExactly("Resolved");
+        }
+
+        @Test
+        @DisplayName("Should count invalid lines and skip comments")
+        void invalid() throws IOException {
+            String csv = "# exported pairs\n"
+                + alice + "," + alice + "\n"
+                + "not-a-uuid," + bob + "\n"
+                + alice + "\n"
+                + alice.toString().replace("-", "") + "," + carol + "\n";
+
+            FriendshipImporter.Progress result = importText(csv, FriendshipImporter.Format.CSV, 100);
+
+            assertThat(result.getRead()).isEqualTo(4);
+            assertThat(result.getInvalid()).isEqualTo(3);
+            assertThat(result.getImported()).isEqualTo(1);
+            assertThat(store.loadFriends(carol)).hasSize(1);
+        }
+
+        @Test
+        @DisplayName("Should report the players written in each batch")
+        void batchOwners() throws IOException {
+            store.insertFriend(FriendshipData.create(alice, bob, "Bob"));
+            List<Set<UUID>> batches = new ArrayList<>();
+            FriendshipImporter importer = new FriendshipImporter(store, 1, uuid -> "Resolved", batches::add);
+
+            importer.run(new StringReader(alice + "," + bob + "\n" + alice + "," + carol + "\n"),
+                FriendshipImporter.Format.CSV, () -> false, reports::add);
+
+            assertThat(batches).hasSize(2);
+            assertThat(batches.get(0)).containsExactly(bob);
+            assertThat(batches.get(1)).containsExactlyInAnyOrder(alice, carol);
+        }
+
+        @Test
+        @DisplayName("Should skip pairs repeated in either order")
+        void duplicatesInFile() throws IOException {
+            String csv = alice + "," + bob + "\n"
+                + bob + "," + alice + "\n"
+                + alice + "," + bob + "\n";
+
+            FriendshipImporter.Progress result = importText(csv, FriendshipImporter.Format.CSV, 1);
+
+            assertThat(result.getImported()).isEqualTo(1);
+            assertThat(result.getDuplicates()).isEqualTo(2);
+            assertThat(store.loadFriends(alice)).hasSize(1);
+        }
+
+        @Test
+        @DisplayName("Should skip pairs already in the store and fill in missing sides")
+        void duplicatesInStore() throws IOException {
+            store.insertFriend(FriendshipData.create(alice, bob, "Bob"));
+            store.insertFriend(FriendshipData.create(bob, alice, "Alice"));
+            store.insertFriend(FriendshipData.create(alice, carol, "Carol"));
+
+            FriendshipImporter.Progress result = importText(
+                alice + "," + bob + "\n" + alice + "," + carol + "\n", FriendshipImporter.Format.CSV, 100);
+
+            assertThat(result.getDuplicates()).isEqualTo(1);
+            assertThat(result.getRowsWritten()).isEqualTo(1);
+            assertThat(store.loadFriends(alice)).hasSize(2);
+            assertThat(store.loadFriends(carol)).hasSize(1);
+        }
+
+        @Test
+        @DisplayName("Should split quoted fields")
+        void quoted() {
+            assertThat(FriendshipImporter.splitCsv("\"a,b\", c ,\"say \"\"hi\"\"\""))
+                .containsExactly("a,b", "c", "say \"hi\"");
+        }
+    }
+
+    @Nested
+    @DisplayName("JSON lines")
+    class JsonTests {
+
+        @Test
+        @DisplayName("Should read pairs and names from objects")
+        void objects() throws IOException {
+            String jsonl = "{\"player\":\"" + alice + "\",\"friend\":\"" + bob + "\",\"friend_name\":\"Bob\"}\n"
+                + "{broken\n"
+                + "[1,2]\n";
+
+            FriendshipImporter.Progress result = importText(jsonl, FriendshipImporter.Format.JSONL, 100);
+
+            assertThat(result.getImported()).isEqualTo(1);
+            assertThat(result.getInvalid()).isEqualTo(2);
+            assertThat(store.loadFriends(alice)).extracting(FriendshipData::getFriendName).containsExactly("Bob");
+        }
+
+        @Test
+        @DisplayName("Should pick the format from the file extension")
+        void format() {
+            assertThat(FriendshipImporter.Format.of("dump.JSONL")).isEqualTo(FriendshipImporter.Format.JSONL);
+            assertThat(FriendshipImporter.Format.of("friends.csv")).isEqualTo(FriendshipImporter.Format.CSV);
+        }
+    }
+
+    @Nested
+    @DisplayName("Batching")
+    class BatchTests {
+
+        @Test
+        @DisplayName("Should report after every batch and once at the end")
+        void reports() throws IOException {
+            StringBuilder csv = new StringBuilder();
+            for (int i = 0; i < 25; i++) {
+                csv.append(UUID.randomUUID()).append(',').append(UUID.randomUUID()).append('\n');
+            }
+
+            importText(csv.toString(), FriendshipImporter.Format.CSV, 10);
+
+            assertThat(reports).hasSize(3);
+            assertThat(reports.get(reports.size() - 1).isFinished()).isTrue();
+            assertThat(store.pageFriendships(null, 100)).hasSize(50);
+        }
+
+        @Test
+        @DisplayName("Should stop after the current batch when cancelled")
+        void cancel() throws IOException {
+            StringBuilder csv = new StringBuilder();
+            for (int i = 0; i < 25; i++) {
+                csv.append(UUID.randomUUID()).append(',').append(UUID.randomUUID()).append('\n');
+            }
+            FriendshipImporter importer = new FriendshipImporter(store, 10, uuid -> null);
+
+            FriendshipImporter.Progress result = importer.run(
+                new StringReader(csv.toString()), FriendshipImporter.Format.CSV, () -> true, reports::add);
+
+            assertThat(result.isCancelled()).isTrue();
+            assertThat(result.getImported()).isEqualTo(10);
+            assertThat(store.pageFriendships(null, 10).get(0).getFriendName()).hasSize(36);
+        }
+
+        @Test
+        @DisplayName("Should report a missing file as an error")
+        void missingFile() {
+            FriendshipImporter importer = new FriendshipImporter(store, 10, uuid -> null);
+
+            FriendshipImporter.Progress result = importer.run(
+                tempDir.resolve("missing.csv").toFile(), () -> false, reports::add);
+
+            assertThat(result.getError()).isNotNull();
+            assertThat(reports).containsExactly(result);
+        }
+
+        @Test
+        @DisplayName("Should import a file from disk")
+        void file() throws IOException {
+            File file = tempDir.resolve("pairs.csv").toFile();
+            Files.write(file.toPath(), Collections.singletonList(alice + "," + bob + ",爱丽丝,鲍勃"),
+                StandardCharsets.UTF_8);
+            FriendshipImporter importer = new FriendshipImporter(store, 10, uuid -> null);
+
+            FriendshipImporter.Progress result = importer.run(file, () -> false, reports::add);
+
+            assertThat(result.getImported()).isEqualTo(1);
+            assertThat(store.loadFriends(bob).get(0).getFriendName()).isEqualTo("爱丽丝");
+        }
+    }
+
+    @Test
+    @DisplayName("Pair set should treat both orders as one pair and grow")
+    void pairSet() {
+        FriendshipImporter.PairSet set = new FriendshipImporter.PairSet();
+        assertThat(set.add(alice, bob)).isTrue();
+        assertThat(set.add(bob, alice)).isFalse();
+        for (int i = 0; i < 100_000; i++) {
+            set.add(UUID.randomUUID(), UUID.randomUUID());
+        }
+        assertThat(set.size()).isEqualTo(100_001);
+        assertThat(set.add(alice, bob)).isFalse();
+    }
+}
@@ -0,0 +1,145 @@
+package com.ultikits.plugins.social.storage;
+
+import com.ultikits.plugins.social.entity.BlacklistData;
+import com.ultikits.plugins.social.entity.FriendshipData;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for GraphExporter.
+ */
+@DisplayName("GraphExporter Tests")
+class GraphExporterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private MappedGraphStore store;
+    private File exportDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        store = new MappedGraphStore(tempDir.resolve("store").toFile());
+        exportDir = tempDir.resolve("exports").toFile();
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    private List<String> readGzip(File file) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+            new GZIPInputStream(new FileInputStream(file)), StandardCharsets.UTF_8))) {
+            return reader.lines().collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    @DisplayName("Should write every row across several pages")
+    void allRows() throws IOException {
+        for (int i = 0; i < 23; i++) {
+            store.insertFriend(FriendshipData.create(UUID.randomUUID(), UUID.randomUUID(), "P" + i));
+        }
+        store.insertBlock(BlacklistData.create(UUID.randomUUID(), UUID.randomUUID(), "Eve", "a, \"quoted\" reason"));
+
+        GraphExporter.Result result = new GraphExporter(store, 5, 0).export(exportDir, "2026-10-19", () -> false);
+
+        assertThat(result.getFriendships()).isEqualTo(23);
+        assertThat(result.getBlacklist()).isEqualTo(1);
+        List<String> friends = readGzip(new File(exportDir, "friendships-2026-10-19.csv.gz"));
+        assertThat(friends).hasSize(24);
+        assertThat(friends.get(0)).startsWith("id,player_uuid,friend_uuid");
+        assertThat(friends.stream().distinct().count()).isEqualTo(24);
+        List<String> blocks = readGzip(new File(exportDir, "blacklist-2026-10-19.csv.gz"));
+        assertThat(blocks.get(1)).contains("\"a, \"\"quoted\"\" reason\"");
+        assertThat(exportDir.list()).noneMatch(name -> name.endsWith(".tmp"));
+    }
+
+    @Test
+    @DisplayName("Should request pages by the last id of the previous page")
+    void keyset() throws IOException {
+        GraphStore paged = mock(GraphStore.class);
+        List<FriendshipData> first = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            FriendshipData row = FriendshipData.create(UUID.randomUUID(), UUID.randomUUID(), "P");
+            row.setId("id" + i);
+            first.add(row);
+        }
+        when(paged.pageFriendships(isNull(), eq(2))).thenReturn(first);
+        when(paged.pageFriendships(eq("id1"), eq(2))).thenReturn(new ArrayList<>());
+        when(paged.pageBlacklist(any(), anyInt())).thenReturn(new ArrayList<>());
+
+        new GraphExporter(paged, 2, 0).export(exportDir, "x", () -> false);
+
+        verify(paged).pageFriendships("id1", 2);
+    }
+
+    @Test
+    @DisplayName("Should sleep to stay under the row rate")
+    void throttle() throws IOException {
+        for (int i = 0; i < 10; i++) {
+            store.insertFriend(FriendshipData.create(UUID.randomUUID(), UUID.randomUUID(), "P" + i));
+        }
+        List<Long> sleeps = new ArrayList<>();
+
+        new GraphExporter(store, 2, 1, sleeps::add).export(exportDir, "x", () -> false);
+
+        assertThat(sleeps).isNotEmpty();
+        assertThat(sleeps.get(sleeps.size() - 1)).isGreaterThan(1000L);
+    }
+
+    @Test
+    @DisplayName("Should leave no files behind when cancelled")
+    void cancel() throws IOException {
+        store.insertFriend(FriendshipData.create(UUID.randomUUID(), UUID.randomUUID(), "P"));
+
+        GraphExporter.Result result = new GraphExporter(store, 5, 0).export(exportDir, "x", () -> true);
+
+        assertThat(result.isCancelled()).isTrue();
+        assertThat(exportDir.list()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should produce a friendship file the importer can read")
+    void roundTrip() throws IOException {
+        UUID alice = UUID.randomUUID();
+        UUID bob = UUID.randomUUID();
+        store.insertFriend(FriendshipData.create(alice, bob, "Bob"));
+        store.insertFriend(FriendshipData.create(bob, alice, "Alice"));
+        new GraphExporter(store, 5, 0).export(exportDir, "x", () -> false);
+        String csv = String.join("\n", readGzip(new File(exportDir, "friendships-x.csv.gz")));
+
+        MappedGraphStore target = new MappedGraphStore(tempDir.resolve("target").toFile());
+        try {
+            FriendshipImporter.Progress progress = new FriendshipImporter(target, 10, uuid -> null)
+                .run(new StringReader(csv), FriendshipImporter.Format.CSV, () -> false, p -> {
+                });
+
+            assertThat(progress.getImported()).isEqualTo(1);
+            assertThat(progress.getDuplicates()).isEqualTo(1);
+            assertThat(target.loadFriends(alice)).hasSize(1);
+        } finally {
+            target.close();
+        }
+    }
+}
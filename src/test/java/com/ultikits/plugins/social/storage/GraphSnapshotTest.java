@@ -0,0 +1,201 @@
+package com.ultikits.plugins.social.storage;
+
+import com.ultikits.plugins.social.entity.BlacklistData;
+import com.ultikits.plugins.social.entity.FriendshipData;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests for GraphSnapshot.
+ */
+@DisplayName("GraphSnapshot Tests")
+class GraphSnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    private File file;
+    private UUID alice;
+    private UUID bob;
+    private UUID carol;
+
+    @BeforeEach
+    void setUp() {
+        file = tempDir.resolve("graph.bin").toFile();
+        alice = UUID.randomUUID();
+        bob = UUID.randomUUID();
+        carol = UUID.randomUUID();
+    }
+
+    private FriendshipData friendship(UUID owner, UUID friend, String name, String id) {
+        FriendshipData data = FriendshipData.create(owner, friend, name);
+        data.setId(id);
+        return data;
+    }
+
+    @Test
+    @DisplayName("Should round-trip friendships and blacklist entries")
+    void roundTrip() throws IOException {
+        FriendshipData ab = friendship(alice, bob, "Bob", "1");
+        ab.setFavorite(true);
+        ab.setNickname("bobby");
+        FriendshipData ba = friendship(bob, alice, "Alice", "2");
+        BlacklistData ac = BlacklistData.create(alice, carol, "Carol", "spam");
+        ac.setId("3");
+
+        GraphSnapshot.write(file, Arrays.asList(ab, ba), Collections.singletonList(ac));
+        GraphSnapshot snapshot = GraphSnapshot.load(file);
+
+        List<FriendshipData> friends = snapshot.getFriends(alice);
+        assertThat(friends).hasSize(1);
+        FriendshipData loaded = friends.get(0);
+        assertThat(loaded.getId()).isEqualTo("1");
+        assertThat(loaded.getPlayerUuid()).isEqualTo(alice.toString());
+        assertThat(loaded.getFriendUuid()).isEqualTo(bob.toString());
+        assertThat(loaded.getFriendName()).isEqualTo("Bob");
+        assertThat(loaded.getNickname()).isEqualTo("bobby");
+        assertThat(loaded.isFavorite()).isTrue();
+        assertThat(loaded.getCreatedTime()).isEqualTo(ab.getCreatedTime());
+
+        List<BlacklistData> blacklist = snapshot.getBlacklist(alice);
+        assertThat(blacklist).hasSize(1);
+        assertThat(blacklist.get(0).getBlockedUuid()).isEqualTo(carol.toString());
+        assertThat(blacklist.get(0).getBlockedName()).isEqualTo("Carol");
+        assertThat(blacklist.get(0).getReason()).isEqualTo("spam");
+        assertThat(blacklist.get(0).getId()).isEqualTo("3");
+    }
+
+    @Test
+    @DisplayName("Should answer empty for known players without edges and null for unknown players")
+    void knownVersusUnknown() throws IOException {
+        GraphSnapshot.write(file, Collections.singletonList(friendship(alice, bob, "Bob", "1")),
+            Collections.emptyList());
+        GraphSnapshot snapshot = GraphSnapshot.load(file);
+
+        assertThat(snapshot.getFriends(bob)).isEmpty();
+        assertThat(snapshot.getBlacklist(alice)).isEmpty();
+        assertThat(snapshot.getFriends(carol)).isNull();
+        assertThat(snapshot.getPlayers()).containsExactlyInAnyOrder(alice, bob);
+    }
+
+    @Test
+    @DisplayName("Should stop answering for discarded players")
+    void discard() throws IOException {
+        GraphSnapshot.write(file, Collections.singletonList(friendship(alice, bob, "Bob", "1")),
+            Collections.emptyList());
+        GraphSnapshot snapshot = GraphSnapshot.load(file);
+
+        snapshot.discard(alice);
+
+        assertThat(snapshot.getFriends(alice)).isNull();
+        assertThat(snapshot.getBlacklist(alice)).isNull();
+        assertThat(snapshot.getFriends(bob)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should return independent mutable lists")
+    void mutableCopies() throws IOException {
+        GraphSnapshot.write(file, Collections.singletonList(friendship(alice, bob, "Bob", "1")),
+            Collections.emptyList());
+        GraphSnapshot snapshot = GraphSnapshot.load(file);
+
+        snapshot.getFriends(alice).clear();
+
+        assertThat(snapshot.getFriends(alice)).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("Should skip rows with malformed UUIDs")
+    void skipMalformed() throws IOException {
+        FriendshipData bad = friendship(alice, bob, "Bob", "1");
+        bad.setFriendUuid("not-a-uuid");
+
+        GraphSnapshot.write(file, Collections.singletonList(bad), Collections.emptyList());
+
+        assertThat(GraphSnapshot.load(file).getPlayers()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should reject a corrupted file")
+    void corrupted() throws IOException {
+        GraphSnapshot.write(file, Collections.singletonList(friendship(alice, bob, "Bob", "1")),
+            Collections.emptyList());
+        try (RandomAccessFile raf = new RandomAccessFile(GraphSnapshot.current(file), "rw")) {
+            raf.seek(20);
+            int b = raf.read();
+            raf.seek(20);
+            raf.write(b ^ 0xFF);
+        }
+
+        assertThatThrownBy(() -> GraphSnapshot.load(file))
+            .isInstanceOf(IOException.class)
+            .hasMessageContaining("checksum");
+    }
+
+    @Test
+    @DisplayName("Should reject a file that is not a snapshot")
+    void notASnapshot() throws IOException {
+        Files.write(file.toPath(), new byte[64]);
+
+        assertThatThrownBy(() -> GraphSnapshot.load(file)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    @DisplayName("Should replace an existing snapshot")
+    void replace() throws IOException {
+        GraphSnapshot.write(file, Collections.singletonList(friendship(alice, bob, "Bob", "1")),
+            Collections.emptyList());
+        GraphSnapshot.write(file, Collections.singletonList(friendship(alice, carol, "Carol", "2")),
+            Collections.emptyList());
+
+        List<FriendshipData> friends = GraphSnapshot.load(file).getFriends(alice);
+        assertThat(friends).extracting(FriendshipData::getFriendName).containsExactly("Carol");
+        assertThat(new File(file.getParentFile(), "graph.bin.tmp")).doesNotExist();
+        assertThat(new File(file.getParentFile(), "graph.bin.0")).doesNotExist();
+        assertThat(GraphSnapshot.current(file).getName()).isEqualTo("graph.bin.1");
+    }
+
+    @Test
+    @DisplayName("Should write a new generation instead of replacing a mapped snapshot")
+    void keepMapped() throws IOException {
+        GraphSnapshot.write(file, Collections.singletonList(friendship(alice, bob, "Bob", "1")),
+            Collections.emptyList());
+        GraphSnapshot loaded = GraphSnapshot.load(file);
+
+        GraphSnapshot.write(file, Collections.singletonList(friendship(alice, carol, "Carol", "2")),
+            Collections.emptyList());
+
+        assertThat(loaded.getFriends(alice)).extracting(FriendshipData::getFriendName).containsExactly("Bob");
+        assertThat(GraphSnapshot.load(file).getFriends(alice))
+            .extracting(FriendshipData::getFriendName).containsExactly("Carol");
+    }
+
+    @Test
+    @DisplayName("Should load and then replace a snapshot written before generations")
+    void legacyFile() throws IOException {
+        File generation = new File(file.getParentFile(), "graph.bin.0");
+        GraphSnapshot.write(file, Collections.singletonList(friendship(alice, bob, "Bob", "1")),
+            Collections.emptyList());
+        Files.move(generation.toPath(), file.toPath());
+
+        assertThat(GraphSnapshot.exists(file)).isTrue();
+        assertThat(GraphSnapshot.load(file).getFriends(alice)).hasSize(1);
+
+        GraphSnapshot.write(file, Collections.emptyList(), Collections.emptyList());
+        assertThat(GraphSnapshot.current(file)).isEqualTo(generation);
+        assertThat(file).doesNotExist();
+    }
+}
@@ -0,0 +1,248 @@
+package com.ultikits.plugins.social.storage;
+
+import com.ultikits.plugins.social.entity.BlacklistData;
+import com.ultikits.plugins.social.entity.FriendshipData;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for JournaledGraphStore.
+ */
+@DisplayName("JournaledGraphStore Tests")
+class JournaledGraphStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private File logFile;
+    private MappedGraphStore delegate;
+    private UUID alice;
+    private UUID bob;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        logFile = tempDir.resolve("wal.log").toFile();
+        delegate = new MappedGraphStore(tempDir.resolve("store").toFile());
+        alice = UUID.randomUUID();
+        bob = UUID.randomUUID();
+    }
+
+    @AfterEach
+    void tearDown() {
+        delegate.close();
+    }
+
+    /**
+     * Write records as if the previous run crashed before applying them.
+     */
+    @SuppressWarnings("unchecked")
+    private void writeLog(List<JournaledGraphStore.Mutation>... records) throws IOException {
+        WriteAheadLog log = new WriteAheadLog(logFile);
+        log.readAll();
+        for (List<JournaledGraphStore.Mutation> record : records) {
+            log.sync(log.append(JournaledGraphStore.encode(record)));
+        }
+        log.close();
+    }
+
+    /**
+     * Capture the mutations a callback makes as one log record.
+     */
+    private List<JournaledGraphStore.Mutation> record(Consumer<GraphStore> mutations) throws IOException {
+        File scratch = tempDir.resolve("scratch-" + UUID.randomUUID() + ".log").toFile();
+        JournaledGraphStore recorder = new JournaledGraphStore(mock(GraphStore.class), scratch);
+        recorder.replay();
+        recorder.atomically(mutations);
+        WriteAheadLog log = new WriteAheadLog(scratch);
+        List<JournaledGraphStore.Mutation> record = JournaledGraphStore.decode(log.readAll().get(0));
+        log.close();
+        return record;
+    }
+
+    private List<JournaledGraphStore.Mutation> acceptRecord() throws IOException {
+        return record(store -> {
+            store.insertFriend(FriendshipData.create(alice, bob, "Bob"));
+            store.insertFriend(FriendshipData.create(bob, alice, "Alice"));
+        });
+    }
+
+    @Nested
+    @DisplayName("Live Mutations")
+    class LiveTests {
+
+        @Test
+        @DisplayName("Should apply mutations to the underlying store")
+        void applies() throws IOException {
+            JournaledGraphStore store = new JournaledGraphStore(delegate, logFile);
+            store.replay();
+
+            FriendshipData friendship = FriendshipData.create(alice, bob, "Bob");
+            store.insertFriend(friendship);
+            store.insertBlock(BlacklistData.create(alice, UUID.randomUUID(), "Eve"));
+
+            assertThat(friendship.getId()).isNotNull();
+            assertThat(store.loadFriends(alice)).hasSize(1);
+            assertThat(store.loadBlacklist(alice)).hasSize(1);
+            assertThat(store.deleteBlock(alice, bob)).isFalse();
+        }
+
+        @Test
+        @DisplayName("Should log a group of mutations as one record")
+        void atomicRecord() throws IOException {
+            JournaledGraphStore store = new JournaledGraphStore(delegate, logFile);
+            store.replay();
+
+            store.atomically(s -> {
+                s.insertFriend(FriendshipData.create(alice, bob, "Bob"));
+                s.insertFriend(FriendshipData.create(bob, alice, "Alice"));
+            });
+
+            WriteAheadLog log = new WriteAheadLog(logFile);
+            List<byte[]> records = log.readAll();
+            log.close();
+            assertThat(records).hasSize(1);
+            assertThat(JournaledGraphStore.decode(records.get(0))).hasSize(2);
+            assertThat(delegate.loadFriends(alice)).hasSize(1);
+            assertThat(delegate.loadFriends(bob)).hasSize(1);
+        }
+
+        @Test
+        @DisplayName("Should empty the log on flush")
+        void flushTruncates() throws IOException {
+            JournaledGraphStore store = new JournaledGraphStore(delegate, logFile);
+            store.replay();
+            store.insertFriend(FriendshipData.create(alice, bob, "Bob"));
+            assertThat(logFile.length()).isPositive();
+
+            store.flush();
+
+            assertThat(logFile.length()).isZero();
+        }
+
+        @Test
+        @DisplayName("Should rename without writing a log record")
+        void renameUnlogged() throws Exception {
+            JournaledGraphStore store = new JournaledGraphStore(delegate, logFile);
+            store.replay();
+            store.insertFriend(FriendshipData.create(alice, bob, "Bob"));
+            store.flush();
+
+            assertThat(store.renamePlayer(bob, "Robert")).containsExactly(alice);
+
+            assertThat(logFile.length()).isZero();
+            assertThat(delegate.loadFriends(alice).get(0).getFriendName()).isEqualTo("Robert");
+        }
+    }
+
+    @Nested
+    @DisplayName("Replay")
+    class ReplayTests {
+
+        @Test
+        @DisplayName("Should apply both sides of a logged friendship")
+        void replaysPair() throws IOException {
+            writeLog(acceptRecord());
+
+            JournaledGraphStore store = new JournaledGraphStore(delegate, logFile);
+            Set<UUID> players = store.replay();
+
+            assertThat(players).containsExactlyInAnyOrder(alice, bob);
+            assertThat(delegate.loadFriends(alice)).extracting(FriendshipData::getFriendName).containsExactly("Bob");
+            assertThat(delegate.loadFriends(bob)).extracting(FriendshipData::getFriendName).containsExactly("Alice");
+            assertThat(logFile.length()).isZero();
+        }
+
+        @Test
+        @DisplayName("Should not duplicate rows that were already applied")
+        void idempotent() throws IOException {
+            delegate.insertFriend(FriendshipData.create(alice, bob, "Bob"));
+            delegate.insertFriend(FriendshipData.create(bob, alice, "Alice"));
+            writeLog(acceptRecord());
+
+            new JournaledGraphStore(delegate, logFile).replay();
+
+            assertThat(delegate.loadFriends(alice)).hasSize(1);
+            assertThat(delegate.loadFriends(bob)).hasSize(1);
+        }
+
+        @Test
+        @DisplayName("Should replay records in order")
+        void ordered() throws IOException {
+            writeLog(acceptRecord(), record(s -> {
+                s.deleteFriendship(alice, bob);
+                s.deleteFriendship(bob, alice);
+            }));
+
+            new JournaledGraphStore(delegate, logFile).replay();
+
+            assertThat(delegate.loadFriends(alice)).isEmpty();
+            assertThat(delegate.loadFriends(bob)).isEmpty();
+        }
+
+        @Test
+        @DisplayName("Should skip a record torn by a crash")
+        void tornRecord() throws IOException {
+            writeLog(acceptRecord());
+            long intact = logFile.length();
+            writeLog(record(s -> s.insertFriend(FriendshipData.create(alice, UUID.randomUUID(), "Carol"))));
+            try (RandomAccessFile raf = new RandomAccessFile(logFile, "rw")) {
+                raf.setLength(intact + (logFile.length() - intact) / 2);
+            }
+
+            new JournaledGraphStore(delegate, logFile).replay();
+
+            assertThat(delegate.loadFriends(alice)).extracting(FriendshipData::getFriendName).containsExactly("Bob");
+        }
+
+        @Test
+        @DisplayName("Should keep the log when replay fails")
+        void failureKeepsLog() throws IOException {
+            writeLog(acceptRecord());
+            long length = logFile.length();
+            GraphStore failing = mock(GraphStore.class);
+            doThrow(new IllegalStateException("database down")).when(failing).insertFriend(any());
+
+            JournaledGraphStore store = new JournaledGraphStore(failing, logFile);
+
+            assertThatThrownBy(store::replay).isInstanceOf(IllegalStateException.class);
+            assertThat(logFile.length()).isEqualTo(length);
+        }
+    }
+
+    @Test
+    @DisplayName("Should keep every field through the log")
+    void encoding() throws IOException {
+        UUID eve = UUID.randomUUID();
+        writeLog(record(s -> {
+            FriendshipData friendship = FriendshipData.create(alice, bob, "Bob");
+            friendship.setFavorite(true);
+            friendship.setNickname("老铁");
+            s.insertFriend(friendship);
+            s.insertBlock(BlacklistData.create(alice, eve, "Eve", "垃圾信息"));
+            s.insertBlock(BlacklistData.create(bob, eve, "Eve"));
+        }));
+
+        new JournaledGraphStore(delegate, logFile).replay();
+
+        FriendshipData friend = delegate.loadFriends(alice).get(0);
+        assertThat(friend.getFriendUuid()).isEqualTo(bob.toString());
+        assertThat(friend.isFavorite()).isTrue();
+        assertThat(friend.getNickname()).isEqualTo("老铁");
+        assertThat(delegate.loadBlacklist(alice).get(0).getReason()).isEqualTo("垃圾信息");
+        assertThat(delegate.loadBlacklist(bob).get(0).getReason()).isNull();
+    }
+}
@@ -0,0 +1,247 @@
+package com.ultikits.plugins.social.storage;
+
+import com.ultikits.plugins.social.entity.BlacklistData;
+import com.ultikits.plugins.social.entity.FriendshipData;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests for MappedGraphStore.
+ */
+@DisplayName("MappedGraphStore Tests")
+class MappedGraphStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private File directory;
+    private MappedGraphStore store;
+    private UUID alice;
+    private UUID bob;
+    private UUID carol;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = tempDir.resolve("store").toFile();
+        store = new MappedGraphStore(directory);
+        alice = UUID.randomUUID();
+        bob = UUID.randomUUID();
+        carol = UUID.randomUUID();
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    @DisplayName("Should assign slot ids and load friendships per player")
+    void insertAndLoad() {
+        FriendshipData ab = FriendshipData.create(alice, bob, "Bob");
+        FriendshipData ac = FriendshipData.create(alice, carol, "Carol");
+        FriendshipData ba = FriendshipData.create(bob, alice, "Alice");
+
+        store.insertFriend(ab);
+        store.insertFriend(ac);
+        store.insertFriend(ba);
+
+        assertThat(ab.getId()).isEqualTo("0");
+        assertThat(store.loadFriends(alice)).extracting(FriendshipData::getFriendName)
+            .containsExactly("Bob", "Carol");
+        assertThat(store.loadFriends(bob)).extracting(FriendshipData::getFriendUuid)
+            .containsExactly(alice.toString());
+        assertThat(store.loadFriends(carol)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should persist favorite and nickname updates")
+    void update() {
+        FriendshipData ab = FriendshipData.create(alice, bob, "Bob");
+        store.insertFriend(ab);
+
+        ab.setFavorite(true);
+        ab.setNickname("好朋友");
+        store.updateFriend(ab);
+
+        FriendshipData loaded = store.loadFriends(alice).get(0);
+        assertThat(loaded.isFavorite()).isTrue();
+        assertThat(loaded.getNickname()).isEqualTo("好朋友");
+        assertThat(loaded.getCreatedTime()).isEqualTo(ab.getCreatedTime());
+    }
+
+    @Test
+    @DisplayName("Should delete by id and by pair, reusing freed slots")
+    void deleteAndReuse() {
+        FriendshipData ab = FriendshipData.create(alice, bob, "Bob");
+        FriendshipData ba = FriendshipData.create(bob, alice, "Alice");
+        store.insertFriend(ab);
+        store.insertFriend(ba);
+
+        store.deleteFriend(ab);
+        store.deleteFriendship(bob, alice);
+
+        assertThat(store.loadFriends(alice)).isEmpty();
+        assertThat(store.loadFriends(bob)).isEmpty();
+        assertThat(store.pageFriendships(null, 10)).isEmpty();
+
+        FriendshipData ac = FriendshipData.create(alice, carol, "Carol");
+        store.insertFriend(ac);
+        assertThat(ac.getId()).isIn("0", "1");
+    }
+
+    @Test
+    @DisplayName("Should not let a stale entity change the pair that reused its slot")
+    void staleSlot() {
+        FriendshipData ab = FriendshipData.create(alice, bob, "Bob");
+        store.insertFriend(ab);
+        store.deleteFriendship(alice, bob);
+        FriendshipData ca = FriendshipData.create(carol, alice, "Alice");
+        store.insertFriend(ca);
+        assertThat(ca.getId()).isEqualTo(ab.getId());
+
+        ab.setNickname("stale");
+        store.updateFriend(ab);
+        store.deleteFriend(ab);
+
+        assertThat(store.loadFriends(carol)).hasSize(1);
+        assertThat(store.loadFriends(carol).get(0).getNickname()).isNull();
+    }
+
+    @Test
+    @DisplayName("Should find a pair whose cached id points elsewhere")
+    void staleIdSamePair() {
+        FriendshipData ab = FriendshipData.create(alice, bob, "Bob");
+        store.insertFriend(ab);
+        BlacklistData entry = BlacklistData.create(alice, carol, "Carol", null);
+        store.insertBlock(entry);
+        BlacklistData stale = BlacklistData.create(alice, carol, "Carol", null);
+        stale.setId("7");
+
+        ab.setId("7");
+        ab.setFavorite(true);
+        store.updateFriend(ab);
+        store.deleteBlock(stale);
+
+        assertThat(store.loadFriends(alice).get(0).isFavorite()).isTrue();
+        assertThat(store.loadBlacklist(alice)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should store and remove blacklist entries")
+    void blacklist() {
+        BlacklistData entry = BlacklistData.create(alice, bob, "Bob", "spam");
+        store.insertBlock(entry);
+
+        List<BlacklistData> loaded = store.loadBlacklist(alice);
+        assertThat(loaded).hasSize(1);
+        assertThat(loaded.get(0).getReason()).isEqualTo("spam");
+        assertThat(loaded.get(0).getBlockedName()).isEqualTo("Bob");
+
+        assertThat(store.deleteBlock(alice, carol)).isFalse();
+        assertThat(store.deleteBlock(alice, bob)).isTrue();
+        assertThat(store.loadBlacklist(alice)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should rename a player on friendships and blacklist entries")
+    void renamePlayer() {
+        store.insertFriend(FriendshipData.create(alice, bob, "Bob"));
+        store.insertFriend(FriendshipData.create(bob, alice, "Alice"));
+        store.insertFriend(FriendshipData.create(carol, bob, "Robert"));
+        store.insertBlock(BlacklistData.create(carol, alice, "Alice", null));
+
+        assertThat(store.renamePlayer(bob, "Robert")).containsExactly(alice);
+        assertThat(store.renamePlayer(alice, "Alicia")).containsExactlyInAnyOrder(bob, carol);
+        assertThat(store.renamePlayer(alice, "Alicia")).isEmpty();
+
+        assertThat(store.loadFriends(alice).get(0).getFriendName()).isEqualTo("Robert");
+        assertThat(store.loadFriends(bob).get(0).getFriendName()).isEqualTo("Alicia");
+        assertThat(store.loadBlacklist(carol).get(0).getBlockedName()).isEqualTo("Alicia");
+    }
+
+    @Test
+    @DisplayName("Should keep null reason and truncate long text at a character boundary")
+    void strings() {
+        BlacklistData noReason = BlacklistData.create(alice, bob, "Bob");
+        StringBuilder longReason = new StringBuilder();
+        for (int i = 0; i < 60; i++) {
+            longReason.append('中');
+        }
+        BlacklistData longEntry = BlacklistData.create(alice, carol, "Carol", longReason.toString());
+        store.insertBlock(noReason);
+        store.insertBlock(longEntry);
+
+        List<BlacklistData> loaded = store.loadBlacklist(alice);
+        assertThat(loaded.get(0).getReason()).isNull();
+        // 100 bytes hold 33 three-byte characters
+        assertThat(loaded.get(1).getReason()).hasSize(33);
+    }
+
+    @Test
+    @DisplayName("Should reopen with the same records and free list")
+    void reopen() throws IOException {
+        FriendshipData ab = FriendshipData.create(alice, bob, "Bob");
+        FriendshipData ac = FriendshipData.create(alice, carol, "Carol");
+        store.insertFriend(ab);
+        store.insertFriend(ac);
+        store.deleteFriend(ab);
+        store.insertBlock(BlacklistData.create(bob, carol, "Carol"));
+        store.close();
+
+        store = new MappedGraphStore(directory);
+
+        assertThat(store.loadFriends(alice)).extracting(FriendshipData::getFriendName).containsExactly("Carol");
+        assertThat(store.loadBlacklist(bob)).hasSize(1);
+        FriendshipData reused = FriendshipData.create(bob, alice, "Alice");
+        store.insertFriend(reused);
+        assertThat(reused.getId()).isEqualTo(ab.getId());
+    }
+
+    @Test
+    @DisplayName("Should grow past the initial capacity")
+    void grow() {
+        for (int i = 0; i < 3000; i++) {
+            store.insertFriend(FriendshipData.create(alice, UUID.randomUUID(), "P" + i));
+        }
+
+        assertThat(store.loadFriends(alice)).hasSize(3000);
+        assertThat(store.pageFriendships(null, 5000)).hasSize(3000);
+    }
+
+    @Test
+    @DisplayName("Should page through live records by slot id")
+    void pages() {
+        for (int i = 0; i < 5; i++) {
+            store.insertFriend(FriendshipData.create(alice, UUID.randomUUID(), "P" + i));
+        }
+        store.deleteFriend(store.loadFriends(alice).get(1));
+
+        List<FriendshipData> first = store.pageFriendships(null, 2);
+        List<FriendshipData> second = store.pageFriendships(first.get(1).getId(), 2);
+
+        assertThat(first).extracting(FriendshipData::getFriendName).containsExactly("P0", "P2");
+        assertThat(second).extracting(FriendshipData::getFriendName).containsExactly("P3", "P4");
+        assertThat(store.pageFriendships(second.get(1).getId(), 2)).isEmpty();
+        assertThat(store.pageBlacklist(null, 10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should refuse a file with a different format")
+    void incompatibleFile() throws IOException {
+        store.close();
+        Files.write(new File(directory, "friends.dat").toPath(), new byte[64]);
+
+        assertThatThrownBy(() -> new MappedGraphStore(directory)).isInstanceOf(IOException.class);
+        store = new MappedGraphStore(tempDir.resolve("other").toFile());
+    }
+}
@@ -0,0 +1,148 @@
+package com.ultikits.plugins.social.storage;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests for WriteAheadLog.
+ */
+@DisplayName("WriteAheadLog Tests")
+class WriteAheadLogTest {
+
+    @TempDir
+    Path tempDir;
+
+    private File file;
+
+    @BeforeEach
+    void setUp() {
+        file = tempDir.resolve("wal.log").toFile();
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    @DisplayName("Should read back synced records in order")
+    void roundTrip() throws IOException {
+        WriteAheadLog log = new WriteAheadLog(file);
+        log.readAll();
+        log.sync(log.append(bytes("a")));
+        log.sync(log.append(bytes("bc")));
+        log.close();
+
+        WriteAheadLog reopened = new WriteAheadLog(file);
+        List<byte[]> records = reopened.readAll();
+        reopened.close();
+
+        assertThat(records).hasSize(2);
+        assertThat(new String(records.get(1), StandardCharsets.UTF_8)).isEqualTo("bc");
+    }
+
+    @Test
+    @DisplayName("Should drop a torn record at the tail")
+    void tornTail() throws IOException {
+        WriteAheadLog log = new WriteAheadLog(file);
+        log.readAll();
+        log.sync(log.append(bytes("complete")));
+        log.close();
+        long intact = file.length();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(intact);
+            raf.writeInt(100);
+            raf.writeInt(0);
+            raf.write(bytes("partial"));
+        }
+
+        WriteAheadLog reopened = new WriteAheadLog(file);
+        assertThat(reopened.readAll()).hasSize(1);
+        assertThat(reopened.size()).isEqualTo(intact);
+        reopened.close();
+    }
+
+    @Test
+    @DisplayName("Should stop at a record with a bad checksum")
+    void badChecksum() throws IOException {
+        WriteAheadLog log = new WriteAheadLog(file);
+        log.readAll();
+        log.sync(log.append(bytes("first")));
+        log.sync(log.append(bytes("second")));
+        log.close();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(8 + 5 + 8);
+            raf.write('S');
+        }
+
+        WriteAheadLog reopened = new WriteAheadLog(file);
+        List<byte[]> records = reopened.readAll();
+        reopened.close();
+
+        assertThat(records).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("Should truncate to an empty log")
+    void truncate() throws IOException {
+        WriteAheadLog log = new WriteAheadLog(file);
+        log.readAll();
+        log.sync(log.append(bytes("x")));
+        log.truncate();
+        log.sync(log.append(bytes("y")));
+        log.close();
+
+        WriteAheadLog reopened = new WriteAheadLog(file);
+        List<byte[]> records = reopened.readAll();
+        reopened.close();
+
+        assertThat(records).hasSize(1);
+        assertThat(new String(records.get(0), StandardCharsets.UTF_8)).isEqualTo("y");
+    }
+
+    @Test
+    @DisplayName("Should make every concurrent record durable with at most one sync each")
+    void groupCommit() throws Exception {
+        WriteAheadLog log = new WriteAheadLog(file);
+        log.readAll();
+        int writers = 8;
+        int perWriter = 50;
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < perWriter; i++) {
+                    log.sync(log.append(bytes("record")));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+        long syncs = log.getSyncCount();
+        log.close();
+
+        WriteAheadLog reopened = new WriteAheadLog(file);
+        assertThat(reopened.readAll()).hasSize(writers * perWriter);
+        reopened.close();
+        assertThat(syncs).isBetween(1L, (long) writers * perWriter);
+    }
+}
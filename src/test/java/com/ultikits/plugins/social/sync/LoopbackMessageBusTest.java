@@ -0,0 +1,49 @@
+package com.ultikits.plugins.social.sync;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests for LoopbackMessageBus.
+ */
+@DisplayName("LoopbackMessageBus Tests")
+class LoopbackMessageBusTest {
+
+    @Test
+    @DisplayName("Should deliver to other members but not to self")
+    void deliverToOthers() {
+        LoopbackMessageBus.Hub hub = new LoopbackMessageBus.Hub();
+        LoopbackMessageBus a = hub.join();
+        LoopbackMessageBus b = hub.join();
+        List<SyncMessage> receivedA = new ArrayList<>();
+        List<SyncMessage> receivedB = new ArrayList<>();
+        a.subscribe(receivedA::add);
+        b.subscribe(receivedB::add);
+
+        SyncMessage message = new SyncMessage("a", SyncMessage.Type.INVALIDATE, UUID.randomUUID(), null, null);
+        a.publish(message);
+
+        assertThat(receivedA).isEmpty();
+        assertThat(receivedB).containsExactly(message);
+    }
+
+    @Test
+    @DisplayName("Should stop delivering after close")
+    void closeLeavesHub() {
+        LoopbackMessageBus.Hub hub = new LoopbackMessageBus.Hub();
+        LoopbackMessageBus a = hub.join();
+        LoopbackMessageBus b = hub.join();
+        List<SyncMessage> receivedB = new ArrayList<>();
+        b.subscribe(receivedB::add);
+
+        b.close();
+        a.publish(new SyncMessage("a", SyncMessage.Type.INVALIDATE, UUID.randomUUID(), null, null));
+
+        assertThat(receivedB).isEmpty();
+    }
+}
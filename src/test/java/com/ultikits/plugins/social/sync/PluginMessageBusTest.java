@@ -0,0 +1,110 @@
+package com.ultikits.plugins.social.sync;
+
+import com.ultikits.plugins.social.UltiSocialTestHelper;
+
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.messaging.Messenger;
+import org.junit.jupiter.api.*;
+import org.mockito.ArgumentCaptor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for PluginMessageBus.
+ */
+@DisplayName("PluginMessageBus Tests")
+class PluginMessageBusTest {
+
+    private Plugin plugin;
+    private Messenger messenger;
+    private PluginMessageBus bus;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        UltiSocialTestHelper.setUp();
+        plugin = mock(Plugin.class);
+        messenger = mock(Messenger.class);
+        when(UltiSocialTestHelper.getMockServer().getMessenger()).thenReturn(messenger);
+        bus = new PluginMessageBus(plugin);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        UltiSocialTestHelper.tearDown();
+    }
+
+    @Test
+    @DisplayName("Should register proxy channel")
+    void registersChannel() {
+        verify(messenger).registerOutgoingPluginChannel(plugin, "BungeeCord");
+        verify(messenger).registerIncomingPluginChannel(plugin, "BungeeCord", bus);
+    }
+
+    @Test
+    @DisplayName("Should forward message through an online player")
+    void publishForwards() throws Exception {
+        Player carrier = UltiSocialTestHelper.createMockPlayer("Carrier", UUID.randomUUID());
+        when(UltiSocialTestHelper.getMockServer().getOnlinePlayers())
+                .thenReturn(Collections.singletonList(carrier));
+        SyncMessage message = new SyncMessage("a", SyncMessage.Type.INVALIDATE, UUID.randomUUID(), null, null);
+
+        bus.publish(message);
+
+        ArgumentCaptor<byte[]> captor = ArgumentCaptor.forClass(byte[].class);
+        verify(carrier).sendPluginMessage(eq(plugin), eq("BungeeCord"), captor.capture());
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(captor.getValue()));
+        assertThat(in.readUTF()).isEqualTo("Forward");
+        assertThat(in.readUTF()).isEqualTo("ALL");
+        assertThat(in.readUTF()).isEqualTo("UltiSocial");
+        byte[] payload = new byte[in.readUnsignedShort()];
+        in.readFully(payload);
+        assertThat(SyncMessage.decode(payload)).isEqualTo(message);
+    }
+
+    @Test
+    @DisplayName("Should drop message when no carrier is online")
+    void publishWithoutPlayers() {
+        bus.publish(new SyncMessage("a", SyncMessage.Type.INVALIDATE, UUID.randomUUID(), null, null));
+        // No exception, nothing to verify against
+    }
+
+    @Test
+    @DisplayName("Should decode forwarded messages for subscribers")
+    void receive() throws Exception {
+        List<SyncMessage> received = new ArrayList<>();
+        bus.subscribe(received::add);
+        SyncMessage message = new SyncMessage("b", SyncMessage.Type.PRESENCE_ONLINE, UUID.randomUUID(), null, "Alex");
+        byte[] payload = message.encode();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF("UltiSocial");
+        out.writeShort(payload.length);
+        out.write(payload);
+
+        bus.onPluginMessageReceived("BungeeCord", mock(Player.class), bytes.toByteArray());
+
+        assertThat(received).containsExactly(message);
+    }
+
+    @Test
+    @DisplayName("Should ignore other sub-channels")
+    void ignoreOtherSubChannels() throws Exception {
+        List<SyncMessage> received = new ArrayList<>();
+        bus.subscribe(received::add);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new DataOutputStream(bytes).writeUTF("GetServer");
+
+        bus.onPluginMessageReceived("BungeeCord", mock(Player.class), bytes.toByteArray());
+
+        assertThat(received).isEmpty();
+    }
+}
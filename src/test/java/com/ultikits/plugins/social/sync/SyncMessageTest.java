@@ -0,0 +1,58 @@
+package com.ultikits.plugins.social.sync;
+
+import org.junit.jupiter.api.*;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests for SyncMessage.
+ */
+@DisplayName("SyncMessage Tests")
+class SyncMessageTest {
+
+    @Test
+    @DisplayName("Should round-trip all fields")
+    void roundTrip() {
+        UUID subject = UUID.randomUUID();
+        UUID other = UUID.randomUUID();
+        SyncMessage message = new SyncMessage("lobby-1", SyncMessage.Type.FRIENDSHIP_CHANGED, subject, other, "Steve");
+
+        SyncMessage decoded = SyncMessage.decode(message.encode());
+
+        assertThat(decoded).isEqualTo(message);
+    }
+
+    @Test
+    @DisplayName("Should round-trip without optional fields")
+    void roundTripWithoutOptional() {
+        UUID subject = UUID.randomUUID();
+        SyncMessage message = new SyncMessage("lobby-1", SyncMessage.Type.INVALIDATE, subject, null, null);
+
+        SyncMessage decoded = SyncMessage.decode(message.encode());
+
+        assertThat(decoded.getOther()).isNull();
+        assertThat(decoded.getName()).isNull();
+        assertThat(decoded.getSubject()).isEqualTo(subject);
+    }
+
+    @Test
+    @DisplayName("Should round-trip a private message with its content")
+    void roundTripContent() {
+        SyncMessage message = new SyncMessage("lobby-1", SyncMessage.Type.PRIVATE_MESSAGE,
+                UUID.randomUUID(), UUID.randomUUID(), "Steve", "hello there");
+
+        SyncMessage decoded = SyncMessage.decode(message.encode());
+
+        assertThat(decoded).isEqualTo(message);
+        assertThat(decoded.getContent()).isEqualTo("hello there");
+    }
+
+    @Test
+    @DisplayName("Should return null for unknown payloads")
+    void decodeGarbage() {
+        assertThat(SyncMessage.decode(new byte[]{9, 9, 9})).isNull();
+        assertThat(SyncMessage.decode(new byte[0])).isNull();
+    }
+}